@@ -0,0 +1,115 @@
+package edu.ucsb.cs156.example.benchmarks;
+
+import edu.ucsb.cs156.example.entities.User;
+import edu.ucsb.cs156.example.models.CurrentUser;
+import edu.ucsb.cs156.example.repositories.UserRepository;
+import edu.ucsb.cs156.example.services.AdminAuthorityResolver;
+import edu.ucsb.cs156.example.services.CurrentUserCache;
+import edu.ucsb.cs156.example.services.CurrentUserServiceImpl;
+import edu.ucsb.cs156.example.services.GrantedAuthoritiesService;
+import edu.ucsb.cs156.example.services.ProfileSyncWriter;
+
+import org.mockito.Mockito;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Import;
+import org.springframework.core.convert.support.DefaultConversionService;
+import org.springframework.core.env.MapPropertySource;
+import org.springframework.jdbc.core.JdbcOperations;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.oauth2.client.authentication.OAuth2AuthenticationToken;
+import org.springframework.security.oauth2.core.user.DefaultOAuth2User;
+import org.springframework.security.oauth2.core.user.OAuth2User;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of {@link CurrentUserServiceImpl#getCurrentUser()}, which runs on every
+ * authenticated request.  The repository is a stub that answers instantly, so
+ * the numbers are the service's own overhead; {@code cold} additionally
+ * empties the user cache before every call so the lookup path is measured.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(1)
+public class CurrentUserServiceBenchmark {
+  private static final String EMAIL = "user1@ucsb.edu";
+
+  private AnnotationConfigApplicationContext context;
+  private CurrentUserServiceImpl currentUserService;
+  private CurrentUserCache currentUserCache;
+
+  @Configuration
+  @Import({ CurrentUserServiceImpl.class, GrantedAuthoritiesService.class, AdminAuthorityResolver.class })
+  static class Beans {
+    @Bean
+    CurrentUserCache currentUserCache() {
+      return new CurrentUserCache(300, 10000);
+    }
+
+    @Bean
+    ProfileSyncWriter profileSyncWriter() {
+      return new ProfileSyncWriter(Mockito.mock(JdbcOperations.class), 5000);
+    }
+
+    @Bean
+    UserRepository userRepository() {
+      UserRepository userRepository = Mockito.mock(UserRepository.class);
+      User user = SyntheticData.user(1);
+      Mockito.when(userRepository.findByGoogleSub(user.getGoogleSub())).thenReturn(Optional.of(user));
+      Mockito.when(userRepository.findByEmail(EMAIL)).thenReturn(Optional.of(user));
+      return userRepository;
+    }
+  }
+
+  @Setup(Level.Trial)
+  public void setup() {
+    context = new AnnotationConfigApplicationContext();
+    context.getBeanFactory().setConversionService(new DefaultConversionService());
+    context.getEnvironment().getPropertySources()
+        .addFirst(new MapPropertySource("benchmark", Map.of("app.admin.emails", "admin@ucsb.edu")));
+    context.register(Beans.class);
+    context.refresh();
+    currentUserService = context.getBean(CurrentUserServiceImpl.class);
+    currentUserCache = context.getBean(CurrentUserCache.class);
+
+    OAuth2User principal = new DefaultOAuth2User(List.of(new SimpleGrantedAuthority("ROLE_USER")),
+        Map.of("email", EMAIL, "sub", "100000000001", "name", "User Number 1", "email_verified", true),
+        "email");
+    SecurityContextHolder.getContext()
+        .setAuthentication(new OAuth2AuthenticationToken(principal, principal.getAuthorities(), "google"));
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() {
+    SecurityContextHolder.clearContext();
+    context.close();
+  }
+
+  @Benchmark
+  public CurrentUser warm() {
+    return currentUserService.getCurrentUser();
+  }
+
+  @Benchmark
+  public CurrentUser cold() {
+    currentUserCache.invalidateAll();
+    return currentUserService.getCurrentUser();
+  }
+}
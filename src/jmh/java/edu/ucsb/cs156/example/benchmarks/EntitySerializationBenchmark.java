@@ -0,0 +1,73 @@
+package edu.ucsb.cs156.example.benchmarks;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of turning a full entity list into a JSON response body, which is what
+ * every /all endpoint does.  The mapper is built the same way Spring Boot
+ * builds the one used by the controllers.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+public class EntitySerializationBenchmark {
+
+  @Param({ "Articles", "HelpRequest", "MenuItemReview", "RecommendationRequest", "UCSBDate",
+      "UCSBDiningCommons", "UCSBDiningCommonsMenuItem", "UCSBOrganizations", "User" })
+  public String entity;
+
+  @Param({ "1000", "100000" })
+  public int rows;
+
+  private ObjectMapper mapper;
+  private List<?> list;
+
+  @Setup(Level.Trial)
+  public void setup() {
+    mapper = Jackson2ObjectMapperBuilder.json()
+        .featuresToDisable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+        .build();
+    list = SyntheticData.rows(entity, rows);
+  }
+
+  @Benchmark
+  public long writeList() throws IOException {
+    CountingOutputStream out = new CountingOutputStream();
+    mapper.writeValue(out, list);
+    return out.count;
+  }
+
+  /** Discards the bytes but keeps the length so the write cannot be optimized away. */
+  static final class CountingOutputStream extends OutputStream {
+    long count;
+
+    @Override
+    public void write(int b) {
+      count++;
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) {
+      count += len;
+    }
+  }
+}
@@ -0,0 +1,74 @@
+package edu.ucsb.cs156.example.benchmarks;
+
+import edu.ucsb.cs156.example.aop.LoggingAspect;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.aop.aspectj.annotation.AspectJProxyFactory;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Overhead the controller logging advice adds to every request: the same
+ * trivial handler called directly and through a proxy carrying
+ * {@link LoggingAspect}.  Log output goes to target/jmh-benchmark.log (see
+ * logback-test.xml) so that formatting and appending are part of the cost.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(1)
+public class LoggingAspectBenchmark {
+
+  public static class ExampleController {
+    @GetMapping("/api/example")
+    public long getById(@RequestParam long id) {
+      return id + 1;
+    }
+  }
+
+  private ExampleController direct;
+  private ExampleController advised;
+  private long id;
+
+  @Setup(Level.Trial)
+  public void setup() {
+    direct = new ExampleController();
+    AspectJProxyFactory factory = new AspectJProxyFactory(new ExampleController());
+    factory.setProxyTargetClass(true);
+    factory.addAspect(LoggingAspect.class);
+    advised = factory.getProxy();
+
+    MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/example");
+    request.setQueryString("id=1");
+    RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(request));
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() {
+    RequestContextHolder.resetRequestAttributes();
+  }
+
+  @Benchmark
+  public long direct() {
+    return direct.getById(id++);
+  }
+
+  @Benchmark
+  public long advised() {
+    return advised.getById(id++);
+  }
+}
@@ -0,0 +1,156 @@
+package edu.ucsb.cs156.example.benchmarks;
+
+import edu.ucsb.cs156.example.entities.User;
+import edu.ucsb.cs156.example.models.CurrentUser;
+import edu.ucsb.cs156.example.repositories.UserRepository;
+import edu.ucsb.cs156.example.services.AdminAuthorityResolver;
+import edu.ucsb.cs156.example.services.CurrentUserCache;
+import edu.ucsb.cs156.example.services.CurrentUserServiceImpl;
+import edu.ucsb.cs156.example.services.GrantedAuthoritiesService;
+import edu.ucsb.cs156.example.services.ProfileSyncWriter;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.boot.SpringBootConfiguration;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.autoconfigure.ImportAutoConfiguration;
+import org.springframework.boot.autoconfigure.domain.EntityScan;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceAutoConfiguration;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceTransactionManagerAutoConfiguration;
+import org.springframework.boot.autoconfigure.jdbc.JdbcTemplateAutoConfiguration;
+import org.springframework.boot.autoconfigure.liquibase.LiquibaseAutoConfiguration;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernateJpaAutoConfiguration;
+import org.springframework.boot.autoconfigure.transaction.TransactionAutoConfiguration;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.oauth2.client.authentication.OAuth2AuthenticationToken;
+import org.springframework.security.oauth2.core.user.DefaultOAuth2User;
+import org.springframework.security.oauth2.core.user.OAuth2User;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The database side of logging in: the USERS lookups by email and by Google
+ * subject, and {@link CurrentUserServiceImpl#getCurrentUser()} with its cache
+ * emptied so that every call reaches the database.  The schema comes from the
+ * Liquibase changelog, so the unique indexes on EMAIL and GOOGLE_SUB are the
+ * ones production has; with them the numbers should not grow with
+ * {@code users}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+public class LoginPathBenchmark {
+  private static final int SEED_CHUNK = 1000;
+  private static final int SAMPLES = 1024;
+  private static final String INSERT = """
+      INSERT INTO USERS (ID, ADMIN, EMAIL, EMAIL_VERIFIED, FAMILY_NAME, FULL_NAME, GIVEN_NAME, GOOGLE_SUB,
+                         HOSTED_DOMAIN, LOCALE, PICTURE_URL)
+      VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)""";
+
+  @Param({ "1000", "100000", "250000" })
+  public int users;
+
+  private ConfigurableApplicationContext context;
+  private UserRepository userRepository;
+  private CurrentUserServiceImpl currentUserService;
+  private CurrentUserCache currentUserCache;
+  private User[] samples;
+  private OAuth2AuthenticationToken[] logins;
+
+  @SpringBootConfiguration
+  @ImportAutoConfiguration({ DataSourceAutoConfiguration.class, DataSourceTransactionManagerAutoConfiguration.class,
+      JdbcTemplateAutoConfiguration.class, LiquibaseAutoConfiguration.class, HibernateJpaAutoConfiguration.class,
+      TransactionAutoConfiguration.class })
+  @EntityScan(basePackageClasses = User.class)
+  @EnableJpaRepositories(basePackageClasses = UserRepository.class)
+  @Import({ CurrentUserServiceImpl.class, CurrentUserCache.class, GrantedAuthoritiesService.class,
+      AdminAuthorityResolver.class, ProfileSyncWriter.class })
+  static class Login {
+  }
+
+  @Setup(Level.Trial)
+  public void setup() {
+    context = new SpringApplicationBuilder(Login.class)
+        .web(WebApplicationType.NONE)
+        .run("--spring.profiles.active=benchmark",
+            "--spring.datasource.url=jdbc:h2:mem:loginpath;DB_CLOSE_DELAY=-1",
+            "--spring.liquibase.enabled=true",
+            "--app.admin.emails=admin@ucsb.edu",
+            "--spring.main.banner-mode=off");
+    userRepository = context.getBean(UserRepository.class);
+    currentUserService = context.getBean(CurrentUserServiceImpl.class);
+    currentUserCache = context.getBean(CurrentUserCache.class);
+
+    JdbcTemplate jdbcTemplate = context.getBean(JdbcTemplate.class);
+    for (int start = 0; start < users; start += SEED_CHUNK) {
+      int from = start;
+      jdbcTemplate.batchUpdate(INSERT,
+          SyntheticData.list(Math.min(SEED_CHUNK, users - from), i -> row(SyntheticData.user(from + i))));
+    }
+
+    samples = new User[SAMPLES];
+    logins = new OAuth2AuthenticationToken[SAMPLES];
+    for (int i = 0; i < SAMPLES; i++) {
+      User user = SyntheticData.user((int) ((long) i * users / SAMPLES));
+      samples[i] = user;
+      OAuth2User principal = new DefaultOAuth2User(List.of(new SimpleGrantedAuthority("ROLE_USER")),
+          Map.of("email", user.getEmail(), "sub", user.getGoogleSub(), "name", user.getFullName(),
+              "email_verified", true),
+          "sub");
+      logins[i] = new OAuth2AuthenticationToken(principal, principal.getAuthorities(), "google");
+    }
+  }
+
+  private static Object[] row(User user) {
+    return new Object[] { user.getId(), user.getAdmin(), user.getEmail(), user.getEmailVerified(),
+        user.getFamilyName(), user.getFullName(), user.getGivenName(), user.getGoogleSub(), user.getHostedDomain(),
+        user.getLocale(), user.getPictureUrl() };
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() {
+    SecurityContextHolder.clearContext();
+    context.close();
+  }
+
+  private int randomSample() {
+    return ThreadLocalRandom.current().nextInt(SAMPLES);
+  }
+
+  @Benchmark
+  public Optional<User> findByEmail() {
+    return userRepository.findByEmail(samples[randomSample()].getEmail());
+  }
+
+  @Benchmark
+  public Optional<User> findByGoogleSub() {
+    return userRepository.findByGoogleSub(samples[randomSample()].getGoogleSub());
+  }
+
+  @Benchmark
+  public CurrentUser currentUserUncached() {
+    SecurityContextHolder.getContext().setAuthentication(logins[randomSample()]);
+    currentUserCache.invalidateAll();
+    return currentUserService.getCurrentUser();
+  }
+}
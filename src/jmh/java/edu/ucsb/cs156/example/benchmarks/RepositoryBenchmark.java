@@ -0,0 +1,133 @@
+package edu.ucsb.cs156.example.benchmarks;
+
+import edu.ucsb.cs156.example.entities.MenuItemReview;
+import edu.ucsb.cs156.example.entities.UCSBDiningCommonsMenuItem;
+import edu.ucsb.cs156.example.repositories.MenuItemReviewRepository;
+import edu.ucsb.cs156.example.repositories.UCSBDiningCommonsMenuItemRepository;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.boot.SpringBootConfiguration;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.autoconfigure.ImportAutoConfiguration;
+import org.springframework.boot.autoconfigure.domain.EntityScan;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceAutoConfiguration;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceTransactionManagerAutoConfiguration;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernateJpaAutoConfiguration;
+import org.springframework.boot.autoconfigure.transaction.TransactionAutoConfiguration;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.IntFunction;
+
+/**
+ * Repository reads against an in-memory H2 database seeded with synthetic
+ * rows, using the application's own JPA settings (second-level cache,
+ * batching) from application.properties.  The development profile is not
+ * activated, so its SQL logging does not distort the numbers.
+ *
+ * Reviews are a plain table; menu items are in the second-level cache, so
+ * comparing the two shows what the cache buys.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+public class RepositoryBenchmark {
+  private static final int SEED_CHUNK = 1000;
+
+  @Param({ "1000", "100000" })
+  public int rows;
+
+  private ConfigurableApplicationContext context;
+  private MenuItemReviewRepository menuItemReviewRepository;
+  private UCSBDiningCommonsMenuItemRepository menuItemRepository;
+
+  @SpringBootConfiguration
+  @ImportAutoConfiguration({ DataSourceAutoConfiguration.class, DataSourceTransactionManagerAutoConfiguration.class,
+      HibernateJpaAutoConfiguration.class, TransactionAutoConfiguration.class })
+  @EntityScan(basePackageClasses = MenuItemReview.class)
+  @EnableJpaRepositories(basePackageClasses = MenuItemReviewRepository.class)
+  static class Jpa {
+  }
+
+  @Setup(Level.Trial)
+  public void setup() {
+    context = new SpringApplicationBuilder(Jpa.class)
+        .web(WebApplicationType.NONE)
+        .run("--spring.profiles.active=benchmark",
+            "--spring.datasource.url=jdbc:h2:mem:benchmark;DB_CLOSE_DELAY=-1",
+            "--spring.jpa.hibernate.ddl-auto=create-drop",
+            "--spring.liquibase.enabled=false",
+            "--spring.main.banner-mode=off");
+    menuItemReviewRepository = context.getBean(MenuItemReviewRepository.class);
+    menuItemRepository = context.getBean(UCSBDiningCommonsMenuItemRepository.class);
+
+    TransactionTemplate transactionTemplate = new TransactionTemplate(context.getBean(PlatformTransactionManager.class));
+    seed(transactionTemplate, i -> {
+      MenuItemReview review = SyntheticData.menuItemReview(i);
+      review.setId(0);
+      return review;
+    }, menuItemReviewRepository::saveAll);
+    seed(transactionTemplate, i -> {
+      UCSBDiningCommonsMenuItem item = SyntheticData.menuItem(i);
+      item.setId(0);
+      return item;
+    }, menuItemRepository::saveAll);
+  }
+
+  private <T> void seed(TransactionTemplate transactionTemplate, IntFunction<T> row,
+      Consumer<List<T>> saveAll) {
+    for (int start = 0; start < rows; start += SEED_CHUNK) {
+      int from = start;
+      List<T> chunk = SyntheticData.list(Math.min(SEED_CHUNK, rows - from), i -> row.apply(from + i));
+      transactionTemplate.executeWithoutResult(status -> saveAll.accept(chunk));
+    }
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() {
+    context.close();
+  }
+
+  private long randomId() {
+    return 1 + ThreadLocalRandom.current().nextInt(rows);
+  }
+
+  @Benchmark
+  public Iterable<MenuItemReview> findAllReviews() {
+    return menuItemReviewRepository.findAll();
+  }
+
+  @Benchmark
+  public Optional<MenuItemReview> findReviewById() {
+    return menuItemReviewRepository.findById(randomId());
+  }
+
+  @Benchmark
+  public Iterable<UCSBDiningCommonsMenuItem> findAllMenuItems() {
+    return menuItemRepository.findAll();
+  }
+
+  @Benchmark
+  public Optional<UCSBDiningCommonsMenuItem> findMenuItemById() {
+    return menuItemRepository.findById(randomId());
+  }
+}
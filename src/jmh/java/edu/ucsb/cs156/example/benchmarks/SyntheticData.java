@@ -0,0 +1,105 @@
+package edu.ucsb.cs156.example.benchmarks;
+
+import edu.ucsb.cs156.example.entities.Articles;
+import edu.ucsb.cs156.example.entities.HelpRequest;
+import edu.ucsb.cs156.example.entities.MenuItemReview;
+import edu.ucsb.cs156.example.entities.RecommendationRequest;
+import edu.ucsb.cs156.example.entities.UCSBDate;
+import edu.ucsb.cs156.example.entities.UCSBDiningCommons;
+import edu.ucsb.cs156.example.entities.UCSBDiningCommonsMenuItem;
+import edu.ucsb.cs156.example.entities.UCSBOrganizations;
+import edu.ucsb.cs156.example.entities.User;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.function.IntFunction;
+import java.util.stream.IntStream;
+
+/**
+ * Deterministic rows for every entity, so that runs before and after a change
+ * serialize and query exactly the same data.
+ */
+public final class SyntheticData {
+  private static final LocalDateTime EPOCH = LocalDateTime.parse("2022-01-03T08:00:00");
+  private static final List<String> COMMONS = List.of("carrillo", "de-la-guerra", "ortega", "portola");
+
+  private SyntheticData() {
+  }
+
+  public static List<?> rows(String entity, int count) {
+    return list(count, row(entity));
+  }
+
+  public static <T> List<T> list(int count, IntFunction<T> row) {
+    return IntStream.range(0, count).mapToObj(row).toList();
+  }
+
+  public static IntFunction<?> row(String entity) {
+    return switch (entity) {
+      case "Articles" -> SyntheticData::article;
+      case "HelpRequest" -> SyntheticData::helpRequest;
+      case "MenuItemReview" -> SyntheticData::menuItemReview;
+      case "RecommendationRequest" -> SyntheticData::recommendationRequest;
+      case "UCSBDate" -> SyntheticData::ucsbDate;
+      case "UCSBDiningCommons" -> SyntheticData::diningCommons;
+      case "UCSBDiningCommonsMenuItem" -> SyntheticData::menuItem;
+      case "UCSBOrganizations" -> SyntheticData::organization;
+      case "User" -> SyntheticData::user;
+      default -> throw new IllegalArgumentException("Unknown entity %s".formatted(entity));
+    };
+  }
+
+  public static Articles article(int i) {
+    return Articles.builder().id(i + 1).title("Article number %d about campus life".formatted(i))
+        .url("https://example.org/articles/%d".formatted(i))
+        .explanation("A short explanation of why article %d is worth reading".formatted(i))
+        .email("author%d@ucsb.edu".formatted(i % 500)).dateAdded(EPOCH.plusMinutes(i)).build();
+  }
+
+  public static HelpRequest helpRequest(int i) {
+    return HelpRequest.builder().id(i + 1).requesterEmail("student%d@ucsb.edu".formatted(i % 2000))
+        .teamId("s22-%dpm-%d".formatted(5 + i % 2, i % 4)).tableOrBreakoutRoom(Integer.toString(i % 12))
+        .requestTime(EPOCH.plusMinutes(i)).explanation("Stuck on step %d of the lab".formatted(i % 20))
+        .solved(i % 3 == 0).build();
+  }
+
+  public static MenuItemReview menuItemReview(int i) {
+    return MenuItemReview.builder().id(i + 1).itemId(1 + i % 300).reviewerEmail("diner%d@ucsb.edu".formatted(i % 5000))
+        .stars(1 + i % 5).dateReviewed(EPOCH.plusMinutes(i)).comments("Review %d: would eat again".formatted(i))
+        .build();
+  }
+
+  public static RecommendationRequest recommendationRequest(int i) {
+    return RecommendationRequest.builder().id(i + 1).requesterEmail("student%d@ucsb.edu".formatted(i % 2000))
+        .professorEmail("prof%d@ucsb.edu".formatted(i % 50)).explanation("Graduate school application %d".formatted(i))
+        .dateRequested(EPOCH.plusHours(i)).dateNeeded(EPOCH.plusHours(i).plusWeeks(3)).done(i % 2 == 0).build();
+  }
+
+  public static UCSBDate ucsbDate(int i) {
+    return UCSBDate.builder().id(i + 1).quarterYYYYQ("20%02d%d".formatted(10 + i / 400 % 90, 1 + i % 4))
+        .name("date %d".formatted(i)).localDateTime(EPOCH.plusDays(i)).build();
+  }
+
+  public static UCSBDiningCommons diningCommons(int i) {
+    return UCSBDiningCommons.builder().code("commons-%d".formatted(i)).name("Dining Commons %d".formatted(i))
+        .hasSackMeal(i % 2 == 0).hasTakeOutMeal(i % 3 == 0).hasDiningCam(true)
+        .latitude(34.41 + i * 1e-6).longitude(-119.84 - i * 1e-6).build();
+  }
+
+  public static UCSBDiningCommonsMenuItem menuItem(int i) {
+    return UCSBDiningCommonsMenuItem.builder().id(i + 1).diningCommonsCode(COMMONS.get(i % COMMONS.size()))
+        .name("Menu item %d".formatted(i)).station("Station %d".formatted(i % 8)).build();
+  }
+
+  public static UCSBOrganizations organization(int i) {
+    return UCSBOrganizations.builder().orgCode("ORG%d".formatted(i)).orgTranslationShort("CLUB %d".formatted(i))
+        .orgTranslation("STUDENT CLUB %d AT UCSB".formatted(i)).inactive(i % 10 == 0).build();
+  }
+
+  public static User user(int i) {
+    return User.builder().id(i + 1).email("user%d@ucsb.edu".formatted(i)).googleSub(Long.toString(100000000000L + i))
+        .pictureUrl("https://lh3.googleusercontent.com/a/photo-%d".formatted(i)).fullName("User Number %d".formatted(i))
+        .givenName("User").familyName("Number %d".formatted(i)).emailVerified(true).locale("en")
+        .hostedDomain("ucsb.edu").admin(false).build();
+  }
+}
@@ -0,0 +1,124 @@
+package edu.ucsb.cs156.example.aop;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A fixed-size, many-producer / single-consumer queue of access log entries.
+ *
+ * Every slot is allocated up front as parallel arrays, so recording a request
+ * only copies references to strings that already exist (the HTTP method, the
+ * route template and a cached handler name) and a few primitives.  When the
+ * writer falls behind and the buffer is full, new entries are dropped and
+ * counted rather than making the request thread wait.
+ *
+ * Only one thread may call {@link #drain}.
+ */
+public class AccessLogRingBuffer {
+
+  @FunctionalInterface
+  public interface Entry {
+    void accept(String method, String route, String handler, int status, long latencyNanos, long timestampMillis);
+  }
+
+  private final int capacity;
+  private final int mask;
+  private final String[] methods;
+  private final String[] routes;
+  private final String[] handlers;
+  private final int[] statuses;
+  private final long[] latencies;
+  private final long[] timestamps;
+
+  /** Slot i holds the sequence number of the entry last published into it. */
+  private final AtomicLongArray published;
+  private final AtomicLong claimed = new AtomicLong();
+  private volatile long consumed;
+  private final LongAdder dropped = new LongAdder();
+
+  public AccessLogRingBuffer(int capacity) {
+    if (capacity < 1 || Integer.bitCount(capacity) != 1) {
+      throw new IllegalArgumentException("capacity must be a power of two");
+    }
+    this.capacity = capacity;
+    this.mask = capacity - 1;
+    this.methods = new String[capacity];
+    this.routes = new String[capacity];
+    this.handlers = new String[capacity];
+    this.statuses = new int[capacity];
+    this.latencies = new long[capacity];
+    this.timestamps = new long[capacity];
+    this.published = new AtomicLongArray(capacity);
+    for (int i = 0; i < capacity; i++) {
+      published.set(i, -1);
+    }
+  }
+
+  /**
+   * Records one entry, or counts it as dropped and returns false if the
+   * buffer is full.  Never blocks.
+   */
+  public boolean offer(String method, String route, String handler, int status, long latencyNanos,
+      long timestampMillis) {
+    // consumed only grows, so judging fullness against one read of it is safe
+    long tail = consumed;
+    long seq = claimed.getAndUpdate(s -> s - tail >= capacity ? s : s + 1);
+    if (seq - tail >= capacity) {
+      dropped.increment();
+      return false;
+    }
+
+    int i = (int) (seq & mask);
+    methods[i] = method;
+    routes[i] = route;
+    handlers[i] = handler;
+    statuses[i] = status;
+    latencies[i] = latencyNanos;
+    timestamps[i] = timestampMillis;
+    published.lazySet(i, seq);
+    return true;
+  }
+
+  /**
+   * Hands up to {@code maxEntries} published entries to {@code entry}, oldest
+   * first, and returns how many were handed over.  Stops early at an entry
+   * whose producer has claimed its slot but not finished writing it.
+   */
+  public int drain(Entry entry, int maxEntries) {
+    long cursor = consumed;
+    int n = 0;
+    try {
+      while (n < maxEntries) {
+        int i = (int) (cursor & mask);
+        if (published.get(i) != cursor) {
+          break;
+        }
+        String method = methods[i];
+        String route = routes[i];
+        String handler = handlers[i];
+        int status = statuses[i];
+        long latency = latencies[i];
+        long timestamp = timestamps[i];
+        cursor++;
+        n++;
+        entry.accept(method, route, handler, status, latency, timestamp);
+      }
+    } finally {
+      consumed = cursor;
+    }
+    return n;
+  }
+
+  public int size() {
+    return (int) (claimed.get() - consumed);
+  }
+
+  public int capacity() {
+    return capacity;
+  }
+
+  public long dropped() {
+    return dropped.sum();
+  }
+}
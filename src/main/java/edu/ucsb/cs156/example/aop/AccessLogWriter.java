@@ -0,0 +1,108 @@
+package edu.ucsb.cs156.example.aop;
+
+import lombok.extern.slf4j.Slf4j;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Owns the access log {@link AccessLogRingBuffer} and the single background
+ * thread that drains it.
+ *
+ * Request threads only call {@link #offer}; formatting and writing the log
+ * lines happens on the writer thread, a batch at a time.  Entries still in the
+ * buffer at shutdown are written before the thread exits.
+ */
+@Slf4j
+@Component
+public class AccessLogWriter implements SmartLifecycle {
+  static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(20);
+
+  private final AccessLogRingBuffer buffer;
+  private final int batchSize;
+  private final AccessLogRingBuffer.Entry sink = this::write;
+
+  private volatile boolean running;
+  private Thread thread;
+  private long reportedDrops;
+
+  public AccessLogWriter(@Value("${app.accessLog.capacity:8192}") int capacity,
+      @Value("${app.accessLog.batchSize:256}") int batchSize) {
+    this.buffer = new AccessLogRingBuffer(capacity);
+    this.batchSize = batchSize;
+  }
+
+  public boolean offer(String method, String route, String handler, int status, long latencyNanos) {
+    return buffer.offer(method, route, handler, status, latencyNanos, System.currentTimeMillis());
+  }
+
+  AccessLogRingBuffer buffer() {
+    return buffer;
+  }
+
+  /**
+   * Writes one batch and reports any entries dropped since the last batch.
+   * Only called from the writer thread, or from tests while it is stopped.
+   */
+  int drain() {
+    int written = buffer.drain(sink, batchSize);
+    long drops = buffer.dropped();
+    if (drops > reportedDrops) {
+      log.warn("access log buffer full; dropped {} entries", drops - reportedDrops);
+      reportedDrops = drops;
+    }
+    return written;
+  }
+
+  private void write(String method, String route, String handler, int status, long latencyNanos,
+      long timestampMillis) {
+    log.info("{} {} {} {}us {} at {}", method, route, status, latencyNanos / 1000, handler,
+        Instant.ofEpochMilli(timestampMillis));
+  }
+
+  void run() {
+    while (running) {
+      if (drain() == 0) {
+        LockSupport.parkNanos(IDLE_PARK_NANOS);
+      }
+    }
+    while (drain() > 0) {
+      // flush what is left
+    }
+  }
+
+  @Override
+  public synchronized void start() {
+    if (running) {
+      return;
+    }
+    running = true;
+    thread = new Thread(this::run, "access-log-writer");
+    thread.setDaemon(true);
+    thread.start();
+  }
+
+  @Override
+  public synchronized void stop() {
+    if (!running) {
+      return;
+    }
+    running = false;
+    LockSupport.unpark(thread);
+    try {
+      thread.join();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  @Override
+  public boolean isRunning() {
+    return running;
+  }
+}
@@ -1,25 +1,33 @@
 package edu.ucsb.cs156.example.aop;
 
-import lombok.extern.slf4j.Slf4j;
-import org.aspectj.lang.JoinPoint;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
 import org.aspectj.lang.annotation.Aspect;
-import org.aspectj.lang.annotation.Before;
+import org.aspectj.lang.reflect.MethodSignature;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.RequestAttributes;
 import org.springframework.web.context.request.RequestContextHolder;
 import org.springframework.web.context.request.ServletRequestAttributes;
+import org.springframework.web.servlet.HandlerMapping;
 
 import javax.servlet.http.HttpServletRequest;
 
-import java.util.ArrayList;
-import java.util.Arrays;
-import java.util.Optional;
+import java.lang.reflect.Method;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
-@Slf4j
+/**
+ * Records one access log entry per controller call.  The request thread only
+ * copies the method, route template, handler, status and latency into the
+ * {@link AccessLogWriter}'s ring buffer; the log line is written later on the
+ * writer thread.
+ */
 @Aspect
 @Component
 public class LoggingAspect {
   // language=PointcutExpression
-  private static final String pointcut = """
+  public static final String POINTCUT = """
       @annotation(org.springframework.web.bind.annotation.RequestMapping) ||
       @annotation(org.springframework.web.bind.annotation.GetMapping) ||
       @annotation(org.springframework.web.bind.annotation.PostMapping) ||
@@ -28,25 +36,55 @@ public class LoggingAspect {
       @annotation(org.springframework.web.bind.annotation.PatchMapping)
       """;
 
-  private ArrayList<String> stoplist = new ArrayList<String>(Arrays.asList(
-      "edu.ucsb.cs156.example.controllers.FrontendProxyController"));
-
-  @Before(pointcut)
-  public void logControllers(JoinPoint joinPoint) {
-    getCurrentHttpRequest().ifPresent(
-        request -> {
-          String declaringTypeName = joinPoint.getSignature().getDeclaringTypeName();
-          if (!stoplist.contains(declaringTypeName)) {
-            log.info("===== %s %s handled by %s in %s".formatted(request.getMethod(), request.getRequestURI(),
-                joinPoint.getSignature().getName(), declaringTypeName));
-          }
-        });
+  private static final Set<String> stoplist = Set.of(
+      "edu.ucsb.cs156.example.controllers.FrontendProxyController");
+
+  /** Handler names by method; the empty string marks a stoplisted handler. */
+  private final ConcurrentHashMap<Method, String> handlerNames = new ConcurrentHashMap<>();
+
+  @Autowired
+  AccessLogWriter accessLogWriter;
+
+  @Autowired
+  ResponseStatusResolver responseStatusResolver;
+
+  @Around(POINTCUT)
+  public Object logControllers(ProceedingJoinPoint joinPoint) throws Throwable {
+    RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+    if (!(attributes instanceof ServletRequestAttributes servletAttributes)) {
+      return joinPoint.proceed();
+    }
+    Method method = ((MethodSignature) joinPoint.getSignature()).getMethod();
+    String handler = handlerNames.computeIfAbsent(method, LoggingAspect::handlerName);
+    if (handler.isEmpty()) {
+      return joinPoint.proceed();
+    }
+
+    long start = System.nanoTime();
+    Object result = null;
+    Throwable thrown = null;
+    try {
+      result = joinPoint.proceed();
+      return result;
+    } catch (Throwable t) {
+      thrown = t;
+      throw t;
+    } finally {
+      long latency = System.nanoTime() - start;
+      HttpServletRequest request = servletAttributes.getRequest();
+      int status = responseStatusResolver.statusOf(joinPoint.getTarget().getClass(), result, thrown,
+          servletAttributes.getResponse());
+      accessLogWriter.offer(request.getMethod(),
+          (String) request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE),
+          handler, status, latency);
+    }
   }
 
-  private static Optional<HttpServletRequest> getCurrentHttpRequest() {
-    return Optional.ofNullable(RequestContextHolder.getRequestAttributes())
-        .filter(ServletRequestAttributes.class::isInstance)
-        .map(ServletRequestAttributes.class::cast)
-        .map(ServletRequestAttributes::getRequest);
+  private static String handlerName(Method method) {
+    Class<?> type = method.getDeclaringClass();
+    if (stoplist.contains(type.getName())) {
+      return "";
+    }
+    return type.getSimpleName() + "." + method.getName();
   }
 }
@@ -0,0 +1,54 @@
+package edu.ucsb.cs156.example.aop;
+
+import org.springframework.core.annotation.AnnotatedElementUtils;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+import org.springframework.web.bind.annotation.ResponseStatus;
+import org.springframework.web.method.annotation.ExceptionHandlerMethodResolver;
+import org.springframework.web.server.ResponseStatusException;
+
+import javax.servlet.http.HttpServletResponse;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Works out, from inside controller advice, the status a request is going to
+ * be answered with.
+ *
+ * Spring only commits the status after the handler has returned, so the
+ * response still says 200 while the advice runs.  A returned
+ * {@link ResponseEntity} carries its own status; for a thrown exception this
+ * looks up the controller's {@code @ExceptionHandler} (e.g. those in
+ * {@code ApiController}) and reads its {@code @ResponseStatus}, the same way
+ * Spring MVC will a moment later.
+ */
+@Component
+public class ResponseStatusResolver {
+  private final ConcurrentHashMap<Class<?>, ExceptionHandlerMethodResolver> resolvers = new ConcurrentHashMap<>();
+
+  public int statusOf(Class<?> controller, Object result, Throwable thrown, HttpServletResponse response) {
+    if (thrown != null) {
+      return statusOf(controller, thrown);
+    }
+    if (result instanceof ResponseEntity<?> entity) {
+      return entity.getStatusCodeValue();
+    }
+    return response == null ? HttpStatus.OK.value() : response.getStatus();
+  }
+
+  int statusOf(Class<?> controller, Throwable thrown) {
+    if (thrown instanceof ResponseStatusException e) {
+      return e.getRawStatusCode();
+    }
+    Method handler = resolvers.computeIfAbsent(controller, ExceptionHandlerMethodResolver::new)
+        .resolveMethodByThrowable(thrown);
+    ResponseStatus status = handler == null ? null
+        : AnnotatedElementUtils.findMergedAnnotation(handler, ResponseStatus.class);
+    if (status == null) {
+      status = AnnotatedElementUtils.findMergedAnnotation(thrown.getClass(), ResponseStatus.class);
+    }
+    return status == null ? HttpStatus.INTERNAL_SERVER_ERROR.value() : status.code().value();
+  }
+}
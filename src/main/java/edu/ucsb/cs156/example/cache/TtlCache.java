@@ -0,0 +1,88 @@
+package edu.ucsb.cs156.example.cache;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+import java.util.function.LongSupplier;
+
+/**
+ * A small bounded map whose entries expire a fixed time after they were written.
+ *
+ * Reads are a single {@link ConcurrentHashMap} lookup.  When the map is full,
+ * expired entries are dropped first and then arbitrary ones, which is good
+ * enough for the login-path caches this is used for, where entries are cheap to
+ * reload and the bound only exists to protect the heap.
+ */
+public class TtlCache<K, V> {
+  private final ConcurrentHashMap<K, Entry<V>> entries = new ConcurrentHashMap<>();
+  private final long ttlNanos;
+  private final int maxSize;
+  private final LongSupplier nanoClock;
+
+  public TtlCache(Duration ttl, int maxSize) {
+    this(ttl, maxSize, System::nanoTime);
+  }
+
+  TtlCache(Duration ttl, int maxSize, LongSupplier nanoClock) {
+    if (maxSize < 1) {
+      throw new IllegalArgumentException("maxSize must be positive");
+    }
+    this.ttlNanos = ttl.toNanos();
+    this.maxSize = maxSize;
+    this.nanoClock = nanoClock;
+  }
+
+  public V get(K key, Function<? super K, ? extends V> loader) {
+    long now = nanoClock.getAsLong();
+    Entry<V> entry = entries.get(key);
+    if (entry != null && entry.expiresAt() - now > 0) {
+      return entry.value();
+    }
+    V value = loader.apply(key);
+    store(key, value, now);
+    return value;
+  }
+
+  public Optional<V> getIfPresent(K key) {
+    Entry<V> entry = entries.get(key);
+    if (entry == null || entry.expiresAt() - nanoClock.getAsLong() <= 0) {
+      return Optional.empty();
+    }
+    return Optional.ofNullable(entry.value());
+  }
+
+  public void put(K key, V value) {
+    store(key, value, nanoClock.getAsLong());
+  }
+
+  public void invalidate(K key) {
+    entries.remove(key);
+  }
+
+  public void invalidateAll() {
+    entries.clear();
+  }
+
+  public int size() {
+    return entries.size();
+  }
+
+  private void store(K key, V value, long now) {
+    if (!entries.containsKey(key) && entries.size() >= maxSize) {
+      evict(now);
+    }
+    entries.put(key, new Entry<V>(value, now + ttlNanos));
+  }
+
+  private void evict(long now) {
+    entries.values().removeIf(entry -> entry.expiresAt() - now <= 0);
+    int excess = entries.size() - maxSize + 1;
+    if (excess > 0) {
+      entries.keySet().stream().limit(excess).toList().forEach(entries::remove);
+    }
+  }
+
+  private record Entry<V>(V value, long expiresAt) {
+  }
+}
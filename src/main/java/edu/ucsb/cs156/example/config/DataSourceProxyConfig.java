@@ -0,0 +1,54 @@
+package edu.ucsb.cs156.example.config;
+
+import edu.ucsb.cs156.example.metrics.ConnectionAcquisitionStats;
+
+import net.ttddyy.dsproxy.listener.MethodExecutionListener;
+import net.ttddyy.dsproxy.listener.QueryExecutionListener;
+import net.ttddyy.dsproxy.support.ProxyDataSource;
+import net.ttddyy.dsproxy.support.ProxyDataSourceBuilder;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import javax.sql.DataSource;
+
+import java.util.List;
+
+/**
+ * Wraps the application DataSource so that connection checkouts are timed
+ * and every {@link QueryExecutionListener} bean (e.g. the slow query log)
+ * sees each statement.
+ *
+ * Result sets are only proxied when some bean is a
+ * {@link MethodExecutionListener}; the statement budget tests register one
+ * to count rows, production does not.
+ */
+@Configuration
+public class DataSourceProxyConfig {
+
+  @Bean
+  public static BeanPostProcessor dataSourceProxyPostProcessor(
+      ObjectProvider<QueryExecutionListener> queryListeners,
+      ObjectProvider<MethodExecutionListener> methodListeners,
+      ObjectProvider<ConnectionAcquisitionStats> connectionStats) {
+    return new BeanPostProcessor() {
+      @Override
+      public Object postProcessAfterInitialization(Object bean, String beanName) {
+        if (!(bean instanceof DataSource dataSource) || bean instanceof ProxyDataSource) {
+          return bean;
+        }
+        ProxyDataSourceBuilder builder = ProxyDataSourceBuilder
+            .create(connectionStats.getObject().timing(dataSource))
+            .name(beanName);
+        queryListeners.orderedStream().forEach(builder::listener);
+        List<MethodExecutionListener> methods = methodListeners.orderedStream().toList();
+        if (!methods.isEmpty()) {
+          builder.proxyResultSet();
+          methods.forEach(builder::methodListener);
+        }
+        return builder.build();
+      }
+    };
+  }
+}
@@ -1,40 +1,37 @@
 package edu.ucsb.cs156.example.config;
 
-import java.net.MalformedURLException;
-import java.net.URI;
-import java.net.URISyntaxException;
-import java.net.URL;
-import java.util.ArrayList;
 import java.util.HashSet;
-import java.util.List;
-import java.util.Map;
-import java.util.Optional;
 import java.util.Set;
-import java.util.regex.Pattern;
 
 import javax.servlet.http.HttpServletRequest;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.actuate.autoconfigure.security.servlet.EndpointRequest;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.security.config.annotation.method.configuration.EnableGlobalMethodSecurity;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.annotation.web.builders.WebSecurity;
 import org.springframework.security.config.annotation.web.configuration.EnableWebSecurity;
 import org.springframework.security.config.annotation.web.configuration.WebSecurityConfigurerAdapter;
+import org.springframework.security.config.http.SessionCreationPolicy;
 import org.springframework.security.core.GrantedAuthority;
-import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.authority.mapping.GrantedAuthoritiesMapper;
 import org.springframework.security.oauth2.core.user.OAuth2UserAuthority;
+import org.springframework.security.web.authentication.AnonymousAuthenticationFilter;
 import org.springframework.security.web.authentication.Http403ForbiddenEntryPoint;
 import org.springframework.security.web.csrf.CookieCsrfTokenRepository;
+import org.springframework.security.web.savedrequest.NullRequestCache;
 import org.springframework.security.web.util.matcher.AntPathRequestMatcher;
 import org.springframework.security.web.util.matcher.RequestMatcher;
 
 
 
-import edu.ucsb.cs156.example.entities.User;
-import edu.ucsb.cs156.example.repositories.UserRepository;
+import edu.ucsb.cs156.example.security.CookieOAuth2AuthorizationRequestRepository;
+import edu.ucsb.cs156.example.security.SessionTokenAuthenticationFilter;
+import edu.ucsb.cs156.example.security.SessionTokenService;
+import edu.ucsb.cs156.example.security.SessionTokenSuccessHandler;
+import edu.ucsb.cs156.example.services.AdminAuthorityResolver;
 import lombok.extern.slf4j.Slf4j;
 
 @Configuration
@@ -43,15 +40,28 @@ import lombok.extern.slf4j.Slf4j;
 @Slf4j
 public class SecurityConfig extends WebSecurityConfigurerAdapter {
 
-  @Value("${app.admin.emails}")
-  private final List<String> adminEmails = new ArrayList<String>();
-
   @Autowired
-  UserRepository userRepository;
+  AdminAuthorityResolver adminAuthorityResolver;
 
+  @Autowired
+  SessionTokenService sessionTokens;
+
+  /**
+   * When true, no HttpSession is created: the identity travels in a signed
+   * cookie (see {@link SessionTokenService}), so any instance can serve any
+   * request.
+   */
+  @Value("${app.auth.stateless:false}")
+  boolean stateless;
+
+  /**
+   * The actuator endpoints (request mappings, per-handler metrics) describe
+   * the application's internals, so only admins may read them.
+   */
   @Override
   protected void configure(HttpSecurity http) throws Exception {
     http.authorizeRequests(authorize -> authorize
+        .requestMatchers(EndpointRequest.toAnyEndpoint()).hasRole("ADMIN")
         .anyRequest().permitAll())
         .exceptionHandling(handlingConfigurer -> handlingConfigurer
             .authenticationEntryPoint(new Http403ForbiddenEntryPoint()))
@@ -62,6 +72,26 @@ public class SecurityConfig extends WebSecurityConfigurerAdapter {
         .logout(logout -> logout
             .logoutRequestMatcher(new AntPathRequestMatcher("/logout"))
             .logoutSuccessUrl("/"));
+    if (stateless) {
+      configureStateless(http);
+    }
+  }
+
+  private void configureStateless(HttpSecurity http) throws Exception {
+    if (!sessionTokens.hasConfiguredSecret()) {
+      throw new IllegalStateException("app.auth.tokenSecret must be set when app.auth.stateless=true");
+    }
+    http.sessionManagement(session -> session
+        .sessionCreationPolicy(SessionCreationPolicy.STATELESS))
+        .requestCache(cache -> cache
+            .requestCache(new NullRequestCache()))
+        .oauth2Login(oauth2 -> oauth2
+            .authorizationEndpoint(authorization -> authorization
+                .authorizationRequestRepository(new CookieOAuth2AuthorizationRequestRepository(sessionTokens)))
+            .successHandler(new SessionTokenSuccessHandler(sessionTokens)))
+        .addFilterBefore(new SessionTokenAuthenticationFilter(sessionTokens), AnonymousAuthenticationFilter.class)
+        .logout(logout -> logout
+            .deleteCookies(SessionTokenService.COOKIE_NAME));
   }
 
   @Override
@@ -71,39 +101,15 @@ public class SecurityConfig extends WebSecurityConfigurerAdapter {
 
   private GrantedAuthoritiesMapper userAuthoritiesMapper() {
     return (authorities) -> {
-      Set<GrantedAuthority> mappedAuthorities = new HashSet<>();
-      log.info("********** authorities={}", authorities);
-
-      authorities.forEach(authority -> {
-        log.info("********** authority={}", authority);
-        mappedAuthorities.add(authority);
-        if (OAuth2UserAuthority.class.isInstance(authority)) {
-          OAuth2UserAuthority oauth2UserAuthority = (OAuth2UserAuthority) authority;
-
-          Map<String, Object> userAttributes = oauth2UserAuthority.getAttributes();
-          log.info("********** userAttributes={}", userAttributes);
-
-          String email = (String) userAttributes.get("email");
-          if (getAdmin(email)) {
-            mappedAuthorities.add(new SimpleGrantedAuthority("ROLE_ADMIN"));
-          }
-
-          if (email.endsWith("@ucsb.edu")) {
-            mappedAuthorities.add(new SimpleGrantedAuthority("ROLE_MEMBER"));
-          }
+      Set<GrantedAuthority> mappedAuthorities = new HashSet<>(authorities);
+      for (GrantedAuthority authority : authorities) {
+        if (authority instanceof OAuth2UserAuthority oauth2UserAuthority) {
+          String email = (String) oauth2UserAuthority.getAttributes().get("email");
+          mappedAuthorities.addAll(adminAuthorityResolver.authoritiesFor(email));
         }
-
-      });
-      log.info("********** mappedAuthorities={}", mappedAuthorities);
+      }
+      log.debug("mappedAuthorities={}", mappedAuthorities);
       return mappedAuthorities;
     };
   }
-
-  public boolean getAdmin(String email) {
-    if (adminEmails.contains(email)) {
-      return true;
-    }
-    Optional<User> u = userRepository.findByEmail(email);
-    return u.isPresent() && u.get().getAdmin();
-  }
-}
\ No newline at end of file
+}
@@ -0,0 +1,41 @@
+package edu.ucsb.cs156.example.config;
+
+import edu.ucsb.cs156.example.sessions.SharedSessionRepository;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.EnableScheduling;
+import org.springframework.session.config.annotation.web.http.EnableSpringHttpSession;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+
+/**
+ * With {@code app.session.store=jdbc}, HTTP sessions are kept in the
+ * application database behind a per-instance near-cache (see
+ * {@link SharedSessionRepository}) instead of in the servlet container, so
+ * instances can share users without sticky sessions.  Expired rows are
+ * deleted by {@link SharedSessionRepository#cleanUpExpiredSessions()} on a
+ * fixed delay.
+ */
+@Configuration
+@ConditionalOnProperty(name = "app.session.store", havingValue = "jdbc")
+@EnableSpringHttpSession
+@EnableScheduling
+public class SharedSessionConfig {
+
+  @Bean
+  public SharedSessionRepository sharedSessionRepository(JdbcTemplate jdbcTemplate,
+      PlatformTransactionManager transactionManager,
+      @Value("${server.servlet.session.timeout:30m}") Duration timeout,
+      @Value("${app.session.revalidateMillis:1000}") long revalidateMillis,
+      @Value("${app.session.accessFlushSeconds:60}") long accessFlushSeconds,
+      @Value("${app.session.nearCacheSize:10000}") int nearCacheSize) {
+    return new SharedSessionRepository(jdbcTemplate, new TransactionTemplate(transactionManager), timeout,
+        Duration.ofMillis(revalidateMillis), Duration.ofSeconds(accessFlushSeconds), nearCacheSize);
+  }
+}
@@ -1,19 +1,25 @@
 package edu.ucsb.cs156.example.controllers;
 
 import edu.ucsb.cs156.example.errors.EntityNotFoundException;
+import edu.ucsb.cs156.example.errors.InvalidRequestException;
 import org.springframework.beans.factory.annotation.Autowired;
 
 import edu.ucsb.cs156.example.models.CurrentUser;
 import edu.ucsb.cs156.example.services.CurrentUserService;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.NestedExceptionUtils;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.http.HttpStatus;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.ResponseStatus;
 
 import java.util.Map;
+import java.util.Objects;
 
 @Slf4j
 public abstract class ApiController {
+  static final String CONFLICT_MESSAGE = "conflicts with an existing record";
+
   @Autowired
   private CurrentUserService currentUserService;
 
@@ -33,4 +39,32 @@ public abstract class ApiController {
       "message", e.getMessage()
     );
   }
+
+  /**
+   * Only {@link InvalidRequestException} is answered with 400, since its
+   * message is written for the client; any other exception is a bug and
+   * should not echo its message back.
+   */
+  @ExceptionHandler({ InvalidRequestException.class })
+  @ResponseStatus(HttpStatus.BAD_REQUEST)
+  public Object handleBadRequest(Throwable e) {
+    return Map.of(
+      "type", e.getClass().getSimpleName(),
+      "message", Objects.toString(e.getMessage(), "Invalid request")
+    );
+  }
+
+  /**
+   * The driver's message names constraints, columns and values, so it is only
+   * logged; the client gets a fixed message.
+   */
+  @ExceptionHandler({ DataIntegrityViolationException.class })
+  @ResponseStatus(HttpStatus.CONFLICT)
+  public Object handleConflict(Throwable e) {
+    log.info("conflict: {}", NestedExceptionUtils.getMostSpecificCause(e).getMessage());
+    return Map.of(
+      "type", e.getClass().getSimpleName(),
+      "message", CONFLICT_MESSAGE
+    );
+  }
 }
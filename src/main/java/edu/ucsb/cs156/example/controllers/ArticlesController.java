@@ -3,8 +3,14 @@ package edu.ucsb.cs156.example.controllers;
 import edu.ucsb.cs156.example.entities.Articles;
 import edu.ucsb.cs156.example.entities.UCSBDate;
 import edu.ucsb.cs156.example.errors.EntityNotFoundException;
+import edu.ucsb.cs156.example.models.BatchResult;
+import edu.ucsb.cs156.example.models.BulkInsertResult;
+import edu.ucsb.cs156.example.models.KeysetPage;
 import edu.ucsb.cs156.example.repositories.ArticlesRepository;
 import edu.ucsb.cs156.example.repositories.UCSBDateRepository;
+import edu.ucsb.cs156.example.services.BulkInsertService;
+import edu.ucsb.cs156.example.services.PartialUpdateService;
+import edu.ucsb.cs156.example.services.StreamingExportService;
 
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
@@ -15,18 +21,28 @@ import com.fasterxml.jackson.core.JsonProcessingException;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PatchMapping;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import javax.validation.Valid;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
 import java.time.LocalDateTime;
 
 @Tag(name = "Articles")
@@ -35,9 +51,20 @@ import java.time.LocalDateTime;
 @Slf4j
 public class ArticlesController extends ApiController {
 
+    static final Set<String> PATCHABLE_FIELDS = Set.of("title", "url", "explanation", "email", "dateAdded");
+
     @Autowired
     ArticlesRepository articlesRepository;
 
+    @Autowired
+    StreamingExportService streamingExportService;
+
+    @Autowired
+    BulkInsertService bulkInsertService;
+
+    @Autowired
+    PartialUpdateService partialUpdateService;
+
     @Operation(summary= "List all articles")
     @PreAuthorize("hasRole('ROLE_USER')")
     @GetMapping("/all")
@@ -46,6 +73,41 @@ public class ArticlesController extends ApiController {
         return articles;
     }
 
+    @Operation(summary= "List articles one page at a time, ordered by id")
+    @PreAuthorize("hasRole('ROLE_USER')")
+    @GetMapping(value = "/all", params = "limit")
+    public KeysetPage<Articles> pageArticles(
+            @Parameter(name="after", description="nextCursor from the previous page; omit for the first page") @RequestParam(required = false) String after,
+            @Parameter(name="limit") @RequestParam int limit) {
+        List<Articles> articles = articlesRepository.findByIdGreaterThan(
+                KeysetPage.decodeLongCursor(after), KeysetPage.pageRequest(limit, "id"));
+        return KeysetPage.of(articles, limit, Articles::getId);
+    }
+
+    @Operation(summary= "Stream all articles as a JSON array (format=json) or as newline-delimited JSON (format=ndjson)")
+    @PreAuthorize("hasRole('ROLE_USER')")
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> exportArticles(
+            @Parameter(name="format") @RequestParam(defaultValue = "json") String format) {
+        return streamingExportService.export(format, articlesRepository::streamAllBy);
+    }
+
+    @Operation(summary= "Get many articles with one query; results come back in request order and unknown keys are listed as missing")
+    @PreAuthorize("hasRole('ROLE_USER')")
+    @GetMapping("/batch")
+    public BatchResult<Articles, Long> batchArticles(
+            @Parameter(name="ids", description="comma separated keys, at most 1000") @RequestParam List<Long> ids) {
+        List<Long> wanted = BatchResult.distinctIds(ids);
+        return BatchResult.of(wanted, articlesRepository.findAllById(wanted), Articles::getId);
+    }
+
+    @Operation(summary= "Create many articles from a JSON array or newline-delimited JSON; reports the outcome of each row")
+    @PreAuthorize("hasRole('ROLE_ADMIN')")
+    @PostMapping(value = "/bulk", consumes = { MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE })
+    public BulkInsertResult bulkArticles(InputStream body) throws IOException {
+        return bulkInsertService.insert(body, Articles.class, articlesRepository, Articles::getId);
+    }
+
     @Operation(summary= "Create an article")
     @PreAuthorize("hasRole('ROLE_ADMIN')")
     @PostMapping("/post")
@@ -111,6 +173,16 @@ public class ArticlesController extends ApiController {
         return articles;
     }
 
+    @Operation(summary= "Update only the given fields of a single article, in one UPDATE statement")
+    @PreAuthorize("hasRole('ROLE_ADMIN')")
+    @PatchMapping("")
+    public Object patchArticles(
+            @Parameter(name="id") @RequestParam Long id,
+            @RequestBody Map<String, Object> patch) {
+        partialUpdateService.patch(Articles.class, "id", id, patch, PATCHABLE_FIELDS);
+        return genericMessage("Articles with id %s updated".formatted(id));
+    }
+
 
     //Delete
     @Operation(summary= "Delete an article")
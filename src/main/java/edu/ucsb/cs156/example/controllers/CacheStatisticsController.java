@@ -0,0 +1,65 @@
+package edu.ucsb.cs156.example.controllers;
+
+import edu.ucsb.cs156.example.entities.UCSBDate;
+import edu.ucsb.cs156.example.entities.UCSBDiningCommons;
+import edu.ucsb.cs156.example.entities.UCSBDiningCommonsMenuItem;
+import edu.ucsb.cs156.example.entities.UCSBOrganizations;
+import edu.ucsb.cs156.example.models.CacheRegionStats;
+
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.tags.Tag;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.CacheRegionStatistics;
+import org.hibernate.stat.Statistics;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import javax.persistence.EntityManagerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Tag(name = "Cache statistics (admin only)")
+@RequestMapping("/api/admin/cache")
+@RestController
+public class CacheStatisticsController extends ApiController {
+
+    public static final String QUERY_RESULTS_REGION = "default-query-results-region";
+
+    static final List<Class<?>> CACHED_ENTITIES = List.of(
+            UCSBDiningCommons.class,
+            UCSBOrganizations.class,
+            UCSBDate.class,
+            UCSBDiningCommonsMenuItem.class);
+
+    @Autowired
+    EntityManagerFactory entityManagerFactory;
+
+    @Operation(summary= "Hit/miss counts for each second-level cache region")
+    @PreAuthorize("hasRole('ROLE_ADMIN')")
+    @GetMapping("/stats")
+    public List<CacheRegionStats> cacheStatistics() {
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+
+        List<CacheRegionStats> regions = new ArrayList<>();
+        for (Class<?> entity : CACHED_ENTITIES) {
+            regions.add(toStats(entity.getName(), statistics.getDomainDataRegionStatistics(entity.getName())));
+        }
+        regions.add(toStats(QUERY_RESULTS_REGION, statistics.getQueryRegionStatistics(QUERY_RESULTS_REGION)));
+        return regions;
+    }
+
+    private CacheRegionStats toStats(String region, CacheRegionStatistics statistics) {
+        return CacheRegionStats.builder()
+                .region(region)
+                .hitCount(statistics.getHitCount())
+                .missCount(statistics.getMissCount())
+                .putCount(statistics.getPutCount())
+                .elementCountInMemory(statistics.getElementCountInMemory())
+                .build();
+    }
+}
@@ -0,0 +1,69 @@
+package edu.ucsb.cs156.example.controllers;
+
+import edu.ucsb.cs156.example.metrics.ConnectionAcquisitionStats;
+import edu.ucsb.cs156.example.metrics.SlowQueryLog;
+import edu.ucsb.cs156.example.models.DiagnosticsReport;
+
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.tags.Tag;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import javax.persistence.EntityManagerFactory;
+
+@Tag(name = "Diagnostics (admin only)")
+@RequestMapping("/api/admin/diagnostics")
+@RestController
+public class DiagnosticsController extends ApiController {
+
+    @Autowired
+    EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    SlowQueryLog slowQueryLog;
+
+    @Autowired
+    ConnectionAcquisitionStats connectionAcquisitionStats;
+
+    @Operation(summary= "Hibernate statistics, connection acquisition time and the most recent slow queries")
+    @PreAuthorize("hasRole('ROLE_ADMIN')")
+    @GetMapping("")
+    public DiagnosticsReport diagnostics() {
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+
+        return DiagnosticsReport.builder()
+                .queryExecutionCount(statistics.getQueryExecutionCount())
+                .queryExecutionMaxTimeMillis(statistics.getQueryExecutionMaxTime())
+                .slowestQuery(statistics.getQueryExecutionMaxTimeQueryString())
+                .prepareStatementCount(statistics.getPrepareStatementCount())
+                .entityLoadCount(statistics.getEntityLoadCount())
+                .entityFetchCount(statistics.getEntityFetchCount())
+                .collectionLoadCount(statistics.getCollectionLoadCount())
+                .secondLevelCacheHitCount(statistics.getSecondLevelCacheHitCount())
+                .secondLevelCacheMissCount(statistics.getSecondLevelCacheMissCount())
+                .secondLevelCacheHitRatio(ratio(statistics.getSecondLevelCacheHitCount(),
+                        statistics.getSecondLevelCacheMissCount()))
+                .queryCacheHitCount(statistics.getQueryCacheHitCount())
+                .queryCacheMissCount(statistics.getQueryCacheMissCount())
+                .queryCacheHitRatio(ratio(statistics.getQueryCacheHitCount(), statistics.getQueryCacheMissCount()))
+                .sessionOpenCount(statistics.getSessionOpenCount())
+                .transactionCount(statistics.getTransactionCount())
+                .connectionAcquisitionCount(connectionAcquisitionStats.getCount())
+                .connectionAcquisitionAverageMicros(connectionAcquisitionStats.getAverageMicros())
+                .connectionAcquisitionMaxMicros(connectionAcquisitionStats.getMaxMicros())
+                .slowQueryThresholdMillis(slowQueryLog.getThresholdMillis())
+                .slowQueries(slowQueryLog.recent())
+                .build();
+    }
+
+    static double ratio(long hits, long misses) {
+        long total = hits + misses;
+        return total == 0 ? 0.0 : (double) hits / total;
+    }
+}
@@ -3,7 +3,15 @@ package edu.ucsb.cs156.example.controllers;
 import edu.ucsb.cs156.example.entities.HelpRequest;
 import edu.ucsb.cs156.example.entities.UCSBDate;
 import edu.ucsb.cs156.example.errors.EntityNotFoundException;
+import edu.ucsb.cs156.example.models.BatchResult;
+import edu.ucsb.cs156.example.models.BulkInsertResult;
+import edu.ucsb.cs156.example.models.KeysetPage;
+import edu.ucsb.cs156.example.models.QueuePosition;
 import edu.ucsb.cs156.example.repositories.HelpRequestRepository;
+import edu.ucsb.cs156.example.services.BulkInsertService;
+import edu.ucsb.cs156.example.services.HelpRequestQueue;
+import edu.ucsb.cs156.example.services.PartialUpdateService;
+import edu.ucsb.cs156.example.services.StreamingExportService;
 
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
@@ -14,18 +22,29 @@ import com.fasterxml.jackson.core.JsonProcessingException;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PatchMapping;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import javax.validation.Valid;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
 import java.time.LocalDateTime;
 
 
@@ -36,9 +55,23 @@ import java.time.LocalDateTime;
 
 public class HelpRequestController extends ApiController {
 
+    static final Set<String> PATCHABLE_FIELDS = Set.of("requesterEmail", "teamId", "tableOrBreakoutRoom", "requestTime", "explanation", "solved");
+
     @Autowired
     HelpRequestRepository helpRequestRepository;
 
+    @Autowired
+    StreamingExportService streamingExportService;
+
+    @Autowired
+    BulkInsertService bulkInsertService;
+
+    @Autowired
+    PartialUpdateService partialUpdateService;
+
+    @Autowired
+    HelpRequestQueue helpRequestQueue;
+
     @Operation(summary= "List all help requests")
     @PreAuthorize("hasRole('ROLE_USER')")
     @GetMapping("/all")
@@ -47,6 +80,65 @@ public class HelpRequestController extends ApiController {
         return requests;
     }
 
+    @Operation(summary= "List help requests one page at a time, ordered by id")
+    @PreAuthorize("hasRole('ROLE_USER')")
+    @GetMapping(value = "/all", params = "limit")
+    public KeysetPage<HelpRequest> pageHelpRequest(
+            @Parameter(name="after", description="nextCursor from the previous page; omit for the first page") @RequestParam(required = false) String after,
+            @Parameter(name="limit") @RequestParam int limit) {
+        List<HelpRequest> requests = helpRequestRepository.findByIdGreaterThan(
+                KeysetPage.decodeLongCursor(after), KeysetPage.pageRequest(limit, "id"));
+        return KeysetPage.of(requests, limit, HelpRequest::getId);
+    }
+
+    @Operation(summary= "Stream all help requests as a JSON array (format=json) or as newline-delimited JSON (format=ndjson)")
+    @PreAuthorize("hasRole('ROLE_USER')")
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> exportHelpRequest(
+            @Parameter(name="format") @RequestParam(defaultValue = "json") String format) {
+        return streamingExportService.export(format, helpRequestRepository::streamAllBy);
+    }
+
+    @Operation(summary= "List the unsolved help requests, oldest first, from memory")
+    @PreAuthorize("hasRole('ROLE_USER')")
+    @GetMapping("/queue")
+    public List<HelpRequest> unsolvedHelpRequests() {
+        return helpRequestQueue.unsolved();
+    }
+
+    @Operation(summary= "Server-Sent Events stream of the unsolved help requests: a snapshot event with the whole queue, then new, updated, solved and deleted events as it changes")
+    @PreAuthorize("hasRole('ROLE_USER')")
+    @GetMapping(value = "/queue/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamUnsolvedHelpRequests() {
+        return helpRequestQueue.subscribe();
+    }
+
+    @Operation(summary= "How many unsolved help requests are ahead of this one, from memory; 404 if it is solved or does not exist")
+    @PreAuthorize("hasRole('ROLE_USER')")
+    @GetMapping("/position")
+    public QueuePosition helpRequestPosition(
+            @Parameter(name="id") @RequestParam Long id) {
+        return helpRequestQueue.position(id)
+                .orElseThrow(() -> new EntityNotFoundException(HelpRequest.class, id));
+    }
+
+    @Operation(summary= "Get many help requests with one query; results come back in request order and unknown keys are listed as missing")
+    @PreAuthorize("hasRole('ROLE_USER')")
+    @GetMapping("/batch")
+    public BatchResult<HelpRequest, Long> batchHelpRequest(
+            @Parameter(name="ids", description="comma separated keys, at most 1000") @RequestParam List<Long> ids) {
+        List<Long> wanted = BatchResult.distinctIds(ids);
+        return BatchResult.of(wanted, helpRequestRepository.findAllById(wanted), HelpRequest::getId);
+    }
+
+    @Operation(summary= "Create many help requests from a JSON array or newline-delimited JSON; reports the outcome of each row")
+    @PreAuthorize("hasRole('ROLE_ADMIN')")
+    @PostMapping(value = "/bulk", consumes = { MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE })
+    public BulkInsertResult bulkHelpRequest(InputStream body) throws IOException {
+        return bulkInsertService.insert(body, HelpRequest.class, helpRequestRepository, HelpRequest::getId,
+                helpRequestQueue::savedOnCommit);
+    }
+
     @Operation(summary= "Create a new help request")
     @PreAuthorize("hasRole('ROLE_ADMIN')")
     @PostMapping("/post")
@@ -73,6 +165,7 @@ public class HelpRequestController extends ApiController {
         helpRequest.setRequestTime(requestTime);
 
         HelpRequest savedHelpRequest = helpRequestRepository.save(helpRequest);
+        helpRequestQueue.saved(savedHelpRequest);
 
         return savedHelpRequest;
     }
@@ -97,6 +190,7 @@ public class HelpRequestController extends ApiController {
                 .orElseThrow(() -> new EntityNotFoundException(HelpRequest.class, id));
 
         helpRequestRepository.delete(helpRequest);
+        helpRequestQueue.deleted(id);
         return genericMessage("HelpRequest with id %s deleted".formatted(id));
     }
 
@@ -118,9 +212,21 @@ public class HelpRequestController extends ApiController {
         helpRequest.setRequestTime(incoming.getRequestTime());
 
         helpRequestRepository.save(helpRequest);
+        helpRequestQueue.saved(helpRequest);
 
         return helpRequest;
     }
 
+    @Operation(summary= "Update only the given fields of a single help request, in one UPDATE statement")
+    @PreAuthorize("hasRole('ROLE_ADMIN')")
+    @PatchMapping("")
+    public Object patchHelpRequest(
+            @Parameter(name="id") @RequestParam Long id,
+            @RequestBody Map<String, Object> patch) {
+        partialUpdateService.patch(HelpRequest.class, "id", id, patch, PATCHABLE_FIELDS);
+        helpRequestQueue.patched(id, patch);
+        return genericMessage("HelpRequest with id %s updated".formatted(id));
+    }
+
 }
 
@@ -1,9 +1,16 @@
 package edu.ucsb.cs156.example.controllers;
 
+import edu.ucsb.cs156.example.entities.MenuItemRatingStats;
 import edu.ucsb.cs156.example.entities.MenuItemReview;
 import edu.ucsb.cs156.example.entities.UCSBDate;
 import edu.ucsb.cs156.example.errors.EntityNotFoundException;
+import edu.ucsb.cs156.example.models.BatchResult;
+import edu.ucsb.cs156.example.models.BulkInsertResult;
+import edu.ucsb.cs156.example.models.KeysetPage;
+import edu.ucsb.cs156.example.repositories.MenuItemRatingStatsRepository;
 import edu.ucsb.cs156.example.repositories.MenuItemReviewRepository;
+import edu.ucsb.cs156.example.services.MenuItemReviewService;
+import edu.ucsb.cs156.example.services.StreamingExportService;
 
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
@@ -14,18 +21,28 @@ import com.fasterxml.jackson.core.JsonProcessingException;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PatchMapping;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import javax.validation.Valid;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
 import java.time.LocalDateTime;
 
 @Tag(name = "MenuItemReview")
@@ -33,9 +50,20 @@ import java.time.LocalDateTime;
 @RestController
 @Slf4j
 public class MenuItemReviewController extends ApiController {
+
+    static final Set<String> PATCHABLE_FIELDS = Set.of("itemId", "reviewerEmail", "stars", "dateReviewed", "comments");
     @Autowired
     MenuItemReviewRepository menuItemReviewRepository;
 
+    @Autowired
+    MenuItemRatingStatsRepository menuItemRatingStatsRepository;
+
+    @Autowired
+    MenuItemReviewService menuItemReviewService;
+
+    @Autowired
+    StreamingExportService streamingExportService;
+
     @Operation(summary= "List all menu item reviews")
     @PreAuthorize("hasRole('ROLE_USER')")
     @GetMapping("/all")
@@ -44,6 +72,50 @@ public class MenuItemReviewController extends ApiController {
         return reviews;
     }
 
+    @Operation(summary= "List menu item reviews one page at a time, ordered by id")
+    @PreAuthorize("hasRole('ROLE_USER')")
+    @GetMapping(value = "/all", params = "limit")
+    public KeysetPage<MenuItemReview> pageReviews(
+            @Parameter(name="after", description="nextCursor from the previous page; omit for the first page") @RequestParam(required = false) String after,
+            @Parameter(name="limit") @RequestParam int limit) {
+        List<MenuItemReview> reviews = menuItemReviewRepository.findByIdGreaterThan(
+                KeysetPage.decodeLongCursor(after), KeysetPage.pageRequest(limit, "id"));
+        return KeysetPage.of(reviews, limit, MenuItemReview::getId);
+    }
+
+    @Operation(summary= "Stream all menu item reviews as a JSON array (format=json) or as newline-delimited JSON (format=ndjson)")
+    @PreAuthorize("hasRole('ROLE_USER')")
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> exportReviews(
+            @Parameter(name="format") @RequestParam(defaultValue = "json") String format) {
+        return streamingExportService.export(format, menuItemReviewRepository::streamAllBy);
+    }
+
+    @Operation(summary= "Rating stats of one menu item: review count, star total, star histogram, average and latest review date")
+    @PreAuthorize("hasRole('ROLE_USER')")
+    @GetMapping("/stats")
+    public MenuItemRatingStats ratingStats(
+            @Parameter(name="itemId") @RequestParam long itemId) {
+        return menuItemRatingStatsRepository.findById(itemId)
+                .orElseGet(() -> MenuItemRatingStats.empty(itemId));
+    }
+
+    @Operation(summary= "Get many menu item reviews with one query; results come back in request order and unknown keys are listed as missing")
+    @PreAuthorize("hasRole('ROLE_USER')")
+    @GetMapping("/batch")
+    public BatchResult<MenuItemReview, Long> batchReviews(
+            @Parameter(name="ids", description="comma separated keys, at most 1000") @RequestParam List<Long> ids) {
+        List<Long> wanted = BatchResult.distinctIds(ids);
+        return BatchResult.of(wanted, menuItemReviewRepository.findAllById(wanted), MenuItemReview::getId);
+    }
+
+    @Operation(summary= "Create many menu item reviews from a JSON array or newline-delimited JSON; reports the outcome of each row")
+    @PreAuthorize("hasRole('ROLE_ADMIN')")
+    @PostMapping(value = "/bulk", consumes = { MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE })
+    public BulkInsertResult bulkReviews(InputStream body) throws IOException {
+        return menuItemReviewService.createAll(body);
+    }
+
     @Operation(summary= "Create a new menu item review")
     @PreAuthorize("hasRole('ROLE_ADMIN')")
     @PostMapping("/post")
@@ -64,7 +136,7 @@ public class MenuItemReviewController extends ApiController {
         review.setDateReviewed(dateReviewed);
         review.setComments(comments);
 
-        MenuItemReview savedReviews = menuItemReviewRepository.save(review);
+        MenuItemReview savedReviews = menuItemReviewService.create(review);
 
         return savedReviews;
     }
@@ -80,15 +152,34 @@ public class MenuItemReviewController extends ApiController {
         return review;
     }
 
+    @Operation(summary= "List one menu item's reviews one page at a time, newest first; reviews without a date come last")
+    @PreAuthorize("hasRole('ROLE_USER')")
+    @GetMapping(value = "", params = "itemId")
+    public KeysetPage<MenuItemReview> reviewsOfItem(
+            @Parameter(name="itemId") @RequestParam long itemId,
+            @Parameter(name="after", description="nextCursor from the previous page; omit for the first page") @RequestParam(required = false) String after,
+            @Parameter(name="limit") @RequestParam(defaultValue = "20") int limit) {
+        return menuItemReviewService.newestForItem(itemId, after, limit);
+    }
+
+    @Operation(summary= "List one reviewer's menu item reviews one page at a time, ordered by id")
+    @PreAuthorize("hasRole('ROLE_USER')")
+    @GetMapping(value = "", params = { "reviewerEmail", "!itemId" })
+    public KeysetPage<MenuItemReview> reviewsByReviewer(
+            @Parameter(name="reviewerEmail") @RequestParam String reviewerEmail,
+            @Parameter(name="after", description="nextCursor from the previous page; omit for the first page") @RequestParam(required = false) String after,
+            @Parameter(name="limit") @RequestParam(defaultValue = "20") int limit) {
+        List<MenuItemReview> reviews = menuItemReviewRepository.findByReviewerEmailAndIdGreaterThan(
+                reviewerEmail, KeysetPage.decodeLongCursor(after), KeysetPage.pageRequest(limit, "id"));
+        return KeysetPage.of(reviews, limit, MenuItemReview::getId);
+    }
+
     @Operation(summary= "Delete a MenuItemReview")
     @PreAuthorize("hasRole('ROLE_ADMIN')")
     @DeleteMapping("")
     public Object deleteMenuItemReview(
             @Parameter(name="id") @RequestParam Long id) {
-        MenuItemReview menuItemReview = menuItemReviewRepository.findById(id)
-                .orElseThrow(() -> new EntityNotFoundException(MenuItemReview.class, id));
-
-        menuItemReviewRepository.delete(menuItemReview);
+        menuItemReviewService.delete(id);
         return genericMessage("MenuItemReview with id %s deleted".formatted(id));
     }
     
@@ -99,17 +190,16 @@ public class MenuItemReviewController extends ApiController {
             @Parameter(name="id") @RequestParam Long id,
             @RequestBody @Valid MenuItemReview incoming) {
 
-        MenuItemReview menuItemReview = menuItemReviewRepository.findById(id)
-                .orElseThrow(() -> new EntityNotFoundException(MenuItemReview.class, id));
-
-        menuItemReview.setItemId(incoming.getItemId());
-        menuItemReview.setReviewerEmail(incoming.getReviewerEmail());
-        menuItemReview.setStars(incoming.getStars());
-        menuItemReview.setDateReviewed(incoming.getDateReviewed());
-        menuItemReview.setComments(incoming.getComments());
-
-        menuItemReviewRepository.save(menuItemReview);
+        return menuItemReviewService.update(id, incoming);
+    }
 
-        return menuItemReview;
+    @Operation(summary= "Update only the given fields of a single menu item review, in one UPDATE statement")
+    @PreAuthorize("hasRole('ROLE_ADMIN')")
+    @PatchMapping("")
+    public Object patchMenuItemReview(
+            @Parameter(name="id") @RequestParam Long id,
+            @RequestBody Map<String, Object> patch) {
+        menuItemReviewService.patch(id, patch, PATCHABLE_FIELDS);
+        return genericMessage("MenuItemReview with id %s updated".formatted(id));
     }
 }
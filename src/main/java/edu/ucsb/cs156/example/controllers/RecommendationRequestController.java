@@ -3,7 +3,13 @@ package edu.ucsb.cs156.example.controllers;
 import edu.ucsb.cs156.example.entities.RecommendationRequest;
 import edu.ucsb.cs156.example.entities.UCSBDate;
 import edu.ucsb.cs156.example.errors.EntityNotFoundException;
+import edu.ucsb.cs156.example.models.BatchResult;
+import edu.ucsb.cs156.example.models.BulkInsertResult;
+import edu.ucsb.cs156.example.models.KeysetPage;
 import edu.ucsb.cs156.example.repositories.RecommendationRequestRepository;
+import edu.ucsb.cs156.example.services.BulkInsertService;
+import edu.ucsb.cs156.example.services.PartialUpdateService;
+import edu.ucsb.cs156.example.services.StreamingExportService;
 
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
@@ -14,18 +20,28 @@ import com.fasterxml.jackson.core.JsonProcessingException;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PatchMapping;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import javax.validation.Valid;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
 import java.time.LocalDateTime;
 
 @Tag(name = "RecommendationRequest")
@@ -34,9 +50,20 @@ import java.time.LocalDateTime;
 @Slf4j
 public class RecommendationRequestController extends ApiController {
 
+    static final Set<String> PATCHABLE_FIELDS = Set.of("requesterEmail", "professorEmail", "explanation", "dateRequested", "dateNeeded", "done");
+
     @Autowired
     RecommendationRequestRepository RecommendationRequestRepository;
 
+    @Autowired
+    StreamingExportService streamingExportService;
+
+    @Autowired
+    BulkInsertService bulkInsertService;
+
+    @Autowired
+    PartialUpdateService partialUpdateService;
+
     @Operation(summary= "List all recommendation requests")
     @PreAuthorize("hasRole('ROLE_USER')")
     @GetMapping("/all")
@@ -45,6 +72,41 @@ public class RecommendationRequestController extends ApiController {
         return recommendationRequests;
     }
 
+    @Operation(summary= "List recommendation requests one page at a time, ordered by id")
+    @PreAuthorize("hasRole('ROLE_USER')")
+    @GetMapping(value = "/all", params = "limit")
+    public KeysetPage<RecommendationRequest> pageRecommendationRequests(
+            @Parameter(name="after", description="nextCursor from the previous page; omit for the first page") @RequestParam(required = false) String after,
+            @Parameter(name="limit") @RequestParam int limit) {
+        List<RecommendationRequest> recommendationRequests = RecommendationRequestRepository.findByIdGreaterThan(
+                KeysetPage.decodeLongCursor(after), KeysetPage.pageRequest(limit, "id"));
+        return KeysetPage.of(recommendationRequests, limit, RecommendationRequest::getId);
+    }
+
+    @Operation(summary= "Stream all recommendation requests as a JSON array (format=json) or as newline-delimited JSON (format=ndjson)")
+    @PreAuthorize("hasRole('ROLE_USER')")
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> exportRecommendationRequests(
+            @Parameter(name="format") @RequestParam(defaultValue = "json") String format) {
+        return streamingExportService.export(format, RecommendationRequestRepository::streamAllBy);
+    }
+
+    @Operation(summary= "Get many recommendation requests with one query; results come back in request order and unknown keys are listed as missing")
+    @PreAuthorize("hasRole('ROLE_USER')")
+    @GetMapping("/batch")
+    public BatchResult<RecommendationRequest, Long> batchRecommendationRequests(
+            @Parameter(name="ids", description="comma separated keys, at most 1000") @RequestParam List<Long> ids) {
+        List<Long> wanted = BatchResult.distinctIds(ids);
+        return BatchResult.of(wanted, RecommendationRequestRepository.findAllById(wanted), RecommendationRequest::getId);
+    }
+
+    @Operation(summary= "Create many recommendation requests from a JSON array or newline-delimited JSON; reports the outcome of each row")
+    @PreAuthorize("hasRole('ROLE_ADMIN')")
+    @PostMapping(value = "/bulk", consumes = { MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE })
+    public BulkInsertResult bulkRecommendationRequests(InputStream body) throws IOException {
+        return bulkInsertService.insert(body, RecommendationRequest.class, RecommendationRequestRepository, RecommendationRequest::getId);
+    }
+
     @Operation(summary= "Create a new recommendation request")
     @PreAuthorize("hasRole('ROLE_ADMIN')")
     @PostMapping("/post")
@@ -120,4 +182,14 @@ public class RecommendationRequestController extends ApiController {
 
         return request;
     }
+
+    @Operation(summary= "Update only the given fields of a single recommendation request, in one UPDATE statement")
+    @PreAuthorize("hasRole('ROLE_ADMIN')")
+    @PatchMapping("")
+    public Object patchRecommendationRequest(
+            @Parameter(name="id") @RequestParam Long id,
+            @RequestBody Map<String, Object> patch) {
+        partialUpdateService.patch(RecommendationRequest.class, "id", id, patch, PATCHABLE_FIELDS);
+        return genericMessage("RecommendationRequest with id %s updated".formatted(id));
+    }
 }
\ No newline at end of file
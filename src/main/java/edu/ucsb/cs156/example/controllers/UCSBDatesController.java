@@ -2,7 +2,13 @@ package edu.ucsb.cs156.example.controllers;
 
 import edu.ucsb.cs156.example.entities.UCSBDate;
 import edu.ucsb.cs156.example.errors.EntityNotFoundException;
+import edu.ucsb.cs156.example.models.BatchResult;
+import edu.ucsb.cs156.example.models.BulkInsertResult;
+import edu.ucsb.cs156.example.models.KeysetPage;
 import edu.ucsb.cs156.example.repositories.UCSBDateRepository;
+import edu.ucsb.cs156.example.services.BulkInsertService;
+import edu.ucsb.cs156.example.services.PartialUpdateService;
+import edu.ucsb.cs156.example.services.StreamingExportService;
 
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
@@ -13,18 +19,28 @@ import com.fasterxml.jackson.core.JsonProcessingException;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PatchMapping;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import javax.validation.Valid;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
 import java.time.LocalDateTime;
 
 @Tag(name = "UCSBDates")
@@ -33,9 +49,20 @@ import java.time.LocalDateTime;
 @Slf4j
 public class UCSBDatesController extends ApiController {
 
+    static final Set<String> PATCHABLE_FIELDS = Set.of("quarterYYYYQ", "name", "localDateTime");
+
     @Autowired
     UCSBDateRepository ucsbDateRepository;
 
+    @Autowired
+    StreamingExportService streamingExportService;
+
+    @Autowired
+    BulkInsertService bulkInsertService;
+
+    @Autowired
+    PartialUpdateService partialUpdateService;
+
     @Operation(summary= "List all ucsb dates")
     @PreAuthorize("hasRole('ROLE_USER')")
     @GetMapping("/all")
@@ -44,6 +71,41 @@ public class UCSBDatesController extends ApiController {
         return dates;
     }
 
+    @Operation(summary= "List ucsb dates one page at a time, ordered by id")
+    @PreAuthorize("hasRole('ROLE_USER')")
+    @GetMapping(value = "/all", params = "limit")
+    public KeysetPage<UCSBDate> pageUCSBDates(
+            @Parameter(name="after", description="nextCursor from the previous page; omit for the first page") @RequestParam(required = false) String after,
+            @Parameter(name="limit") @RequestParam int limit) {
+        List<UCSBDate> dates = ucsbDateRepository.findByIdGreaterThan(
+                KeysetPage.decodeLongCursor(after), KeysetPage.pageRequest(limit, "id"));
+        return KeysetPage.of(dates, limit, UCSBDate::getId);
+    }
+
+    @Operation(summary= "Stream all ucsb dates as a JSON array (format=json) or as newline-delimited JSON (format=ndjson)")
+    @PreAuthorize("hasRole('ROLE_USER')")
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> exportUCSBDates(
+            @Parameter(name="format") @RequestParam(defaultValue = "json") String format) {
+        return streamingExportService.export(format, ucsbDateRepository::streamAllBy);
+    }
+
+    @Operation(summary= "Get many UCSB dates with one query; results come back in request order and unknown keys are listed as missing")
+    @PreAuthorize("hasRole('ROLE_USER')")
+    @GetMapping("/batch")
+    public BatchResult<UCSBDate, Long> batchUCSBDates(
+            @Parameter(name="ids", description="comma separated keys, at most 1000") @RequestParam List<Long> ids) {
+        List<Long> wanted = BatchResult.distinctIds(ids);
+        return BatchResult.of(wanted, ucsbDateRepository.findAllById(wanted), UCSBDate::getId);
+    }
+
+    @Operation(summary= "Create many UCSB dates from a JSON array or newline-delimited JSON; reports the outcome of each row")
+    @PreAuthorize("hasRole('ROLE_ADMIN')")
+    @PostMapping(value = "/bulk", consumes = { MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE })
+    public BulkInsertResult bulkUCSBDates(InputStream body) throws IOException {
+        return bulkInsertService.insert(body, UCSBDate.class, ucsbDateRepository, UCSBDate::getId);
+    }
+
     @Operation(summary= "Create a new date")
     @PreAuthorize("hasRole('ROLE_ADMIN')")
     @PostMapping("/post")
@@ -109,4 +171,14 @@ public class UCSBDatesController extends ApiController {
 
         return ucsbDate;
     }
+
+    @Operation(summary= "Update only the given fields of a single UCSB date, in one UPDATE statement")
+    @PreAuthorize("hasRole('ROLE_ADMIN')")
+    @PatchMapping("")
+    public Object patchUCSBDate(
+            @Parameter(name="id") @RequestParam Long id,
+            @RequestBody Map<String, Object> patch) {
+        partialUpdateService.patch(UCSBDate.class, "id", id, patch, PATCHABLE_FIELDS);
+        return genericMessage("UCSBDate with id %s updated".formatted(id));
+    }
 }
@@ -2,7 +2,14 @@ package edu.ucsb.cs156.example.controllers;
 
 import edu.ucsb.cs156.example.entities.UCSBDiningCommons;
 import edu.ucsb.cs156.example.errors.EntityNotFoundException;
+import edu.ucsb.cs156.example.models.BatchResult;
+import edu.ucsb.cs156.example.models.BulkInsertResult;
+import edu.ucsb.cs156.example.models.KeysetPage;
 import edu.ucsb.cs156.example.repositories.UCSBDiningCommonsRepository;
+import edu.ucsb.cs156.example.services.BulkInsertService;
+import edu.ucsb.cs156.example.services.PartialUpdateService;
+import edu.ucsb.cs156.example.services.StreamingExportService;
+import edu.ucsb.cs156.example.services.UpsertService;
 
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
@@ -10,27 +17,51 @@ import io.swagger.v3.oas.annotations.tags.Tag;
 import lombok.extern.slf4j.Slf4j;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PatchMapping;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import javax.validation.Valid;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
 @Tag(name = "UCSBDiningCommons")
 @RequestMapping("/api/ucsbdiningcommons")
 @RestController
 @Slf4j
 public class UCSBDiningCommonsController extends ApiController {
 
+    static final Set<String> PATCHABLE_FIELDS = Set.of("name", "hasSackMeal", "hasTakeOutMeal", "hasDiningCam", "latitude", "longitude");
+
     @Autowired
     UCSBDiningCommonsRepository ucsbDiningCommonsRepository;
 
+    @Autowired
+    StreamingExportService streamingExportService;
+
+    @Autowired
+    BulkInsertService bulkInsertService;
+
+    @Autowired
+    UpsertService upsertService;
+
+    @Autowired
+    PartialUpdateService partialUpdateService;
+
     @Operation(summary= "List all ucsb dining commons")
     @PreAuthorize("hasRole('ROLE_USER')")
     @GetMapping("/all")
@@ -39,6 +70,49 @@ public class UCSBDiningCommonsController extends ApiController {
         return commons;
     }
 
+    @Operation(summary= "List ucsb dining commons one page at a time, ordered by code")
+    @PreAuthorize("hasRole('ROLE_USER')")
+    @GetMapping(value = "/all", params = "limit")
+    public KeysetPage<UCSBDiningCommons> pageCommons(
+            @Parameter(name="after", description="nextCursor from the previous page; omit for the first page") @RequestParam(required = false) String after,
+            @Parameter(name="limit") @RequestParam int limit) {
+        List<UCSBDiningCommons> commons = ucsbDiningCommonsRepository.findByCodeGreaterThan(
+                KeysetPage.decodeStringCursor(after), KeysetPage.pageRequest(limit, "code"));
+        return KeysetPage.of(commons, limit, UCSBDiningCommons::getCode);
+    }
+
+    @Operation(summary= "Stream all ucsb dining commons as a JSON array (format=json) or as newline-delimited JSON (format=ndjson)")
+    @PreAuthorize("hasRole('ROLE_USER')")
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> exportCommons(
+            @Parameter(name="format") @RequestParam(defaultValue = "json") String format) {
+        return streamingExportService.export(format, ucsbDiningCommonsRepository::streamAllBy);
+    }
+
+    @Operation(summary= "Get many dining commons with one query; results come back in request order and unknown keys are listed as missing")
+    @PreAuthorize("hasRole('ROLE_USER')")
+    @GetMapping("/batch")
+    public BatchResult<UCSBDiningCommons, String> batchCommons(
+            @Parameter(name="ids", description="comma separated keys, at most 1000") @RequestParam List<String> ids) {
+        List<String> wanted = BatchResult.distinctIds(ids);
+        return BatchResult.of(wanted, ucsbDiningCommonsRepository.findAllById(wanted), UCSBDiningCommons::getCode);
+    }
+
+    @Operation(summary= "Create many dining commons from a JSON array or newline-delimited JSON; reports the outcome of each row")
+    @PreAuthorize("hasRole('ROLE_ADMIN')")
+    @PostMapping(value = "/bulk", consumes = { MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE })
+    public BulkInsertResult bulkCommons(InputStream body) throws IOException {
+        return bulkInsertService.insert(body, UCSBDiningCommons.class, ucsbDiningCommonsRepository, UCSBDiningCommons::getCode);
+    }
+
+    @Operation(summary= "Insert or update a whole list of dining commons in one batch, keyed by code")
+    @PreAuthorize("hasRole('ROLE_ADMIN')")
+    @PostMapping("/sync")
+    public Object syncCommons(@RequestBody List<UCSBDiningCommons> incoming) {
+        int count = upsertService.upsertDiningCommons(incoming);
+        return genericMessage("Synced %d dining commons".formatted(count));
+    }
+
     @Operation(summary= "Create a new commons")
     @PreAuthorize("hasRole('ROLE_ADMIN')")
     @PostMapping("/post")
@@ -112,4 +186,14 @@ public class UCSBDiningCommonsController extends ApiController {
 
         return commons;
     }
+
+    @Operation(summary= "Update only the given fields of a single dining commons, in one UPDATE statement")
+    @PreAuthorize("hasRole('ROLE_ADMIN')")
+    @PatchMapping("")
+    public Object patchCommons(
+            @Parameter(name="code") @RequestParam String code,
+            @RequestBody Map<String, Object> patch) {
+        partialUpdateService.patch(UCSBDiningCommons.class, "code", code, patch, PATCHABLE_FIELDS);
+        return genericMessage("UCSBDiningCommons with id %s updated".formatted(code));
+    }
 }
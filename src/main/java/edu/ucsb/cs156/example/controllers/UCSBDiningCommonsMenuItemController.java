@@ -2,7 +2,15 @@ package edu.ucsb.cs156.example.controllers;
 
 import edu.ucsb.cs156.example.entities.UCSBDiningCommonsMenuItem;
 import edu.ucsb.cs156.example.errors.EntityNotFoundException;
+import edu.ucsb.cs156.example.models.BatchResult;
+import edu.ucsb.cs156.example.models.BulkInsertResult;
+import edu.ucsb.cs156.example.models.KeysetPage;
+import edu.ucsb.cs156.example.models.LeaderboardEntry;
 import edu.ucsb.cs156.example.repositories.UCSBDiningCommonsMenuItemRepository;
+import edu.ucsb.cs156.example.services.BulkInsertService;
+import edu.ucsb.cs156.example.services.MenuItemLeaderboard;
+import edu.ucsb.cs156.example.services.PartialUpdateService;
+import edu.ucsb.cs156.example.services.StreamingExportService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.tags.Tag;
@@ -11,27 +19,51 @@ import lombok.extern.slf4j.Slf4j;
 import com.fasterxml.jackson.core.JsonProcessingException;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PatchMapping;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import javax.validation.Valid;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
 @Tag(name = "UCSBDiningCommonsMenuItem")
 @RequestMapping("/api/UCSBDiningCommonsMenuItem")
 @RestController
 @Slf4j
 public class UCSBDiningCommonsMenuItemController extends ApiController {
 
+    static final Set<String> PATCHABLE_FIELDS = Set.of("diningCommonsCode", "name", "station");
+
     @Autowired
     UCSBDiningCommonsMenuItemRepository ucsbDiningCommonsMenuItemRepository;
 
+    @Autowired
+    StreamingExportService streamingExportService;
+
+    @Autowired
+    BulkInsertService bulkInsertService;
+
+    @Autowired
+    PartialUpdateService partialUpdateService;
+
+    @Autowired
+    MenuItemLeaderboard menuItemLeaderboard;
+
     @Operation(summary= "List all UCSB dining commons menu items")
     @PreAuthorize("hasRole('ROLE_USER')")
     @GetMapping("/all")
@@ -40,6 +72,51 @@ public class UCSBDiningCommonsMenuItemController extends ApiController {
         return items;
     }
 
+    @Operation(summary= "List UCSB dining commons menu items one page at a time, ordered by id")
+    @PreAuthorize("hasRole('ROLE_USER')")
+    @GetMapping(value = "/all", params = "limit")
+    public KeysetPage<UCSBDiningCommonsMenuItem> pageUCSBDiningCommonsMenuItems(
+            @Parameter(name="after", description="nextCursor from the previous page; omit for the first page") @RequestParam(required = false) String after,
+            @Parameter(name="limit") @RequestParam int limit) {
+        List<UCSBDiningCommonsMenuItem> items = ucsbDiningCommonsMenuItemRepository.findByIdGreaterThan(
+                KeysetPage.decodeLongCursor(after), KeysetPage.pageRequest(limit, "id"));
+        return KeysetPage.of(items, limit, UCSBDiningCommonsMenuItem::getId);
+    }
+
+    @Operation(summary= "Stream all UCSB dining commons menu items as a JSON array (format=json) or as newline-delimited JSON (format=ndjson)")
+    @PreAuthorize("hasRole('ROLE_USER')")
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> exportUCSBDiningCommonsMenuItems(
+            @Parameter(name="format") @RequestParam(defaultValue = "json") String format) {
+        return streamingExportService.export(format, ucsbDiningCommonsMenuItemRepository::streamAllBy);
+    }
+
+    @Operation(summary= "Get many dining commons menu items with one query; results come back in request order and unknown keys are listed as missing")
+    @PreAuthorize("hasRole('ROLE_USER')")
+    @GetMapping("/batch")
+    public BatchResult<UCSBDiningCommonsMenuItem, Long> batchUCSBDiningCommonsMenuItems(
+            @Parameter(name="ids", description="comma separated keys, at most 1000") @RequestParam List<Long> ids) {
+        List<Long> wanted = BatchResult.distinctIds(ids);
+        return BatchResult.of(wanted, ucsbDiningCommonsMenuItemRepository.findAllById(wanted), UCSBDiningCommonsMenuItem::getId);
+    }
+
+    @Operation(summary= "The best rated menu items by Bayesian average of their review stars, optionally only those of one dining commons and/or station; refreshed in the background, so new reviews show up within seconds")
+    @PreAuthorize("hasRole('ROLE_USER')")
+    @GetMapping("/leaderboard")
+    public List<LeaderboardEntry> leaderboard(
+            @Parameter(name="diningCommonsCode") @RequestParam(required = false) String diningCommonsCode,
+            @Parameter(name="station") @RequestParam(required = false) String station,
+            @Parameter(name="limit") @RequestParam(defaultValue = "10") int limit) {
+        return menuItemLeaderboard.top(diningCommonsCode, station, limit);
+    }
+
+    @Operation(summary= "Create many dining commons menu items from a JSON array or newline-delimited JSON; reports the outcome of each row")
+    @PreAuthorize("hasRole('ROLE_ADMIN')")
+    @PostMapping(value = "/bulk", consumes = { MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE })
+    public BulkInsertResult bulkUCSBDiningCommonsMenuItems(InputStream body) throws IOException {
+        return bulkInsertService.insert(body, UCSBDiningCommonsMenuItem.class, ucsbDiningCommonsMenuItemRepository, UCSBDiningCommonsMenuItem::getId);
+    }
+
     @Operation(summary= "Create a new menu item")
     @PreAuthorize("hasRole('ROLE_ADMIN')")
     @PostMapping("/post")
@@ -100,4 +177,14 @@ public class UCSBDiningCommonsMenuItemController extends ApiController {
 
         return ucsbDiningCommonsMenuItem;
     }
+
+    @Operation(summary= "Update only the given fields of a single dining commons menu item, in one UPDATE statement")
+    @PreAuthorize("hasRole('ROLE_ADMIN')")
+    @PatchMapping("")
+    public Object patchUCSBDiningCommonsMenuItem(
+            @Parameter(name="id") @RequestParam Long id,
+            @RequestBody Map<String, Object> patch) {
+        partialUpdateService.patch(UCSBDiningCommonsMenuItem.class, "id", id, patch, PATCHABLE_FIELDS);
+        return genericMessage("UCSBDiningCommonsMenuItem with id %s updated".formatted(id));
+    }
 }
\ No newline at end of file
@@ -2,7 +2,14 @@ package edu.ucsb.cs156.example.controllers;
 
 import edu.ucsb.cs156.example.entities.UCSBOrganizations;
 import edu.ucsb.cs156.example.errors.EntityNotFoundException;
+import edu.ucsb.cs156.example.models.BatchResult;
+import edu.ucsb.cs156.example.models.BulkInsertResult;
+import edu.ucsb.cs156.example.models.KeysetPage;
 import edu.ucsb.cs156.example.repositories.UCSBOrganizationsRepository;
+import edu.ucsb.cs156.example.services.BulkInsertService;
+import edu.ucsb.cs156.example.services.PartialUpdateService;
+import edu.ucsb.cs156.example.services.StreamingExportService;
+import edu.ucsb.cs156.example.services.UpsertService;
 
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
@@ -10,27 +17,51 @@ import io.swagger.v3.oas.annotations.tags.Tag;
 import lombok.extern.slf4j.Slf4j;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PatchMapping;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import javax.validation.Valid;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
 @Tag(name = "UCSBOrganizations")
 @RequestMapping("/api/ucsborganizations")
 @RestController
 @Slf4j
 public class UCSBOrganizationsController extends ApiController {
 
+    static final Set<String> PATCHABLE_FIELDS = Set.of("orgTranslationShort", "orgTranslation", "inactive");
+
     @Autowired
     UCSBOrganizationsRepository ucsbOrganizationsRepository;
 
+    @Autowired
+    StreamingExportService streamingExportService;
+
+    @Autowired
+    BulkInsertService bulkInsertService;
+
+    @Autowired
+    UpsertService upsertService;
+
+    @Autowired
+    PartialUpdateService partialUpdateService;
+
     @Operation(summary= "List all ucsb organizations")
     @PreAuthorize("hasRole('ROLE_USER')")
     @GetMapping("/all")
@@ -39,6 +70,49 @@ public class UCSBOrganizationsController extends ApiController {
         return organization;
     }
 
+    @Operation(summary= "List ucsb organizations one page at a time, ordered by orgCode")
+    @PreAuthorize("hasRole('ROLE_USER')")
+    @GetMapping(value = "/all", params = "limit")
+    public KeysetPage<UCSBOrganizations> pageOrganizations(
+            @Parameter(name="after", description="nextCursor from the previous page; omit for the first page") @RequestParam(required = false) String after,
+            @Parameter(name="limit") @RequestParam int limit) {
+        List<UCSBOrganizations> organizations = ucsbOrganizationsRepository.findByOrgCodeGreaterThan(
+                KeysetPage.decodeStringCursor(after), KeysetPage.pageRequest(limit, "orgCode"));
+        return KeysetPage.of(organizations, limit, UCSBOrganizations::getOrgCode);
+    }
+
+    @Operation(summary= "Stream all ucsb organizations as a JSON array (format=json) or as newline-delimited JSON (format=ndjson)")
+    @PreAuthorize("hasRole('ROLE_USER')")
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> exportOrganizations(
+            @Parameter(name="format") @RequestParam(defaultValue = "json") String format) {
+        return streamingExportService.export(format, ucsbOrganizationsRepository::streamAllBy);
+    }
+
+    @Operation(summary= "Get many organizations with one query; results come back in request order and unknown keys are listed as missing")
+    @PreAuthorize("hasRole('ROLE_USER')")
+    @GetMapping("/batch")
+    public BatchResult<UCSBOrganizations, String> batchOrganizations(
+            @Parameter(name="ids", description="comma separated keys, at most 1000") @RequestParam List<String> ids) {
+        List<String> wanted = BatchResult.distinctIds(ids);
+        return BatchResult.of(wanted, ucsbOrganizationsRepository.findAllById(wanted), UCSBOrganizations::getOrgCode);
+    }
+
+    @Operation(summary= "Create many organizations from a JSON array or newline-delimited JSON; reports the outcome of each row")
+    @PreAuthorize("hasRole('ROLE_ADMIN')")
+    @PostMapping(value = "/bulk", consumes = { MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE })
+    public BulkInsertResult bulkOrganizations(InputStream body) throws IOException {
+        return bulkInsertService.insert(body, UCSBOrganizations.class, ucsbOrganizationsRepository, UCSBOrganizations::getOrgCode);
+    }
+
+    @Operation(summary= "Insert or update a whole list of organizations in one batch, keyed by code")
+    @PreAuthorize("hasRole('ROLE_ADMIN')")
+    @PostMapping("/sync")
+    public Object syncOrganizations(@RequestBody List<UCSBOrganizations> incoming) {
+        int count = upsertService.upsertOrganizations(incoming);
+        return genericMessage("Synced %d organizations".formatted(count));
+    }
+
     @Operation(summary= "Create a new organizations")
     @PreAuthorize("hasRole('ROLE_ADMIN')")
     @PostMapping("/post")
@@ -105,4 +179,14 @@ public class UCSBOrganizationsController extends ApiController {
         return organization;
     }
 
+    @Operation(summary= "Update only the given fields of a single organization, in one UPDATE statement")
+    @PreAuthorize("hasRole('ROLE_ADMIN')")
+    @PatchMapping("")
+    public Object patchOrganizations(
+            @Parameter(name="orgCode") @RequestParam String orgCode,
+            @RequestBody Map<String, Object> patch) {
+        partialUpdateService.patch(UCSBOrganizations.class, "orgCode", orgCode, patch, PATCHABLE_FIELDS);
+        return genericMessage("UCSBOrganizations with id %s updated".formatted(orgCode));
+    }
+
 }
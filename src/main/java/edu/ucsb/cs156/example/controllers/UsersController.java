@@ -1,20 +1,26 @@
 package edu.ucsb.cs156.example.controllers;
 
-import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.databind.ObjectMapper;
-
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import edu.ucsb.cs156.example.entities.User;
+import edu.ucsb.cs156.example.errors.InvalidRequestException;
+import edu.ucsb.cs156.example.models.KeysetPage;
 import edu.ucsb.cs156.example.repositories.UserRepository;
+import edu.ucsb.cs156.example.services.StreamingExportService;
 import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.tags.Tag;
 
+import java.util.List;
+import java.util.Locale;
+
 
 @Tag(name="User information (admin only)")
 @RequestMapping("/api/admin/users")
@@ -24,15 +30,50 @@ public class UsersController extends ApiController {
     UserRepository userRepository;
 
     @Autowired
-    ObjectMapper mapper;
+    StreamingExportService streamingExportService;
 
     @Operation(summary= "Get a list of all users")
     @PreAuthorize("hasRole('ROLE_ADMIN')")
     @GetMapping("")
-    public ResponseEntity<String> users()
-            throws JsonProcessingException {
-        Iterable<User> users = userRepository.findAll();
-        String body = mapper.writeValueAsString(users);
-        return ResponseEntity.ok().body(body);
+    public ResponseEntity<StreamingResponseBody> users() {
+        return streamingExportService.export("json", userRepository::streamAllBy);
+    }
+
+    @Operation(summary= "List users one page at a time, ordered by id or email, optionally only those whose email or name starts with q")
+    @PreAuthorize("hasRole('ROLE_ADMIN')")
+    @GetMapping(value = "", params = "limit")
+    public KeysetPage<User> pageUsers(
+            @Parameter(name="q", description="case-insensitive prefix of the email or full name") @RequestParam(defaultValue = "") String q,
+            @Parameter(name="sort", description="id (default) or email") @RequestParam(defaultValue = "id") String sort,
+            @Parameter(name="after", description="nextCursor from the previous page; omit for the first page") @RequestParam(required = false) String after,
+            @Parameter(name="limit") @RequestParam int limit) {
+        String pattern = startsWith(q);
+        if ("id".equals(sort)) {
+            List<User> users = userRepository.searchByIdGreaterThan(
+                    KeysetPage.decodeLongCursor(after), pattern, KeysetPage.pageRequest(limit, "id"));
+            return KeysetPage.of(users, limit, User::getId);
+        }
+        if ("email".equals(sort)) {
+            List<User> users = userRepository.searchByEmailGreaterThan(
+                    KeysetPage.decodeStringCursor(after), pattern, KeysetPage.pageRequest(limit, "email"));
+            return KeysetPage.of(users, limit, User::getEmail);
+        }
+        throw new InvalidRequestException("Unsupported sort %s".formatted(sort));
+    }
+
+    @Operation(summary= "Stream all users as a JSON array (format=json), newline-delimited JSON (format=ndjson) or CSV (format=csv)")
+    @PreAuthorize("hasRole('ROLE_ADMIN')")
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> exportUsers(
+            @Parameter(name="format") @RequestParam(defaultValue = "csv") String format) {
+        return streamingExportService.exportWithCsv(format, userRepository::streamAllBy);
+    }
+
+    /** A LIKE pattern matching values that start with {@code prefix}, taken literally. */
+    static String startsWith(String prefix) {
+        return prefix.toLowerCase(Locale.ROOT)
+                .replace("\\", "\\\\")
+                .replace("%", "\\%")
+                .replace("_", "\\_") + "%";
     }
-}
\ No newline at end of file
+}
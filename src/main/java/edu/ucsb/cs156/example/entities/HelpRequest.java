@@ -5,8 +5,11 @@ import java.time.LocalDateTime;
 import javax.persistence.Entity;
 import javax.persistence.GenerationType;
 import javax.persistence.Id;
+import javax.persistence.SequenceGenerator;
 import javax.persistence.GeneratedValue;
 
+import org.hibernate.annotations.DynamicUpdate;
+
 import lombok.Data;
 import lombok.NoArgsConstructor;
 import lombok.AllArgsConstructor;
@@ -15,11 +18,13 @@ import lombok.Builder;
 @Data
 @AllArgsConstructor
 @NoArgsConstructor
-@Builder
+@Builder(toBuilder = true)
+@DynamicUpdate
 @Entity(name = "helprequest")
 public class HelpRequest {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "helprequest_seq")
+    @SequenceGenerator(name = "helprequest_seq", sequenceName = "HELPREQUEST_SEQ", allocationSize = 50)
     private long id;
     private String requesterEmail;
     private String teamId;
@@ -0,0 +1,44 @@
+package edu.ucsb.cs156.example.entities;
+
+import java.time.LocalDateTime;
+
+import javax.persistence.Entity;
+import javax.persistence.Id;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+
+/**
+ * The ratings of one menu item, kept up to date as reviews are written (see
+ * {@code MenuItemRatingStatsService}) so that reading them costs one row.
+ * {@code stars1} to {@code stars5} count the reviews with that many stars.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+@Entity(name = "menuitemratingstats")
+public class MenuItemRatingStats {
+  @Id
+  private long itemId;
+
+  private long reviewCount;
+  private long starSum;
+  private long stars1;
+  private long stars2;
+  private long stars3;
+  private long stars4;
+  private long stars5;
+  private LocalDateTime lastReviewed;
+
+  /** The stats of an item nobody has reviewed. */
+  public static MenuItemRatingStats empty(long itemId) {
+    return MenuItemRatingStats.builder().itemId(itemId).build();
+  }
+
+  public double getAverageStars() {
+    return reviewCount == 0 ? 0 : (double) starSum / reviewCount;
+  }
+}
@@ -0,0 +1,11 @@
+package edu.ucsb.cs156.example.errors;
+
+/**
+ * A request parameter or body the API cannot act on.  The message is shown to
+ * the client, so it should only describe what the client sent.
+ */
+public class InvalidRequestException extends RuntimeException {
+  public InvalidRequestException(String message) {
+    super(message);
+  }
+}
@@ -0,0 +1,76 @@
+package edu.ucsb.cs156.example.metrics;
+
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * How long callers wait for {@code DataSource.getConnection()}, i.e. for a
+ * connection from the pool.  Hibernate's own statistics count connections but
+ * do not time them.
+ */
+@Component
+public class ConnectionAcquisitionStats {
+  private final LongAdder count = new LongAdder();
+  private final LongAdder totalNanos = new LongAdder();
+  private final LongAccumulator maxNanos = new LongAccumulator(Long::max, 0);
+
+  public void record(long nanos) {
+    count.increment();
+    totalNanos.add(nanos);
+    maxNanos.accumulate(nanos);
+  }
+
+  public long getCount() {
+    return count.sum();
+  }
+
+  public long getAverageMicros() {
+    long n = count.sum();
+    return n == 0 ? 0 : totalNanos.sum() / n / 1000;
+  }
+
+  public long getMaxMicros() {
+    return maxNanos.get() / 1000;
+  }
+
+  /** Wraps {@code dataSource} so that every connection checkout is timed. */
+  public DataSource timing(DataSource dataSource) {
+    return new TimingDataSource(dataSource, this);
+  }
+
+  static class TimingDataSource extends DelegatingDataSource {
+    private final ConnectionAcquisitionStats stats;
+
+    TimingDataSource(DataSource target, ConnectionAcquisitionStats stats) {
+      super(target);
+      this.stats = stats;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+      long start = System.nanoTime();
+      try {
+        return super.getConnection();
+      } finally {
+        stats.record(System.nanoTime() - start);
+      }
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+      long start = System.nanoTime();
+      try {
+        return super.getConnection(username, password);
+      } finally {
+        stats.record(System.nanoTime() - start);
+      }
+    }
+  }
+}
@@ -0,0 +1,32 @@
+package edu.ucsb.cs156.example.metrics;
+
+/**
+ * The controller method, as {@code <Controller>.<method>}, that the current
+ * thread is executing, so that lower layers (e.g. the slow query log) can say
+ * where their work came from.  Set by {@link MetricsAspect}.
+ */
+public final class CurrentHandler {
+  private static final ThreadLocal<String> handler = new ThreadLocal<>();
+
+  private CurrentHandler() {
+  }
+
+  public static String get() {
+    return handler.get();
+  }
+
+  /** Returns the previous value, to be passed to {@link #restore}. */
+  public static String set(String name) {
+    String previous = handler.get();
+    handler.set(name);
+    return previous;
+  }
+
+  public static void restore(String previous) {
+    if (previous == null) {
+      handler.remove();
+    } else {
+      handler.set(previous);
+    }
+  }
+}
@@ -0,0 +1,52 @@
+package edu.ucsb.cs156.example.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Latency, error counts and requests in flight for one controller method.
+ */
+public class EndpointMetrics {
+  private final String handler;
+  private final LatencyHistogram latency = new LatencyHistogram();
+  private final LongAdder clientErrors = new LongAdder();
+  private final LongAdder serverErrors = new LongAdder();
+  private final LongAdder inFlight = new LongAdder();
+
+  public EndpointMetrics(String handler) {
+    this.handler = handler;
+  }
+
+  public void started() {
+    inFlight.increment();
+  }
+
+  public void finished(int status, long latencyNanos) {
+    inFlight.decrement();
+    latency.record(latencyNanos);
+    if (status >= 500) {
+      serverErrors.increment();
+    } else if (status >= 400) {
+      clientErrors.increment();
+    }
+  }
+
+  public String getHandler() {
+    return handler;
+  }
+
+  public LatencyHistogram.Snapshot latency() {
+    return latency.snapshot();
+  }
+
+  public long getClientErrors() {
+    return clientErrors.sum();
+  }
+
+  public long getServerErrors() {
+    return serverErrors.sum();
+  }
+
+  public long getInFlight() {
+    return inFlight.sum();
+  }
+}
@@ -0,0 +1,27 @@
+package edu.ucsb.cs156.example.metrics;
+
+import org.springframework.stereotype.Component;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * One {@link EndpointMetrics} per controller method, named
+ * {@code <Controller>.<method>} (e.g. {@code MenuItemReviewController.getById}).
+ */
+@Component
+public class EndpointMetricsRegistry {
+  private final ConcurrentHashMap<String, EndpointMetrics> metrics = new ConcurrentHashMap<>();
+
+  public EndpointMetrics forHandler(String handler) {
+    return metrics.computeIfAbsent(handler, EndpointMetrics::new);
+  }
+
+  /** Sorted by handler name, so that exports are stable. */
+  public List<EndpointMetrics> all() {
+    return metrics.values().stream()
+        .sorted(Comparator.comparing(EndpointMetrics::getHandler))
+        .toList();
+  }
+}
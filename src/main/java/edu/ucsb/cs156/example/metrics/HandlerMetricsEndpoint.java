@@ -0,0 +1,76 @@
+package edu.ucsb.cs156.example.metrics;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.web.annotation.WebEndpoint;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * {@code GET /actuator/handlermetrics}: the per-controller-method metrics in
+ * the Prometheus text exposition format.
+ *
+ * Latency is a summary whose quantiles cover everything since startup;
+ * Prometheus can derive rates from {@code _count} and {@code _sum}.
+ */
+@Component
+@WebEndpoint(id = "handlermetrics")
+public class HandlerMetricsEndpoint {
+  static final String CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+  static final double[] QUANTILES = { 0.5, 0.9, 0.99, 0.999 };
+
+  @Autowired
+  EndpointMetricsRegistry registry;
+
+  @ReadOperation(produces = CONTENT_TYPE)
+  public String scrape() {
+    List<EndpointMetrics> all = registry.all();
+    StringBuilder out = new StringBuilder();
+
+    family(out, "handler_latency_seconds", "summary", "Controller method latency since startup");
+    for (EndpointMetrics m : all) {
+      LatencyHistogram.Snapshot latency = m.latency();
+      for (double q : QUANTILES) {
+        sample(out, "handler_latency_seconds", m, "quantile=\"%s\"".formatted(q),
+            seconds(latency.valueAtQuantile(q)));
+      }
+      sample(out, "handler_latency_seconds_sum", m, null, seconds(latency.sumNanos()));
+      sample(out, "handler_latency_seconds_count", m, null, Long.toString(latency.count()));
+    }
+
+    family(out, "handler_latency_seconds_max", "gauge", "Slowest call of the controller method since startup");
+    for (EndpointMetrics m : all) {
+      sample(out, "handler_latency_seconds_max", m, null, seconds(m.latency().maxNanos()));
+    }
+
+    family(out, "handler_errors_total", "counter", "Calls answered with a 4xx or 5xx status");
+    for (EndpointMetrics m : all) {
+      sample(out, "handler_errors_total", m, "class=\"4xx\"", Long.toString(m.getClientErrors()));
+      sample(out, "handler_errors_total", m, "class=\"5xx\"", Long.toString(m.getServerErrors()));
+    }
+
+    family(out, "handler_in_flight", "gauge", "Calls currently executing");
+    for (EndpointMetrics m : all) {
+      sample(out, "handler_in_flight", m, null, Long.toString(m.getInFlight()));
+    }
+    return out.toString();
+  }
+
+  private static void family(StringBuilder out, String name, String type, String help) {
+    out.append("# HELP ").append(name).append(' ').append(help).append('\n');
+    out.append("# TYPE ").append(name).append(' ').append(type).append('\n');
+  }
+
+  private static void sample(StringBuilder out, String name, EndpointMetrics m, String label, String value) {
+    out.append(name).append("{handler=\"").append(m.getHandler()).append('"');
+    if (label != null) {
+      out.append(',').append(label);
+    }
+    out.append("} ").append(value).append('\n');
+  }
+
+  private static String seconds(long nanos) {
+    return Double.toString(nanos / 1e9);
+  }
+}
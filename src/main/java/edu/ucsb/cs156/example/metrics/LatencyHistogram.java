@@ -0,0 +1,98 @@
+package edu.ucsb.cs156.example.metrics;
+
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A fixed-bucket latency histogram in the style of HdrHistogram, recorded
+ * with {@link LongAdder}s so that concurrent requests never contend on a
+ * shared counter.
+ *
+ * Values are kept in microseconds.  Below 8us every value has its own
+ * bucket; above that, each power of two is split into 8 equal buckets, so a
+ * reported quantile is within 12.5% of the true value.  Anything above 2^40us
+ * (about 12 days) lands in the last bucket.
+ */
+public class LatencyHistogram {
+  static final int SUB_BUCKETS = 8;
+  static final int MAX_MAGNITUDE = 40;
+  static final int BUCKETS = (MAX_MAGNITUDE - 2) * SUB_BUCKETS;
+
+  private final LongAdder[] counts = new LongAdder[BUCKETS];
+  private final LongAdder sumNanos = new LongAdder();
+  private final LongAccumulator maxNanos = new LongAccumulator(Long::max, 0);
+
+  public LatencyHistogram() {
+    for (int i = 0; i < BUCKETS; i++) {
+      counts[i] = new LongAdder();
+    }
+  }
+
+  public void record(long nanos) {
+    long clamped = Math.max(nanos, 0);
+    counts[bucketOf(clamped / 1000)].increment();
+    sumNanos.add(clamped);
+    maxNanos.accumulate(clamped);
+  }
+
+  static int bucketOf(long micros) {
+    if (micros < SUB_BUCKETS) {
+      return (int) micros;
+    }
+    int magnitude = 63 - Long.numberOfLeadingZeros(micros);
+    if (magnitude >= MAX_MAGNITUDE) {
+      return BUCKETS - 1;
+    }
+    return (magnitude - 2) * SUB_BUCKETS + (int) ((micros >>> (magnitude - 3)) & (SUB_BUCKETS - 1));
+  }
+
+  /** Smallest value, in microseconds, that falls in the bucket. */
+  static long lowerBound(int bucket) {
+    if (bucket < SUB_BUCKETS) {
+      return bucket;
+    }
+    int magnitude = bucket / SUB_BUCKETS + 2;
+    return (long) (SUB_BUCKETS + bucket % SUB_BUCKETS) << (magnitude - 3);
+  }
+
+  /** Smallest value, in microseconds, above the bucket. */
+  static long upperBound(int bucket) {
+    return bucket == BUCKETS - 1 ? Long.MAX_VALUE : lowerBound(bucket + 1);
+  }
+
+  /**
+   * Copies the counters.  Requests recorded while the copy is taken may be
+   * only partly included.
+   */
+  public Snapshot snapshot() {
+    long[] copy = new long[BUCKETS];
+    long total = 0;
+    for (int i = 0; i < BUCKETS; i++) {
+      copy[i] = counts[i].sum();
+      total += copy[i];
+    }
+    return new Snapshot(copy, total, sumNanos.sum(), maxNanos.get());
+  }
+
+  public record Snapshot(long[] counts, long count, long sumNanos, long maxNanos) {
+
+    /**
+     * The highest value, in nanoseconds, that lies in the same bucket as the
+     * requested quantile, capped at the largest value recorded.
+     */
+    public long valueAtQuantile(double quantile) {
+      if (count == 0) {
+        return 0;
+      }
+      long target = Math.max(1, (long) Math.ceil(quantile * count));
+      long seen = 0;
+      int bucket = 0;
+      while (seen + counts[bucket] < target) {
+        seen += counts[bucket];
+        bucket++;
+      }
+      long highest = upperBound(bucket) == Long.MAX_VALUE ? maxNanos : (upperBound(bucket) * 1000) - 1;
+      return Math.min(highest, maxNanos);
+    }
+  }
+}
@@ -0,0 +1,65 @@
+package edu.ucsb.cs156.example.metrics;
+
+import edu.ucsb.cs156.example.aop.LoggingAspect;
+import edu.ucsb.cs156.example.aop.ResponseStatusResolver;
+
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.aspectj.lang.reflect.MethodSignature;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import javax.servlet.http.HttpServletResponse;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Times every controller method matched by {@link LoggingAspect#POINTCUT}
+ * into its {@link EndpointMetrics}, and publishes the method as the
+ * {@link CurrentHandler} while it runs.
+ */
+@Aspect
+@Component
+public class MetricsAspect {
+  private final ConcurrentHashMap<Method, EndpointMetrics> byMethod = new ConcurrentHashMap<>();
+
+  @Autowired
+  EndpointMetricsRegistry registry;
+
+  @Autowired
+  ResponseStatusResolver responseStatusResolver;
+
+  @Around(LoggingAspect.POINTCUT)
+  public Object measure(ProceedingJoinPoint joinPoint) throws Throwable {
+    Method method = ((MethodSignature) joinPoint.getSignature()).getMethod();
+    EndpointMetrics metrics = byMethod.computeIfAbsent(method,
+        m -> registry.forHandler(m.getDeclaringClass().getSimpleName() + "." + m.getName()));
+
+    String previousHandler = CurrentHandler.set(metrics.getHandler());
+    metrics.started();
+    long start = System.nanoTime();
+    Object result = null;
+    Throwable thrown = null;
+    try {
+      result = joinPoint.proceed();
+      return result;
+    } catch (Throwable t) {
+      thrown = t;
+      throw t;
+    } finally {
+      long latency = System.nanoTime() - start;
+      RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+      HttpServletResponse response = attributes instanceof ServletRequestAttributes servletAttributes
+          ? servletAttributes.getResponse()
+          : null;
+      metrics.finished(responseStatusResolver.statusOf(joinPoint.getTarget().getClass(), result, thrown, response),
+          latency);
+      CurrentHandler.restore(previousHandler);
+    }
+  }
+}
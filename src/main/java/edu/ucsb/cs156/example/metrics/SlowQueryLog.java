@@ -0,0 +1,88 @@
+package edu.ucsb.cs156.example.metrics;
+
+import edu.ucsb.cs156.example.models.SlowQuery;
+
+import lombok.extern.slf4j.Slf4j;
+
+import net.ttddyy.dsproxy.ExecutionInfo;
+import net.ttddyy.dsproxy.QueryInfo;
+import net.ttddyy.dsproxy.listener.QueryExecutionListener;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Clock;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Keeps the most recent statements that took at least
+ * {@code app.diagnostics.slowQueryMillis}, together with the controller
+ * method that issued them.
+ *
+ * It is registered as a datasource-proxy listener on the application
+ * DataSource (see {@code DataSourceProxyConfig}).  Fast statements cost one
+ * comparison; only slow ones take the lock.
+ */
+@Slf4j
+@Component
+public class SlowQueryLog implements QueryExecutionListener {
+  private final long thresholdMillis;
+  private final int capacity;
+  private final Clock clock;
+  private final ArrayDeque<SlowQuery> entries;
+
+  @Autowired
+  public SlowQueryLog(@Value("${app.diagnostics.slowQueryMillis:100}") long thresholdMillis,
+      @Value("${app.diagnostics.slowQueryLogSize:100}") int capacity) {
+    this(thresholdMillis, capacity, Clock.systemUTC());
+  }
+
+  SlowQueryLog(long thresholdMillis, int capacity, Clock clock) {
+    this.thresholdMillis = thresholdMillis;
+    this.capacity = capacity;
+    this.clock = clock;
+    this.entries = new ArrayDeque<>(capacity);
+  }
+
+  @Override
+  public void beforeQuery(ExecutionInfo execInfo, List<QueryInfo> queryInfoList) {
+  }
+
+  @Override
+  public void afterQuery(ExecutionInfo execInfo, List<QueryInfo> queryInfoList) {
+    long elapsed = execInfo.getElapsedTime();
+    if (elapsed < thresholdMillis) {
+      return;
+    }
+    String sql = queryInfoList.stream().map(QueryInfo::getQuery).collect(Collectors.joining("; "));
+    int binds = queryInfoList.stream()
+        .flatMap(q -> q.getParametersList().stream())
+        .mapToInt(List::size)
+        .sum();
+    String handler = CurrentHandler.get();
+    log.warn("slow query ({} ms, {} binds) from {}: {}", elapsed, binds, handler, sql);
+    add(SlowQuery.builder().sql(sql).bindCount(binds).durationMillis(elapsed).handler(handler)
+        .executedAt(clock.instant()).build());
+  }
+
+  synchronized void add(SlowQuery query) {
+    if (entries.size() == capacity) {
+      entries.removeFirst();
+    }
+    entries.addLast(query);
+  }
+
+  /** Newest first. */
+  public synchronized List<SlowQuery> recent() {
+    List<SlowQuery> newestFirst = new ArrayList<>(entries.size());
+    entries.descendingIterator().forEachRemaining(newestFirst::add);
+    return newestFirst;
+  }
+
+  public long getThresholdMillis() {
+    return thresholdMillis;
+  }
+}
@@ -0,0 +1,60 @@
+package edu.ucsb.cs156.example.models;
+
+import edu.ucsb.cs156.example.errors.InvalidRequestException;
+
+import lombok.Data;
+import lombok.AllArgsConstructor;
+import lombok.NoArgsConstructor;
+import lombok.Builder;
+import lombok.AccessLevel;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * The rows found for a list of ids, in the order the ids were requested,
+ * plus the ids that matched nothing.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor(access = AccessLevel.PROTECTED)
+@Builder
+public class BatchResult<T, K> {
+  public static final int MAX_IDS = 1000;
+
+  private List<T> items;
+  private List<K> missing;
+
+  /**
+   * Drops repeated ids, keeping the first occurrence, and rejects requests
+   * that would turn into an unreasonably long IN list.
+   */
+  public static <K> List<K> distinctIds(List<K> ids) {
+    List<K> distinct = new ArrayList<>(new LinkedHashSet<>(ids));
+    if (distinct.isEmpty() || distinct.size() > MAX_IDS) {
+      throw new InvalidRequestException("ids must name between 1 and %d records".formatted(MAX_IDS));
+    }
+    return distinct;
+  }
+
+  public static <T, K> BatchResult<T, K> of(List<K> ids, Iterable<T> found, Function<T, K> key) {
+    Map<K, T> byKey = new HashMap<>();
+    found.forEach(row -> byKey.put(key.apply(row), row));
+
+    List<T> items = new ArrayList<>(byKey.size());
+    List<K> missing = new ArrayList<>();
+    for (K id : ids) {
+      T row = byKey.get(id);
+      if (row == null) {
+        missing.add(id);
+      } else {
+        items.add(row);
+      }
+    }
+    return new BatchResult<T, K>(items, missing);
+  }
+}
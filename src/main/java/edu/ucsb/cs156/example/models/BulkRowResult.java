@@ -0,0 +1,30 @@
+package edu.ucsb.cs156.example.models;
+
+import lombok.Data;
+import lombok.AllArgsConstructor;
+import lombok.NoArgsConstructor;
+import lombok.Builder;
+import lombok.AccessLevel;
+
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor(access = AccessLevel.PROTECTED)
+@Builder
+public class BulkRowResult {
+  public static final String CREATED = "created";
+  public static final String ERROR = "error";
+
+  private int row;
+  private String status;
+  private Object id;
+  private String message;
+
+  public static BulkRowResult created(int row, Object id) {
+    return new BulkRowResult(row, CREATED, id, null);
+  }
+
+  public static BulkRowResult error(int row, String message) {
+    return new BulkRowResult(row, ERROR, null, message);
+  }
+}
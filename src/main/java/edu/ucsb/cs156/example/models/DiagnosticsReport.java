@@ -0,0 +1,37 @@
+package edu.ucsb.cs156.example.models;
+
+import lombok.Data;
+import lombok.AllArgsConstructor;
+import lombok.NoArgsConstructor;
+import lombok.Builder;
+import lombok.AccessLevel;
+
+import java.util.List;
+
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor(access = AccessLevel.PROTECTED)
+@Builder
+public class DiagnosticsReport {
+  private long queryExecutionCount;
+  private long queryExecutionMaxTimeMillis;
+  private String slowestQuery;
+  private long prepareStatementCount;
+  private long entityLoadCount;
+  private long entityFetchCount;
+  private long collectionLoadCount;
+  private long secondLevelCacheHitCount;
+  private long secondLevelCacheMissCount;
+  private double secondLevelCacheHitRatio;
+  private long queryCacheHitCount;
+  private long queryCacheMissCount;
+  private double queryCacheHitRatio;
+  private long sessionOpenCount;
+  private long transactionCount;
+  private long connectionAcquisitionCount;
+  private long connectionAcquisitionAverageMicros;
+  private long connectionAcquisitionMaxMicros;
+  private long slowQueryThresholdMillis;
+  private List<SlowQuery> slowQueries;
+}
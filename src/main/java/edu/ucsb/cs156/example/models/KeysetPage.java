@@ -0,0 +1,87 @@
+package edu.ucsb.cs156.example.models;
+
+import edu.ucsb.cs156.example.errors.InvalidRequestException;
+
+import lombok.Data;
+import lombok.AllArgsConstructor;
+import lombok.NoArgsConstructor;
+import lombok.Builder;
+import lombok.AccessLevel;
+
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * One page of a keyset (cursor) paginated listing.
+ *
+ * The cursor is the key of the last row of the page, base64url encoded so that
+ * clients treat it as opaque.  Passing it back as {@code after} continues the
+ * listing with a {@code WHERE key > ?} range scan instead of an OFFSET, so every
+ * page costs the same no matter how deep into the table it is.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor(access = AccessLevel.PROTECTED)
+@Builder
+public class KeysetPage<T> {
+  public static final int MAX_LIMIT = 1000;
+
+  private List<T> items;
+  private String nextCursor;
+
+  public static <T> KeysetPage<T> of(List<T> items, int limit, Function<T, ?> key) {
+    String nextCursor = null;
+    if (items.size() == limit) {
+      nextCursor = encodeCursor(key.apply(items.get(items.size() - 1)));
+    }
+    return new KeysetPage<T>(items, nextCursor);
+  }
+
+  public static Pageable pageRequest(int limit, String... sortProperties) {
+    return pageRequest(limit, Sort.by(sortProperties));
+  }
+
+  public static Pageable pageRequest(int limit, Sort sort) {
+    if (limit < 1 || limit > MAX_LIMIT) {
+      throw new InvalidRequestException("limit must be between 1 and %d".formatted(MAX_LIMIT));
+    }
+    return PageRequest.of(0, limit, sort);
+  }
+
+  public static String encodeCursor(Object key) {
+    return Base64.getUrlEncoder().withoutPadding()
+        .encodeToString(key.toString().getBytes(StandardCharsets.UTF_8));
+  }
+
+  public static String decodeCursor(String cursor) {
+    try {
+      return new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+    } catch (IllegalArgumentException e) {
+      throw new InvalidRequestException("Invalid cursor %s".formatted(cursor));
+    }
+  }
+
+  public static long decodeLongCursor(String cursor) {
+    if (cursor == null) {
+      return 0L;
+    }
+    try {
+      return Long.parseLong(decodeCursor(cursor));
+    } catch (NumberFormatException e) {
+      throw new InvalidRequestException("Invalid cursor %s".formatted(cursor));
+    }
+  }
+
+  public static String decodeStringCursor(String cursor) {
+    if (cursor == null) {
+      return "";
+    }
+    return decodeCursor(cursor);
+  }
+}
@@ -0,0 +1,26 @@
+package edu.ucsb.cs156.example.models;
+
+import lombok.Data;
+import lombok.AllArgsConstructor;
+import lombok.NoArgsConstructor;
+import lombok.Builder;
+import lombok.AccessLevel;
+
+/**
+ * One menu item on the leaderboard.  {@code score} is the item's average
+ * stars pulled towards the average over all items, more so the fewer reviews
+ * the item has.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor(access = AccessLevel.PROTECTED)
+@Builder
+public class LeaderboardEntry {
+  private long itemId;
+  private String diningCommonsCode;
+  private String name;
+  private String station;
+  private long reviewCount;
+  private double averageStars;
+  private double score;
+}
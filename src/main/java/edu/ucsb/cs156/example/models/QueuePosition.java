@@ -0,0 +1,21 @@
+package edu.ucsb.cs156.example.models;
+
+import lombok.Data;
+import lombok.AllArgsConstructor;
+import lombok.NoArgsConstructor;
+import lombok.Builder;
+import lombok.AccessLevel;
+
+/**
+ * Where an unsolved help request is in the queue: {@code ahead} requests
+ * were made before it, out of {@code queueLength} unsolved ones.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor(access = AccessLevel.PROTECTED)
+@Builder
+public class QueuePosition {
+  private long id;
+  private int ahead;
+  private int queueLength;
+}
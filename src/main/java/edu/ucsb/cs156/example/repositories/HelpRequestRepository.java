@@ -2,11 +2,29 @@ package edu.ucsb.cs156.example.repositories;
 
 import edu.ucsb.cs156.example.entities.HelpRequest;
 
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.CrudRepository;
 import org.springframework.stereotype.Repository;
 
+import javax.persistence.QueryHint;
+
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE;
+import static org.hibernate.jpa.QueryHints.HINT_READONLY;
+
 
 @Repository
 public interface HelpRequestRepository extends CrudRepository<HelpRequest, Long> {
-    
+  List<HelpRequest> findByIdGreaterThan(long id, Pageable pageable);
+
+  /** Loads {@code HelpRequestQueue} at startup. */
+  List<HelpRequest> findBySolvedFalse();
+
+  @QueryHints({
+      @QueryHint(name = HINT_FETCH_SIZE, value = "500"),
+      @QueryHint(name = HINT_READONLY, value = "true") })
+  Stream<HelpRequest> streamAllBy();
 }
\ No newline at end of file
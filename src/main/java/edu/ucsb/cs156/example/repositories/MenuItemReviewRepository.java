@@ -2,11 +2,66 @@ package edu.ucsb.cs156.example.repositories;
 
 import edu.ucsb.cs156.example.entities.MenuItemReview;
 
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import javax.persistence.LockModeType;
+import javax.persistence.QueryHint;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+import static org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE;
+import static org.hibernate.jpa.QueryHints.HINT_READONLY;
+
 
 @Repository
 public interface MenuItemReviewRepository extends CrudRepository<MenuItemReview, Long> {
+  List<MenuItemReview> findByIdGreaterThan(long id, Pageable pageable);
+
+  /**
+   * SELECT ... FOR UPDATE, so that a writer that needs the review's current
+   * rating holds the row until it commits and no other writer can change the
+   * rating in between.
+   */
+  @Lock(LockModeType.PESSIMISTIC_WRITE)
+  Optional<MenuItemReview> findForUpdateById(long id);
+
+  /**
+   * The first page of an item's dated reviews; with a page request sorted by
+   * dateReviewed and id descending this is a range scan of
+   * MENUITEMREVIEWS_ITEM_DATE_IDX (ITEM_ID, DATE_REVIEWED DESC, ID DESC).
+   */
+  List<MenuItemReview> findByItemIdAndDateReviewedNotNull(long itemId, Pageable pageable);
+
+  /**
+   * The item's dated reviews after the given one, in the same order.  The
+   * redundant upper bound on dateReviewed lets the planner seek into the index
+   * rather than filter the whole item range on the OR.
+   */
+  @Query("""
+      SELECT r FROM menuitemreviews r
+      WHERE r.itemId = :itemId
+        AND r.dateReviewed <= :dateReviewed
+        AND (r.dateReviewed < :dateReviewed OR (r.dateReviewed = :dateReviewed AND r.id < :id))""")
+  List<MenuItemReview> findByItemIdOlderThan(@Param("itemId") long itemId,
+      @Param("dateReviewed") LocalDateTime dateReviewed, @Param("id") long id, Pageable pageable);
+
+  /** The item's undated reviews, which come after the dated ones, by id descending. */
+  List<MenuItemReview> findByItemIdAndDateReviewedIsNullAndIdLessThan(long itemId, long id, Pageable pageable);
+
+  /** Uses MENUITEMREVIEWS_REVIEWER_IDX (REVIEWER_EMAIL, ID). */
+  List<MenuItemReview> findByReviewerEmailAndIdGreaterThan(String reviewerEmail, long id, Pageable pageable);
 
+  @QueryHints({
+      @QueryHint(name = HINT_FETCH_SIZE, value = "500"),
+      @QueryHint(name = HINT_READONLY, value = "true") })
+  Stream<MenuItemReview> streamAllBy();
 }
\ No newline at end of file
@@ -1,12 +1,47 @@
 package edu.ucsb.cs156.example.repositories;
 
 import edu.ucsb.cs156.example.entities.User;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import javax.persistence.QueryHint;
+
+import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
+
+import static org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE;
+import static org.hibernate.jpa.QueryHints.HINT_READONLY;
 
 @Repository
 public interface UserRepository extends CrudRepository<User, Long> {
   Optional<User> findByEmail(String email);
+
+  /** Google's subject id does not change when the user's email does. */
+  Optional<User> findByGoogleSub(String googleSub);
+
+  /**
+   * Users after {@code id} whose lower-cased email or full name matches
+   * {@code pattern}, a lower-case LIKE pattern escaped with backslashes.
+   */
+  @Query("""
+      SELECT u FROM users u
+      WHERE u.id > :id AND (LOWER(u.email) LIKE :pattern ESCAPE '\\' OR LOWER(u.fullName) LIKE :pattern ESCAPE '\\')""")
+  List<User> searchByIdGreaterThan(@Param("id") long id, @Param("pattern") String pattern, Pageable pageable);
+
+  /** As {@link #searchByIdGreaterThan}, keyed on the (unique) email instead. */
+  @Query("""
+      SELECT u FROM users u
+      WHERE u.email > :email AND (LOWER(u.email) LIKE :pattern ESCAPE '\\' OR LOWER(u.fullName) LIKE :pattern ESCAPE '\\')""")
+  List<User> searchByEmailGreaterThan(@Param("email") String email, @Param("pattern") String pattern,
+      Pageable pageable);
+
+  @QueryHints({
+      @QueryHint(name = HINT_FETCH_SIZE, value = "500"),
+      @QueryHint(name = HINT_READONLY, value = "true") })
+  Stream<User> streamAllBy();
 }
@@ -0,0 +1,77 @@
+package edu.ucsb.cs156.example.security;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.security.oauth2.client.web.AuthorizationRequestRepository;
+import org.springframework.security.oauth2.core.endpoint.OAuth2AuthorizationRequest;
+import org.springframework.util.SerializationUtils;
+import org.springframework.web.util.WebUtils;
+
+import javax.servlet.http.Cookie;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import java.time.Duration;
+
+/**
+ * Keeps the OAuth2 authorization request between the redirect to Google and
+ * the callback in a short-lived signed cookie instead of the HttpSession, so
+ * that the callback may land on a different instance.
+ *
+ * The cookie is only deserialized after its signature has been checked.
+ */
+public class CookieOAuth2AuthorizationRequestRepository
+    implements AuthorizationRequestRepository<OAuth2AuthorizationRequest> {
+  public static final String COOKIE_NAME = "OAUTH2_AUTH_REQUEST";
+  static final String PURPOSE = "oauth2-authorization-request";
+  static final Duration MAX_AGE = Duration.ofMinutes(3);
+
+  private final SessionTokenService sessionTokens;
+
+  public CookieOAuth2AuthorizationRequestRepository(SessionTokenService sessionTokens) {
+    this.sessionTokens = sessionTokens;
+  }
+
+  @Override
+  public OAuth2AuthorizationRequest loadAuthorizationRequest(HttpServletRequest request) {
+    Cookie cookie = WebUtils.getCookie(request, COOKIE_NAME);
+    if (cookie == null) {
+      return null;
+    }
+    return sessionTokens.unseal(PURPOSE, cookie.getValue())
+        .map(bytes -> SerializationUtils.deserialize(bytes))
+        .filter(OAuth2AuthorizationRequest.class::isInstance)
+        .map(OAuth2AuthorizationRequest.class::cast)
+        .orElse(null);
+  }
+
+  @Override
+  public void saveAuthorizationRequest(OAuth2AuthorizationRequest authorizationRequest, HttpServletRequest request,
+      HttpServletResponse response) {
+    if (authorizationRequest == null) {
+      clear(request, response);
+      return;
+    }
+    String value = sessionTokens.seal(PURPOSE, SerializationUtils.serialize(authorizationRequest));
+    response.addHeader(HttpHeaders.SET_COOKIE,
+        SessionTokenService.cookie(COOKIE_NAME, value, MAX_AGE, request.isSecure()).toString());
+  }
+
+  @Override
+  @SuppressWarnings("deprecation")
+  public OAuth2AuthorizationRequest removeAuthorizationRequest(HttpServletRequest request) {
+    return loadAuthorizationRequest(request);
+  }
+
+  @Override
+  public OAuth2AuthorizationRequest removeAuthorizationRequest(HttpServletRequest request,
+      HttpServletResponse response) {
+    OAuth2AuthorizationRequest authorizationRequest = loadAuthorizationRequest(request);
+    clear(request, response);
+    return authorizationRequest;
+  }
+
+  private void clear(HttpServletRequest request, HttpServletResponse response) {
+    response.addHeader(HttpHeaders.SET_COOKIE,
+        SessionTokenService.cookie(COOKIE_NAME, "", Duration.ZERO, request.isSecure()).toString());
+  }
+}
@@ -0,0 +1,13 @@
+package edu.ucsb.cs156.example.security;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The claims carried by the signed session cookie: the OAuth2 user
+ * attributes the app reads, the roles granted at login, the client
+ * registration, and when the token stops being accepted (epoch seconds).
+ */
+public record SessionToken(Map<String, Object> attributes, List<String> roles, String registrationId,
+    long expiresAt) {
+}
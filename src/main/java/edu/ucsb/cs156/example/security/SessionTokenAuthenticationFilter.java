@@ -0,0 +1,38 @@
+package edu.ucsb.cs156.example.security;
+
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.util.WebUtils;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.Cookie;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import java.io.IOException;
+
+/**
+ * In stateless mode, rebuilds the {@code OAuth2AuthenticationToken} for each
+ * request from the signed session cookie, so that no HttpSession (and no
+ * sticky load balancing) is needed.  Requests without a valid cookie stay
+ * anonymous.
+ */
+public class SessionTokenAuthenticationFilter extends OncePerRequestFilter {
+  private final SessionTokenService sessionTokens;
+
+  public SessionTokenAuthenticationFilter(SessionTokenService sessionTokens) {
+    this.sessionTokens = sessionTokens;
+  }
+
+  @Override
+  protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+      throws ServletException, IOException {
+    Cookie cookie = WebUtils.getCookie(request, SessionTokenService.COOKIE_NAME);
+    if (cookie != null && SecurityContextHolder.getContext().getAuthentication() == null) {
+      sessionTokens.parse(cookie.getValue())
+          .ifPresent(authentication -> SecurityContextHolder.getContext().setAuthentication(authentication));
+    }
+    chain.doFilter(request, response);
+  }
+}
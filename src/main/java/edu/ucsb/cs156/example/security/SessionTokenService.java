@@ -0,0 +1,180 @@
+package edu.ucsb.cs156.example.security;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import lombok.extern.slf4j.Slf4j;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.ResponseCookie;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.oauth2.client.authentication.OAuth2AuthenticationToken;
+import org.springframework.security.oauth2.core.user.DefaultOAuth2User;
+import org.springframework.stereotype.Service;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Issues and checks the compact signed tokens used when
+ * {@code app.auth.stateless=true}: {@code base64url(payload).base64url(HMAC-SHA256)}.
+ *
+ * The HMAC covers a purpose string as well as the payload, so a token
+ * sealed for one cookie cannot be replayed as another.  The key comes from
+ * {@code app.auth.tokenSecret}; every instance behind the balancer must share
+ * it.  Without one a random per-process key is used, which is only good
+ * enough while the stateless mode is off.
+ */
+@Slf4j
+@Service("sessionTokens")
+public class SessionTokenService {
+  public static final String COOKIE_NAME = "SESSION_TOKEN";
+  static final String SESSION_PURPOSE = "session";
+  static final String ALGORITHM = "HmacSHA256";
+
+  /** The OAuth2 user attributes that CurrentUserServiceImpl reads. */
+  static final List<String> ATTRIBUTES = List.of(
+      "sub", "email", "name", "given_name", "family_name", "picture", "email_verified", "locale", "hd");
+
+  private static final Base64.Encoder ENCODER = Base64.getUrlEncoder().withoutPadding();
+  private static final Base64.Decoder DECODER = Base64.getUrlDecoder();
+
+  private final String algorithm;
+  private final SecretKeySpec key;
+  private final boolean configuredSecret;
+  private final Duration ttl;
+  private final Clock clock;
+
+  @Autowired
+  ObjectMapper mapper;
+
+  @Autowired
+  public SessionTokenService(
+      @Value("${app.auth.tokenSecret:}") String secret,
+      @Value("${app.auth.tokenTtlSeconds:28800}") long ttlSeconds) {
+    this(secret, ttlSeconds, Clock.systemUTC(), ALGORITHM);
+  }
+
+  SessionTokenService(String secret, long ttlSeconds, Clock clock, String algorithm) {
+    this.algorithm = algorithm;
+    this.configuredSecret = !secret.isBlank();
+    byte[] keyBytes;
+    if (configuredSecret) {
+      keyBytes = secret.getBytes(StandardCharsets.UTF_8);
+    } else {
+      keyBytes = new byte[32];
+      new SecureRandom().nextBytes(keyBytes);
+    }
+    this.key = new SecretKeySpec(keyBytes, algorithm);
+    this.ttl = Duration.ofSeconds(ttlSeconds);
+    this.clock = clock;
+  }
+
+  public boolean hasConfiguredSecret() {
+    return configuredSecret;
+  }
+
+  public Duration getTtl() {
+    return ttl;
+  }
+
+  public String seal(String purpose, byte[] payload) {
+    String encoded = ENCODER.encodeToString(payload);
+    return encoded + "." + ENCODER.encodeToString(hmac(purpose, encoded));
+  }
+
+  /** The payload, if {@code token} was sealed by this key for {@code purpose}. */
+  public Optional<byte[]> unseal(String purpose, String token) {
+    int dot = token.indexOf('.');
+    if (dot < 0) {
+      return Optional.empty();
+    }
+    String encoded = token.substring(0, dot);
+    try {
+      byte[] signature = DECODER.decode(token.substring(dot + 1));
+      if (!MessageDigest.isEqual(signature, hmac(purpose, encoded))) {
+        return Optional.empty();
+      }
+      return Optional.of(DECODER.decode(encoded));
+    } catch (IllegalArgumentException e) {
+      return Optional.empty();
+    }
+  }
+
+  private byte[] hmac(String purpose, String encodedPayload) {
+    try {
+      Mac mac = Mac.getInstance(algorithm);
+      mac.init(key);
+      mac.update(purpose.getBytes(StandardCharsets.UTF_8));
+      mac.update((byte) 0);
+      return mac.doFinal(encodedPayload.getBytes(StandardCharsets.US_ASCII));
+    } catch (GeneralSecurityException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  public String issue(OAuth2AuthenticationToken authentication) throws IOException {
+    Map<String, Object> attributes = new LinkedHashMap<>();
+    for (String name : ATTRIBUTES) {
+      Object value = authentication.getPrincipal().getAttribute(name);
+      if (value != null) {
+        attributes.put(name, value);
+      }
+    }
+    List<String> roles = authentication.getAuthorities().stream()
+        .map(GrantedAuthority::getAuthority)
+        .filter(a -> a.startsWith("ROLE_"))
+        .sorted()
+        .toList();
+    SessionToken token = new SessionToken(attributes, roles, authentication.getAuthorizedClientRegistrationId(),
+        clock.instant().plus(ttl).getEpochSecond());
+    return seal(SESSION_PURPOSE, mapper.writeValueAsBytes(token));
+  }
+
+  /** The authentication the token was issued for, unless it is forged, malformed or expired. */
+  public Optional<OAuth2AuthenticationToken> parse(String value) {
+    Optional<byte[]> payload = unseal(SESSION_PURPOSE, value);
+    if (payload.isEmpty()) {
+      return Optional.empty();
+    }
+    SessionToken token;
+    try {
+      token = mapper.readValue(payload.get(), SessionToken.class);
+    } catch (IOException e) {
+      log.debug("unreadable session token", e);
+      return Optional.empty();
+    }
+    if (token.expiresAt() <= clock.instant().getEpochSecond()) {
+      return Optional.empty();
+    }
+    List<GrantedAuthority> authorities = token.roles().stream()
+        .<GrantedAuthority>map(SimpleGrantedAuthority::new)
+        .toList();
+    DefaultOAuth2User principal = new DefaultOAuth2User(authorities, token.attributes(), "sub");
+    return Optional.of(new OAuth2AuthenticationToken(principal, authorities, token.registrationId()));
+  }
+
+  public static ResponseCookie cookie(String name, String value, Duration maxAge, boolean secure) {
+    return ResponseCookie.from(name, value)
+        .path("/")
+        .httpOnly(true)
+        .secure(secure)
+        .sameSite("Lax")
+        .maxAge(maxAge)
+        .build();
+  }
+}
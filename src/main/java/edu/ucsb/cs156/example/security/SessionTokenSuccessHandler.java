@@ -0,0 +1,36 @@
+package edu.ucsb.cs156.example.security;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.oauth2.client.authentication.OAuth2AuthenticationToken;
+import org.springframework.security.web.authentication.SimpleUrlAuthenticationSuccessHandler;
+
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import java.io.IOException;
+
+/**
+ * At the end of the OAuth2 login, hands the browser the signed session
+ * cookie and then redirects to "/" like the default handler does.
+ */
+public class SessionTokenSuccessHandler extends SimpleUrlAuthenticationSuccessHandler {
+  private final SessionTokenService sessionTokens;
+
+  public SessionTokenSuccessHandler(SessionTokenService sessionTokens) {
+    super("/");
+    this.sessionTokens = sessionTokens;
+  }
+
+  @Override
+  public void onAuthenticationSuccess(HttpServletRequest request, HttpServletResponse response,
+      Authentication authentication) throws IOException, ServletException {
+    if (authentication instanceof OAuth2AuthenticationToken oauth2) {
+      String token = sessionTokens.issue(oauth2);
+      response.addHeader(HttpHeaders.SET_COOKIE, SessionTokenService
+          .cookie(SessionTokenService.COOKIE_NAME, token, sessionTokens.getTtl(), request.isSecure()).toString());
+    }
+    super.onAuthenticationSuccess(request, response, authentication);
+  }
+}
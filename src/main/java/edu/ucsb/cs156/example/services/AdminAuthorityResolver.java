@@ -0,0 +1,103 @@
+package edu.ucsb.cs156.example.services;
+
+import edu.ucsb.cs156.example.cache.TtlCache;
+import edu.ucsb.cs156.example.entities.User;
+import edu.ucsb.cs156.example.repositories.UserRepository;
+
+import lombok.extern.slf4j.Slf4j;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Decides which extra roles a logged in email gets: {@code ROLE_ADMIN} if
+ * it is listed in {@code app.admin.emails} or its {@code users} row is marked
+ * admin, and {@code ROLE_MEMBER} if it belongs to one of
+ * {@code app.member.domains}.
+ *
+ * The configured lists are compiled into hash sets once.  The admin flag
+ * from the database is cached for {@code app.admin.cache.ttlSeconds}, so a
+ * burst of logins at the start of a lab section costs at most one
+ * {@code findByEmail} per student.  Anything that changes a user's admin
+ * flag must call {@link #invalidate(String)}.
+ */
+@Slf4j
+@Service("adminAuthorityResolver")
+public class AdminAuthorityResolver {
+  public static final GrantedAuthority ADMIN = new SimpleGrantedAuthority("ROLE_ADMIN");
+  public static final GrantedAuthority MEMBER = new SimpleGrantedAuthority("ROLE_MEMBER");
+
+  private static final Set<GrantedAuthority> NONE = Set.of();
+  private static final Set<GrantedAuthority> ADMIN_ONLY = Set.of(ADMIN);
+  private static final Set<GrantedAuthority> MEMBER_ONLY = Set.of(MEMBER);
+  private static final Set<GrantedAuthority> ADMIN_AND_MEMBER = Set.of(ADMIN, MEMBER);
+
+  private final Set<String> adminEmails;
+  private final Set<String> memberDomains;
+  private final TtlCache<String, Boolean> adminFlags;
+
+  @Autowired
+  UserRepository userRepository;
+
+  public AdminAuthorityResolver(
+      @Value("${app.admin.emails}") List<String> adminEmails,
+      @Value("${app.member.domains:ucsb.edu}") List<String> memberDomains,
+      @Value("${app.admin.cache.ttlSeconds:60}") long ttlSeconds,
+      @Value("${app.admin.cache.maxSize:10000}") int maxSize) {
+    this.adminEmails = normalized(adminEmails);
+    this.memberDomains = normalized(memberDomains);
+    this.adminFlags = new TtlCache<>(Duration.ofSeconds(ttlSeconds), maxSize);
+  }
+
+  private static Set<String> normalized(List<String> values) {
+    return values.stream()
+        .map(String::trim)
+        .filter(v -> !v.isEmpty())
+        .map(v -> v.toLowerCase(Locale.ROOT))
+        .collect(Collectors.toUnmodifiableSet());
+  }
+
+  /** The roles to add for {@code email}; never null. */
+  public Set<GrantedAuthority> authoritiesFor(String email) {
+    if (email == null) {
+      return NONE;
+    }
+    boolean admin = isAdmin(email);
+    boolean member = isMember(email);
+    if (admin) {
+      return member ? ADMIN_AND_MEMBER : ADMIN_ONLY;
+    }
+    return member ? MEMBER_ONLY : NONE;
+  }
+
+  public boolean isConfiguredAdmin(String email) {
+    return adminEmails.contains(email.toLowerCase(Locale.ROOT));
+  }
+
+  public boolean isAdmin(String email) {
+    return isConfiguredAdmin(email) || adminFlags.get(email, this::loadAdminFlag);
+  }
+
+  public boolean isMember(String email) {
+    int at = email.lastIndexOf('@');
+    return at >= 0 && memberDomains.contains(email.substring(at + 1).toLowerCase(Locale.ROOT));
+  }
+
+  private Boolean loadAdminFlag(String email) {
+    return userRepository.findByEmail(email).map(User::getAdmin).orElse(false);
+  }
+
+  public void invalidate(String email) {
+    log.debug("invalidating cached admin flag for {}", email);
+    adminFlags.invalidate(email);
+  }
+}
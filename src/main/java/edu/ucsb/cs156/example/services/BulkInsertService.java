@@ -0,0 +1,201 @@
+package edu.ucsb.cs156.example.services;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import edu.ucsb.cs156.example.models.BulkInsertResult;
+import edu.ucsb.cs156.example.models.BulkRowResult;
+
+import lombok.extern.slf4j.Slf4j;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.NestedExceptionUtils;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.repository.CrudRepository;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import javax.persistence.CacheRetrieveMode;
+import javax.persistence.EntityManager;
+import javax.validation.ConstraintViolation;
+import javax.validation.Validator;
+
+/**
+ * Inserts the rows of a JSON array or a newline-delimited JSON stream.
+ *
+ * The body is parsed one row at a time, and rows are saved in chunks of
+ * {@link #CHUNK_SIZE}, each chunk in its own transaction, so memory use does
+ * not depend on the size of the upload and Hibernate can send each chunk as
+ * JDBC batches.  If a chunk fails, its rows are retried one per transaction
+ * so that only the offending rows are reported as errors.  Each retry starts
+ * from a fresh entity parsed again from the row's JSON: the failed chunk has
+ * already given its entities ids, and marked entities with caller-assigned
+ * keys as not new, so saving those again would merge them and overwrite an
+ * existing row instead of reporting the conflict.
+ *
+ * Each row is checked with the same Bean Validation constraints that
+ * {@code @Valid} applies to a single PUT; rows that break them are reported
+ * and never sent to the database.
+ *
+ * Ids are always assigned by the database: an {@code id} field in the input
+ * is ignored.  {@code afterSave}, if given, is called with the saved rows
+ * inside the transaction that saved them.
+ */
+@Slf4j
+@Service("bulkInsert")
+public class BulkInsertService {
+  public static final int CHUNK_SIZE = 500;
+  static final String CONFLICT_MESSAGE = "conflicts with an existing record";
+  static final String RETRIEVE_MODE = "javax.persistence.cache.retrieveMode";
+
+  private record Row<T>(int row, JsonNode node, T entity) {
+  }
+
+  @Autowired
+  ObjectMapper mapper;
+
+  @Autowired
+  PlatformTransactionManager transactionManager;
+
+  @Autowired
+  Validator validator;
+
+  @Autowired
+  EntityManager entityManager;
+
+  public <T> BulkInsertResult insert(InputStream body, Class<T> type, CrudRepository<T, ?> repository,
+      Function<T, ?> key) throws IOException {
+    return insert(body, type, repository, key, rows -> {
+    });
+  }
+
+  public <T> BulkInsertResult insert(InputStream body, Class<T> type, CrudRepository<T, ?> repository,
+      Function<T, ?> key, Consumer<List<T>> afterSave) throws IOException {
+    TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+    List<BulkRowResult> results = new ArrayList<>();
+    List<Row<T>> chunk = new ArrayList<>(CHUNK_SIZE);
+    int row = 0;
+
+    try (MappingIterator<JsonNode> nodes = mapper.readerFor(JsonNode.class).readValues(body)) {
+      JsonNode node;
+      while ((node = nextRow(nodes, row, results)) != null) {
+        try {
+          T entity = toEntity(node, type);
+          Set<ConstraintViolation<T>> violations = validator.validate(entity);
+          if (violations.isEmpty()) {
+            chunk.add(new Row<>(row, node, entity));
+          } else {
+            results.add(BulkRowResult.error(row, describe(violations)));
+          }
+        } catch (JsonProcessingException e) {
+          results.add(BulkRowResult.error(row, e.getOriginalMessage()));
+        }
+        row++;
+        if (chunk.size() == CHUNK_SIZE) {
+          saveChunk(transactionTemplate, type, repository, key, afterSave, chunk, results);
+          chunk = new ArrayList<>(CHUNK_SIZE);
+        }
+      }
+    }
+    if (!chunk.isEmpty()) {
+      saveChunk(transactionTemplate, type, repository, key, afterSave, chunk, results);
+    }
+
+    results.sort(Comparator.comparingInt(BulkRowResult::getRow));
+    int created = (int) results.stream().filter(r -> BulkRowResult.CREATED.equals(r.getStatus())).count();
+    log.info("bulk insert of {}: {} created, {} failed", type.getSimpleName(), created, results.size() - created);
+    return new BulkInsertResult(created, results.size() - created, results);
+  }
+
+  /**
+   * Malformed JSON leaves the parser at an unknown position, so the rest of
+   * the body is reported as a single error row instead of being guessed at.
+   */
+  private JsonNode nextRow(MappingIterator<JsonNode> nodes, int row, List<BulkRowResult> results) {
+    try {
+      return nodes.hasNextValue() ? nodes.nextValue() : null;
+    } catch (IOException e) {
+      results.add(BulkRowResult.error(row, "Malformed JSON: %s".formatted(e.getMessage())));
+      return null;
+    }
+  }
+
+  private <T> T toEntity(JsonNode node, Class<T> type) throws JsonProcessingException {
+    if (node instanceof ObjectNode object) {
+      object.remove("id");
+    }
+    return mapper.treeToValue(node, type);
+  }
+
+  private static <T> String describe(Set<ConstraintViolation<T>> violations) {
+    return violations.stream()
+        .map(v -> "%s %s".formatted(v.getPropertyPath(), v.getMessage()))
+        .sorted()
+        .collect(Collectors.joining("; "));
+  }
+
+  private <T> void saveChunk(TransactionTemplate transactionTemplate, Class<T> type,
+      CrudRepository<T, ?> repository, Function<T, ?> key, Consumer<List<T>> afterSave, List<Row<T>> chunk,
+      List<BulkRowResult> results) {
+    List<T> entities = chunk.stream().map(Row::entity).toList();
+    try {
+      transactionTemplate.executeWithoutResult(status -> {
+        bypassSecondLevelCache();
+        repository.saveAll(entities);
+        afterSave.accept(entities);
+      });
+      for (Row<T> r : chunk) {
+        results.add(BulkRowResult.created(r.row(), key.apply(r.entity())));
+      }
+    } catch (RuntimeException e) {
+      log.debug("chunk starting at row {} failed, retrying row by row", chunk.get(0).row(), e);
+      for (Row<T> r : chunk) {
+        T fresh = mapper.convertValue(r.node(), type);
+        results.add(saveRow(transactionTemplate, repository, key, afterSave, fresh, r.row()));
+      }
+    }
+  }
+
+  /**
+   * Every row is new, so nothing needs reading from the second-level cache.
+   * Hibernate would also take a cached entry with the same key as proof that
+   * the row is detached and refuse to persist it, instead of letting the
+   * INSERT fail as a conflict.
+   */
+  private void bypassSecondLevelCache() {
+    entityManager.setProperty(RETRIEVE_MODE, CacheRetrieveMode.BYPASS);
+  }
+
+  private <T> BulkRowResult saveRow(TransactionTemplate transactionTemplate, CrudRepository<T, ?> repository,
+      Function<T, ?> key, Consumer<List<T>> afterSave, T entity, int row) {
+    try {
+      T saved = transactionTemplate.execute(status -> {
+        bypassSecondLevelCache();
+        T savedEntity = repository.save(entity);
+        afterSave.accept(List.of(savedEntity));
+        return savedEntity;
+      });
+      return BulkRowResult.created(row, key.apply(saved));
+    } catch (DataIntegrityViolationException e) {
+      // the driver's message names constraints and values; keep it in the log
+      log.debug("row {} conflicts: {}", row, NestedExceptionUtils.getMostSpecificCause(e).getMessage());
+      return BulkRowResult.error(row, CONFLICT_MESSAGE);
+    } catch (RuntimeException e) {
+      return BulkRowResult.error(row, NestedExceptionUtils.getMostSpecificCause(e).getMessage());
+    }
+  }
+}
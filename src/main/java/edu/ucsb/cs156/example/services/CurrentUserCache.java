@@ -0,0 +1,51 @@
+package edu.ucsb.cs156.example.services;
+
+import edu.ucsb.cs156.example.cache.TtlCache;
+import edu.ucsb.cs156.example.entities.User;
+import lombok.extern.slf4j.Slf4j;
+
+import java.time.Duration;
+import java.util.function.Function;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+/**
+ * Resolved {@link User} rows for logged in principals, keyed by email.
+ *
+ * The frontend polls /api/currentUser, so without this every poll costs a
+ * findByEmail.  Anything that changes a user's admin flag or profile must call
+ * {@link #invalidate(String)} so the next request sees the new row.
+ *
+ * The cache keeps its own copy of each row and hands every caller a fresh
+ * copy, so a request that modifies the {@link User} it was given cannot
+ * change what other requests see.
+ */
+@Slf4j
+@Service("currentUserCache")
+public class CurrentUserCache {
+  private final TtlCache<String, User> users;
+
+  public CurrentUserCache(
+      @Value("${app.currentUser.cache.ttlSeconds:300}") long ttlSeconds,
+      @Value("${app.currentUser.cache.maxSize:10000}") int maxSize) {
+    this.users = new TtlCache<String, User>(Duration.ofSeconds(ttlSeconds), maxSize);
+  }
+
+  public User get(String email, Function<String, User> loader) {
+    return copy(users.get(email, e -> copy(loader.apply(e))));
+  }
+
+  public void invalidate(String email) {
+    log.debug("invalidating cached user {}", email);
+    users.invalidate(email);
+  }
+
+  public void invalidateAll() {
+    users.invalidateAll();
+  }
+
+  private static User copy(User user) {
+    return user.toBuilder().build();
+  }
+}
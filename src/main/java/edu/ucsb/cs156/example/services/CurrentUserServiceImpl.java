@@ -5,13 +5,10 @@ import edu.ucsb.cs156.example.models.CurrentUser;
 import edu.ucsb.cs156.example.repositories.UserRepository;
 import lombok.extern.slf4j.Slf4j;
 
-import java.util.ArrayList;
 import java.util.Collection;
-import java.util.List;
 import java.util.Optional;
 
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.core.context.SecurityContext;
@@ -30,21 +27,34 @@ public class CurrentUserServiceImpl extends CurrentUserService {
   @Autowired
   GrantedAuthoritiesService grantedAuthoritiesService;
 
-  @Value("${app.admin.emails}")
-  final private List<String> adminEmails = new ArrayList<String>();
+  @Autowired
+  CurrentUserCache currentUserCache;
+
+  @Autowired
+  AdminAuthorityResolver adminAuthorityResolver;
+
+  @Autowired
+  ProfileSyncWriter profileSyncWriter;
 
   public CurrentUser getCurrentUser() {
     CurrentUser cu = CurrentUser.builder()
       .user(this.getUser())
       .roles(this.getRoles())
       .build();
-    log.info("getCurrentUser returns {}",cu);
+    log.debug("getCurrentUser returns {}",cu);
     return cu;
   }
 
   
   public User getOAuth2AuthenticatedUser(SecurityContext securityContext, Authentication authentication) {
     OAuth2User oAuthUser = ((OAuth2AuthenticationToken) authentication).getPrincipal();
+    String email = oAuthUser.getAttribute("email");
+    User user = currentUserCache.get(email, e -> loadOAuth2AuthenticatedUser(oAuthUser));
+    profileSyncWriter.seen(user.getId());
+    return user;
+  }
+
+  private User loadOAuth2AuthenticatedUser(OAuth2User oAuthUser) {
     String email = oAuthUser.getAttribute("email");
     String googleSub = oAuthUser.getAttribute("sub");
     String pictureUrl = oAuthUser.getAttribute("picture");
@@ -56,19 +66,9 @@ public class CurrentUserServiceImpl extends CurrentUserService {
     String hostedDomain = oAuthUser.getAttribute("hd");
 
     java.util.Map<java.lang.String,java.lang.Object> attrs = oAuthUser.getAttributes();
-    log.info("attrs={}",attrs);
+    log.debug("attrs={}",attrs);
 
-    Optional<User> ou = userRepository.findByEmail(email);
-    if (ou.isPresent()) {
-      User u = ou.get();
-      if (adminEmails.contains(email) && !u.getAdmin()) {
-        u.setAdmin(true);
-        userRepository.save(u);
-      }
-      return u;
-    }
-
-    User u = User.builder()
+    User fresh = User.builder()
         .googleSub(googleSub)
         .email(email)
         .pictureUrl(pictureUrl)
@@ -78,10 +78,33 @@ public class CurrentUserServiceImpl extends CurrentUserService {
         .emailVerified(emailVerified)
         .locale(locale)
         .hostedDomain(hostedDomain)
-        .admin(adminEmails.contains(email))
+        .admin(adminAuthorityResolver.isConfiguredAdmin(email))
         .build();
-    userRepository.save(u);
-    return u;
+
+    Optional<User> ou = findUser(googleSub, email);
+    if (ou.isPresent()) {
+      User u = ou.get();
+      // profile changes and admin promotion are written in the background
+      UserProfileUpdate.diff(u, fresh, fresh.getAdmin()).ifPresent(update -> {
+        update.applyTo(u);
+        profileSyncWriter.enqueue(update);
+      });
+      return u;
+    }
+
+    userRepository.save(fresh);
+    adminAuthorityResolver.invalidate(email);
+    return fresh;
+  }
+
+  /**
+   * Looks the user up by Google subject first, since that is stable, then by
+   * email for rows created before the subject was recorded.  Both columns
+   * have unique indexes.
+   */
+  private Optional<User> findUser(String googleSub, String email) {
+    Optional<User> bySub = googleSub == null ? Optional.empty() : userRepository.findByGoogleSub(googleSub);
+    return bySub.or(() -> userRepository.findByEmail(email));
   }
 
   public User getUser() {
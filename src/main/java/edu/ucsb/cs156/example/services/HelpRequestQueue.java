@@ -0,0 +1,319 @@
+package edu.ucsb.cs156.example.services;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import edu.ucsb.cs156.example.entities.HelpRequest;
+import edu.ucsb.cs156.example.models.QueuePosition;
+import edu.ucsb.cs156.example.repositories.HelpRequestRepository;
+
+import lombok.extern.slf4j.Slf4j;
+
+import org.springframework.beans.DirectFieldAccessor;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import javax.annotation.PostConstruct;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Queue;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The unsolved help requests, oldest first, kept in memory and pushed to
+ * course staff as Server-Sent Events so that nobody has to poll
+ * {@code /api/helprequest/all}.
+ *
+ * The queue is loaded from the database at startup and then follows the
+ * writes made through {@code HelpRequestController}; writers report each
+ * saved or deleted request once it is committed.  A new subscriber first
+ * gets a {@code snapshot} event with the whole queue, then one event per
+ * change: {@code new} and {@code updated} carry the request,
+ * {@code solved} and {@code deleted} only its id.  Changes and subscriptions
+ * are serialized so that every subscriber sees the same sequence.
+ *
+ * The lock is only held to change the state and queue the resulting event
+ * for each subscriber; the events are written on a separate executor, so a
+ * slow client holds up neither writers nor the other subscribers.  A
+ * subscriber that falls {@code subscriberBacklog} events behind has its
+ * stream closed; the browser reconnects and starts again from a snapshot.
+ *
+ * The queue is held in {@link RankedTreap}s, so a request's position is
+ * found in O(log n).  Writers publish a new immutable {@link State}; readers
+ * take whichever one is current without locking.
+ *
+ * Writes made by other application instances are not seen until the next
+ * {@link #reload()}.
+ */
+@Slf4j
+@Service("helpRequestQueue")
+public class HelpRequestQueue {
+  static final Comparator<QueueKey> OLDEST_FIRST = Comparator
+      .comparing(QueueKey::requestTime, Comparator.nullsLast(Comparator.naturalOrder()))
+      .thenComparingLong(QueueKey::id);
+
+  /** Requests without a request time go to the back of the queue. */
+  record QueueKey(LocalDateTime requestTime, long id) {
+    static QueueKey of(HelpRequest request) {
+      return new QueueKey(request.getRequestTime(), request.getId());
+    }
+  }
+
+  /** The queue, and the place of each request in it by id. */
+  record State(RankedTreap<QueueKey, HelpRequest> unsolved, RankedTreap<Long, QueueKey> keys) {
+    static final State EMPTY = new State(RankedTreap.empty(OLDEST_FIRST), RankedTreap.empty(Comparator.naturalOrder()));
+
+    State with(HelpRequest request) {
+      QueueKey key = QueueKey.of(request);
+      return new State(unsolved.with(key, request), keys.with(key.id(), key));
+    }
+
+    State without(QueueKey key) {
+      return new State(unsolved.without(key), keys.without(key.id()));
+    }
+  }
+
+  private record Event(String name, Object data) {
+  }
+
+  /**
+   * One stream and the events queued for it.  At most one task per
+   * subscriber runs on the executor at a time, so its events are written in
+   * order.
+   */
+  private final class Subscriber {
+    private final SseEmitter emitter;
+    private final Queue<Event> backlog = new ArrayBlockingQueue<>(subscriberBacklog);
+    private final AtomicInteger wanted = new AtomicInteger();
+    private volatile boolean behind;
+
+    Subscriber(SseEmitter emitter) {
+      this.emitter = emitter;
+    }
+
+    void offer(Event event) {
+      if (!backlog.offer(event)) {
+        behind = true;
+        subscribers.remove(this);
+      }
+      if (wanted.getAndIncrement() == 0) {
+        executor.execute(this::drain);
+      }
+    }
+
+    /** Runs until no {@link #offer} has happened since it last found the backlog empty. */
+    private void drain() {
+      int seen = 1;
+      do {
+        if (behind) {
+          log.debug("closing help request queue stream that fell {} events behind", subscriberBacklog);
+          backlog.clear();
+          emitter.complete();
+          return;
+        }
+        for (Event event = backlog.poll(); event != null; event = backlog.poll()) {
+          if (!send(emitter, event)) {
+            subscribers.remove(this);
+            return;
+          }
+        }
+        seen = wanted.addAndGet(-seen);
+      } while (seen != 0);
+    }
+  }
+
+  private volatile State state = State.EMPTY;
+  private final List<Subscriber> subscribers = new CopyOnWriteArrayList<>();
+  private final HelpRequestRepository helpRequestRepository;
+  private final ObjectMapper mapper;
+  private final long streamTimeoutMillis;
+  private final int subscriberBacklog;
+  private final Executor executor;
+
+  @Autowired
+  public HelpRequestQueue(HelpRequestRepository helpRequestRepository, ObjectMapper mapper,
+      @Value("${app.helpQueue.streamTimeoutMillis:1800000}") long streamTimeoutMillis,
+      @Value("${app.helpQueue.subscriberBacklog:256}") int subscriberBacklog) {
+    this(helpRequestRepository, mapper, streamTimeoutMillis, subscriberBacklog, senders());
+  }
+
+  HelpRequestQueue(HelpRequestRepository helpRequestRepository, ObjectMapper mapper, long streamTimeoutMillis,
+      int subscriberBacklog, Executor executor) {
+    this.helpRequestRepository = helpRequestRepository;
+    this.mapper = mapper;
+    this.streamTimeoutMillis = streamTimeoutMillis;
+    this.subscriberBacklog = subscriberBacklog;
+    this.executor = executor;
+  }
+
+  /**
+   * A thread per subscriber that has events to write, and none for those
+   * that are up to date; a client that stops reading ties up only its own.
+   */
+  private static Executor senders() {
+    CustomizableThreadFactory threads = new CustomizableThreadFactory("help-queue-sender-");
+    threads.setDaemon(true);
+    return Executors.newCachedThreadPool(threads);
+  }
+
+  /**
+   * Rebuilds the queue from the database and sends every subscriber a new
+   * snapshot.
+   */
+  @PostConstruct
+  public synchronized void reload() {
+    State loaded = State.EMPTY;
+    for (HelpRequest request : helpRequestRepository.findBySolvedFalse()) {
+      loaded = loaded.with(request);
+    }
+    state = loaded;
+    log.info("help request queue loaded with {} unsolved requests", loaded.unsolved().size());
+    publish("snapshot", unsolved());
+  }
+
+  public List<HelpRequest> unsolved() {
+    return List.copyOf(state.unsolved().values());
+  }
+
+  /** Where request {@code id} is in the queue; empty if it is solved or unknown. */
+  public Optional<QueuePosition> position(long id) {
+    State current = state;
+    QueueKey key = current.keys().get(id);
+    if (key == null) {
+      return Optional.empty();
+    }
+    return Optional.of(new QueuePosition(id, current.unsolved().rank(key), current.unsolved().size()));
+  }
+
+  /** Records a committed insert or update of {@code request}. */
+  public synchronized void saved(HelpRequest request) {
+    if (request.getSolved()) {
+      solved(request.getId());
+      return;
+    }
+    QueueKey old = state.keys().get(request.getId());
+    if (old == null) {
+      state = state.with(request);
+      publish("new", request);
+    } else if (!request.equals(state.unsolved().get(old))) {
+      state = state.without(old).with(request);
+      publish("updated", request);
+    }
+  }
+
+  /**
+   * Records a committed PATCH of request {@code id}.  The request is only
+   * read back when it is reopened; a request that is solved just leaves the
+   * queue, and one that is still queued is updated from the patched fields.
+   * A patch that leaves {@code solved} alone cannot add a request to the
+   * queue.
+   */
+  public void patched(long id, Map<String, Object> patch) {
+    if (Boolean.TRUE.equals(patch.get("solved"))) {
+      solved(id);
+      return;
+    }
+    synchronized (this) {
+      QueueKey key = state.keys().get(id);
+      if (key != null) {
+        saved(withPatch(state.unsolved().get(key), patch));
+        return;
+      }
+    }
+    if (patch.containsKey("solved")) {
+      helpRequestRepository.findById(id).ifPresent(this::saved);
+    }
+  }
+
+  /** A copy of {@code request} with the patched fields converted as PartialUpdateService does. */
+  private HelpRequest withPatch(HelpRequest request, Map<String, Object> patch) {
+    DirectFieldAccessor values = new DirectFieldAccessor(mapper.convertValue(patch, HelpRequest.class));
+    HelpRequest patched = request.toBuilder().build();
+    DirectFieldAccessor fields = new DirectFieldAccessor(patched);
+    for (String field : patch.keySet()) {
+      fields.setPropertyValue(field, values.getPropertyValue(field));
+    }
+    return patched;
+  }
+
+  private synchronized void solved(long id) {
+    QueueKey old = state.keys().get(id);
+    if (old != null) {
+      state = state.without(old);
+      publish("solved", Map.of("id", id));
+    }
+  }
+
+  /**
+   * Records {@code requests} once the current transaction commits; nothing
+   * is recorded if it rolls back.
+   */
+  public void savedOnCommit(List<HelpRequest> requests) {
+    TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+      @Override
+      public void afterCommit() {
+        requests.forEach(HelpRequestQueue.this::saved);
+      }
+    });
+  }
+
+  /** Records a committed delete. */
+  public synchronized void deleted(long id) {
+    QueueKey old = state.keys().get(id);
+    if (old != null) {
+      state = state.without(old);
+      publish("deleted", Map.of("id", id));
+    }
+  }
+
+  /** A stream of the queue: a snapshot, then every change to it. */
+  public SseEmitter subscribe() {
+    return subscribe(new SseEmitter(streamTimeoutMillis));
+  }
+
+  synchronized SseEmitter subscribe(SseEmitter emitter) {
+    Subscriber subscriber = new Subscriber(emitter);
+    emitter.onCompletion(() -> subscribers.remove(subscriber));
+    emitter.onTimeout(() -> subscribers.remove(subscriber));
+    emitter.onError(e -> subscribers.remove(subscriber));
+    subscribers.add(subscriber);
+    subscriber.offer(new Event("snapshot", unsolved()));
+    return emitter;
+  }
+
+  int subscriberCount() {
+    return subscribers.size();
+  }
+
+  private void publish(String name, Object data) {
+    Event event = new Event(name, data);
+    for (Subscriber subscriber : subscribers) {
+      subscriber.offer(event);
+    }
+  }
+
+  /** Returns false if the subscriber has gone away. */
+  private static boolean send(SseEmitter emitter, Event event) {
+    try {
+      emitter.send(SseEmitter.event().name(event.name()).data(event.data(), MediaType.APPLICATION_JSON));
+      return true;
+    } catch (IOException | IllegalStateException e) {
+      log.debug("dropping help request queue subscriber", e);
+      return false;
+    }
+  }
+}
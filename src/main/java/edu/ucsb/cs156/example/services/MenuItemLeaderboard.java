@@ -0,0 +1,250 @@
+package edu.ucsb.cs156.example.services;
+
+import edu.ucsb.cs156.example.errors.InvalidRequestException;
+import edu.ucsb.cs156.example.models.LeaderboardEntry;
+
+import lombok.extern.slf4j.Slf4j;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.jdbc.core.JdbcOperations;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.LongSupplier;
+
+/**
+ * The best rated menu items, overall and per dining commons, station, and
+ * station within a dining commons, held in memory so that a read is a map
+ * lookup.
+ *
+ * Items are ranked by the Bayesian average of their stars: the item's star
+ * sum plus {@code priorReviews} reviews at the average over all items,
+ * divided by its review count plus {@code priorReviews}, so that one five
+ * star review does not put an item at the top.
+ *
+ * The boards are rebuilt on a background thread from MENUITEMRATINGSTATS
+ * (one row per rated item, see {@link MenuItemRatingStatsService}), keeping
+ * only the best {@code size} items of each board in a bounded heap.  A
+ * rebuild happens at most every {@code refreshMillis} after a review write
+ * commits on this instance, and at least every {@code maxAgeMillis} to pick
+ * up writes made on other instances and changes to the menu items.
+ */
+@Slf4j
+@Service("menuItemLeaderboard")
+public class MenuItemLeaderboard implements SmartLifecycle {
+  static final String RATED_ITEMS = """
+      SELECT S.ITEM_ID, M.DINING_COMMONS_CODE, M.NAME, M.STATION, S.REVIEW_COUNT, S.STAR_SUM
+      FROM MENUITEMRATINGSTATS S JOIN UCSBDININGCOMMONSMENUITEM M ON M.ID = S.ITEM_ID
+      WHERE S.REVIEW_COUNT > 0""";
+
+  /** Best first: higher score, then more reviews, then the older item. */
+  static final Comparator<LeaderboardEntry> RANKING = Comparator
+      .comparingDouble(LeaderboardEntry::getScore).reversed()
+      .thenComparing(Comparator.comparingLong(LeaderboardEntry::getReviewCount).reversed())
+      .thenComparingLong(LeaderboardEntry::getItemId);
+
+  private static final RowMapper<RatedItem> RATED_ITEM = (rs, rowNum) -> new RatedItem(rs.getLong(1),
+      rs.getString(2), rs.getString(3), rs.getString(4), rs.getLong(5), rs.getLong(6));
+
+  private record RatedItem(long itemId, String diningCommonsCode, String name, String station, long reviewCount,
+      long starSum) {
+  }
+
+  private record Snapshot(Map<List<String>, List<LeaderboardEntry>> boards, long builtAt) {
+  }
+
+  private final JdbcOperations jdbc;
+  private final int size;
+  private final double priorReviews;
+  private final long refreshNanos;
+  private final long maxAgeNanos;
+  private final LongSupplier nanoClock;
+
+  private volatile Snapshot snapshot;
+  private volatile boolean stale = true;
+  private volatile boolean running;
+  private Thread thread;
+
+  @Autowired
+  public MenuItemLeaderboard(JdbcOperations jdbc,
+      @Value("${app.leaderboard.size:100}") int size,
+      @Value("${app.leaderboard.priorReviews:10}") double priorReviews,
+      @Value("${app.leaderboard.refreshMillis:1000}") long refreshMillis,
+      @Value("${app.leaderboard.maxAgeMillis:60000}") long maxAgeMillis) {
+    this(jdbc, size, priorReviews, refreshMillis, maxAgeMillis, System::nanoTime);
+  }
+
+  MenuItemLeaderboard(JdbcOperations jdbc, int size, double priorReviews, long refreshMillis, long maxAgeMillis,
+      LongSupplier nanoClock) {
+    this.jdbc = jdbc;
+    this.size = size;
+    this.priorReviews = priorReviews;
+    this.refreshNanos = TimeUnit.MILLISECONDS.toNanos(refreshMillis);
+    this.maxAgeNanos = TimeUnit.MILLISECONDS.toNanos(maxAgeMillis);
+    this.nanoClock = nanoClock;
+  }
+
+  /**
+   * The best {@code limit} items, optionally only those of one dining
+   * commons and/or station.  Only the first read after startup may wait for
+   * the database.
+   */
+  public List<LeaderboardEntry> top(String diningCommonsCode, String station, int limit) {
+    if (limit < 1 || limit > size) {
+      throw new InvalidRequestException("limit must be between 1 and %d".formatted(size));
+    }
+    Snapshot current = snapshot;
+    if (current == null) {
+      current = refresh();
+    }
+    List<LeaderboardEntry> board = current.boards().getOrDefault(boardKey(diningCommonsCode, station), List.of());
+    return board.subList(0, Math.min(limit, board.size()));
+  }
+
+  /** Called after a review write commits; the next refresh rebuilds the boards. */
+  public void markStale() {
+    stale = true;
+  }
+
+  boolean isStale() {
+    return stale;
+  }
+
+  synchronized Snapshot refresh() {
+    stale = false;
+    long now = nanoClock.getAsLong();
+    Snapshot built = new Snapshot(build(jdbc.query(RATED_ITEMS, RATED_ITEM)), now);
+    snapshot = built;
+    return built;
+  }
+
+  /**
+   * Rebuilds the boards if a write has marked them stale or they are older
+   * than {@code maxAgeMillis}.  A failed rebuild, whatever the cause, keeps
+   * the old boards and is retried on the next call, so one bad row cannot
+   * end the background thread.
+   */
+  void refreshIfDue() {
+    Snapshot current = snapshot;
+    if (!stale && current != null && nanoClock.getAsLong() - current.builtAt() < maxAgeNanos) {
+      return;
+    }
+    try {
+      refresh();
+    } catch (RuntimeException e) {
+      stale = true;
+      log.warn("could not rebuild the menu item leaderboard; will retry", e);
+    }
+  }
+
+  private Map<List<String>, List<LeaderboardEntry>> build(List<RatedItem> items) {
+    long reviews = 0;
+    long stars = 0;
+    for (RatedItem item : items) {
+      reviews += item.reviewCount();
+      stars += item.starSum();
+    }
+    double mean = (double) stars / Math.max(reviews, 1);
+
+    // each heap keeps its board's best items with the worst of them at the head
+    Map<List<String>, PriorityQueue<LeaderboardEntry>> heaps = new HashMap<>();
+    for (RatedItem item : items) {
+      LeaderboardEntry entry = LeaderboardEntry.builder()
+          .itemId(item.itemId())
+          .diningCommonsCode(item.diningCommonsCode())
+          .name(item.name())
+          .station(item.station())
+          .reviewCount(item.reviewCount())
+          .averageStars((double) item.starSum() / item.reviewCount())
+          .score((priorReviews * mean + item.starSum()) / (priorReviews + item.reviewCount()))
+          .build();
+      for (List<String> board : boardsOf(item)) {
+        PriorityQueue<LeaderboardEntry> heap = heaps.computeIfAbsent(board,
+            key -> new PriorityQueue<>(size + 1, RANKING.reversed()));
+        heap.add(entry);
+        if (heap.size() > size) {
+          heap.poll();
+        }
+      }
+    }
+
+    Map<List<String>, List<LeaderboardEntry>> boards = new HashMap<>();
+    heaps.forEach((board, heap) -> {
+      List<LeaderboardEntry> ranked = new ArrayList<>(heap);
+      ranked.sort(RANKING);
+      boards.put(board, List.copyOf(ranked));
+    });
+    return boards;
+  }
+
+  private static Set<List<String>> boardsOf(RatedItem item) {
+    return new HashSet<>(Arrays.asList(
+        boardKey(null, null),
+        boardKey(item.diningCommonsCode(), null),
+        boardKey(null, item.station()),
+        boardKey(item.diningCommonsCode(), item.station())));
+  }
+
+  /** The key of one board; a null part matches every value. */
+  private static List<String> boardKey(String diningCommonsCode, String station) {
+    return Arrays.asList(diningCommonsCode, station);
+  }
+
+  void run() {
+    while (running) {
+      refreshIfDue();
+      LockSupport.parkNanos(refreshNanos);
+    }
+  }
+
+  @Override
+  public synchronized void start() {
+    if (running) {
+      return;
+    }
+    running = true;
+    thread = new Thread(this::run, "menu-item-leaderboard");
+    thread.setDaemon(true);
+    thread.start();
+  }
+
+  /**
+   * Waits for the background thread outside the monitor, since a rebuild it
+   * has already begun needs the monitor to finish.
+   */
+  @Override
+  public void stop() {
+    Thread stopping;
+    synchronized (this) {
+      if (!running) {
+        return;
+      }
+      running = false;
+      stopping = thread;
+      LockSupport.unpark(stopping);
+    }
+    try {
+      stopping.join();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  @Override
+  public boolean isRunning() {
+    return running;
+  }
+}
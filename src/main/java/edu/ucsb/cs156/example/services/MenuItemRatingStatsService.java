@@ -0,0 +1,178 @@
+package edu.ucsb.cs156.example.services;
+
+import edu.ucsb.cs156.example.entities.MenuItemReview;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.persistence.EntityManager;
+
+import java.sql.Types;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Keeps MENUITEMRATINGSTATS in step with MENUITEMREVIEWS.
+ *
+ * Callers report the reviews they have written, inside the transaction that
+ * wrote them; the change to each item's counts is applied as one
+ * {@code UPDATE ... SET REVIEW_COUNT = REVIEW_COUNT + ?} so that concurrent
+ * writers never lose each other's updates.  An item's row is created the
+ * first time it is reviewed.  Items are updated in id order so that two
+ * transactions touching the same items lock them in the same order.
+ *
+ * The latest review time only ever moves forward, except when the latest
+ * review itself is removed or moved, in which case it is recomputed from the
+ * item's remaining reviews.  Stars outside 1 to 5 count towards the total
+ * but not the histogram.
+ *
+ * Once the transaction commits, {@link MenuItemLeaderboard} is told to
+ * rebuild its boards.
+ */
+@Service("menuItemRatingStats")
+public class MenuItemRatingStatsService {
+  static final String APPLY = """
+      UPDATE MENUITEMRATINGSTATS SET REVIEW_COUNT = REVIEW_COUNT + ?, STAR_SUM = STAR_SUM + ?,
+          STARS1 = STARS1 + ?, STARS2 = STARS2 + ?, STARS3 = STARS3 + ?, STARS4 = STARS4 + ?, STARS5 = STARS5 + ?,
+          LAST_REVIEWED = CASE
+              WHEN LAST_REVIEWED <= ? THEN (SELECT MAX(DATE_REVIEWED) FROM MENUITEMREVIEWS WHERE ITEM_ID = ?)
+              WHEN LAST_REVIEWED IS NULL OR LAST_REVIEWED < ? THEN ?
+              ELSE LAST_REVIEWED END
+      WHERE ITEM_ID = ?""";
+  private static final int[] APPLY_TYPES = { Types.BIGINT, Types.BIGINT, Types.BIGINT, Types.BIGINT, Types.BIGINT,
+      Types.BIGINT, Types.BIGINT, Types.TIMESTAMP, Types.BIGINT, Types.TIMESTAMP, Types.TIMESTAMP, Types.BIGINT };
+
+  @Autowired
+  JdbcTemplate jdbcTemplate;
+
+  @Autowired
+  EntityManager entityManager;
+
+  @Autowired
+  MenuItemLeaderboard leaderboard;
+
+  @Value("${spring.datasource.url}")
+  String datasourceUrl;
+
+  /** The fields of a review that its item's stats depend on. */
+  public record Rating(long itemId, int stars, LocalDateTime dateReviewed) {
+    public static Rating of(MenuItemReview review) {
+      return new Rating(review.getItemId(), review.getStars(), review.getDateReviewed());
+    }
+  }
+
+  @Transactional(propagation = Propagation.MANDATORY)
+  public void added(Collection<MenuItemReview> reviews) {
+    apply(List.of(), reviews.stream().map(Rating::of).toList());
+  }
+
+  @Transactional(propagation = Propagation.MANDATORY)
+  public void removed(MenuItemReview review) {
+    apply(List.of(Rating.of(review)), List.of());
+  }
+
+  @Transactional(propagation = Propagation.MANDATORY)
+  public void changed(Rating before, Rating after) {
+    if (!before.equals(after)) {
+      apply(List.of(before), List.of(after));
+    }
+  }
+
+  private void apply(List<Rating> removed, List<Rating> added) {
+    Map<Long, Delta> deltas = new TreeMap<>();
+    removed.forEach(rating -> deltas.computeIfAbsent(rating.itemId(), Delta::new).add(rating, -1));
+    added.forEach(rating -> deltas.computeIfAbsent(rating.itemId(), Delta::new).add(rating, 1));
+
+    // the latest review time may be recomputed from MENUITEMREVIEWS, so Hibernate's pending writes go first
+    entityManager.flush();
+    TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+      @Override
+      public void afterCommit() {
+        leaderboard.markStale();
+      }
+    });
+    List<Delta> all = List.copyOf(deltas.values());
+    int[] updated = jdbcTemplate.batchUpdate(APPLY, rows(all), APPLY_TYPES);
+
+    List<Delta> firstReviews = new ArrayList<>();
+    for (int i = 0; i < all.size(); i++) {
+      if (updated[i] == 0 && all.get(i).count > 0) {
+        firstReviews.add(all.get(i));
+      }
+    }
+    if (firstReviews.isEmpty()) {
+      return;
+    }
+    jdbcTemplate.batchUpdate(createSql(datasourceUrl),
+        firstReviews.stream().map(delta -> new Object[] { delta.itemId }).toList());
+    jdbcTemplate.batchUpdate(APPLY, rows(firstReviews), APPLY_TYPES);
+  }
+
+  private static List<Object[]> rows(List<Delta> deltas) {
+    return deltas.stream().map(Delta::row).toList();
+  }
+
+  /**
+   * Creates an item's row with all counts zero, unless another transaction
+   * just did.
+   */
+  static String createSql(String datasourceUrl) {
+    if (datasourceUrl.startsWith("jdbc:postgresql:")) {
+      return "INSERT INTO MENUITEMRATINGSTATS (ITEM_ID) VALUES (?) ON CONFLICT (ITEM_ID) DO NOTHING";
+    }
+    if (datasourceUrl.startsWith("jdbc:h2:")) {
+      return "MERGE INTO MENUITEMRATINGSTATS (ITEM_ID) KEY (ITEM_ID) VALUES (?)";
+    }
+    throw new IllegalStateException("Rating stats are not supported for %s".formatted(datasourceUrl));
+  }
+
+  /** The net change to one item's row. */
+  private static final class Delta {
+    final long itemId;
+    long count;
+    long sum;
+    final long[] histogram = new long[5];
+    LocalDateTime latestRemoved;
+    LocalDateTime latestAdded;
+
+    Delta(long itemId) {
+      this.itemId = itemId;
+    }
+
+    void add(Rating rating, int sign) {
+      count += sign;
+      sum += (long) sign * rating.stars();
+      if (rating.stars() >= 1 && rating.stars() <= 5) {
+        histogram[rating.stars() - 1] += sign;
+      }
+      LocalDateTime when = rating.dateReviewed();
+      if (when == null) {
+        return;
+      }
+      if (sign < 0) {
+        latestRemoved = later(latestRemoved, when);
+      } else {
+        latestAdded = later(latestAdded, when);
+      }
+    }
+
+    private static LocalDateTime later(LocalDateTime current, LocalDateTime candidate) {
+      return current == null || candidate.isAfter(current) ? candidate : current;
+    }
+
+    Object[] row() {
+      return new Object[] { count, sum, histogram[0], histogram[1], histogram[2], histogram[3], histogram[4],
+          latestRemoved, itemId, latestAdded, latestAdded, itemId };
+    }
+  }
+}
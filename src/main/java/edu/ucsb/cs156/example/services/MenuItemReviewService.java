@@ -0,0 +1,163 @@
+package edu.ucsb.cs156.example.services;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import edu.ucsb.cs156.example.entities.MenuItemReview;
+import edu.ucsb.cs156.example.errors.EntityNotFoundException;
+import edu.ucsb.cs156.example.errors.InvalidRequestException;
+import edu.ucsb.cs156.example.models.BulkInsertResult;
+import edu.ucsb.cs156.example.models.KeysetPage;
+import edu.ucsb.cs156.example.repositories.MenuItemReviewRepository;
+import edu.ucsb.cs156.example.services.MenuItemRatingStatsService.Rating;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Sort.Direction;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Writes menu item reviews, and in the same transaction tells
+ * {@link MenuItemRatingStatsService} how each write changed the reviewed
+ * items' ratings.
+ */
+@Service("menuItemReviews")
+public class MenuItemReviewService {
+  static final Set<String> RATED_FIELDS = Set.of("itemId", "stars", "dateReviewed");
+  static final Sort NEWEST_FIRST = Sort.by(Direction.DESC, "dateReviewed", "id");
+  static final Sort UNDATED = Sort.by(Direction.DESC, "id");
+
+  @Autowired
+  MenuItemReviewRepository menuItemReviewRepository;
+
+  @Autowired
+  MenuItemRatingStatsService ratingStats;
+
+  @Autowired
+  PartialUpdateService partialUpdateService;
+
+  @Autowired
+  BulkInsertService bulkInsertService;
+
+  @Autowired
+  ObjectMapper mapper;
+
+  @Transactional
+  public MenuItemReview create(MenuItemReview review) {
+    MenuItemReview saved = menuItemReviewRepository.save(review);
+    ratingStats.added(List.of(saved));
+    return saved;
+  }
+
+  @Transactional
+  public MenuItemReview update(long id, MenuItemReview incoming) {
+    MenuItemReview review = find(id);
+    Rating before = Rating.of(review);
+
+    review.setItemId(incoming.getItemId());
+    review.setReviewerEmail(incoming.getReviewerEmail());
+    review.setStars(incoming.getStars());
+    review.setDateReviewed(incoming.getDateReviewed());
+    review.setComments(incoming.getComments());
+
+    menuItemReviewRepository.save(review);
+    ratingStats.changed(before, Rating.of(review));
+    return review;
+  }
+
+  /**
+   * A patch that does not touch the rating is a single UPDATE; one that does
+   * also reads and locks the row first, to know what the rating was.
+   */
+  @Transactional
+  public void patch(long id, Map<String, Object> patch, Set<String> updatable) {
+    if (Collections.disjoint(patch.keySet(), RATED_FIELDS)) {
+      partialUpdateService.patch(MenuItemReview.class, "id", id, patch, updatable);
+      return;
+    }
+    Rating before = Rating.of(find(id));
+    partialUpdateService.patch(MenuItemReview.class, "id", id, patch, updatable);
+
+    MenuItemReview patched = mapper.convertValue(patch, MenuItemReview.class);
+    ratingStats.changed(before, new Rating(
+        patch.containsKey("itemId") ? patched.getItemId() : before.itemId(),
+        patch.containsKey("stars") ? patched.getStars() : before.stars(),
+        patch.containsKey("dateReviewed") ? patched.getDateReviewed() : before.dateReviewed()));
+  }
+
+  @Transactional
+  public void delete(long id) {
+    MenuItemReview review = find(id);
+    menuItemReviewRepository.delete(review);
+    ratingStats.removed(review);
+  }
+
+  /** Each chunk's stats are updated in the chunk's own transaction. */
+  public BulkInsertResult createAll(InputStream body) throws IOException {
+    return bulkInsertService.insert(body, MenuItemReview.class, menuItemReviewRepository, MenuItemReview::getId,
+        ratingStats::added);
+  }
+
+  /**
+   * One page of an item's reviews, newest first, with reviews that have no
+   * date after all the others.  The cursor is the date and id of the last
+   * review of the previous page, so every page is an index range scan; the
+   * page where the dated reviews run out takes a second query for the first
+   * undated ones.
+   */
+  @Transactional(readOnly = true)
+  public KeysetPage<MenuItemReview> newestForItem(long itemId, String after, int limit) {
+    String cursor = KeysetPage.decodeStringCursor(after);
+    List<MenuItemReview> reviews = new ArrayList<>();
+    long undatedBefore = Long.MAX_VALUE;
+    if (cursor.isEmpty()) {
+      reviews.addAll(menuItemReviewRepository.findByItemIdAndDateReviewedNotNull(itemId,
+          KeysetPage.pageRequest(limit, NEWEST_FIRST)));
+    } else {
+      int slash = cursor.lastIndexOf('/');
+      if (slash < 0) {
+        throw new InvalidRequestException("Invalid cursor %s".formatted(after));
+      }
+      try {
+        long id = Long.parseLong(cursor.substring(slash + 1));
+        if (slash == 0) {
+          undatedBefore = id;
+        } else {
+          reviews.addAll(menuItemReviewRepository.findByItemIdOlderThan(itemId,
+              LocalDateTime.parse(cursor.substring(0, slash)), id, KeysetPage.pageRequest(limit, NEWEST_FIRST)));
+        }
+      } catch (NumberFormatException | DateTimeParseException e) {
+        throw new InvalidRequestException("Invalid cursor %s".formatted(after));
+      }
+    }
+    if (reviews.size() < limit) {
+      reviews.addAll(menuItemReviewRepository.findByItemIdAndDateReviewedIsNullAndIdLessThan(itemId, undatedBefore,
+          KeysetPage.pageRequest(limit - reviews.size(), UNDATED)));
+    }
+    return KeysetPage.of(reviews, limit, MenuItemReviewService::newestFirstKey);
+  }
+
+  /** {@code dateReviewed/id}, or {@code /id} for a review without a date. */
+  static String newestFirstKey(MenuItemReview review) {
+    return (review.getDateReviewed() == null ? "" : review.getDateReviewed().toString()) + "/" + review.getId();
+  }
+
+  /**
+   * Locks the review's row, so that the rating the caller reads is still the
+   * stored one when it reports the change to {@link MenuItemRatingStatsService}.
+   */
+  private MenuItemReview find(long id) {
+    return menuItemReviewRepository.findForUpdateById(id)
+        .orElseThrow(() -> new EntityNotFoundException(MenuItemReview.class, id));
+  }
+}
@@ -0,0 +1,96 @@
+package edu.ucsb.cs156.example.services;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import edu.ucsb.cs156.example.errors.EntityNotFoundException;
+import edu.ucsb.cs156.example.errors.InvalidRequestException;
+
+import lombok.extern.slf4j.Slf4j;
+
+import org.springframework.beans.DirectFieldAccessor;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.persistence.Entity;
+import javax.persistence.EntityManager;
+import javax.persistence.Query;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedSet;
+import java.util.TreeSet;
+import java.util.stream.Collectors;
+
+/**
+ * Applies a sparse JSON patch to one row as a single
+ * {@code UPDATE ... SET <patched columns> WHERE <key> = ?}, without loading
+ * the row first.  Whether the row exists is decided by the affected-row
+ * count.
+ *
+ * Only the fields named in {@code updatable} may be patched; the values are
+ * converted to the entity's field types with the application ObjectMapper, so
+ * a patch accepts exactly the same JSON as the PUT body.  The one exception
+ * is {@code null} for a primitive field, which Jackson would quietly turn
+ * into 0 or false; that is rejected instead.  Every rejection is an
+ * {@link InvalidRequestException}, which the controllers answer with 400.
+ */
+@Slf4j
+@Service("partialUpdate")
+public class PartialUpdateService {
+
+  @Autowired
+  EntityManager entityManager;
+
+  @Autowired
+  ObjectMapper mapper;
+
+  @Transactional
+  public <T> void patch(Class<T> type, String keyField, Object key, Map<String, Object> patch,
+      Set<String> updatable) {
+    if (patch.isEmpty()) {
+      throw new InvalidRequestException("Patch must name at least one field");
+    }
+    SortedSet<String> fields = new TreeSet<>(patch.keySet());
+    for (String field : fields) {
+      if (!updatable.contains(field)) {
+        throw new InvalidRequestException("Field %s cannot be updated".formatted(field));
+      }
+    }
+
+    DirectFieldAccessor values;
+    try {
+      values = new DirectFieldAccessor(mapper.convertValue(patch, type));
+    } catch (IllegalArgumentException e) {
+      log.debug("patch of {} {} does not convert", type.getSimpleName(), key, e);
+      throw new InvalidRequestException("Patch values do not match the fields of %s".formatted(type.getSimpleName()));
+    }
+    for (String field : fields) {
+      if (patch.get(field) == null && values.getPropertyType(field).isPrimitive()) {
+        throw new InvalidRequestException("Field %s cannot be null".formatted(field));
+      }
+    }
+    Query update = entityManager.createQuery(updateJpql(type, keyField, fields));
+    for (String field : fields) {
+      update.setParameter(field, values.getPropertyValue(field));
+    }
+    update.setParameter("key", key);
+
+    if (update.executeUpdate() == 0) {
+      throw new EntityNotFoundException(type, key);
+    }
+    log.debug("patched {} {} fields {}", type.getSimpleName(), key, fields);
+  }
+
+  /**
+   * Fields are listed in sorted order so that the same set of fields always
+   * produces the same statement text.
+   */
+  static String updateJpql(Class<?> type, String keyField, SortedSet<String> fields) {
+    String assignments = fields.stream()
+        .map(f -> "e.%s = :%s".formatted(f, f))
+        .collect(Collectors.joining(", "));
+    return "UPDATE %s e SET %s WHERE e.%s = :key"
+        .formatted(type.getAnnotation(Entity.class).name(), assignments, keyField);
+  }
+}
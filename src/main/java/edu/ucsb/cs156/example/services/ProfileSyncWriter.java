@@ -0,0 +1,164 @@
+package edu.ucsb.cs156.example.services;
+
+import lombok.extern.slf4j.Slf4j;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcOperations;
+import org.springframework.stereotype.Service;
+
+import java.sql.Types;
+import java.time.Clock;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Queues changes to USERS rows made on the login path (profile fields that
+ * Google reports differently, admin promotion, last seen) and writes them
+ * from a background thread as one batched UPDATE per flush.
+ *
+ * Updates for the same user are merged while they wait, so a user who makes
+ * a hundred requests between flushes costs one row in the batch, and a
+ * request never waits for the database to record that it happened.  Updates
+ * still pending at shutdown are written before the thread exits; a failed
+ * batch is put back and retried on the next flush.  Once a profile or admin
+ * change is written, the user's {@link CurrentUserCache} entries (under the
+ * old and any new email) are dropped so the next request reads the new row,
+ * and a new email's cached admin flag is dropped too.
+ */
+@Slf4j
+@Service("profileSyncWriter")
+public class ProfileSyncWriter implements SmartLifecycle {
+  static final String UPDATE = """
+      UPDATE USERS SET GOOGLE_SUB = COALESCE(GOOGLE_SUB, ?), PICTURE_URL = COALESCE(?, PICTURE_URL),
+          FULL_NAME = COALESCE(?, FULL_NAME), GIVEN_NAME = COALESCE(?, GIVEN_NAME),
+          FAMILY_NAME = COALESCE(?, FAMILY_NAME), EMAIL_VERIFIED = COALESCE(?, EMAIL_VERIFIED),
+          LOCALE = COALESCE(?, LOCALE), HOSTED_DOMAIN = COALESCE(?, HOSTED_DOMAIN),
+          ADMIN = CASE WHEN ? THEN TRUE ELSE ADMIN END, LAST_SEEN = COALESCE(?, LAST_SEEN),
+          EMAIL = COALESCE(?, EMAIL)
+      WHERE ID = ?""";
+  private static final int[] TYPES = { Types.VARCHAR, Types.VARCHAR, Types.VARCHAR, Types.VARCHAR, Types.VARCHAR,
+      Types.BOOLEAN, Types.VARCHAR, Types.VARCHAR, Types.BOOLEAN, Types.TIMESTAMP, Types.VARCHAR, Types.BIGINT };
+
+  private final ConcurrentHashMap<Long, UserProfileUpdate> pending = new ConcurrentHashMap<>();
+  private final JdbcOperations jdbc;
+  private final long flushNanos;
+  private final Clock clock;
+
+  private volatile boolean running;
+  private Thread thread;
+
+  @Autowired
+  CurrentUserCache currentUserCache;
+
+  @Autowired
+  AdminAuthorityResolver adminAuthorityResolver;
+
+  @Autowired
+  public ProfileSyncWriter(JdbcOperations jdbc, @Value("${app.profileSync.flushMillis:5000}") long flushMillis) {
+    this(jdbc, flushMillis, Clock.systemDefaultZone());
+  }
+
+  ProfileSyncWriter(JdbcOperations jdbc, long flushMillis, Clock clock) {
+    this.jdbc = jdbc;
+    this.flushNanos = TimeUnit.MILLISECONDS.toNanos(flushMillis);
+    this.clock = clock;
+  }
+
+  /** Records that the user made a request just now. */
+  public void seen(long userId) {
+    enqueue(UserProfileUpdate.seen(userId, LocalDateTime.now(clock)));
+  }
+
+  void enqueue(UserProfileUpdate update) {
+    pending.merge(update.id(), update, UserProfileUpdate::merge);
+  }
+
+  int pendingCount() {
+    return pending.size();
+  }
+
+  /**
+   * Writes everything queued so far as one batch.  Only called from the
+   * writer thread, or from tests while it is stopped.
+   */
+  int flush() {
+    List<UserProfileUpdate> batch = new ArrayList<>(pending.size());
+    pending.keySet().forEach(id -> pending.computeIfPresent(id, (key, update) -> {
+      batch.add(update);
+      return null;
+    }));
+    if (batch.isEmpty()) {
+      return 0;
+    }
+    List<Object[]> rows = new ArrayList<>(batch.size());
+    for (UserProfileUpdate u : batch) {
+      rows.add(new Object[] { u.googleSub(), u.pictureUrl(), u.fullName(), u.givenName(), u.familyName(),
+          u.emailVerified(), u.locale(), u.hostedDomain(), u.admin(), u.lastSeen(), u.newEmail(), u.id() });
+    }
+    try {
+      jdbc.batchUpdate(UPDATE, rows, TYPES);
+    } catch (DataAccessException e) {
+      log.warn("could not write {} user updates; will retry", batch.size(), e);
+      for (UserProfileUpdate failed : batch) {
+        pending.merge(failed.id(), failed, (queued, older) -> older.merge(queued));
+      }
+      return 0;
+    }
+    for (UserProfileUpdate u : batch) {
+      if (u.email() != null) {
+        currentUserCache.invalidate(u.email());
+      }
+      if (u.newEmail() != null) {
+        currentUserCache.invalidate(u.newEmail());
+        adminAuthorityResolver.invalidate(u.newEmail());
+      }
+    }
+    log.debug("wrote {} user updates", batch.size());
+    return batch.size();
+  }
+
+  void run() {
+    while (running) {
+      LockSupport.parkNanos(flushNanos);
+      flush();
+    }
+    flush();
+  }
+
+  @Override
+  public synchronized void start() {
+    if (running) {
+      return;
+    }
+    running = true;
+    thread = new Thread(this::run, "profile-sync-writer");
+    thread.setDaemon(true);
+    thread.start();
+  }
+
+  @Override
+  public synchronized void stop() {
+    if (!running) {
+      return;
+    }
+    running = false;
+    LockSupport.unpark(thread);
+    try {
+      thread.join();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  @Override
+  public boolean isRunning() {
+    return running;
+  }
+}
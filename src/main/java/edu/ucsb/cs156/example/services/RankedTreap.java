@@ -0,0 +1,177 @@
+package edu.ucsb.cs156.example.services;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * An immutable sorted map that can also say how many keys come before a given
+ * one, in O(log n) expected time: a treap whose nodes count the entries below
+ * them.
+ *
+ * Updates return a new treap that copies only the nodes on the path they
+ * change and shares the rest, so a reader holding one version is never
+ * affected by later updates and needs no lock.
+ */
+final class RankedTreap<K, V> {
+
+  private record Node<K, V>(K key, V value, int priority, Node<K, V> left, Node<K, V> right, int size) {
+    Node(K key, V value, int priority, Node<K, V> left, Node<K, V> right) {
+      this(key, value, priority, left, right, sizeOf(left) + sizeOf(right) + 1);
+    }
+
+    Node<K, V> withLeft(Node<K, V> left) {
+      return new Node<>(key, value, priority, left, right);
+    }
+
+    Node<K, V> withRight(Node<K, V> right) {
+      return new Node<>(key, value, priority, left, right);
+    }
+  }
+
+  private final Comparator<? super K> order;
+  private final Node<K, V> root;
+
+  private RankedTreap(Comparator<? super K> order, Node<K, V> root) {
+    this.order = order;
+    this.root = root;
+  }
+
+  static <K, V> RankedTreap<K, V> empty(Comparator<? super K> order) {
+    return new RankedTreap<>(order, null);
+  }
+
+  int size() {
+    return sizeOf(root);
+  }
+
+  /** The value stored under {@code key}, or null. */
+  V get(K key) {
+    Node<K, V> node = root;
+    while (node != null) {
+      int c = order.compare(key, node.key());
+      if (c == 0) {
+        return node.value();
+      }
+      node = c < 0 ? node.left() : node.right();
+    }
+    return null;
+  }
+
+  /** The number of keys before {@code key}, or -1 if it is not in the treap. */
+  int rank(K key) {
+    int before = 0;
+    Node<K, V> node = root;
+    while (node != null) {
+      int c = order.compare(key, node.key());
+      if (c == 0) {
+        return before + sizeOf(node.left());
+      }
+      if (c < 0) {
+        node = node.left();
+      } else {
+        before += sizeOf(node.left()) + 1;
+        node = node.right();
+      }
+    }
+    return -1;
+  }
+
+  /** This treap with {@code key} mapped to {@code value}. */
+  RankedTreap<K, V> with(K key, V value) {
+    Node<K, V> node = new Node<>(key, value, ThreadLocalRandom.current().nextInt(), null, null);
+    return new RankedTreap<>(order, insert(remove(root, key), node));
+  }
+
+  /** This treap without {@code key}; this treap itself if it has no such key. */
+  RankedTreap<K, V> without(K key) {
+    Node<K, V> removed = remove(root, key);
+    return removed == root ? this : new RankedTreap<>(order, removed);
+  }
+
+  /** The values in key order. */
+  List<V> values() {
+    List<V> values = new ArrayList<>(size());
+    Deque<Node<K, V>> path = new ArrayDeque<>();
+    Node<K, V> node = root;
+    while (node != null || !path.isEmpty()) {
+      while (node != null) {
+        path.push(node);
+        node = node.left();
+      }
+      node = path.pop();
+      values.add(node.value());
+      node = node.right();
+    }
+    return values;
+  }
+
+  /** Inserts {@code node}, whose key is not under {@code tree}. */
+  private Node<K, V> insert(Node<K, V> tree, Node<K, V> node) {
+    if (tree == null) {
+      return node;
+    }
+    if (node.priority() > tree.priority()) {
+      Node<K, V>[] halves = split(tree, node.key());
+      return new Node<>(node.key(), node.value(), node.priority(), halves[0], halves[1]);
+    }
+    if (order.compare(node.key(), tree.key()) < 0) {
+      return tree.withLeft(insert(tree.left(), node));
+    }
+    return tree.withRight(insert(tree.right(), node));
+  }
+
+  /** The nodes before and after {@code key}, which is not under {@code tree}. */
+  @SuppressWarnings("unchecked")
+  private Node<K, V>[] split(Node<K, V> tree, K key) {
+    if (tree == null) {
+      return new Node[2];
+    }
+    if (order.compare(key, tree.key()) < 0) {
+      Node<K, V>[] halves = split(tree.left(), key);
+      halves[1] = tree.withLeft(halves[1]);
+      return halves;
+    }
+    Node<K, V>[] halves = split(tree.right(), key);
+    halves[0] = tree.withRight(halves[0]);
+    return halves;
+  }
+
+  /** {@code tree} without {@code key}; {@code tree} itself if it has no such key. */
+  private Node<K, V> remove(Node<K, V> tree, K key) {
+    if (tree == null) {
+      return null;
+    }
+    int c = order.compare(key, tree.key());
+    if (c == 0) {
+      return merge(tree.left(), tree.right());
+    }
+    if (c < 0) {
+      Node<K, V> left = remove(tree.left(), key);
+      return left == tree.left() ? tree : tree.withLeft(left);
+    }
+    Node<K, V> right = remove(tree.right(), key);
+    return right == tree.right() ? tree : tree.withRight(right);
+  }
+
+  /** Joins two trees where every key of {@code low} is before every key of {@code high}. */
+  private static <K, V> Node<K, V> merge(Node<K, V> low, Node<K, V> high) {
+    if (low == null) {
+      return high;
+    }
+    if (high == null) {
+      return low;
+    }
+    if (low.priority() > high.priority()) {
+      return low.withRight(merge(low.right(), high));
+    }
+    return high.withLeft(merge(low, high.left()));
+  }
+
+  private static int sizeOf(Node<?, ?> node) {
+    return node == null ? 0 : node.size();
+  }
+}
@@ -0,0 +1,183 @@
+package edu.ucsb.cs156.example.services;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+
+import edu.ucsb.cs156.example.errors.InvalidRequestException;
+
+import lombok.extern.slf4j.Slf4j;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import javax.persistence.EntityManager;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+/**
+ * Writes a whole table to the response one row at a time, as JSON or
+ * newline-delimited JSON, and for listings that opt in with
+ * {@link #exportWithCsv}, CSV.
+ *
+ * The rows come from a repository method returning a {@link Stream}, which
+ * must be consumed inside a transaction; since a {@link StreamingResponseBody}
+ * runs after the controller method has returned, the read-only transaction is
+ * opened here, around the write.  Each row is detached once it has been
+ * written so the persistence context does not grow with the table.
+ */
+@Slf4j
+@Service("streamingExport")
+public class StreamingExportService {
+  public static final MediaType APPLICATION_NDJSON = MediaType.parseMediaType("application/x-ndjson");
+  public static final MediaType TEXT_CSV = MediaType.parseMediaType("text/csv;charset=UTF-8");
+
+  @Autowired
+  ObjectMapper mapper;
+
+  @Autowired
+  PlatformTransactionManager transactionManager;
+
+  @Autowired
+  EntityManager entityManager;
+
+  public <T> ResponseEntity<StreamingResponseBody> export(String format, Supplier<Stream<T>> rows) {
+    if ("json".equals(format)) {
+      return ResponseEntity.ok()
+          .contentType(MediaType.APPLICATION_JSON)
+          .body(out -> writeRows(out, rows, true));
+    }
+    if ("ndjson".equals(format)) {
+      return ResponseEntity.ok()
+          .contentType(APPLICATION_NDJSON)
+          .body(out -> writeRows(out, rows, false));
+    }
+    throw new InvalidRequestException("Unsupported export format %s".formatted(format));
+  }
+
+  /**
+   * As {@link #export}, but also accepts {@code csv}.  Only flat rows make
+   * sensible CSV, so each listing chooses whether to offer it.
+   */
+  public <T> ResponseEntity<StreamingResponseBody> exportWithCsv(String format, Supplier<Stream<T>> rows) {
+    if ("csv".equals(format)) {
+      return ResponseEntity.ok()
+          .contentType(TEXT_CSV)
+          .body(out -> writeCsv(out, rows));
+    }
+    return export(format, rows);
+  }
+
+  private <T> void writeRows(OutputStream out, Supplier<Stream<T>> rows, boolean asArray) {
+    inReadOnlyTransaction(() -> {
+      ObjectWriter writer = mapper.writer().without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+      try (Stream<T> stream = rows.get();
+          JsonGenerator generator = mapper.getFactory().createGenerator(out)) {
+        generator.setRootValueSeparator(null);
+        if (asArray) {
+          generator.writeStartArray();
+        }
+        stream.forEachOrdered(row -> writeRow(writer, generator, row, asArray));
+        if (asArray) {
+          generator.writeEndArray();
+        }
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+    });
+  }
+
+  private void writeRow(ObjectWriter writer, JsonGenerator generator, Object row, boolean asArray) {
+    try {
+      writer.writeValue(generator, row);
+      if (!asArray) {
+        generator.writeRaw('\n');
+      }
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+    entityManager.detach(row);
+  }
+
+  /**
+   * One header line naming the JSON properties of the first row, then one
+   * line per row with the same properties in the same order.  Nulls are
+   * written as empty fields and nested values as JSON text.
+   */
+  private <T> void writeCsv(OutputStream out, Supplier<Stream<T>> rows) {
+    inReadOnlyTransaction(() -> {
+      Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+      List<String> columns = new ArrayList<>();
+      try (Stream<T> stream = rows.get()) {
+        stream.forEachOrdered(row -> writeCsvRow(writer, columns, row));
+        writer.flush();
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+    });
+  }
+
+  private void writeCsvRow(Writer writer, List<String> columns, Object row) {
+    JsonNode node = mapper.valueToTree(row);
+    try {
+      if (columns.isEmpty()) {
+        node.fieldNames().forEachRemaining(columns::add);
+        writeCsvLine(writer, columns);
+      }
+      List<String> values = new ArrayList<>(columns.size());
+      for (String column : columns) {
+        JsonNode value = node.path(column);
+        if (value.isNull() || value.isMissingNode()) {
+          values.add("");
+        } else {
+          values.add(value.isValueNode() ? value.asText() : value.toString());
+        }
+      }
+      writeCsvLine(writer, values);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+    entityManager.detach(row);
+  }
+
+  private static void writeCsvLine(Writer writer, List<String> values) throws IOException {
+    for (int i = 0; i < values.size(); i++) {
+      if (i > 0) {
+        writer.write(',');
+      }
+      writer.write(csvField(values.get(i)));
+    }
+    writer.write("\r\n");
+  }
+
+  /** Quotes a field when it has to be (RFC 4180). */
+  static String csvField(String value) {
+    if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0 && value.indexOf('\r') < 0) {
+      return value;
+    }
+    return '"' + value.replace("\"", "\"\"") + '"';
+  }
+
+  private void inReadOnlyTransaction(Runnable body) {
+    TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+    transactionTemplate.setReadOnly(true);
+    transactionTemplate.executeWithoutResult(status -> body.run());
+  }
+}
@@ -0,0 +1,93 @@
+package edu.ucsb.cs156.example.services;
+
+import edu.ucsb.cs156.example.entities.UCSBDiningCommons;
+import edu.ucsb.cs156.example.entities.UCSBOrganizations;
+
+import lombok.extern.slf4j.Slf4j;
+
+import org.hibernate.Cache;
+import org.hibernate.SessionFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.persistence.EntityManagerFactory;
+
+import java.util.List;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Inserts or updates whole lists of reference data in one batched statement
+ * stream, without loading the existing rows first.
+ *
+ * The statement is {@code INSERT ... ON CONFLICT DO UPDATE} on PostgreSQL and
+ * {@code MERGE INTO ... KEY} on H2.  Because the rows are written with JDBC,
+ * Hibernate does not know they changed, so the entity and query cache regions
+ * for the table are evicted afterwards.
+ */
+@Slf4j
+@Service("upsert")
+public class UpsertService {
+  static final List<String> DINING_COMMONS_COLUMNS = List.of(
+      "code", "name", "has_sack_meal", "has_take_out_meal", "has_dining_cam", "latitude", "longitude");
+  static final List<String> ORGANIZATIONS_COLUMNS = List.of(
+      "org_code", "org_translation_short", "org_translation", "inactive");
+
+  @Autowired
+  JdbcTemplate jdbcTemplate;
+
+  @Autowired
+  EntityManagerFactory entityManagerFactory;
+
+  @Value("${spring.datasource.url}")
+  String datasourceUrl;
+
+  @Transactional
+  public int upsertDiningCommons(List<UCSBDiningCommons> commons) {
+    return upsert(UCSBDiningCommons.class, "ucsbdiningcommons", DINING_COMMONS_COLUMNS, commons,
+        c -> new Object[] { c.getCode(), c.getName(), c.getHasSackMeal(), c.getHasTakeOutMeal(),
+            c.getHasDiningCam(), c.getLatitude(), c.getLongitude() });
+  }
+
+  @Transactional
+  public int upsertOrganizations(List<UCSBOrganizations> organizations) {
+    return upsert(UCSBOrganizations.class, "ucsborganizations", ORGANIZATIONS_COLUMNS, organizations,
+        o -> new Object[] { o.getOrgCode(), o.getOrgTranslationShort(), o.getOrgTranslation(), o.getInactive() });
+  }
+
+  private <T> int upsert(Class<T> type, String table, List<String> columns, List<T> rows,
+      Function<T, Object[]> values) {
+    String sql = upsertSql(datasourceUrl, table, columns);
+    jdbcTemplate.batchUpdate(sql, rows.stream().map(values).toList());
+
+    Cache cache = entityManagerFactory.unwrap(SessionFactory.class).getCache();
+    cache.evict(type);
+    cache.evictDefaultQueryRegion();
+
+    log.info("upserted {} rows into {}", rows.size(), table);
+    return rows.size();
+  }
+
+  /**
+   * The first column is the key.
+   */
+  static String upsertSql(String datasourceUrl, String table, List<String> columns) {
+    String key = columns.get(0);
+    String columnList = String.join(", ", columns);
+    String placeholders = columns.stream().map(c -> "?").collect(Collectors.joining(", "));
+    if (datasourceUrl.startsWith("jdbc:postgresql:")) {
+      String updates = columns.stream().skip(1)
+          .map(c -> "%s = EXCLUDED.%s".formatted(c, c))
+          .collect(Collectors.joining(", "));
+      return "INSERT INTO %s (%s) VALUES (%s) ON CONFLICT (%s) DO UPDATE SET %s"
+          .formatted(table, columnList, placeholders, key, updates);
+    }
+    if (datasourceUrl.startsWith("jdbc:h2:")) {
+      return "MERGE INTO %s (%s) KEY (%s) VALUES (%s)".formatted(table, columnList, key, placeholders);
+    }
+    throw new IllegalStateException("Upsert is not supported for %s".formatted(datasourceUrl));
+  }
+}
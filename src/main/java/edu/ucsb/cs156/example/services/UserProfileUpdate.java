@@ -0,0 +1,114 @@
+package edu.ucsb.cs156.example.services;
+
+import edu.ucsb.cs156.example.entities.User;
+
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+/**
+ * Pending changes to one USERS row.  A null field means "leave as is", so
+ * that updates for the same user can be merged into one; {@code admin} only
+ * ever promotes.  {@code email} is not written; it is the address the row had
+ * when the change was noticed, and is null for updates that only record when
+ * the user was last seen.  {@code newEmail} is the address Google now reports,
+ * if it differs.  Once the update is written, the {@link CurrentUserCache}
+ * entries for both are dropped.
+ */
+record UserProfileUpdate(long id, String email, String newEmail, String googleSub, String pictureUrl, String fullName, String givenName,
+    String familyName, Boolean emailVerified, String locale, String hostedDomain, boolean admin,
+    LocalDateTime lastSeen) {
+
+  static UserProfileUpdate seen(long id, LocalDateTime when) {
+    return new UserProfileUpdate(id, null, null, null, null, null, null, null, null, null, null, false, when);
+  }
+
+  /**
+   * The changes needed to bring {@code stored} up to date with the profile
+   * Google just sent ({@code fresh}), if there are any.  The subject is only
+   * filled in, never replaced; the email follows Google, since the row is
+   * found by subject and the email is what the admin flag and the caches are
+   * keyed by.
+   */
+  static Optional<UserProfileUpdate> diff(User stored, User fresh, boolean promoteAdmin) {
+    UserProfileUpdate update = new UserProfileUpdate(stored.getId(), stored.getEmail(),
+        changed(stored.getEmail(), fresh.getEmail()),
+        stored.getGoogleSub() == null ? fresh.getGoogleSub() : null,
+        changed(stored.getPictureUrl(), fresh.getPictureUrl()),
+        changed(stored.getFullName(), fresh.getFullName()),
+        changed(stored.getGivenName(), fresh.getGivenName()),
+        changed(stored.getFamilyName(), fresh.getFamilyName()),
+        stored.getEmailVerified() == fresh.getEmailVerified() ? null : fresh.getEmailVerified(),
+        changed(stored.getLocale(), fresh.getLocale()),
+        changed(stored.getHostedDomain(), fresh.getHostedDomain()),
+        promoteAdmin && !stored.getAdmin(),
+        null);
+    return update.isEmpty() ? Optional.empty() : Optional.of(update);
+  }
+
+  private static <T> T latest(T newer, T older) {
+    return newer != null ? newer : older;
+  }
+
+  private static <T> T changed(T stored, T fresh) {
+    return fresh == null || fresh.equals(stored) ? null : fresh;
+  }
+
+  boolean isEmpty() {
+    return newEmail == null && googleSub == null && pictureUrl == null && fullName == null && givenName == null && familyName == null
+        && emailVerified == null && locale == null && hostedDomain == null && !admin && lastSeen == null;
+  }
+
+  /**
+   * This update followed by {@code newer}.  The email the row had is taken
+   * from the older update, since that is the one still in the database.
+   */
+  UserProfileUpdate merge(UserProfileUpdate newer) {
+    return new UserProfileUpdate(id,
+        latest(email, newer.email),
+        latest(newer.newEmail, newEmail),
+        latest(newer.googleSub, googleSub),
+        latest(newer.pictureUrl, pictureUrl),
+        latest(newer.fullName, fullName),
+        latest(newer.givenName, givenName),
+        latest(newer.familyName, familyName),
+        latest(newer.emailVerified, emailVerified),
+        latest(newer.locale, locale),
+        latest(newer.hostedDomain, hostedDomain),
+        admin || newer.admin,
+        lastSeen == null || (newer.lastSeen != null && newer.lastSeen.isAfter(lastSeen)) ? newer.lastSeen : lastSeen);
+  }
+
+  /** Makes the in-memory row look the way it will once the update is written. */
+  void applyTo(User user) {
+    if (newEmail != null) {
+      user.setEmail(newEmail);
+    }
+    if (googleSub != null) {
+      user.setGoogleSub(googleSub);
+    }
+    if (pictureUrl != null) {
+      user.setPictureUrl(pictureUrl);
+    }
+    if (fullName != null) {
+      user.setFullName(fullName);
+    }
+    if (givenName != null) {
+      user.setGivenName(givenName);
+    }
+    if (familyName != null) {
+      user.setFamilyName(familyName);
+    }
+    if (emailVerified != null) {
+      user.setEmailVerified(emailVerified);
+    }
+    if (locale != null) {
+      user.setLocale(locale);
+    }
+    if (hostedDomain != null) {
+      user.setHostedDomain(hostedDomain);
+    }
+    if (admin) {
+      user.setAdmin(true);
+    }
+  }
+}
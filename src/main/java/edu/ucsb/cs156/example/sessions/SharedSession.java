@@ -0,0 +1,196 @@
+package edu.ucsb.cs156.example.sessions;
+
+import org.springframework.session.Session;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * A session stored by {@link SharedSessionRepository}.
+ *
+ * Besides the usual session state it remembers what has changed since it was
+ * last written (attribute names, the id, the timeout) and the last access time
+ * that is in the database, so that saving it only writes the difference.
+ *
+ * Each request works on its own copy; the near-cache keeps the original.
+ */
+public class SharedSession implements Session {
+  private final String primaryId;
+  private String id;
+  private String persistedId;
+  private final Instant creationTime;
+  private Instant lastAccessedTime;
+  private Instant persistedAccessTime;
+  private Duration maxInactiveInterval;
+  private boolean maxInactiveIntervalChanged;
+  private final Map<String, Object> attributes;
+  private final Set<String> changedAttributes = new HashSet<>();
+  private boolean isNew;
+  private long version;
+
+  /** A new session that has not been written yet. */
+  SharedSession(Instant now, Duration maxInactiveInterval) {
+    this(UUID.randomUUID().toString(), UUID.randomUUID().toString(), now, now, maxInactiveInterval, new HashMap<>(),
+        0);
+    this.isNew = true;
+  }
+
+  /** A session as read from the database. */
+  SharedSession(String primaryId, String id, Instant creationTime, Instant lastAccessedTime,
+      Duration maxInactiveInterval, Map<String, Object> attributes, long version) {
+    this.primaryId = primaryId;
+    this.id = id;
+    this.persistedId = id;
+    this.creationTime = creationTime;
+    this.lastAccessedTime = lastAccessedTime;
+    this.persistedAccessTime = lastAccessedTime;
+    this.maxInactiveInterval = maxInactiveInterval;
+    this.attributes = attributes;
+    this.version = version;
+  }
+
+  /** An independent copy that shares the attribute values (as MapSessionRepository does). */
+  SharedSession copy() {
+    SharedSession copy = new SharedSession(primaryId, id, creationTime, lastAccessedTime, maxInactiveInterval,
+        new HashMap<>(attributes), version);
+    copy.persistedId = persistedId;
+    copy.persistedAccessTime = persistedAccessTime;
+    copy.maxInactiveIntervalChanged = maxInactiveIntervalChanged;
+    copy.changedAttributes.addAll(changedAttributes);
+    copy.isNew = isNew;
+    return copy;
+  }
+
+  /** Called once the session has been written: nothing is pending any more. */
+  void persisted(long version) {
+    this.version = version;
+    this.persistedId = id;
+    this.persistedAccessTime = lastAccessedTime;
+    this.maxInactiveIntervalChanged = false;
+    this.changedAttributes.clear();
+    this.isNew = false;
+  }
+
+  /** Another instance touched the session later than we have seen. */
+  void accessedElsewhere(Instant accessTime) {
+    if (accessTime.isAfter(lastAccessedTime)) {
+      lastAccessedTime = accessTime;
+    }
+    if (accessTime.isAfter(persistedAccessTime)) {
+      persistedAccessTime = accessTime;
+    }
+  }
+
+  String getPrimaryId() {
+    return primaryId;
+  }
+
+  String getPersistedId() {
+    return persistedId;
+  }
+
+  Instant getPersistedAccessTime() {
+    return persistedAccessTime;
+  }
+
+  boolean isMaxInactiveIntervalChanged() {
+    return maxInactiveIntervalChanged;
+  }
+
+  Set<String> getChangedAttributes() {
+    return changedAttributes;
+  }
+
+  boolean isNew() {
+    return isNew;
+  }
+
+  long getVersion() {
+    return version;
+  }
+
+  Instant getExpiryTime() {
+    return lastAccessedTime.plus(maxInactiveInterval);
+  }
+
+  boolean isExpired(Instant now) {
+    return !maxInactiveInterval.isNegative() && !now.isBefore(getExpiryTime());
+  }
+
+  @Override
+  public String getId() {
+    return id;
+  }
+
+  @Override
+  public String changeSessionId() {
+    id = UUID.randomUUID().toString();
+    return id;
+  }
+
+  @Override
+  @SuppressWarnings("unchecked")
+  public <T> T getAttribute(String attributeName) {
+    return (T) attributes.get(attributeName);
+  }
+
+  @Override
+  public Set<String> getAttributeNames() {
+    return new HashSet<>(attributes.keySet());
+  }
+
+  @Override
+  public void setAttribute(String attributeName, Object attributeValue) {
+    if (attributeValue == null) {
+      removeAttribute(attributeName);
+      return;
+    }
+    attributes.put(attributeName, attributeValue);
+    changedAttributes.add(attributeName);
+  }
+
+  @Override
+  public void removeAttribute(String attributeName) {
+    if (attributes.remove(attributeName) != null) {
+      changedAttributes.add(attributeName);
+    }
+  }
+
+  @Override
+  public Instant getCreationTime() {
+    return creationTime;
+  }
+
+  @Override
+  public void setLastAccessedTime(Instant lastAccessedTime) {
+    this.lastAccessedTime = lastAccessedTime;
+  }
+
+  @Override
+  public Instant getLastAccessedTime() {
+    return lastAccessedTime;
+  }
+
+  @Override
+  public void setMaxInactiveInterval(Duration interval) {
+    if (!interval.equals(maxInactiveInterval)) {
+      maxInactiveInterval = interval;
+      maxInactiveIntervalChanged = true;
+    }
+  }
+
+  @Override
+  public Duration getMaxInactiveInterval() {
+    return maxInactiveInterval;
+  }
+
+  @Override
+  public boolean isExpired() {
+    return isExpired(Instant.now());
+  }
+}
@@ -0,0 +1,267 @@
+package edu.ucsb.cs156.example.sessions;
+
+import edu.ucsb.cs156.example.cache.TtlCache;
+
+import lombok.extern.slf4j.Slf4j;
+
+import org.springframework.core.serializer.support.DeserializingConverter;
+import org.springframework.core.serializer.support.SerializingConverter;
+import org.springframework.jdbc.core.JdbcOperations;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.session.SessionRepository;
+import org.springframework.transaction.support.TransactionOperations;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.LongSupplier;
+
+/**
+ * A {@link SessionRepository} that keeps sessions in the application
+ * database (APP_SESSION / APP_SESSION_ATTRIBUTE), so that any instance can
+ * serve any request without sticky sessions, with an in-process near-cache in
+ * front of it.
+ *
+ * <ul>
+ * <li>Reads: a session seen by this instance less than
+ * {@code revalidateAfter} ago is served from the near-cache without touching
+ * the database.  After that, one indexed single-row read of the session's
+ * VERSION decides whether the cached copy is still good; only when another
+ * instance has changed the session are its attributes read again.</li>
+ * <li>Writes: only the attributes set or removed during the request are
+ * written, and each one at most once however often it was set.  A request
+ * that changed nothing but the last access time writes nothing unless the
+ * stored access time is more than {@code accessFlushInterval} old, so a busy
+ * session costs one UPDATE per interval rather than one per request.</li>
+ * </ul>
+ *
+ * Another instance's attribute changes may therefore be seen up to
+ * {@code revalidateAfter} late, and the stored expiry may lag by up to
+ * {@code accessFlushInterval}, which {@link #cleanUpExpiredSessions()}
+ * allows for.  As with Spring Session's own stores, attribute values that are
+ * mutated in place are only written when they are set again.
+ */
+@Slf4j
+public class SharedSessionRepository implements SessionRepository<SharedSession> {
+  private static final String LOAD = """
+      SELECT S.PRIMARY_ID, S.SESSION_ID, S.CREATION_TIME, S.LAST_ACCESS_TIME, S.MAX_INACTIVE_INTERVAL, S.VERSION,
+             A.ATTRIBUTE_NAME, A.ATTRIBUTE_BYTES
+      FROM APP_SESSION S LEFT JOIN APP_SESSION_ATTRIBUTE A ON A.SESSION_PRIMARY_ID = S.PRIMARY_ID
+      WHERE S.SESSION_ID = ?""";
+  private static final String CHECK = "SELECT VERSION, LAST_ACCESS_TIME FROM APP_SESSION WHERE SESSION_ID = ?";
+  private static final String INSERT_SESSION = """
+      INSERT INTO APP_SESSION (PRIMARY_ID, SESSION_ID, CREATION_TIME, LAST_ACCESS_TIME, MAX_INACTIVE_INTERVAL,
+                               EXPIRY_TIME, VERSION)
+      VALUES (?, ?, ?, ?, ?, ?, 0)""";
+  private static final String UPDATE_SESSION = """
+      UPDATE APP_SESSION SET SESSION_ID = ?, LAST_ACCESS_TIME = ?, MAX_INACTIVE_INTERVAL = ?, EXPIRY_TIME = ?,
+                             VERSION = VERSION + ?
+      WHERE PRIMARY_ID = ?""";
+  private static final String INSERT_ATTRIBUTE =
+      "INSERT INTO APP_SESSION_ATTRIBUTE (SESSION_PRIMARY_ID, ATTRIBUTE_NAME, ATTRIBUTE_BYTES) VALUES (?, ?, ?)";
+  private static final String UPDATE_ATTRIBUTE =
+      "UPDATE APP_SESSION_ATTRIBUTE SET ATTRIBUTE_BYTES = ? WHERE SESSION_PRIMARY_ID = ? AND ATTRIBUTE_NAME = ?";
+  private static final String DELETE_ATTRIBUTE =
+      "DELETE FROM APP_SESSION_ATTRIBUTE WHERE SESSION_PRIMARY_ID = ? AND ATTRIBUTE_NAME = ?";
+  private static final String DELETE_SESSION = "DELETE FROM APP_SESSION WHERE SESSION_ID = ?";
+  private static final String DELETE_EXPIRED = "DELETE FROM APP_SESSION WHERE EXPIRY_TIME < ?";
+
+  private final JdbcOperations jdbc;
+  private final TransactionOperations transactions;
+  private final Duration defaultMaxInactiveInterval;
+  private final Duration accessFlushInterval;
+  private final long revalidateNanos;
+  private final Clock clock;
+  private final LongSupplier nanoClock;
+  private final TtlCache<String, Cached> nearCache;
+  private final SerializingConverter serializer = new SerializingConverter();
+  private final DeserializingConverter deserializer = new DeserializingConverter(getClass().getClassLoader());
+
+  public SharedSessionRepository(JdbcOperations jdbc, TransactionOperations transactions,
+      Duration defaultMaxInactiveInterval, Duration revalidateAfter, Duration accessFlushInterval, int nearCacheSize) {
+    this(jdbc, transactions, defaultMaxInactiveInterval, revalidateAfter, accessFlushInterval, nearCacheSize,
+        Clock.systemUTC(), System::nanoTime);
+  }
+
+  SharedSessionRepository(JdbcOperations jdbc, TransactionOperations transactions,
+      Duration defaultMaxInactiveInterval, Duration revalidateAfter, Duration accessFlushInterval, int nearCacheSize,
+      Clock clock, LongSupplier nanoClock) {
+    this.jdbc = jdbc;
+    this.transactions = transactions;
+    this.defaultMaxInactiveInterval = defaultMaxInactiveInterval;
+    this.accessFlushInterval = accessFlushInterval;
+    this.revalidateNanos = revalidateAfter.toNanos();
+    this.clock = clock;
+    this.nanoClock = nanoClock;
+    this.nearCache = new TtlCache<>(defaultMaxInactiveInterval.plus(accessFlushInterval), nearCacheSize);
+  }
+
+  @Override
+  public SharedSession createSession() {
+    return new SharedSession(clock.instant(), defaultMaxInactiveInterval);
+  }
+
+  @Override
+  public void save(SharedSession session) {
+    long validatedAt = nanoClock.getAsLong();
+    if (session.isNew() || isDirty(session)) {
+      long version = transactions.execute(status -> write(session));
+      if (!session.getId().equals(session.getPersistedId())) {
+        nearCache.invalidate(session.getPersistedId());
+      }
+      session.persisted(version);
+    } else {
+      // nothing was written, so this copy is only as fresh as the one it came from
+      validatedAt = nearCache.getIfPresent(session.getId())
+          .map(Cached::validatedAt)
+          .orElse(validatedAt - revalidateNanos);
+    }
+    nearCache.put(session.getId(), new Cached(session.copy(), validatedAt));
+  }
+
+  @Override
+  public SharedSession findById(String id) {
+    long now = nanoClock.getAsLong();
+    Optional<Cached> cached = nearCache.getIfPresent(id);
+    SharedSession session;
+    if (cached.isPresent() && now - cached.get().validatedAt() < revalidateNanos) {
+      session = cached.get().session();
+    } else {
+      session = cached.isPresent() ? revalidate(cached.get().session()) : load(id);
+      if (session == null) {
+        nearCache.invalidate(id);
+        return null;
+      }
+      nearCache.put(id, new Cached(session, now));
+    }
+    if (session.isExpired(clock.instant())) {
+      deleteById(id);
+      return null;
+    }
+    return session.copy();
+  }
+
+  @Override
+  public void deleteById(String id) {
+    jdbc.update(DELETE_SESSION, id);
+    nearCache.invalidate(id);
+  }
+
+  /**
+   * Deletes the sessions that have expired, allowing for access times that
+   * have not been flushed yet.
+   */
+  @Scheduled(fixedDelayString = "${app.session.cleanupMillis:60000}")
+  public int cleanUpExpiredSessions() {
+    int deleted = jdbc.update(DELETE_EXPIRED, clock.instant().minus(accessFlushInterval).toEpochMilli());
+    log.debug("deleted {} expired sessions", deleted);
+    return deleted;
+  }
+
+  /**
+   * Whether saving has to write anything: the attributes or id changed, or
+   * the stored access time or timeout are out of date.
+   */
+  private boolean isDirty(SharedSession session) {
+    return isChanged(session)
+        || session.isMaxInactiveIntervalChanged()
+        || Duration.between(session.getPersistedAccessTime(), session.getLastAccessedTime())
+            .compareTo(accessFlushInterval) >= 0;
+  }
+
+  /** Whether other instances need to re-read the session. */
+  private static boolean isChanged(SharedSession session) {
+    return !session.getChangedAttributes().isEmpty() || !session.getId().equals(session.getPersistedId());
+  }
+
+  /** Returns the new version of the session row. */
+  private long write(SharedSession session) {
+    if (session.isNew()) {
+      jdbc.update(INSERT_SESSION, session.getPrimaryId(), session.getId(), session.getCreationTime().toEpochMilli(),
+          session.getLastAccessedTime().toEpochMilli(), session.getMaxInactiveInterval().getSeconds(),
+          expiryMillis(session));
+      List<Object[]> rows = new ArrayList<>();
+      for (String name : session.getAttributeNames()) {
+        rows.add(new Object[] { session.getPrimaryId(), name, serialize(session.getAttribute(name)) });
+      }
+      if (!rows.isEmpty()) {
+        jdbc.batchUpdate(INSERT_ATTRIBUTE, rows);
+      }
+      return 0;
+    }
+    int bump = isChanged(session) ? 1 : 0;
+    jdbc.update(UPDATE_SESSION, session.getId(), session.getLastAccessedTime().toEpochMilli(),
+        session.getMaxInactiveInterval().getSeconds(), expiryMillis(session), bump, session.getPrimaryId());
+    for (String name : session.getChangedAttributes()) {
+      Object value = session.getAttribute(name);
+      if (value == null) {
+        jdbc.update(DELETE_ATTRIBUTE, session.getPrimaryId(), name);
+      } else {
+        byte[] bytes = serialize(value);
+        if (jdbc.update(UPDATE_ATTRIBUTE, bytes, session.getPrimaryId(), name) == 0) {
+          jdbc.update(INSERT_ATTRIBUTE, session.getPrimaryId(), name, bytes);
+        }
+      }
+    }
+    return session.getVersion() + bump;
+  }
+
+  /**
+   * The cached session if no other instance has changed it since, else a
+   * fresh copy from the database; null once it has been deleted.
+   */
+  private SharedSession revalidate(SharedSession cached) {
+    List<long[]> rows = jdbc.query(CHECK, (rs, n) -> new long[] { rs.getLong(1), rs.getLong(2) }, cached.getId());
+    if (rows.isEmpty()) {
+      return null;
+    }
+    if (rows.get(0)[0] != cached.getVersion()) {
+      return load(cached.getId());
+    }
+    SharedSession session = cached.copy();
+    session.accessedElsewhere(Instant.ofEpochMilli(rows.get(0)[1]));
+    return session;
+  }
+
+  private SharedSession load(String id) {
+    return jdbc.query(LOAD, this::extract, id);
+  }
+
+  private SharedSession extract(ResultSet rs) throws SQLException {
+    SharedSession session = null;
+    Map<String, Object> attributes = new HashMap<>();
+    while (rs.next()) {
+      if (session == null) {
+        session = new SharedSession(rs.getString(1), rs.getString(2), Instant.ofEpochMilli(rs.getLong(3)),
+            Instant.ofEpochMilli(rs.getLong(4)), Duration.ofSeconds(rs.getLong(5)), attributes, rs.getLong(6));
+      }
+      String name = rs.getString(7);
+      if (name != null) {
+        attributes.put(name, deserializer.convert(rs.getBytes(8)));
+      }
+    }
+    return session;
+  }
+
+  private byte[] serialize(Object value) {
+    return serializer.convert(value);
+  }
+
+  private static long expiryMillis(SharedSession session) {
+    return session.getMaxInactiveInterval().isNegative() ? Long.MAX_VALUE : session.getExpiryTime().toEpochMilli();
+  }
+
+  int nearCacheSize() {
+    return nearCache.size();
+  }
+
+  private record Cached(SharedSession session, long validatedAt) {
+  }
+}
@@ -0,0 +1,106 @@
+package edu.ucsb.cs156.example.aop;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+
+class AccessLogRingBufferTests {
+
+  List<String> drained = new ArrayList<>();
+
+  AccessLogRingBuffer.Entry collect = (method, route, handler, status, latency, timestamp) -> drained
+      .add("%s %s %s %d %d %d".formatted(method, route, handler, status, latency, timestamp));
+
+  @Test
+  void test_capacity_must_be_a_power_of_two() {
+    assertThrows(IllegalArgumentException.class, () -> new AccessLogRingBuffer(0));
+    assertThrows(IllegalArgumentException.class, () -> new AccessLogRingBuffer(6));
+    assertEquals(8, new AccessLogRingBuffer(8).capacity());
+  }
+
+  @Test
+  void test_entries_are_drained_in_order() {
+    AccessLogRingBuffer buffer = new AccessLogRingBuffer(4);
+    buffer.offer("GET", "/api/articles/all", "ArticlesController.allArticles", 200, 1500, 10);
+    buffer.offer("POST", "/api/articles/post", "ArticlesController.postArticles", 400, 900, 11);
+    assertEquals(2, buffer.size());
+
+    assertEquals(2, buffer.drain(collect, 10));
+
+    assertEquals(List.of("GET /api/articles/all ArticlesController.allArticles 200 1500 10",
+        "POST /api/articles/post ArticlesController.postArticles 400 900 11"), drained);
+    assertEquals(0, buffer.size());
+    assertEquals(0, buffer.drain(collect, 10));
+  }
+
+  @Test
+  void test_drain_stops_at_the_batch_size() {
+    AccessLogRingBuffer buffer = new AccessLogRingBuffer(4);
+    for (int i = 0; i < 3; i++) {
+      buffer.offer("GET", "/r", "h", 200, i, i);
+    }
+
+    assertEquals(2, buffer.drain(collect, 2));
+    assertEquals(1, buffer.drain(collect, 2));
+    assertEquals(3, drained.size());
+  }
+
+  @Test
+  void test_full_buffer_drops_and_counts() {
+    AccessLogRingBuffer buffer = new AccessLogRingBuffer(2);
+    assertTrue(buffer.offer("GET", "/r", "h", 200, 1, 1));
+    assertTrue(buffer.offer("GET", "/r", "h", 200, 2, 2));
+    assertFalse(buffer.offer("GET", "/r", "h", 200, 3, 3));
+    assertEquals(1, buffer.dropped());
+
+    buffer.drain(collect, 1);
+    assertTrue(buffer.offer("GET", "/r", "h", 200, 4, 4));
+    buffer.drain(collect, 10);
+
+    assertEquals(List.of("GET /r h 200 1 1", "GET /r h 200 2 2", "GET /r h 200 4 4"), drained);
+  }
+
+  @Test
+  void test_entry_that_throws_is_not_redelivered() {
+    AccessLogRingBuffer buffer = new AccessLogRingBuffer(2);
+    buffer.offer("GET", "/r", "h", 200, 1, 1);
+
+    assertThrows(IllegalStateException.class, () -> buffer.drain((m, r, h, s, l, t) -> {
+      throw new IllegalStateException("boom");
+    }, 10));
+
+    assertEquals(0, buffer.size());
+  }
+
+  @Test
+  void test_concurrent_producers_lose_nothing_when_there_is_room() throws Exception {
+    AccessLogRingBuffer buffer = new AccessLogRingBuffer(1024);
+    ExecutorService pool = Executors.newFixedThreadPool(4);
+    CountDownLatch go = new CountDownLatch(1);
+    for (int p = 0; p < 4; p++) {
+      pool.submit(() -> {
+        go.await();
+        for (int i = 0; i < 200; i++) {
+          buffer.offer("GET", "/r", "h", 200, i, i);
+        }
+        return null;
+      });
+    }
+    go.countDown();
+    pool.shutdown();
+    assertTrue(pool.awaitTermination(10, TimeUnit.SECONDS));
+
+    assertEquals(800, buffer.drain(collect, 1000));
+    assertEquals(0, buffer.dropped());
+  }
+}
@@ -0,0 +1,75 @@
+package edu.ucsb.cs156.example.aop;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+class AccessLogWriterTests {
+
+  @Test
+  void test_drain_writes_a_batch_at_a_time() {
+    AccessLogWriter writer = new AccessLogWriter(8, 2);
+    for (int i = 0; i < 3; i++) {
+      assertTrue(writer.offer("GET", "/api/articles/all", "ArticlesController.allArticles", 200, 1_000_000));
+    }
+
+    assertEquals(2, writer.drain());
+    assertEquals(1, writer.drain());
+    assertEquals(0, writer.drain());
+  }
+
+  @Test
+  void test_drops_are_reported_once() {
+    AccessLogWriter writer = new AccessLogWriter(1, 10);
+    writer.offer("GET", "/r", "h", 200, 1);
+    assertFalse(writer.offer("GET", "/r", "h", 200, 1));
+
+    assertEquals(1, writer.drain());
+    assertEquals(0, writer.drain());
+    assertEquals(1, writer.buffer().dropped());
+  }
+
+  @Test
+  void test_run_flushes_what_is_left_when_not_running() {
+    AccessLogWriter writer = new AccessLogWriter(8, 1);
+    writer.offer("GET", "/r", "h", 200, 1);
+    writer.offer("GET", "/r", "h", 200, 1);
+
+    writer.run();
+
+    assertEquals(0, writer.buffer().size());
+  }
+
+  @Test
+  void test_background_thread_drains_until_stopped() throws Exception {
+    AccessLogWriter writer = new AccessLogWriter(8, 4);
+    writer.start();
+    writer.start();
+    assertTrue(writer.isRunning());
+
+    writer.offer("GET", "/r", "h", 200, 1);
+    for (int i = 0; i < 100 && writer.buffer().size() > 0; i++) {
+      Thread.sleep(10);
+    }
+    Thread.sleep(50);
+
+    writer.stop();
+    writer.stop();
+    assertFalse(writer.isRunning());
+    assertEquals(0, writer.buffer().size());
+  }
+
+  @Test
+  void test_stop_keeps_the_interrupt_flag() {
+    AccessLogWriter writer = new AccessLogWriter(8, 4);
+    writer.start();
+
+    Thread.currentThread().interrupt();
+    writer.stop();
+
+    assertTrue(Thread.interrupted());
+    assertFalse(writer.isRunning());
+  }
+}
@@ -0,0 +1,57 @@
+package edu.ucsb.cs156.example.aop;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.bind.annotation.ResponseStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+import edu.ucsb.cs156.example.controllers.ArticlesController;
+import edu.ucsb.cs156.example.errors.EntityNotFoundException;
+import edu.ucsb.cs156.example.errors.InvalidRequestException;
+
+class ResponseStatusResolverTests {
+
+  ResponseStatusResolver resolver = new ResponseStatusResolver();
+
+  @ResponseStatus(HttpStatus.GONE)
+  static class GoneException extends RuntimeException {
+  }
+
+  @Test
+  void test_normal_return_uses_the_response_status() {
+    MockHttpServletResponse response = new MockHttpServletResponse();
+    response.setStatus(201);
+
+    assertEquals(201, resolver.statusOf(ArticlesController.class, "body", null, response));
+    assertEquals(200, resolver.statusOf(ArticlesController.class, "body", null, null));
+  }
+
+  @Test
+  void test_response_entity_carries_its_own_status() {
+    assertEquals(204, resolver.statusOf(ArticlesController.class, ResponseEntity.noContent().build(), null,
+        new MockHttpServletResponse()));
+  }
+
+  @Test
+  void test_exceptions_use_the_controllers_exception_handlers() {
+    assertEquals(404, resolver.statusOf(ArticlesController.class, null,
+        new EntityNotFoundException(Object.class, 1L), null));
+    assertEquals(400, resolver.statusOf(ArticlesController.class, null, new InvalidRequestException("bad"), null));
+    assertEquals(409, resolver.statusOf(ArticlesController.class, null,
+        new DataIntegrityViolationException("dup"), null));
+  }
+
+  @Test
+  void test_other_exceptions() {
+    assertEquals(418, resolver.statusOf(ArticlesController.class, null,
+        new ResponseStatusException(HttpStatus.I_AM_A_TEAPOT), null));
+    assertEquals(410, resolver.statusOf(ArticlesController.class, null, new GoneException(), null));
+    assertEquals(500, resolver.statusOf(ArticlesController.class, null, new IllegalStateException(), null));
+    assertEquals(500, resolver.statusOf(ArticlesController.class, null, new IllegalArgumentException(), null));
+  }
+}
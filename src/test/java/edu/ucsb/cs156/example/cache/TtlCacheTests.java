@@ -0,0 +1,97 @@
+package edu.ucsb.cs156.example.cache;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.api.Test;
+
+class TtlCacheTests {
+
+  AtomicLong now = new AtomicLong(1000L);
+
+  @Test
+  void test_get_loads_once_until_entry_expires() {
+    TtlCache<String, String> cache = new TtlCache<>(Duration.ofNanos(100), 10, now::get);
+    AtomicInteger loads = new AtomicInteger();
+
+    assertEquals("A", cache.get("a", k -> { loads.incrementAndGet(); return "A"; }));
+    assertEquals("A", cache.get("a", k -> { loads.incrementAndGet(); return "B"; }));
+    assertEquals(1, loads.get());
+
+    now.addAndGet(100);
+    assertEquals("B", cache.get("a", k -> { loads.incrementAndGet(); return "B"; }));
+    assertEquals(2, loads.get());
+  }
+
+  @Test
+  void test_getIfPresent() {
+    TtlCache<String, String> cache = new TtlCache<>(Duration.ofNanos(100), 10, now::get);
+    assertEquals(Optional.empty(), cache.getIfPresent("a"));
+
+    cache.put("a", "A");
+    assertEquals(Optional.of("A"), cache.getIfPresent("a"));
+
+    now.addAndGet(100);
+    assertEquals(Optional.empty(), cache.getIfPresent("a"));
+  }
+
+  @Test
+  void test_invalidate() {
+    TtlCache<String, String> cache = new TtlCache<>(Duration.ofMinutes(1), 10, now::get);
+    cache.put("a", "A");
+    cache.put("b", "B");
+
+    cache.invalidate("a");
+    assertEquals(Optional.empty(), cache.getIfPresent("a"));
+    assertEquals(1, cache.size());
+
+    cache.invalidateAll();
+    assertEquals(0, cache.size());
+  }
+
+  @Test
+  void test_full_cache_drops_expired_entries_first() {
+    TtlCache<String, String> cache = new TtlCache<>(Duration.ofNanos(100), 2, now::get);
+    cache.put("old", "O");
+    now.addAndGet(60);
+    cache.put("young", "Y");
+    now.addAndGet(50);
+
+    cache.put("new", "N");
+
+    assertEquals(2, cache.size());
+    assertEquals(Optional.of("Y"), cache.getIfPresent("young"));
+    assertEquals(Optional.of("N"), cache.getIfPresent("new"));
+  }
+
+  @Test
+  void test_full_cache_stays_bounded_when_nothing_has_expired() {
+    TtlCache<String, String> cache = new TtlCache<>(Duration.ofMinutes(1), 2, now::get);
+    cache.put("a", "A");
+    cache.put("b", "B");
+    cache.put("b", "B2");
+    assertEquals(2, cache.size());
+
+    cache.put("c", "C");
+    assertEquals(2, cache.size());
+    assertEquals(Optional.of("C"), cache.getIfPresent("c"));
+  }
+
+  @Test
+  void test_default_clock() {
+    TtlCache<String, String> cache = new TtlCache<>(Duration.ofMinutes(1), 1);
+    cache.put("a", "A");
+    assertTrue(cache.getIfPresent("a").isPresent());
+  }
+
+  @Test
+  void test_maxSize_must_be_positive() {
+    assertThrows(IllegalArgumentException.class, () -> new TtlCache<String, String>(Duration.ofMinutes(1), 0));
+  }
+}
@@ -3,6 +3,9 @@ package edu.ucsb.cs156.example.controllers;
 import edu.ucsb.cs156.example.repositories.UserRepository;
 import edu.ucsb.cs156.example.testconfig.TestConfig;
 import edu.ucsb.cs156.example.ControllerTestCase;
+import edu.ucsb.cs156.example.services.PartialUpdateService;
+import edu.ucsb.cs156.example.services.BulkInsertService;
+import edu.ucsb.cs156.example.services.StreamingExportService;
 import edu.ucsb.cs156.example.entities.Articles;
 import edu.ucsb.cs156.example.entities.UCSBDate;
 import edu.ucsb.cs156.example.repositories.ArticlesRepository;
@@ -12,6 +15,15 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Map;
 import org.junit.jupiter.api.Test;
+import java.util.stream.IntStream;
+import java.util.stream.Collectors;
+import edu.ucsb.cs156.example.models.BatchResult;
+import edu.ucsb.cs156.example.errors.EntityNotFoundException;
+import java.util.List;
+import org.springframework.http.ResponseEntity;
+import edu.ucsb.cs156.example.models.KeysetPage;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.context.annotation.Import;
@@ -30,6 +42,7 @@ import java.util.Optional;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
@@ -44,6 +57,15 @@ public class ArticlesControllerTests extends ControllerTestCase {
         @MockBean
         UserRepository userRepository;
 
+        @MockBean
+        PartialUpdateService partialUpdateService;
+
+        @MockBean
+        BulkInsertService bulkInsertService;
+
+        @MockBean
+        StreamingExportService streamingExportService;
+
         // Tests for GET /api/articles/all
         
         @Test
@@ -347,4 +369,268 @@ public class ArticlesControllerTests extends ControllerTestCase {
                 assertEquals("Articles with id 15 not found", json.get("message"));
         }
 
+
+        // Tests for GET /api/articles/all?after=...&limit=...
+
+        @Test
+        public void logged_out_users_cannot_get_a_page() throws Exception {
+                mockMvc.perform(get("/api/articles/all?limit=2"))
+                                .andExpect(status().is(403));
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_user_can_get_first_page() throws Exception {
+
+                // arrange
+
+                Articles articles1 = Articles.builder()
+                                .id(1L)
+                                .title("Article 1")
+                                .url("https://example.org/1")
+                                .explanation("explanation 1")
+                                .email("jg1@ucsb.edu")
+                                .dateAdded(LocalDateTime.parse("2022-01-01T00:00:00"))
+                                .build();
+
+                Articles articles2 = Articles.builder()
+                                .id(2L)
+                                .title("Article 2")
+                                .url("https://example.org/2")
+                                .explanation("explanation 2")
+                                .email("jg2@ucsb.edu")
+                                .dateAdded(LocalDateTime.parse("2022-01-02T00:00:00"))
+                                .build();
+
+                ArrayList<Articles> expectedItems = new ArrayList<>(Arrays.asList(articles1, articles2));
+                when(articlesRepository.findByIdGreaterThan(eq(0L), eq(PageRequest.of(0, 2, Sort.by("id")))))
+                                .thenReturn(expectedItems);
+
+                // act
+                MvcResult response = mockMvc.perform(get("/api/articles/all?limit=2"))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+
+                verify(articlesRepository, times(1)).findByIdGreaterThan(eq(0L), eq(PageRequest.of(0, 2, Sort.by("id"))));
+                String expectedJson = mapper.writeValueAsString(KeysetPage.builder()
+                                .items(new ArrayList<Object>(expectedItems))
+                                .nextCursor("Mg")
+                                .build());
+                String responseString = response.getResponse().getContentAsString();
+                assertEquals(expectedJson, responseString);
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_user_can_get_last_page() throws Exception {
+
+                // arrange
+
+                Articles articles3 = Articles.builder()
+                                .id(3L)
+                                .title("Article 3")
+                                .url("https://example.org/3")
+                                .explanation("explanation 3")
+                                .email("jg3@ucsb.edu")
+                                .dateAdded(LocalDateTime.parse("2022-01-03T00:00:00"))
+                                .build();
+
+                ArrayList<Articles> expectedItems = new ArrayList<>(Arrays.asList(articles3));
+                when(articlesRepository.findByIdGreaterThan(eq(2L), eq(PageRequest.of(0, 2, Sort.by("id")))))
+                                .thenReturn(expectedItems);
+
+                // act
+                MvcResult response = mockMvc.perform(get("/api/articles/all?after=Mg&limit=2"))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+
+                verify(articlesRepository, times(1)).findByIdGreaterThan(eq(2L), eq(PageRequest.of(0, 2, Sort.by("id"))));
+                String expectedJson = mapper.writeValueAsString(KeysetPage.builder()
+                                .items(new ArrayList<Object>(expectedItems))
+                                .nextCursor(null)
+                                .build());
+                String responseString = response.getResponse().getContentAsString();
+                assertEquals(expectedJson, responseString);
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void page_limit_out_of_range_is_a_bad_request() throws Exception {
+                MvcResult response = mockMvc.perform(get("/api/articles/all?limit=0"))
+                                .andExpect(status().isBadRequest()).andReturn();
+
+                Map<String, Object> json = responseToJson(response);
+                assertEquals("InvalidRequestException", json.get("type"));
+                assertEquals("limit must be between 1 and 1000", json.get("message"));
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void page_limit_above_the_maximum_is_a_bad_request() throws Exception {
+                MvcResult response = mockMvc.perform(get("/api/articles/all?limit=1001"))
+                                .andExpect(status().isBadRequest()).andReturn();
+
+                Map<String, Object> json = responseToJson(response);
+                assertEquals("limit must be between 1 and 1000", json.get("message"));
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void malformed_cursor_is_a_bad_request() throws Exception {
+                MvcResult response = mockMvc.perform(get("/api/articles/all?after=not*base64&limit=2"))
+                                .andExpect(status().isBadRequest()).andReturn();
+
+                Map<String, Object> json = responseToJson(response);
+                assertEquals("Invalid cursor not*base64", json.get("message"));
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void non_numeric_cursor_is_a_bad_request() throws Exception {
+                MvcResult response = mockMvc.perform(get("/api/articles/all?after=YWJj&limit=2"))
+                                .andExpect(status().isBadRequest()).andReturn();
+
+                Map<String, Object> json = responseToJson(response);
+                assertEquals("Invalid cursor YWJj", json.get("message"));
+        }
+
+
+        // Tests for GET /api/articles/export
+
+        @Test
+        public void logged_out_users_cannot_export() throws Exception {
+                mockMvc.perform(get("/api/articles/export"))
+                                .andExpect(status().is(403));
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_user_can_export() throws Exception {
+                // arrange
+                when(streamingExportService.export(eq("ndjson"), any())).thenReturn(ResponseEntity.ok().build());
+
+                // act
+                mockMvc.perform(get("/api/articles/export?format=ndjson"))
+                                .andExpect(status().isOk());
+
+                // assert
+                verify(streamingExportService, times(1)).export(eq("ndjson"), any());
+        }
+
+
+        // Tests for PATCH /api/articles?id=...
+
+        @Test
+        public void logged_out_users_cannot_patch() throws Exception {
+                mockMvc.perform(patch("/api/articles?id=7")
+                                .contentType(MediaType.APPLICATION_JSON)
+                                .content("{}")
+                                .with(csrf()))
+                                .andExpect(status().is(403));
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void regular_users_cannot_patch() throws Exception {
+                mockMvc.perform(patch("/api/articles?id=7")
+                                .contentType(MediaType.APPLICATION_JSON)
+                                .content("{}")
+                                .with(csrf()))
+                                .andExpect(status().is(403));
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void an_admin_user_can_patch_one_field() throws Exception {
+                // act
+                MvcResult response = mockMvc.perform(patch("/api/articles?id=7")
+                                .contentType(MediaType.APPLICATION_JSON)
+                                .content("{\"title\": \"New title\"}")
+                                .with(csrf()))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+                verify(partialUpdateService, times(1)).patch(eq(Articles.class), eq("id"), eq(7L),
+                                eq(Map.of("title", "New title")), eq(ArticlesController.PATCHABLE_FIELDS));
+                Map<String, Object> json = responseToJson(response);
+                assertEquals("Articles with id 7 updated", json.get("message"));
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void patching_a_missing_row_is_a_404() throws Exception {
+                // arrange
+                doThrow(new EntityNotFoundException(Articles.class, 7L)).when(partialUpdateService)
+                                .patch(eq(Articles.class), eq("id"), eq(7L), any(), any());
+
+                // act
+                MvcResult response = mockMvc.perform(patch("/api/articles?id=7")
+                                .contentType(MediaType.APPLICATION_JSON)
+                                .content("{\"title\": \"New title\"}")
+                                .with(csrf()))
+                                .andExpect(status().isNotFound()).andReturn();
+
+                // assert
+                Map<String, Object> json = responseToJson(response);
+                assertEquals("Articles with id 7 not found", json.get("message"));
+        }
+
+        // Tests for GET /api/articles/batch
+
+        @Test
+        public void logged_out_users_cannot_batch_get() throws Exception {
+                mockMvc.perform(get("/api/articles/batch?ids=1"))
+                                .andExpect(status().is(403));
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void batch_get_returns_rows_in_request_order_and_lists_missing_ids() throws Exception {
+                // arrange
+                Articles articles1 = Articles.builder()
+                                .id(1L)
+                                .title("Article 1")
+                                .url("https://example.org/1")
+                                .explanation("explanation 1")
+                                .email("jg1@ucsb.edu")
+                                .dateAdded(LocalDateTime.parse("2022-01-01T00:00:00"))
+                                .build();
+
+                Articles articles2 = Articles.builder()
+                                .id(2L)
+                                .title("Article 2")
+                                .url("https://example.org/2")
+                                .explanation("explanation 2")
+                                .email("jg2@ucsb.edu")
+                                .dateAdded(LocalDateTime.parse("2022-01-02T00:00:00"))
+                                .build();
+
+                when(articlesRepository.findAllById(eq(List.of(2L, 1L, 3L)))).thenReturn(List.of(articles1, articles2));
+
+                // act
+                MvcResult response = mockMvc.perform(get("/api/articles/batch?ids=2,1,3,2"))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+                verify(articlesRepository, times(1)).findAllById(eq(List.of(2L, 1L, 3L)));
+                BatchResult<Articles, Long> expected = new BatchResult<>(List.of(articles2, articles1), List.of(3L));
+                assertEquals(mapper.writeValueAsString(expected), response.getResponse().getContentAsString());
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void batch_get_rejects_too_many_ids() throws Exception {
+                // arrange
+                String ids = IntStream.rangeClosed(1, 1001).mapToObj(Integer::toString).collect(Collectors.joining(","));
+
+                // act
+                MvcResult response = mockMvc.perform(get("/api/articles/batch").param("ids", ids))
+                                .andExpect(status().isBadRequest()).andReturn();
+
+                // assert
+                Map<String, Object> json = responseToJson(response);
+                assertEquals("ids must name between 1 and 1000 records", json.get("message"));
+        }
 }
@@ -0,0 +1,197 @@
+package edu.ucsb.cs156.example.controllers;
+
+import edu.ucsb.cs156.example.ControllerTestCase;
+import edu.ucsb.cs156.example.entities.Articles;
+import edu.ucsb.cs156.example.entities.HelpRequest;
+import edu.ucsb.cs156.example.entities.MenuItemReview;
+import edu.ucsb.cs156.example.entities.RecommendationRequest;
+import edu.ucsb.cs156.example.entities.UCSBDate;
+import edu.ucsb.cs156.example.entities.UCSBDiningCommons;
+import edu.ucsb.cs156.example.entities.UCSBDiningCommonsMenuItem;
+import edu.ucsb.cs156.example.entities.UCSBOrganizations;
+import edu.ucsb.cs156.example.models.BulkInsertResult;
+import edu.ucsb.cs156.example.models.BulkRowResult;
+import edu.ucsb.cs156.example.repositories.ArticlesRepository;
+import edu.ucsb.cs156.example.repositories.HelpRequestRepository;
+import edu.ucsb.cs156.example.repositories.MenuItemRatingStatsRepository;
+import edu.ucsb.cs156.example.repositories.MenuItemReviewRepository;
+import edu.ucsb.cs156.example.repositories.RecommendationRequestRepository;
+import edu.ucsb.cs156.example.repositories.UCSBDateRepository;
+import edu.ucsb.cs156.example.repositories.UCSBDiningCommonsMenuItemRepository;
+import edu.ucsb.cs156.example.repositories.UCSBDiningCommonsRepository;
+import edu.ucsb.cs156.example.repositories.UCSBOrganizationsRepository;
+import edu.ucsb.cs156.example.repositories.UserRepository;
+import edu.ucsb.cs156.example.services.BulkInsertService;
+import edu.ucsb.cs156.example.services.HelpRequestQueue;
+import edu.ucsb.cs156.example.services.MenuItemLeaderboard;
+import edu.ucsb.cs156.example.services.MenuItemRatingStatsService;
+import edu.ucsb.cs156.example.services.MenuItemReviewService;
+import edu.ucsb.cs156.example.services.PartialUpdateService;
+import edu.ucsb.cs156.example.services.StreamingExportService;
+import edu.ucsb.cs156.example.services.UpsertService;
+import edu.ucsb.cs156.example.testconfig.TestConfig;
+
+import java.util.List;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.ApplicationContext;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.repository.CrudRepository;
+import org.springframework.http.MediaType;
+import org.springframework.security.test.context.support.WithMockUser;
+import org.springframework.test.web.servlet.MvcResult;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.csrf;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Tests for POST /api/.../bulk on every controller that has one; each
+ * endpoint only hands the body to {@link BulkInsertService}.
+ */
+@WebMvcTest(controllers = {
+                ArticlesController.class,
+                HelpRequestController.class,
+                MenuItemReviewController.class,
+                RecommendationRequestController.class,
+                UCSBDatesController.class,
+                UCSBDiningCommonsController.class,
+                UCSBDiningCommonsMenuItemController.class,
+                UCSBOrganizationsController.class })
+@Import({ TestConfig.class, MenuItemReviewService.class })
+public class BulkCreateControllerTests extends ControllerTestCase {
+
+        @MockBean
+        ArticlesRepository articlesRepository;
+
+        @MockBean
+        HelpRequestRepository helpRequestRepository;
+
+        @MockBean
+        MenuItemReviewRepository menuItemReviewRepository;
+
+        @MockBean
+        RecommendationRequestRepository recommendationRequestRepository;
+
+        @MockBean
+        UCSBDateRepository ucsbDateRepository;
+
+        @MockBean
+        UCSBDiningCommonsRepository ucsbDiningCommonsRepository;
+
+        @MockBean
+        UCSBDiningCommonsMenuItemRepository ucsbDiningCommonsMenuItemRepository;
+
+        @MockBean
+        UCSBOrganizationsRepository ucsbOrganizationsRepository;
+
+        @MockBean
+        MenuItemRatingStatsRepository menuItemRatingStatsRepository;
+
+        @MockBean
+        UserRepository userRepository;
+
+        @MockBean
+        PartialUpdateService partialUpdateService;
+
+        @MockBean
+        BulkInsertService bulkInsertService;
+
+        @MockBean
+        StreamingExportService streamingExportService;
+
+        @MockBean
+        UpsertService upsertService;
+
+        @MockBean
+        MenuItemRatingStatsService menuItemRatingStatsService;
+
+        @MockBean
+        MenuItemLeaderboard menuItemLeaderboard;
+
+        @MockBean
+        HelpRequestQueue helpRequestQueue;
+
+        @Autowired
+        ApplicationContext context;
+
+        /**
+         * The path, the entity and repository types, a key the entity could
+         * have, and whether the endpoint passes an afterSave callback.
+         */
+        static Stream<Arguments> endpoints() {
+                return Stream.of(
+                                Arguments.of("/api/articles/bulk", Articles.class, ArticlesRepository.class, 1L, false),
+                                Arguments.of("/api/helprequest/bulk", HelpRequest.class, HelpRequestRepository.class, 1L, true),
+                                Arguments.of("/api/menuitemreviews/bulk", MenuItemReview.class, MenuItemReviewRepository.class, 1L, true),
+                                Arguments.of("/api/RecommendationRequest/bulk", RecommendationRequest.class, RecommendationRequestRepository.class, 1L, false),
+                                Arguments.of("/api/ucsbdates/bulk", UCSBDate.class, UCSBDateRepository.class, 1L, false),
+                                Arguments.of("/api/ucsbdiningcommons/bulk", UCSBDiningCommons.class, UCSBDiningCommonsRepository.class, "carrillo", false),
+                                Arguments.of("/api/UCSBDiningCommonsMenuItem/bulk", UCSBDiningCommonsMenuItem.class, UCSBDiningCommonsMenuItemRepository.class, 1L, false),
+                                Arguments.of("/api/ucsborganizations/bulk", UCSBOrganizations.class, UCSBOrganizationsRepository.class, "CC", false));
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @ParameterizedTest
+        @MethodSource("endpoints")
+        public void regular_users_cannot_bulk_create(String path) throws Exception {
+                mockMvc.perform(post(path)
+                                .contentType(MediaType.APPLICATION_JSON)
+                                .content("[]")
+                                .with(csrf()))
+                                .andExpect(status().is(403));
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @ParameterizedTest
+        @MethodSource("endpoints")
+        public <T> void an_admin_user_can_bulk_create_from_ndjson(String path, Class<T> type,
+                        Class<? extends CrudRepository<T, ?>> repositoryType, Object key, boolean afterSave) throws Exception {
+                // arrange
+                CrudRepository<T, ?> repository = context.getBean(repositoryType);
+                BulkInsertResult result = new BulkInsertResult(1, 1, List.of(
+                                BulkRowResult.created(0, key),
+                                BulkRowResult.error(1, "Malformed JSON")));
+                when(bulkInsertService.insert(any(), eq(type), eq(repository), any())).thenReturn(result);
+                when(bulkInsertService.insert(any(), eq(type), eq(repository), any(), any())).thenReturn(result);
+
+                // act
+                MvcResult response = mockMvc.perform(post(path)
+                                .contentType(MediaType.APPLICATION_NDJSON)
+                                .content("{}\n{")
+                                .with(csrf()))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+                if (afterSave) {
+                        verify(bulkInsertService, times(1)).insert(any(), eq(type), eq(repository), any(), any());
+                } else {
+                        verify(bulkInsertService, times(1)).insert(any(), eq(type), eq(repository), any());
+                }
+                assertEquals(mapper.writeValueAsString(result), response.getResponse().getContentAsString());
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @ParameterizedTest
+        @MethodSource("endpoints")
+        public void bulk_create_rejects_form_posts(String path) throws Exception {
+                mockMvc.perform(post(path)
+                                .contentType(MediaType.APPLICATION_FORM_URLENCODED)
+                                .content("a=b")
+                                .with(csrf()))
+                                .andExpect(status().is(415));
+        }
+}
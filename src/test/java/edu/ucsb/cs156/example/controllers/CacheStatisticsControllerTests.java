@@ -0,0 +1,101 @@
+package edu.ucsb.cs156.example.controllers;
+
+import edu.ucsb.cs156.example.ControllerTestCase;
+import edu.ucsb.cs156.example.models.CacheRegionStats;
+import edu.ucsb.cs156.example.repositories.UserRepository;
+import edu.ucsb.cs156.example.testconfig.TestConfig;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.CacheRegionStatistics;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.security.test.context.support.WithMockUser;
+import org.springframework.test.web.servlet.MvcResult;
+
+import javax.persistence.EntityManagerFactory;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@WebMvcTest(controllers = CacheStatisticsController.class)
+@Import(TestConfig.class)
+public class CacheStatisticsControllerTests extends ControllerTestCase {
+
+  @MockBean
+  UserRepository userRepository;
+
+  @MockBean
+  EntityManagerFactory entityManagerFactory;
+
+  @Test
+  public void cache_stats__logged_out() throws Exception {
+    mockMvc.perform(get("/api/admin/cache/stats"))
+        .andExpect(status().is(403));
+  }
+
+  @WithMockUser(roles = { "USER" })
+  @Test
+  public void cache_stats__user_logged_in() throws Exception {
+    mockMvc.perform(get("/api/admin/cache/stats"))
+        .andExpect(status().is(403));
+  }
+
+  @WithMockUser(roles = { "ADMIN", "USER" })
+  @Test
+  public void cache_stats__admin_logged_in() throws Exception {
+
+    // arrange
+
+    CacheRegionStatistics entityRegion = mock(CacheRegionStatistics.class);
+    when(entityRegion.getHitCount()).thenReturn(10L);
+    when(entityRegion.getMissCount()).thenReturn(2L);
+    when(entityRegion.getPutCount()).thenReturn(3L);
+    when(entityRegion.getElementCountInMemory()).thenReturn(4L);
+
+    CacheRegionStatistics queryRegion = mock(CacheRegionStatistics.class);
+    when(queryRegion.getHitCount()).thenReturn(7L);
+    when(queryRegion.getMissCount()).thenReturn(1L);
+    when(queryRegion.getPutCount()).thenReturn(1L);
+    when(queryRegion.getElementCountInMemory()).thenReturn(1L);
+
+    Statistics statistics = mock(Statistics.class);
+    when(statistics.getDomainDataRegionStatistics(anyString())).thenReturn(entityRegion);
+    when(statistics.getQueryRegionStatistics(CacheStatisticsController.QUERY_RESULTS_REGION)).thenReturn(queryRegion);
+
+    SessionFactory sessionFactory = mock(SessionFactory.class);
+    when(sessionFactory.getStatistics()).thenReturn(statistics);
+    when(entityManagerFactory.unwrap(SessionFactory.class)).thenReturn(sessionFactory);
+
+    List<CacheRegionStats> expected = new ArrayList<>();
+    for (String region : List.of(
+        "edu.ucsb.cs156.example.entities.UCSBDiningCommons",
+        "edu.ucsb.cs156.example.entities.UCSBOrganizations",
+        "edu.ucsb.cs156.example.entities.UCSBDate",
+        "edu.ucsb.cs156.example.entities.UCSBDiningCommonsMenuItem")) {
+      expected.add(CacheRegionStats.builder().region(region)
+          .hitCount(10L).missCount(2L).putCount(3L).elementCountInMemory(4L).build());
+    }
+    expected.add(CacheRegionStats.builder().region("default-query-results-region")
+        .hitCount(7L).missCount(1L).putCount(1L).elementCountInMemory(1L).build());
+
+    // act
+
+    MvcResult response = mockMvc.perform(get("/api/admin/cache/stats"))
+        .andExpect(status().isOk()).andReturn();
+
+    // assert
+
+    String responseString = response.getResponse().getContentAsString();
+    assertEquals(mapper.writeValueAsString(expected), responseString);
+  }
+}
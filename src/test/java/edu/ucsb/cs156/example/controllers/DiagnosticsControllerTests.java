@@ -0,0 +1,126 @@
+package edu.ucsb.cs156.example.controllers;
+
+import edu.ucsb.cs156.example.ControllerTestCase;
+import edu.ucsb.cs156.example.metrics.ConnectionAcquisitionStats;
+import edu.ucsb.cs156.example.metrics.SlowQueryLog;
+import edu.ucsb.cs156.example.models.DiagnosticsReport;
+import edu.ucsb.cs156.example.models.SlowQuery;
+import edu.ucsb.cs156.example.repositories.UserRepository;
+import edu.ucsb.cs156.example.testconfig.TestConfig;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.security.test.context.support.WithMockUser;
+import org.springframework.test.web.servlet.MvcResult;
+
+import javax.persistence.EntityManagerFactory;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+import java.time.Instant;
+import java.util.List;
+
+@WebMvcTest(controllers = DiagnosticsController.class)
+@Import(TestConfig.class)
+public class DiagnosticsControllerTests extends ControllerTestCase {
+
+  @MockBean
+  UserRepository userRepository;
+
+  @MockBean
+  EntityManagerFactory entityManagerFactory;
+
+  @MockBean
+  SlowQueryLog slowQueryLog;
+
+  @MockBean
+  ConnectionAcquisitionStats connectionAcquisitionStats;
+
+  @Test
+  public void diagnostics__logged_out() throws Exception {
+    mockMvc.perform(get("/api/admin/diagnostics"))
+        .andExpect(status().is(403));
+  }
+
+  @WithMockUser(roles = { "USER" })
+  @Test
+  public void diagnostics__user_logged_in() throws Exception {
+    mockMvc.perform(get("/api/admin/diagnostics"))
+        .andExpect(status().is(403));
+  }
+
+  @WithMockUser(roles = { "ADMIN", "USER" })
+  @Test
+  public void diagnostics__admin_logged_in() throws Exception {
+
+    // arrange
+
+    Statistics statistics = mock(Statistics.class);
+    when(statistics.getQueryExecutionCount()).thenReturn(40L);
+    when(statistics.getQueryExecutionMaxTime()).thenReturn(250L);
+    when(statistics.getQueryExecutionMaxTimeQueryString()).thenReturn("select r from menuitemreview r");
+    when(statistics.getPrepareStatementCount()).thenReturn(90L);
+    when(statistics.getEntityLoadCount()).thenReturn(300L);
+    when(statistics.getEntityFetchCount()).thenReturn(5L);
+    when(statistics.getCollectionLoadCount()).thenReturn(2L);
+    when(statistics.getSecondLevelCacheHitCount()).thenReturn(30L);
+    when(statistics.getSecondLevelCacheMissCount()).thenReturn(10L);
+    when(statistics.getSessionOpenCount()).thenReturn(60L);
+    when(statistics.getTransactionCount()).thenReturn(55L);
+
+    SessionFactory sessionFactory = mock(SessionFactory.class);
+    when(sessionFactory.getStatistics()).thenReturn(statistics);
+    when(entityManagerFactory.unwrap(SessionFactory.class)).thenReturn(sessionFactory);
+
+    when(connectionAcquisitionStats.getCount()).thenReturn(60L);
+    when(connectionAcquisitionStats.getAverageMicros()).thenReturn(12L);
+    when(connectionAcquisitionStats.getMaxMicros()).thenReturn(800L);
+
+    List<SlowQuery> slowQueries = List.of(SlowQuery.builder().sql("select * from menuitemreview").bindCount(0)
+        .durationMillis(250).handler("MenuItemReviewController.allMenuItemReviews")
+        .executedAt(Instant.parse("2022-04-20T17:35:00Z")).build());
+    when(slowQueryLog.getThresholdMillis()).thenReturn(100L);
+    when(slowQueryLog.recent()).thenReturn(slowQueries);
+
+    DiagnosticsReport expected = DiagnosticsReport.builder()
+        .queryExecutionCount(40L)
+        .queryExecutionMaxTimeMillis(250L)
+        .slowestQuery("select r from menuitemreview r")
+        .prepareStatementCount(90L)
+        .entityLoadCount(300L)
+        .entityFetchCount(5L)
+        .collectionLoadCount(2L)
+        .secondLevelCacheHitCount(30L)
+        .secondLevelCacheMissCount(10L)
+        .secondLevelCacheHitRatio(0.75)
+        .queryCacheHitCount(0L)
+        .queryCacheMissCount(0L)
+        .queryCacheHitRatio(0.0)
+        .sessionOpenCount(60L)
+        .transactionCount(55L)
+        .connectionAcquisitionCount(60L)
+        .connectionAcquisitionAverageMicros(12L)
+        .connectionAcquisitionMaxMicros(800L)
+        .slowQueryThresholdMillis(100L)
+        .slowQueries(slowQueries)
+        .build();
+
+    // act
+
+    MvcResult response = mockMvc.perform(get("/api/admin/diagnostics"))
+        .andExpect(status().isOk()).andReturn();
+
+    // assert
+
+    String responseString = response.getResponse().getContentAsString();
+    assertEquals(mapper.writeValueAsString(expected), responseString);
+  }
+}
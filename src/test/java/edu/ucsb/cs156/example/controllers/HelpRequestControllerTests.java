@@ -3,6 +3,10 @@ package edu.ucsb.cs156.example.controllers;
 import edu.ucsb.cs156.example.repositories.UserRepository;
 import edu.ucsb.cs156.example.testconfig.TestConfig;
 import edu.ucsb.cs156.example.ControllerTestCase;
+import edu.ucsb.cs156.example.services.PartialUpdateService;
+import edu.ucsb.cs156.example.services.BulkInsertService;
+import edu.ucsb.cs156.example.services.StreamingExportService;
+import edu.ucsb.cs156.example.services.HelpRequestQueue;
 import edu.ucsb.cs156.example.controllers.HelpRequestController;
 import edu.ucsb.cs156.example.entities.HelpRequest;
 import edu.ucsb.cs156.example.repositories.HelpRequestRepository;
@@ -10,7 +14,19 @@ import edu.ucsb.cs156.example.repositories.HelpRequestRepository;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Map;
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import java.util.stream.IntStream;
+import java.util.stream.Collectors;
+import edu.ucsb.cs156.example.models.BatchResult;
+import edu.ucsb.cs156.example.errors.EntityNotFoundException;
+import java.util.List;
+import org.springframework.http.ResponseEntity;
+import edu.ucsb.cs156.example.models.KeysetPage;
+import edu.ucsb.cs156.example.models.QueuePosition;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.context.annotation.Import;
@@ -27,14 +43,16 @@ import java.time.LocalDateTime;
 import java.util.Optional;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 @WebMvcTest(controllers = HelpRequestController.class)
-@Import(TestConfig.class)
+@Import({ TestConfig.class, HelpRequestQueue.class })
 public class HelpRequestControllerTests extends ControllerTestCase {
 
         @MockBean
@@ -43,6 +61,40 @@ public class HelpRequestControllerTests extends ControllerTestCase {
         @MockBean
         UserRepository userRepository;
 
+        @MockBean
+        PartialUpdateService partialUpdateService;
+
+        @MockBean
+        BulkInsertService bulkInsertService;
+
+        @MockBean
+        StreamingExportService streamingExportService;
+
+        @Autowired
+        HelpRequestQueue helpRequestQueue;
+
+        @BeforeEach
+        public void emptyQueue() {
+                helpRequestQueue.reload();
+        }
+
+        HelpRequest unsolvedHelpRequest(long id) {
+                return HelpRequest.builder()
+                                .id(id)
+                                .requesterEmail("cgaucho@ucsb.edu")
+                                .teamId("4pm-3")
+                                .tableOrBreakoutRoom("7")
+                                .explanation("issue with H2 database")
+                                .solved(false)
+                                .requestTime(LocalDateTime.parse("2022-03-11T00:00:00"))
+                                .build();
+        }
+
+        void queue(HelpRequest... helpRequests) {
+                when(helpRequestRepository.findBySolvedFalse()).thenReturn(List.of(helpRequests));
+                helpRequestQueue.reload();
+        }
+
         // Tests for GET /api/helprequest/all
 
         @Test
@@ -345,4 +397,417 @@ public class HelpRequestControllerTests extends ControllerTestCase {
 
         }
 
-}
\ No newline at end of file
+
+        // Tests for GET /api/helprequest/all?after=...&limit=...
+
+        @Test
+        public void logged_out_users_cannot_get_a_page() throws Exception {
+                mockMvc.perform(get("/api/helprequest/all?limit=2"))
+                                .andExpect(status().is(403));
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_user_can_get_first_page() throws Exception {
+
+                // arrange
+
+                HelpRequest helpRequest1 = HelpRequest.builder()
+                                .id(1L)
+                                .requesterEmail("student1@ucsb.edu")
+                                .teamId("s22-5pm-1")
+                                .tableOrBreakoutRoom("1")
+                                .requestTime(LocalDateTime.parse("2022-01-01T00:00:00"))
+                                .explanation("need help 1")
+                                .solved(false)
+                                .build();
+
+                HelpRequest helpRequest2 = HelpRequest.builder()
+                                .id(2L)
+                                .requesterEmail("student2@ucsb.edu")
+                                .teamId("s22-5pm-2")
+                                .tableOrBreakoutRoom("2")
+                                .requestTime(LocalDateTime.parse("2022-01-02T00:00:00"))
+                                .explanation("need help 2")
+                                .solved(false)
+                                .build();
+
+                ArrayList<HelpRequest> expectedItems = new ArrayList<>(Arrays.asList(helpRequest1, helpRequest2));
+                when(helpRequestRepository.findByIdGreaterThan(eq(0L), eq(PageRequest.of(0, 2, Sort.by("id")))))
+                                .thenReturn(expectedItems);
+
+                // act
+                MvcResult response = mockMvc.perform(get("/api/helprequest/all?limit=2"))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+
+                verify(helpRequestRepository, times(1)).findByIdGreaterThan(eq(0L), eq(PageRequest.of(0, 2, Sort.by("id"))));
+                String expectedJson = mapper.writeValueAsString(KeysetPage.builder()
+                                .items(new ArrayList<Object>(expectedItems))
+                                .nextCursor("Mg")
+                                .build());
+                String responseString = response.getResponse().getContentAsString();
+                assertEquals(expectedJson, responseString);
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_user_can_get_last_page() throws Exception {
+
+                // arrange
+
+                HelpRequest helpRequest3 = HelpRequest.builder()
+                                .id(3L)
+                                .requesterEmail("student3@ucsb.edu")
+                                .teamId("s22-5pm-3")
+                                .tableOrBreakoutRoom("3")
+                                .requestTime(LocalDateTime.parse("2022-01-03T00:00:00"))
+                                .explanation("need help 3")
+                                .solved(false)
+                                .build();
+
+                ArrayList<HelpRequest> expectedItems = new ArrayList<>(Arrays.asList(helpRequest3));
+                when(helpRequestRepository.findByIdGreaterThan(eq(2L), eq(PageRequest.of(0, 2, Sort.by("id")))))
+                                .thenReturn(expectedItems);
+
+                // act
+                MvcResult response = mockMvc.perform(get("/api/helprequest/all?after=Mg&limit=2"))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+
+                verify(helpRequestRepository, times(1)).findByIdGreaterThan(eq(2L), eq(PageRequest.of(0, 2, Sort.by("id"))));
+                String expectedJson = mapper.writeValueAsString(KeysetPage.builder()
+                                .items(new ArrayList<Object>(expectedItems))
+                                .nextCursor(null)
+                                .build());
+                String responseString = response.getResponse().getContentAsString();
+                assertEquals(expectedJson, responseString);
+        }
+
+
+        // Tests for GET /api/helprequest/export
+
+        @Test
+        public void logged_out_users_cannot_export() throws Exception {
+                mockMvc.perform(get("/api/helprequest/export"))
+                                .andExpect(status().is(403));
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_user_can_export() throws Exception {
+                // arrange
+                when(streamingExportService.export(eq("ndjson"), any())).thenReturn(ResponseEntity.ok().build());
+
+                // act
+                mockMvc.perform(get("/api/helprequest/export?format=ndjson"))
+                                .andExpect(status().isOk());
+
+                // assert
+                verify(streamingExportService, times(1)).export(eq("ndjson"), any());
+        }
+
+
+        // Tests for PATCH /api/helprequest?id=...
+
+        @Test
+        public void logged_out_users_cannot_patch() throws Exception {
+                mockMvc.perform(patch("/api/helprequest?id=7")
+                                .contentType(MediaType.APPLICATION_JSON)
+                                .content("{}")
+                                .with(csrf()))
+                                .andExpect(status().is(403));
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void regular_users_cannot_patch() throws Exception {
+                mockMvc.perform(patch("/api/helprequest?id=7")
+                                .contentType(MediaType.APPLICATION_JSON)
+                                .content("{}")
+                                .with(csrf()))
+                                .andExpect(status().is(403));
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void an_admin_user_can_patch_one_field() throws Exception {
+                // act
+                MvcResult response = mockMvc.perform(patch("/api/helprequest?id=7")
+                                .contentType(MediaType.APPLICATION_JSON)
+                                .content("{\"solved\": true}")
+                                .with(csrf()))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+                verify(partialUpdateService, times(1)).patch(eq(HelpRequest.class), eq("id"), eq(7L),
+                                eq(Map.of("solved", true)), eq(HelpRequestController.PATCHABLE_FIELDS));
+                Map<String, Object> json = responseToJson(response);
+                assertEquals("HelpRequest with id 7 updated", json.get("message"));
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void patching_a_missing_row_is_a_404() throws Exception {
+                // arrange
+                doThrow(new EntityNotFoundException(HelpRequest.class, 7L)).when(partialUpdateService)
+                                .patch(eq(HelpRequest.class), eq("id"), eq(7L), any(), any());
+
+                // act
+                MvcResult response = mockMvc.perform(patch("/api/helprequest?id=7")
+                                .contentType(MediaType.APPLICATION_JSON)
+                                .content("{\"solved\": true}")
+                                .with(csrf()))
+                                .andExpect(status().isNotFound()).andReturn();
+
+                // assert
+                Map<String, Object> json = responseToJson(response);
+                assertEquals("HelpRequest with id 7 not found", json.get("message"));
+        }
+
+        // Tests for GET /api/helprequest/batch
+
+        @Test
+        public void logged_out_users_cannot_batch_get() throws Exception {
+                mockMvc.perform(get("/api/helprequest/batch?ids=1"))
+                                .andExpect(status().is(403));
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void batch_get_returns_rows_in_request_order_and_lists_missing_ids() throws Exception {
+                // arrange
+                HelpRequest helpRequest1 = HelpRequest.builder()
+                                .id(1L)
+                                .requesterEmail("student1@ucsb.edu")
+                                .teamId("s22-5pm-1")
+                                .tableOrBreakoutRoom("1")
+                                .requestTime(LocalDateTime.parse("2022-01-01T00:00:00"))
+                                .explanation("need help 1")
+                                .solved(false)
+                                .build();
+
+                HelpRequest helpRequest2 = HelpRequest.builder()
+                                .id(2L)
+                                .requesterEmail("student2@ucsb.edu")
+                                .teamId("s22-5pm-2")
+                                .tableOrBreakoutRoom("2")
+                                .requestTime(LocalDateTime.parse("2022-01-02T00:00:00"))
+                                .explanation("need help 2")
+                                .solved(false)
+                                .build();
+
+                when(helpRequestRepository.findAllById(eq(List.of(2L, 1L, 3L)))).thenReturn(List.of(helpRequest1, helpRequest2));
+
+                // act
+                MvcResult response = mockMvc.perform(get("/api/helprequest/batch?ids=2,1,3,2"))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+                verify(helpRequestRepository, times(1)).findAllById(eq(List.of(2L, 1L, 3L)));
+                BatchResult<HelpRequest, Long> expected = new BatchResult<>(List.of(helpRequest2, helpRequest1), List.of(3L));
+                assertEquals(mapper.writeValueAsString(expected), response.getResponse().getContentAsString());
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void batch_get_rejects_too_many_ids() throws Exception {
+                // arrange
+                String ids = IntStream.rangeClosed(1, 1001).mapToObj(Integer::toString).collect(Collectors.joining(","));
+
+                // act
+                MvcResult response = mockMvc.perform(get("/api/helprequest/batch").param("ids", ids))
+                                .andExpect(status().isBadRequest()).andReturn();
+
+                // assert
+                Map<String, Object> json = responseToJson(response);
+                assertEquals("ids must name between 1 and 1000 records", json.get("message"));
+        }
+
+        // Tests for the help request queue
+
+        @Test
+        public void logged_out_users_cannot_get_the_queue() throws Exception {
+                mockMvc.perform(get("/api/helprequest/queue"))
+                                .andExpect(status().is(403));
+                mockMvc.perform(get("/api/helprequest/queue/stream"))
+                                .andExpect(status().is(403));
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_user_can_get_the_queue_without_a_query() throws Exception {
+                // arrange
+                HelpRequest helpRequest = unsolvedHelpRequest(5);
+                queue(helpRequest);
+
+                // act
+                MvcResult response = mockMvc.perform(get("/api/helprequest/queue"))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+                verify(helpRequestRepository, times(0)).findAll();
+                assertEquals(mapper.writeValueAsString(List.of(helpRequest)), response.getResponse().getContentAsString());
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void posting_an_unsolved_help_request_adds_it_to_the_queue() throws Exception {
+                // arrange
+                HelpRequest helpRequest = unsolvedHelpRequest(0);
+                HelpRequest saved = unsolvedHelpRequest(8);
+                when(helpRequestRepository.save(eq(helpRequest))).thenReturn(saved);
+
+                // act
+                mockMvc.perform(
+                                post("/api/helprequest/post?requesterEmail=cgaucho@ucsb.edu&teamId=4pm-3&tableOrBreakoutRoom=7&explanation=issue with H2 database&solved=false&requestTime=2022-03-11T00:00:00")
+                                                .with(csrf()))
+                                .andExpect(status().isOk());
+
+                // assert
+                assertEquals(List.of(saved), helpRequestQueue.unsolved());
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void solving_a_help_request_takes_it_off_the_queue() throws Exception {
+                // arrange
+                HelpRequest helpRequest = unsolvedHelpRequest(123);
+                queue(helpRequest);
+                when(helpRequestRepository.findById(eq(123L))).thenReturn(Optional.of(helpRequest));
+                HelpRequest solved = unsolvedHelpRequest(0);
+                solved.setSolved(true);
+
+                // act
+                mockMvc.perform(
+                                put("/api/helprequest?id=123")
+                                                .contentType(MediaType.APPLICATION_JSON)
+                                                .characterEncoding("utf-8")
+                                                .content(mapper.writeValueAsString(solved))
+                                                .with(csrf()))
+                                .andExpect(status().isOk());
+
+                // assert
+                assertEquals(List.of(), helpRequestQueue.unsolved());
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void deleting_a_help_request_takes_it_off_the_queue() throws Exception {
+                // arrange
+                HelpRequest helpRequest = unsolvedHelpRequest(123);
+                queue(helpRequest);
+                when(helpRequestRepository.findById(eq(123L))).thenReturn(Optional.of(helpRequest));
+
+                // act
+                mockMvc.perform(delete("/api/helprequest?id=123").with(csrf()))
+                                .andExpect(status().isOk());
+
+                // assert
+                assertEquals(List.of(), helpRequestQueue.unsolved());
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void patching_a_help_request_solved_takes_it_off_the_queue_without_reading_it() throws Exception {
+                // arrange
+                queue(unsolvedHelpRequest(7));
+
+                // act
+                mockMvc.perform(patch("/api/helprequest?id=7")
+                                .contentType(MediaType.APPLICATION_JSON)
+                                .content("{\"solved\": true}")
+                                .with(csrf()))
+                                .andExpect(status().isOk());
+
+                // assert
+                verify(helpRequestRepository, times(0)).findById(any());
+                assertEquals(List.of(), helpRequestQueue.unsolved());
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void patching_a_queued_help_request_updates_it_in_the_queue() throws Exception {
+                // arrange
+                queue(unsolvedHelpRequest(7));
+                HelpRequest patched = unsolvedHelpRequest(7);
+                patched.setExplanation("still stuck");
+
+                // act
+                mockMvc.perform(patch("/api/helprequest?id=7")
+                                .contentType(MediaType.APPLICATION_JSON)
+                                .content("{\"explanation\": \"still stuck\"}")
+                                .with(csrf()))
+                                .andExpect(status().isOk());
+
+                // assert
+                verify(helpRequestRepository, times(0)).findById(any());
+                assertEquals(List.of(patched), helpRequestQueue.unsolved());
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_user_can_stream_the_queue() throws Exception {
+                // arrange
+                HelpRequest helpRequest = unsolvedHelpRequest(5);
+                queue(helpRequest);
+
+                // act
+                MvcResult response = mockMvc.perform(get("/api/helprequest/queue/stream"))
+                                .andExpect(status().isOk())
+                                .andExpect(request().asyncStarted())
+                                .andReturn();
+                helpRequestQueue.deleted(5);
+                String deleted = "event:deleted\ndata:{\"id\":5}\n\n";
+                for (int i = 0; i < 500 && !response.getResponse().getContentAsString().endsWith(deleted); i++) {
+                        Thread.sleep(10);
+                }
+
+                // assert
+                assertTrue(response.getResponse().getContentType().startsWith(MediaType.TEXT_EVENT_STREAM_VALUE));
+                String events = response.getResponse().getContentAsString();
+                assertTrue(events.startsWith("event:snapshot\ndata:" + mapper.writeValueAsString(List.of(helpRequest)) + "\n\n"),
+                                events);
+                assertTrue(events.endsWith(deleted), events);
+        }
+
+        // Tests for GET /api/helprequest/position?id=...
+
+        @Test
+        public void logged_out_users_cannot_get_a_position() throws Exception {
+                mockMvc.perform(get("/api/helprequest/position?id=5"))
+                                .andExpect(status().is(403));
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_user_can_get_a_queue_position() throws Exception {
+                // arrange
+                HelpRequest first = unsolvedHelpRequest(4);
+                first.setRequestTime(LocalDateTime.parse("2022-03-10T00:00:00"));
+                queue(first, unsolvedHelpRequest(5), unsolvedHelpRequest(6));
+
+                // act
+                MvcResult response = mockMvc.perform(get("/api/helprequest/position?id=5"))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+                verify(helpRequestRepository, times(0)).findById(any());
+                assertEquals(mapper.writeValueAsString(new QueuePosition(5, 1, 3)),
+                                response.getResponse().getContentAsString());
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void requests_not_in_the_queue_have_no_position() throws Exception {
+                // act
+                MvcResult response = mockMvc.perform(get("/api/helprequest/position?id=5"))
+                                .andExpect(status().isNotFound()).andReturn();
+
+                // assert
+                Map<String, Object> json = responseToJson(response);
+                assertEquals("HelpRequest with id 5 not found", json.get("message"));
+        }
+}
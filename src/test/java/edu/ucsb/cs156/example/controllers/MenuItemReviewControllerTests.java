@@ -3,13 +3,30 @@ package edu.ucsb.cs156.example.controllers;
 import edu.ucsb.cs156.example.repositories.UserRepository;
 import edu.ucsb.cs156.example.testconfig.TestConfig;
 import edu.ucsb.cs156.example.ControllerTestCase;
+import edu.ucsb.cs156.example.services.PartialUpdateService;
+import edu.ucsb.cs156.example.services.BulkInsertService;
+import edu.ucsb.cs156.example.services.StreamingExportService;
+import edu.ucsb.cs156.example.services.MenuItemRatingStatsService;
+import edu.ucsb.cs156.example.services.MenuItemRatingStatsService.Rating;
+import edu.ucsb.cs156.example.services.MenuItemReviewService;
+import edu.ucsb.cs156.example.entities.MenuItemRatingStats;
 import edu.ucsb.cs156.example.entities.MenuItemReview;
+import edu.ucsb.cs156.example.repositories.MenuItemRatingStatsRepository;
 import edu.ucsb.cs156.example.repositories.MenuItemReviewRepository;
 
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Map;
 import org.junit.jupiter.api.Test;
+import java.util.stream.IntStream;
+import java.util.stream.Collectors;
+import edu.ucsb.cs156.example.models.BatchResult;
+import edu.ucsb.cs156.example.errors.EntityNotFoundException;
+import java.util.List;
+import org.springframework.http.ResponseEntity;
+import edu.ucsb.cs156.example.models.KeysetPage;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.context.annotation.Import;
@@ -27,13 +44,15 @@ import java.util.Optional;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 @WebMvcTest(controllers = MenuItemReviewController.class)
-@Import(TestConfig.class)
+@Import({ TestConfig.class, MenuItemReviewService.class })
 public class MenuItemReviewControllerTests extends ControllerTestCase {
     
         @MockBean
@@ -42,6 +61,21 @@ public class MenuItemReviewControllerTests extends ControllerTestCase {
         @MockBean
         UserRepository userRepository;
 
+        @MockBean
+        PartialUpdateService partialUpdateService;
+
+        @MockBean
+        BulkInsertService bulkInsertService;
+
+        @MockBean
+        StreamingExportService streamingExportService;
+
+        @MockBean
+        MenuItemRatingStatsRepository menuItemRatingStatsRepository;
+
+        @MockBean
+        MenuItemRatingStatsService menuItemRatingStatsService;
+
         // Tests for GET /api/menuitemreviews/all
         
         @Test
@@ -139,6 +173,7 @@ public class MenuItemReviewControllerTests extends ControllerTestCase {
 
                 // assert
                 verify(menuItemReviewRepository, times(1)).save(menuItemReview1);
+                verify(menuItemRatingStatsService, times(1)).added(List.of(menuItemReview1));
                 String expectedJson = mapper.writeValueAsString(menuItemReview1);
                 String responseString = response.getResponse().getContentAsString();
                 assertEquals(expectedJson, responseString);
@@ -219,7 +254,7 @@ public class MenuItemReviewControllerTests extends ControllerTestCase {
                                 .dateReviewed(ldt1)
                                 .build();
 
-                when(menuItemReviewRepository.findById(eq(15L))).thenReturn(Optional.of(menuItemReview1));
+                when(menuItemReviewRepository.findForUpdateById(eq(15L))).thenReturn(Optional.of(menuItemReview1));
 
                 // act
                 MvcResult response = mockMvc.perform(
@@ -228,8 +263,9 @@ public class MenuItemReviewControllerTests extends ControllerTestCase {
                                 .andExpect(status().isOk()).andReturn();
 
                 // assert
-                verify(menuItemReviewRepository, times(1)).findById(15L);
+                verify(menuItemReviewRepository, times(1)).findForUpdateById(15L);
                 verify(menuItemReviewRepository, times(1)).delete(any());
+                verify(menuItemRatingStatsService, times(1)).removed(menuItemReview1);
 
                 Map<String, Object> json = responseToJson(response);
                 assertEquals("MenuItemReview with id 15 deleted", json.get("message"));
@@ -241,7 +277,7 @@ public class MenuItemReviewControllerTests extends ControllerTestCase {
                         throws Exception {
                 // arrange
 
-                when(menuItemReviewRepository.findById(eq(15L))).thenReturn(Optional.empty());
+                when(menuItemReviewRepository.findForUpdateById(eq(15L))).thenReturn(Optional.empty());
 
                 // act
                 MvcResult response = mockMvc.perform(
@@ -250,7 +286,7 @@ public class MenuItemReviewControllerTests extends ControllerTestCase {
                                 .andExpect(status().isNotFound()).andReturn();
 
                 // assert
-                verify(menuItemReviewRepository, times(1)).findById(15L);
+                verify(menuItemReviewRepository, times(1)).findForUpdateById(15L);
                 Map<String, Object> json = responseToJson(response);
                 assertEquals("MenuItemReview with id 15 not found", json.get("message"));
         }
@@ -284,7 +320,7 @@ public class MenuItemReviewControllerTests extends ControllerTestCase {
 
                 String requestBody = mapper.writeValueAsString(menuItemReviewEdited);
 
-                when(menuItemReviewRepository.findById(eq(67L))).thenReturn(Optional.of(menuItemReviewOrig));
+                when(menuItemReviewRepository.findForUpdateById(eq(67L))).thenReturn(Optional.of(menuItemReviewOrig));
 
                 // act
                 MvcResult response = mockMvc.perform(
@@ -296,8 +332,9 @@ public class MenuItemReviewControllerTests extends ControllerTestCase {
                                 .andExpect(status().isOk()).andReturn();
 
                 // assert
-                verify(menuItemReviewRepository, times(1)).findById(67L);
+                verify(menuItemReviewRepository, times(1)).findForUpdateById(67L);
                 verify(menuItemReviewRepository, times(1)).save(menuItemReviewEdited); // should be saved with correct user
+                verify(menuItemRatingStatsService, times(1)).changed(new Rating(5L, 2, ldt1), new Rating(2L, 1, ldt2));
                 String responseString = response.getResponse().getContentAsString();
                 assertEquals(requestBody, responseString);
         }
@@ -320,7 +357,7 @@ public class MenuItemReviewControllerTests extends ControllerTestCase {
 
                 String requestBody = mapper.writeValueAsString(menuItemEditedReview);
 
-                when(menuItemReviewRepository.findById(eq(67L))).thenReturn(Optional.empty());
+                when(menuItemReviewRepository.findForUpdateById(eq(67L))).thenReturn(Optional.empty());
 
                 // act
                 MvcResult response = mockMvc.perform(
@@ -332,9 +369,510 @@ public class MenuItemReviewControllerTests extends ControllerTestCase {
                                 .andExpect(status().isNotFound()).andReturn();
 
                 // assert
-                verify(menuItemReviewRepository, times(1)).findById(67L);
+                verify(menuItemReviewRepository, times(1)).findForUpdateById(67L);
                 Map<String, Object> json = responseToJson(response);
                 assertEquals("MenuItemReview with id 67 not found", json.get("message"));
 
         }
+
+
+        // Tests for GET /api/menuitemreviews/all?after=...&limit=...
+
+        @Test
+        public void logged_out_users_cannot_get_a_page() throws Exception {
+                mockMvc.perform(get("/api/menuitemreviews/all?limit=2"))
+                                .andExpect(status().is(403));
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_user_can_get_first_page() throws Exception {
+
+                // arrange
+
+                MenuItemReview menuItemReview1 = MenuItemReview.builder()
+                                .id(1L)
+                                .itemId(5L)
+                                .reviewerEmail("aqiu@ucsb.edu")
+                                .stars(1)
+                                .dateReviewed(LocalDateTime.parse("2022-01-01T00:00:00"))
+                                .comments("review 1")
+                                .build();
+
+                MenuItemReview menuItemReview2 = MenuItemReview.builder()
+                                .id(2L)
+                                .itemId(5L)
+                                .reviewerEmail("aqiu@ucsb.edu")
+                                .stars(2)
+                                .dateReviewed(LocalDateTime.parse("2022-01-02T00:00:00"))
+                                .comments("review 2")
+                                .build();
+
+                ArrayList<MenuItemReview> expectedItems = new ArrayList<>(Arrays.asList(menuItemReview1, menuItemReview2));
+                when(menuItemReviewRepository.findByIdGreaterThan(eq(0L), eq(PageRequest.of(0, 2, Sort.by("id")))))
+                                .thenReturn(expectedItems);
+
+                // act
+                MvcResult response = mockMvc.perform(get("/api/menuitemreviews/all?limit=2"))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+
+                verify(menuItemReviewRepository, times(1)).findByIdGreaterThan(eq(0L), eq(PageRequest.of(0, 2, Sort.by("id"))));
+                String expectedJson = mapper.writeValueAsString(KeysetPage.builder()
+                                .items(new ArrayList<Object>(expectedItems))
+                                .nextCursor("Mg")
+                                .build());
+                String responseString = response.getResponse().getContentAsString();
+                assertEquals(expectedJson, responseString);
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_user_can_get_last_page() throws Exception {
+
+                // arrange
+
+                MenuItemReview menuItemReview3 = MenuItemReview.builder()
+                                .id(3L)
+                                .itemId(5L)
+                                .reviewerEmail("aqiu@ucsb.edu")
+                                .stars(3)
+                                .dateReviewed(LocalDateTime.parse("2022-01-03T00:00:00"))
+                                .comments("review 3")
+                                .build();
+
+                ArrayList<MenuItemReview> expectedItems = new ArrayList<>(Arrays.asList(menuItemReview3));
+                when(menuItemReviewRepository.findByIdGreaterThan(eq(2L), eq(PageRequest.of(0, 2, Sort.by("id")))))
+                                .thenReturn(expectedItems);
+
+                // act
+                MvcResult response = mockMvc.perform(get("/api/menuitemreviews/all?after=Mg&limit=2"))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+
+                verify(menuItemReviewRepository, times(1)).findByIdGreaterThan(eq(2L), eq(PageRequest.of(0, 2, Sort.by("id"))));
+                String expectedJson = mapper.writeValueAsString(KeysetPage.builder()
+                                .items(new ArrayList<Object>(expectedItems))
+                                .nextCursor(null)
+                                .build());
+                String responseString = response.getResponse().getContentAsString();
+                assertEquals(expectedJson, responseString);
+        }
+
+
+        // Tests for GET /api/menuitemreviews?itemId=...
+
+        static final Sort NEWEST_FIRST = Sort.by(Sort.Direction.DESC, "dateReviewed", "id");
+        static final Sort UNDATED = Sort.by(Sort.Direction.DESC, "id");
+
+        MenuItemReview reviewOfItem5(long id, String dateReviewed) {
+                return MenuItemReview.builder()
+                                .id(id)
+                                .itemId(5L)
+                                .reviewerEmail("aqiu@ucsb.edu")
+                                .stars(4)
+                                .dateReviewed(dateReviewed == null ? null : LocalDateTime.parse(dateReviewed))
+                                .comments("review %d".formatted(id))
+                                .build();
+        }
+
+        @Test
+        public void logged_out_users_cannot_list_an_items_reviews() throws Exception {
+                mockMvc.perform(get("/api/menuitemreviews?itemId=5"))
+                                .andExpect(status().is(403));
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void an_items_first_page_is_its_newest_reviews() throws Exception {
+                // arrange
+                List<MenuItemReview> expectedItems = List.of(reviewOfItem5(3, "2022-01-03T00:00:00"),
+                                reviewOfItem5(2, "2022-01-02T00:00:00"));
+                when(menuItemReviewRepository.findByItemIdAndDateReviewedNotNull(eq(5L), eq(PageRequest.of(0, 2, NEWEST_FIRST))))
+                                .thenReturn(expectedItems);
+
+                // act
+                MvcResult response = mockMvc.perform(get("/api/menuitemreviews?itemId=5&limit=2"))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+                verify(menuItemReviewRepository, times(0)).findByItemIdAndDateReviewedIsNullAndIdLessThan(anyLong(), anyLong(), any());
+                String expectedJson = mapper.writeValueAsString(KeysetPage.builder()
+                                .items(new ArrayList<Object>(expectedItems))
+                                .nextCursor("MjAyMi0wMS0wMlQwMDowMC8y")
+                                .build());
+                assertEquals(expectedJson, response.getResponse().getContentAsString());
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void an_items_reviews_without_a_date_follow_the_dated_ones() throws Exception {
+                // arrange
+                MenuItemReview dated = reviewOfItem5(1, "2022-01-01T00:00:00");
+                MenuItemReview undated = reviewOfItem5(5, null);
+                when(menuItemReviewRepository.findByItemIdOlderThan(eq(5L), eq(LocalDateTime.parse("2022-01-02T00:00:00")),
+                                eq(2L), eq(PageRequest.of(0, 2, NEWEST_FIRST))))
+                                .thenReturn(List.of(dated));
+                when(menuItemReviewRepository.findByItemIdAndDateReviewedIsNullAndIdLessThan(eq(5L), eq(Long.MAX_VALUE),
+                                eq(PageRequest.of(0, 1, UNDATED))))
+                                .thenReturn(List.of(undated));
+
+                // act
+                MvcResult response = mockMvc.perform(get("/api/menuitemreviews?itemId=5&after=MjAyMi0wMS0wMlQwMDowMC8y&limit=2"))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+                String expectedJson = mapper.writeValueAsString(KeysetPage.builder()
+                                .items(List.of(dated, undated))
+                                .nextCursor("LzU")
+                                .build());
+                assertEquals(expectedJson, response.getResponse().getContentAsString());
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void an_undated_cursor_continues_with_the_undated_reviews() throws Exception {
+                // arrange
+                MenuItemReview undated = reviewOfItem5(4, null);
+                when(menuItemReviewRepository.findByItemIdAndDateReviewedIsNullAndIdLessThan(eq(5L), eq(5L),
+                                eq(PageRequest.of(0, 2, UNDATED))))
+                                .thenReturn(List.of(undated));
+
+                // act
+                MvcResult response = mockMvc.perform(get("/api/menuitemreviews?itemId=5&after=LzU&limit=2"))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+                verify(menuItemReviewRepository, times(0)).findByItemIdOlderThan(anyLong(), any(), anyLong(), any());
+                String expectedJson = mapper.writeValueAsString(KeysetPage.builder()
+                                .items(List.of(undated))
+                                .nextCursor(null)
+                                .build());
+                assertEquals(expectedJson, response.getResponse().getContentAsString());
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void an_items_reviews_default_to_pages_of_twenty() throws Exception {
+                // act
+                MvcResult response = mockMvc.perform(get("/api/menuitemreviews?itemId=5"))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+                verify(menuItemReviewRepository, times(1)).findByItemIdAndDateReviewedNotNull(eq(5L), eq(PageRequest.of(0, 20, NEWEST_FIRST)));
+                verify(menuItemReviewRepository, times(1)).findByItemIdAndDateReviewedIsNullAndIdLessThan(eq(5L), eq(Long.MAX_VALUE),
+                                eq(PageRequest.of(0, 20, UNDATED)));
+                String expectedJson = mapper.writeValueAsString(KeysetPage.builder()
+                                .items(List.of())
+                                .nextCursor(null)
+                                .build());
+                assertEquals(expectedJson, response.getResponse().getContentAsString());
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void an_items_reviews_reject_invalid_cursors() throws Exception {
+                for (String cursor : List.of("bm9wZQ", "eC8x", "MjAyMi0wMS0wMlQwMDowMC94")) {
+                        MvcResult response = mockMvc.perform(get("/api/menuitemreviews?itemId=5&after=%s".formatted(cursor)))
+                                        .andExpect(status().isBadRequest()).andReturn();
+
+                        Map<String, Object> json = responseToJson(response);
+                        assertEquals("Invalid cursor %s".formatted(cursor), json.get("message"));
+                }
+        }
+
+        // Tests for GET /api/menuitemreviews?reviewerEmail=...
+
+        @Test
+        public void logged_out_users_cannot_list_a_reviewers_reviews() throws Exception {
+                mockMvc.perform(get("/api/menuitemreviews?reviewerEmail=aqiu@ucsb.edu"))
+                                .andExpect(status().is(403));
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void a_reviewers_reviews_come_a_page_at_a_time() throws Exception {
+                // arrange
+                List<MenuItemReview> expectedItems = List.of(reviewOfItem5(1, "2022-01-01T00:00:00"),
+                                reviewOfItem5(2, "2022-01-02T00:00:00"));
+                when(menuItemReviewRepository.findByReviewerEmailAndIdGreaterThan(eq("aqiu@ucsb.edu"), eq(0L),
+                                eq(PageRequest.of(0, 2, Sort.by("id")))))
+                                .thenReturn(expectedItems);
+
+                // act
+                MvcResult response = mockMvc.perform(get("/api/menuitemreviews?reviewerEmail=aqiu@ucsb.edu&limit=2"))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+                String expectedJson = mapper.writeValueAsString(KeysetPage.builder()
+                                .items(new ArrayList<Object>(expectedItems))
+                                .nextCursor("Mg")
+                                .build());
+                assertEquals(expectedJson, response.getResponse().getContentAsString());
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void a_reviewers_last_page_has_no_cursor() throws Exception {
+                // arrange
+                List<MenuItemReview> expectedItems = List.of(reviewOfItem5(3, "2022-01-03T00:00:00"));
+                when(menuItemReviewRepository.findByReviewerEmailAndIdGreaterThan(eq("aqiu@ucsb.edu"), eq(2L),
+                                eq(PageRequest.of(0, 20, Sort.by("id")))))
+                                .thenReturn(expectedItems);
+
+                // act
+                MvcResult response = mockMvc.perform(get("/api/menuitemreviews?reviewerEmail=aqiu@ucsb.edu&after=Mg"))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+                String expectedJson = mapper.writeValueAsString(KeysetPage.builder()
+                                .items(new ArrayList<Object>(expectedItems))
+                                .nextCursor(null)
+                                .build());
+                assertEquals(expectedJson, response.getResponse().getContentAsString());
+        }
+
+        // Tests for GET /api/menuitemreviews/export
+
+        @Test
+        public void logged_out_users_cannot_export() throws Exception {
+                mockMvc.perform(get("/api/menuitemreviews/export"))
+                                .andExpect(status().is(403));
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_user_can_export() throws Exception {
+                // arrange
+                when(streamingExportService.export(eq("ndjson"), any())).thenReturn(ResponseEntity.ok().build());
+
+                // act
+                mockMvc.perform(get("/api/menuitemreviews/export?format=ndjson"))
+                                .andExpect(status().isOk());
+
+                // assert
+                verify(streamingExportService, times(1)).export(eq("ndjson"), any());
+        }
+
+
+        // Tests for PATCH /api/menuitemreviews?id=...
+
+        @Test
+        public void logged_out_users_cannot_patch() throws Exception {
+                mockMvc.perform(patch("/api/menuitemreviews?id=7")
+                                .contentType(MediaType.APPLICATION_JSON)
+                                .content("{}")
+                                .with(csrf()))
+                                .andExpect(status().is(403));
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void regular_users_cannot_patch() throws Exception {
+                mockMvc.perform(patch("/api/menuitemreviews?id=7")
+                                .contentType(MediaType.APPLICATION_JSON)
+                                .content("{}")
+                                .with(csrf()))
+                                .andExpect(status().is(403));
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void an_admin_user_can_patch_one_field() throws Exception {
+                // act
+                MvcResult response = mockMvc.perform(patch("/api/menuitemreviews?id=7")
+                                .contentType(MediaType.APPLICATION_JSON)
+                                .content("{\"comments\": \"changed my mind\"}")
+                                .with(csrf()))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+                verify(partialUpdateService, times(1)).patch(eq(MenuItemReview.class), eq("id"), eq(7L),
+                                eq(Map.of("comments", "changed my mind")), eq(MenuItemReviewController.PATCHABLE_FIELDS));
+                Map<String, Object> json = responseToJson(response);
+                assertEquals("MenuItemReview with id 7 updated", json.get("message"));
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void patching_a_missing_row_is_a_404() throws Exception {
+                // arrange
+                doThrow(new EntityNotFoundException(MenuItemReview.class, 7L)).when(partialUpdateService)
+                                .patch(eq(MenuItemReview.class), eq("id"), eq(7L), any(), any());
+
+                // act
+                MvcResult response = mockMvc.perform(patch("/api/menuitemreviews?id=7")
+                                .contentType(MediaType.APPLICATION_JSON)
+                                .content("{\"comments\": \"changed my mind\"}")
+                                .with(csrf()))
+                                .andExpect(status().isNotFound()).andReturn();
+
+                // assert
+                Map<String, Object> json = responseToJson(response);
+                assertEquals("MenuItemReview with id 7 not found", json.get("message"));
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void patching_the_rating_updates_the_stats() throws Exception {
+                // arrange
+                LocalDateTime ldt1 = LocalDateTime.parse("2022-01-03T00:00:00");
+                MenuItemReview review = MenuItemReview.builder().id(7L).itemId(5L).reviewerEmail("aqiu@ucsb.edu")
+                                .stars(2).comments("this really sucks").dateReviewed(ldt1).build();
+                when(menuItemReviewRepository.findForUpdateById(eq(7L))).thenReturn(Optional.of(review));
+
+                // act
+                mockMvc.perform(patch("/api/menuitemreviews?id=7")
+                                .contentType(MediaType.APPLICATION_JSON)
+                                .content("{\"stars\": 4}")
+                                .with(csrf()))
+                                .andExpect(status().isOk());
+
+                // assert
+                verify(partialUpdateService, times(1)).patch(eq(MenuItemReview.class), eq("id"), eq(7L),
+                                eq(Map.of("stars", 4)), eq(MenuItemReviewController.PATCHABLE_FIELDS));
+                verify(menuItemRatingStatsService, times(1)).changed(new Rating(5L, 2, ldt1), new Rating(5L, 4, ldt1));
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void patching_the_item_and_date_moves_the_rating() throws Exception {
+                // arrange
+                LocalDateTime ldt1 = LocalDateTime.parse("2022-01-03T00:00:00");
+                LocalDateTime ldt2 = LocalDateTime.parse("2022-02-03T00:00:00");
+                MenuItemReview review = MenuItemReview.builder().id(7L).itemId(5L).reviewerEmail("aqiu@ucsb.edu")
+                                .stars(2).comments("this really sucks").dateReviewed(ldt1).build();
+                when(menuItemReviewRepository.findForUpdateById(eq(7L))).thenReturn(Optional.of(review));
+
+                // act
+                mockMvc.perform(patch("/api/menuitemreviews?id=7")
+                                .contentType(MediaType.APPLICATION_JSON)
+                                .content("{\"itemId\": 6, \"dateReviewed\": \"2022-02-03T00:00:00\"}")
+                                .with(csrf()))
+                                .andExpect(status().isOk());
+
+                // assert
+                verify(menuItemRatingStatsService, times(1)).changed(new Rating(5L, 2, ldt1), new Rating(6L, 2, ldt2));
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void patching_the_rating_of_a_missing_row_is_a_404() throws Exception {
+                // arrange
+                when(menuItemReviewRepository.findForUpdateById(eq(7L))).thenReturn(Optional.empty());
+
+                // act
+                MvcResult response = mockMvc.perform(patch("/api/menuitemreviews?id=7")
+                                .contentType(MediaType.APPLICATION_JSON)
+                                .content("{\"stars\": 4}")
+                                .with(csrf()))
+                                .andExpect(status().isNotFound()).andReturn();
+
+                // assert
+                Map<String, Object> json = responseToJson(response);
+                assertEquals("MenuItemReview with id 7 not found", json.get("message"));
+        }
+
+        // Tests for GET /api/menuitemreviews/stats?itemId=...
+
+        @Test
+        public void logged_out_users_cannot_get_stats() throws Exception {
+                mockMvc.perform(get("/api/menuitemreviews/stats?itemId=5"))
+                                .andExpect(status().is(403));
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_user_can_get_stats() throws Exception {
+                // arrange
+                MenuItemRatingStats stats = MenuItemRatingStats.builder().itemId(5L).reviewCount(4).starSum(14)
+                                .stars3(2).stars4(1).stars5(1)
+                                .lastReviewed(LocalDateTime.parse("2022-01-03T00:00:00")).build();
+                when(menuItemRatingStatsRepository.findById(eq(5L))).thenReturn(Optional.of(stats));
+
+                // act
+                MvcResult response = mockMvc.perform(get("/api/menuitemreviews/stats?itemId=5"))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+                Map<String, Object> json = responseToJson(response);
+                assertEquals(3.5, json.get("averageStars"));
+                assertEquals(mapper.writeValueAsString(stats), response.getResponse().getContentAsString());
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void stats_of_an_item_without_reviews_are_zero() throws Exception {
+                // arrange
+                when(menuItemRatingStatsRepository.findById(eq(5L))).thenReturn(Optional.empty());
+
+                // act
+                MvcResult response = mockMvc.perform(get("/api/menuitemreviews/stats?itemId=5"))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+                Map<String, Object> json = responseToJson(response);
+                assertEquals(5, json.get("itemId"));
+                assertEquals(0, json.get("reviewCount"));
+                assertEquals(0.0, json.get("averageStars"));
+        }
+
+        // Tests for GET /api/menuitemreviews/batch
+
+        @Test
+        public void logged_out_users_cannot_batch_get() throws Exception {
+                mockMvc.perform(get("/api/menuitemreviews/batch?ids=1"))
+                                .andExpect(status().is(403));
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void batch_get_returns_rows_in_request_order_and_lists_missing_ids() throws Exception {
+                // arrange
+                MenuItemReview menuItemReview1 = MenuItemReview.builder()
+                                .id(1L)
+                                .itemId(5L)
+                                .reviewerEmail("aqiu@ucsb.edu")
+                                .stars(1)
+                                .dateReviewed(LocalDateTime.parse("2022-01-01T00:00:00"))
+                                .comments("review 1")
+                                .build();
+
+                MenuItemReview menuItemReview2 = MenuItemReview.builder()
+                                .id(2L)
+                                .itemId(5L)
+                                .reviewerEmail("aqiu@ucsb.edu")
+                                .stars(2)
+                                .dateReviewed(LocalDateTime.parse("2022-01-02T00:00:00"))
+                                .comments("review 2")
+                                .build();
+
+                when(menuItemReviewRepository.findAllById(eq(List.of(2L, 1L, 3L)))).thenReturn(List.of(menuItemReview1, menuItemReview2));
+
+                // act
+                MvcResult response = mockMvc.perform(get("/api/menuitemreviews/batch?ids=2,1,3,2"))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+                verify(menuItemReviewRepository, times(1)).findAllById(eq(List.of(2L, 1L, 3L)));
+                BatchResult<MenuItemReview, Long> expected = new BatchResult<>(List.of(menuItemReview2, menuItemReview1), List.of(3L));
+                assertEquals(mapper.writeValueAsString(expected), response.getResponse().getContentAsString());
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void batch_get_rejects_too_many_ids() throws Exception {
+                // arrange
+                String ids = IntStream.rangeClosed(1, 1001).mapToObj(Integer::toString).collect(Collectors.joining(","));
+
+                // act
+                MvcResult response = mockMvc.perform(get("/api/menuitemreviews/batch").param("ids", ids))
+                                .andExpect(status().isBadRequest()).andReturn();
+
+                // assert
+                Map<String, Object> json = responseToJson(response);
+                assertEquals("ids must name between 1 and 1000 records", json.get("message"));
+        }
 }
@@ -3,6 +3,9 @@ package edu.ucsb.cs156.example.controllers;
 import edu.ucsb.cs156.example.repositories.UserRepository;
 import edu.ucsb.cs156.example.testconfig.TestConfig;
 import edu.ucsb.cs156.example.ControllerTestCase;
+import edu.ucsb.cs156.example.services.PartialUpdateService;
+import edu.ucsb.cs156.example.services.BulkInsertService;
+import edu.ucsb.cs156.example.services.StreamingExportService;
 import edu.ucsb.cs156.example.entities.RecommendationRequest;
 import edu.ucsb.cs156.example.entities.UCSBDate;
 import edu.ucsb.cs156.example.repositories.RecommendationRequestRepository;
@@ -11,6 +14,15 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Map;
 import org.junit.jupiter.api.Test;
+import java.util.stream.IntStream;
+import java.util.stream.Collectors;
+import edu.ucsb.cs156.example.models.BatchResult;
+import edu.ucsb.cs156.example.errors.EntityNotFoundException;
+import java.util.List;
+import org.springframework.http.ResponseEntity;
+import edu.ucsb.cs156.example.models.KeysetPage;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.context.annotation.Import;
@@ -29,6 +41,7 @@ import java.util.Optional;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
@@ -43,6 +56,15 @@ public class RecommendationRequestControllerTests extends ControllerTestCase {
         @MockBean
         UserRepository userRepository;
 
+        @MockBean
+        PartialUpdateService partialUpdateService;
+
+        @MockBean
+        BulkInsertService bulkInsertService;
+
+        @MockBean
+        StreamingExportService streamingExportService;
+
         // Tests for GET /api/RecommendationRequest/all
         
         @Test
@@ -350,4 +372,233 @@ public class RecommendationRequestControllerTests extends ControllerTestCase {
                 assertEquals("RecommendationRequest with id 67 not found", json.get("message"));
 
         }
-}
\ No newline at end of file
+
+
+        // Tests for GET /api/RecommendationRequest/all?after=...&limit=...
+
+        @Test
+        public void logged_out_users_cannot_get_a_page() throws Exception {
+                mockMvc.perform(get("/api/RecommendationRequest/all?limit=2"))
+                                .andExpect(status().is(403));
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_user_can_get_first_page() throws Exception {
+
+                // arrange
+
+                RecommendationRequest recommendationRequest1 = RecommendationRequest.builder()
+                                .id(1L)
+                                .requesterEmail("student1@ucsb.edu")
+                                .professorEmail("prof@ucsb.edu")
+                                .explanation("grad school 1")
+                                .dateRequested(LocalDateTime.parse("2022-01-01T00:00:00"))
+                                .dateNeeded(LocalDateTime.parse("2022-03-01T00:00:00"))
+                                .done(false)
+                                .build();
+
+                RecommendationRequest recommendationRequest2 = RecommendationRequest.builder()
+                                .id(2L)
+                                .requesterEmail("student2@ucsb.edu")
+                                .professorEmail("prof@ucsb.edu")
+                                .explanation("grad school 2")
+                                .dateRequested(LocalDateTime.parse("2022-01-02T00:00:00"))
+                                .dateNeeded(LocalDateTime.parse("2022-03-02T00:00:00"))
+                                .done(false)
+                                .build();
+
+                ArrayList<RecommendationRequest> expectedItems = new ArrayList<>(Arrays.asList(recommendationRequest1, recommendationRequest2));
+                when(RecommendationRequestRepository.findByIdGreaterThan(eq(0L), eq(PageRequest.of(0, 2, Sort.by("id")))))
+                                .thenReturn(expectedItems);
+
+                // act
+                MvcResult response = mockMvc.perform(get("/api/RecommendationRequest/all?limit=2"))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+
+                verify(RecommendationRequestRepository, times(1)).findByIdGreaterThan(eq(0L), eq(PageRequest.of(0, 2, Sort.by("id"))));
+                String expectedJson = mapper.writeValueAsString(KeysetPage.builder()
+                                .items(new ArrayList<Object>(expectedItems))
+                                .nextCursor("Mg")
+                                .build());
+                String responseString = response.getResponse().getContentAsString();
+                assertEquals(expectedJson, responseString);
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_user_can_get_last_page() throws Exception {
+
+                // arrange
+
+                RecommendationRequest recommendationRequest3 = RecommendationRequest.builder()
+                                .id(3L)
+                                .requesterEmail("student3@ucsb.edu")
+                                .professorEmail("prof@ucsb.edu")
+                                .explanation("grad school 3")
+                                .dateRequested(LocalDateTime.parse("2022-01-03T00:00:00"))
+                                .dateNeeded(LocalDateTime.parse("2022-03-03T00:00:00"))
+                                .done(false)
+                                .build();
+
+                ArrayList<RecommendationRequest> expectedItems = new ArrayList<>(Arrays.asList(recommendationRequest3));
+                when(RecommendationRequestRepository.findByIdGreaterThan(eq(2L), eq(PageRequest.of(0, 2, Sort.by("id")))))
+                                .thenReturn(expectedItems);
+
+                // act
+                MvcResult response = mockMvc.perform(get("/api/RecommendationRequest/all?after=Mg&limit=2"))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+
+                verify(RecommendationRequestRepository, times(1)).findByIdGreaterThan(eq(2L), eq(PageRequest.of(0, 2, Sort.by("id"))));
+                String expectedJson = mapper.writeValueAsString(KeysetPage.builder()
+                                .items(new ArrayList<Object>(expectedItems))
+                                .nextCursor(null)
+                                .build());
+                String responseString = response.getResponse().getContentAsString();
+                assertEquals(expectedJson, responseString);
+        }
+
+
+        // Tests for GET /api/RecommendationRequest/export
+
+        @Test
+        public void logged_out_users_cannot_export() throws Exception {
+                mockMvc.perform(get("/api/RecommendationRequest/export"))
+                                .andExpect(status().is(403));
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_user_can_export() throws Exception {
+                // arrange
+                when(streamingExportService.export(eq("ndjson"), any())).thenReturn(ResponseEntity.ok().build());
+
+                // act
+                mockMvc.perform(get("/api/RecommendationRequest/export?format=ndjson"))
+                                .andExpect(status().isOk());
+
+                // assert
+                verify(streamingExportService, times(1)).export(eq("ndjson"), any());
+        }
+
+
+        // Tests for PATCH /api/RecommendationRequest?id=...
+
+        @Test
+        public void logged_out_users_cannot_patch() throws Exception {
+                mockMvc.perform(patch("/api/RecommendationRequest?id=7")
+                                .contentType(MediaType.APPLICATION_JSON)
+                                .content("{}")
+                                .with(csrf()))
+                                .andExpect(status().is(403));
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void regular_users_cannot_patch() throws Exception {
+                mockMvc.perform(patch("/api/RecommendationRequest?id=7")
+                                .contentType(MediaType.APPLICATION_JSON)
+                                .content("{}")
+                                .with(csrf()))
+                                .andExpect(status().is(403));
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void an_admin_user_can_patch_one_field() throws Exception {
+                // act
+                MvcResult response = mockMvc.perform(patch("/api/RecommendationRequest?id=7")
+                                .contentType(MediaType.APPLICATION_JSON)
+                                .content("{\"done\": true}")
+                                .with(csrf()))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+                verify(partialUpdateService, times(1)).patch(eq(RecommendationRequest.class), eq("id"), eq(7L),
+                                eq(Map.of("done", true)), eq(RecommendationRequestController.PATCHABLE_FIELDS));
+                Map<String, Object> json = responseToJson(response);
+                assertEquals("RecommendationRequest with id 7 updated", json.get("message"));
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void patching_a_missing_row_is_a_404() throws Exception {
+                // arrange
+                doThrow(new EntityNotFoundException(RecommendationRequest.class, 7L)).when(partialUpdateService)
+                                .patch(eq(RecommendationRequest.class), eq("id"), eq(7L), any(), any());
+
+                // act
+                MvcResult response = mockMvc.perform(patch("/api/RecommendationRequest?id=7")
+                                .contentType(MediaType.APPLICATION_JSON)
+                                .content("{\"done\": true}")
+                                .with(csrf()))
+                                .andExpect(status().isNotFound()).andReturn();
+
+                // assert
+                Map<String, Object> json = responseToJson(response);
+                assertEquals("RecommendationRequest with id 7 not found", json.get("message"));
+        }
+
+        // Tests for GET /api/RecommendationRequest/batch
+
+        @Test
+        public void logged_out_users_cannot_batch_get() throws Exception {
+                mockMvc.perform(get("/api/RecommendationRequest/batch?ids=1"))
+                                .andExpect(status().is(403));
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void batch_get_returns_rows_in_request_order_and_lists_missing_ids() throws Exception {
+                // arrange
+                RecommendationRequest recommendationRequest1 = RecommendationRequest.builder()
+                                .id(1L)
+                                .requesterEmail("student1@ucsb.edu")
+                                .professorEmail("prof@ucsb.edu")
+                                .explanation("grad school 1")
+                                .dateRequested(LocalDateTime.parse("2022-01-01T00:00:00"))
+                                .dateNeeded(LocalDateTime.parse("2022-03-01T00:00:00"))
+                                .done(false)
+                                .build();
+
+                RecommendationRequest recommendationRequest2 = RecommendationRequest.builder()
+                                .id(2L)
+                                .requesterEmail("student2@ucsb.edu")
+                                .professorEmail("prof@ucsb.edu")
+                                .explanation("grad school 2")
+                                .dateRequested(LocalDateTime.parse("2022-01-02T00:00:00"))
+                                .dateNeeded(LocalDateTime.parse("2022-03-02T00:00:00"))
+                                .done(false)
+                                .build();
+
+                when(RecommendationRequestRepository.findAllById(eq(List.of(2L, 1L, 3L)))).thenReturn(List.of(recommendationRequest1, recommendationRequest2));
+
+                // act
+                MvcResult response = mockMvc.perform(get("/api/RecommendationRequest/batch?ids=2,1,3,2"))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+                verify(RecommendationRequestRepository, times(1)).findAllById(eq(List.of(2L, 1L, 3L)));
+                BatchResult<RecommendationRequest, Long> expected = new BatchResult<>(List.of(recommendationRequest2, recommendationRequest1), List.of(3L));
+                assertEquals(mapper.writeValueAsString(expected), response.getResponse().getContentAsString());
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void batch_get_rejects_too_many_ids() throws Exception {
+                // arrange
+                String ids = IntStream.rangeClosed(1, 1001).mapToObj(Integer::toString).collect(Collectors.joining(","));
+
+                // act
+                MvcResult response = mockMvc.perform(get("/api/RecommendationRequest/batch").param("ids", ids))
+                                .andExpect(status().isBadRequest()).andReturn();
+
+                // assert
+                Map<String, Object> json = responseToJson(response);
+                assertEquals("ids must name between 1 and 1000 records", json.get("message"));
+        }
+}
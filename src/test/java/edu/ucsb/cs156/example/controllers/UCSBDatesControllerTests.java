@@ -3,6 +3,9 @@ package edu.ucsb.cs156.example.controllers;
 import edu.ucsb.cs156.example.repositories.UserRepository;
 import edu.ucsb.cs156.example.testconfig.TestConfig;
 import edu.ucsb.cs156.example.ControllerTestCase;
+import edu.ucsb.cs156.example.services.PartialUpdateService;
+import edu.ucsb.cs156.example.services.BulkInsertService;
+import edu.ucsb.cs156.example.services.StreamingExportService;
 import edu.ucsb.cs156.example.entities.UCSBDate;
 import edu.ucsb.cs156.example.repositories.UCSBDateRepository;
 
@@ -10,6 +13,15 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Map;
 import org.junit.jupiter.api.Test;
+import java.util.stream.IntStream;
+import java.util.stream.Collectors;
+import edu.ucsb.cs156.example.models.BatchResult;
+import edu.ucsb.cs156.example.errors.EntityNotFoundException;
+import java.util.List;
+import org.springframework.http.ResponseEntity;
+import edu.ucsb.cs156.example.models.KeysetPage;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.context.annotation.Import;
@@ -28,6 +40,7 @@ import java.util.Optional;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
@@ -42,6 +55,15 @@ public class UCSBDatesControllerTests extends ControllerTestCase {
         @MockBean
         UserRepository userRepository;
 
+        @MockBean
+        PartialUpdateService partialUpdateService;
+
+        @MockBean
+        BulkInsertService bulkInsertService;
+
+        @MockBean
+        StreamingExportService streamingExportService;
+
         // Tests for GET /api/ucsbdates/all
         
         @Test
@@ -320,4 +342,218 @@ public class UCSBDatesControllerTests extends ControllerTestCase {
                 assertEquals("UCSBDate with id 67 not found", json.get("message"));
 
         }
+
+
+        // Tests for GET /api/ucsbdates/all?after=...&limit=...
+
+        @Test
+        public void logged_out_users_cannot_get_a_page() throws Exception {
+                mockMvc.perform(get("/api/ucsbdates/all?limit=2"))
+                                .andExpect(status().is(403));
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_user_can_get_first_page() throws Exception {
+
+                // arrange
+
+                UCSBDate ucsbDate1 = UCSBDate.builder()
+                                .id(1L)
+                                .quarterYYYYQ("20222")
+                                .name("date 1")
+                                .localDateTime(LocalDateTime.parse("2022-01-01T00:00:00"))
+                                .build();
+
+                UCSBDate ucsbDate2 = UCSBDate.builder()
+                                .id(2L)
+                                .quarterYYYYQ("20222")
+                                .name("date 2")
+                                .localDateTime(LocalDateTime.parse("2022-01-02T00:00:00"))
+                                .build();
+
+                ArrayList<UCSBDate> expectedItems = new ArrayList<>(Arrays.asList(ucsbDate1, ucsbDate2));
+                when(ucsbDateRepository.findByIdGreaterThan(eq(0L), eq(PageRequest.of(0, 2, Sort.by("id")))))
+                                .thenReturn(expectedItems);
+
+                // act
+                MvcResult response = mockMvc.perform(get("/api/ucsbdates/all?limit=2"))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+
+                verify(ucsbDateRepository, times(1)).findByIdGreaterThan(eq(0L), eq(PageRequest.of(0, 2, Sort.by("id"))));
+                String expectedJson = mapper.writeValueAsString(KeysetPage.builder()
+                                .items(new ArrayList<Object>(expectedItems))
+                                .nextCursor("Mg")
+                                .build());
+                String responseString = response.getResponse().getContentAsString();
+                assertEquals(expectedJson, responseString);
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_user_can_get_last_page() throws Exception {
+
+                // arrange
+
+                UCSBDate ucsbDate3 = UCSBDate.builder()
+                                .id(3L)
+                                .quarterYYYYQ("20222")
+                                .name("date 3")
+                                .localDateTime(LocalDateTime.parse("2022-01-03T00:00:00"))
+                                .build();
+
+                ArrayList<UCSBDate> expectedItems = new ArrayList<>(Arrays.asList(ucsbDate3));
+                when(ucsbDateRepository.findByIdGreaterThan(eq(2L), eq(PageRequest.of(0, 2, Sort.by("id")))))
+                                .thenReturn(expectedItems);
+
+                // act
+                MvcResult response = mockMvc.perform(get("/api/ucsbdates/all?after=Mg&limit=2"))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+
+                verify(ucsbDateRepository, times(1)).findByIdGreaterThan(eq(2L), eq(PageRequest.of(0, 2, Sort.by("id"))));
+                String expectedJson = mapper.writeValueAsString(KeysetPage.builder()
+                                .items(new ArrayList<Object>(expectedItems))
+                                .nextCursor(null)
+                                .build());
+                String responseString = response.getResponse().getContentAsString();
+                assertEquals(expectedJson, responseString);
+        }
+
+
+        // Tests for GET /api/ucsbdates/export
+
+        @Test
+        public void logged_out_users_cannot_export() throws Exception {
+                mockMvc.perform(get("/api/ucsbdates/export"))
+                                .andExpect(status().is(403));
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_user_can_export() throws Exception {
+                // arrange
+                when(streamingExportService.export(eq("ndjson"), any())).thenReturn(ResponseEntity.ok().build());
+
+                // act
+                mockMvc.perform(get("/api/ucsbdates/export?format=ndjson"))
+                                .andExpect(status().isOk());
+
+                // assert
+                verify(streamingExportService, times(1)).export(eq("ndjson"), any());
+        }
+
+
+        // Tests for PATCH /api/ucsbdates?id=...
+
+        @Test
+        public void logged_out_users_cannot_patch() throws Exception {
+                mockMvc.perform(patch("/api/ucsbdates?id=7")
+                                .contentType(MediaType.APPLICATION_JSON)
+                                .content("{}")
+                                .with(csrf()))
+                                .andExpect(status().is(403));
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void regular_users_cannot_patch() throws Exception {
+                mockMvc.perform(patch("/api/ucsbdates?id=7")
+                                .contentType(MediaType.APPLICATION_JSON)
+                                .content("{}")
+                                .with(csrf()))
+                                .andExpect(status().is(403));
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void an_admin_user_can_patch_one_field() throws Exception {
+                // act
+                MvcResult response = mockMvc.perform(patch("/api/ucsbdates?id=7")
+                                .contentType(MediaType.APPLICATION_JSON)
+                                .content("{\"name\": \"noon\"}")
+                                .with(csrf()))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+                verify(partialUpdateService, times(1)).patch(eq(UCSBDate.class), eq("id"), eq(7L),
+                                eq(Map.of("name", "noon")), eq(UCSBDatesController.PATCHABLE_FIELDS));
+                Map<String, Object> json = responseToJson(response);
+                assertEquals("UCSBDate with id 7 updated", json.get("message"));
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void patching_a_missing_row_is_a_404() throws Exception {
+                // arrange
+                doThrow(new EntityNotFoundException(UCSBDate.class, 7L)).when(partialUpdateService)
+                                .patch(eq(UCSBDate.class), eq("id"), eq(7L), any(), any());
+
+                // act
+                MvcResult response = mockMvc.perform(patch("/api/ucsbdates?id=7")
+                                .contentType(MediaType.APPLICATION_JSON)
+                                .content("{\"name\": \"noon\"}")
+                                .with(csrf()))
+                                .andExpect(status().isNotFound()).andReturn();
+
+                // assert
+                Map<String, Object> json = responseToJson(response);
+                assertEquals("UCSBDate with id 7 not found", json.get("message"));
+        }
+
+        // Tests for GET /api/ucsbdates/batch
+
+        @Test
+        public void logged_out_users_cannot_batch_get() throws Exception {
+                mockMvc.perform(get("/api/ucsbdates/batch?ids=1"))
+                                .andExpect(status().is(403));
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void batch_get_returns_rows_in_request_order_and_lists_missing_ids() throws Exception {
+                // arrange
+                UCSBDate ucsbDate1 = UCSBDate.builder()
+                                .id(1L)
+                                .quarterYYYYQ("20222")
+                                .name("date 1")
+                                .localDateTime(LocalDateTime.parse("2022-01-01T00:00:00"))
+                                .build();
+
+                UCSBDate ucsbDate2 = UCSBDate.builder()
+                                .id(2L)
+                                .quarterYYYYQ("20222")
+                                .name("date 2")
+                                .localDateTime(LocalDateTime.parse("2022-01-02T00:00:00"))
+                                .build();
+
+                when(ucsbDateRepository.findAllById(eq(List.of(2L, 1L, 3L)))).thenReturn(List.of(ucsbDate1, ucsbDate2));
+
+                // act
+                MvcResult response = mockMvc.perform(get("/api/ucsbdates/batch?ids=2,1,3,2"))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+                verify(ucsbDateRepository, times(1)).findAllById(eq(List.of(2L, 1L, 3L)));
+                BatchResult<UCSBDate, Long> expected = new BatchResult<>(List.of(ucsbDate2, ucsbDate1), List.of(3L));
+                assertEquals(mapper.writeValueAsString(expected), response.getResponse().getContentAsString());
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void batch_get_rejects_too_many_ids() throws Exception {
+                // arrange
+                String ids = IntStream.rangeClosed(1, 1001).mapToObj(Integer::toString).collect(Collectors.joining(","));
+
+                // act
+                MvcResult response = mockMvc.perform(get("/api/ucsbdates/batch").param("ids", ids))
+                                .andExpect(status().isBadRequest()).andReturn();
+
+                // assert
+                Map<String, Object> json = responseToJson(response);
+                assertEquals("ids must name between 1 and 1000 records", json.get("message"));
+        }
 }
@@ -3,6 +3,10 @@ package edu.ucsb.cs156.example.controllers;
 import edu.ucsb.cs156.example.repositories.UserRepository;
 import edu.ucsb.cs156.example.testconfig.TestConfig;
 import edu.ucsb.cs156.example.ControllerTestCase;
+import edu.ucsb.cs156.example.services.PartialUpdateService;
+import edu.ucsb.cs156.example.services.UpsertService;
+import edu.ucsb.cs156.example.services.BulkInsertService;
+import edu.ucsb.cs156.example.services.StreamingExportService;
 import edu.ucsb.cs156.example.entities.UCSBDiningCommons;
 import edu.ucsb.cs156.example.repositories.UCSBDiningCommonsRepository;
 
@@ -10,6 +14,16 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Map;
 import org.junit.jupiter.api.Test;
+import java.util.stream.IntStream;
+import java.util.stream.Collectors;
+import edu.ucsb.cs156.example.models.BatchResult;
+import edu.ucsb.cs156.example.errors.EntityNotFoundException;
+import org.springframework.dao.DataIntegrityViolationException;
+import java.util.List;
+import org.springframework.http.ResponseEntity;
+import edu.ucsb.cs156.example.models.KeysetPage;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.context.annotation.Import;
@@ -26,6 +40,7 @@ import java.util.Optional;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
@@ -40,6 +55,18 @@ public class UCSBDiningCommonsControllerTests extends ControllerTestCase {
         @MockBean
         UserRepository userRepository;
 
+        @MockBean
+        PartialUpdateService partialUpdateService;
+
+        @MockBean
+        UpsertService upsertService;
+
+        @MockBean
+        BulkInsertService bulkInsertService;
+
+        @MockBean
+        StreamingExportService streamingExportService;
+
         // Tests for GET /api/ucsbdiningcommons/all
 
         @Test
@@ -337,4 +364,304 @@ public class UCSBDiningCommonsControllerTests extends ControllerTestCase {
                 assertEquals("UCSBDiningCommons with id munger-hall not found", json.get("message"));
 
         }
+
+
+        // Tests for GET /api/ucsbdiningcommons/all?after=...&limit=...
+
+        @Test
+        public void logged_out_users_cannot_get_a_page() throws Exception {
+                mockMvc.perform(get("/api/ucsbdiningcommons/all?limit=2"))
+                                .andExpect(status().is(403));
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_user_can_get_first_page() throws Exception {
+
+                // arrange
+
+                UCSBDiningCommons ucsbDiningCommons1 = UCSBDiningCommons.builder()
+                                .code("carrillo")
+                                .name("Carrillo")
+                                .hasSackMeal(false)
+                                .hasTakeOutMeal(false)
+                                .hasDiningCam(true)
+                                .latitude(34.41)
+                                .longitude(-119.81)
+                                .build();
+
+                UCSBDiningCommons ucsbDiningCommons2 = UCSBDiningCommons.builder()
+                                .code("de-la-guerra")
+                                .name("De-La-Guerra")
+                                .hasSackMeal(false)
+                                .hasTakeOutMeal(false)
+                                .hasDiningCam(true)
+                                .latitude(34.42)
+                                .longitude(-119.82)
+                                .build();
+
+                ArrayList<UCSBDiningCommons> expectedItems = new ArrayList<>(Arrays.asList(ucsbDiningCommons1, ucsbDiningCommons2));
+                when(ucsbDiningCommonsRepository.findByCodeGreaterThan(eq(""), eq(PageRequest.of(0, 2, Sort.by("code")))))
+                                .thenReturn(expectedItems);
+
+                // act
+                MvcResult response = mockMvc.perform(get("/api/ucsbdiningcommons/all?limit=2"))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+
+                verify(ucsbDiningCommonsRepository, times(1)).findByCodeGreaterThan(eq(""), eq(PageRequest.of(0, 2, Sort.by("code"))));
+                String expectedJson = mapper.writeValueAsString(KeysetPage.builder()
+                                .items(new ArrayList<Object>(expectedItems))
+                                .nextCursor("ZGUtbGEtZ3VlcnJh")
+                                .build());
+                String responseString = response.getResponse().getContentAsString();
+                assertEquals(expectedJson, responseString);
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_user_can_get_last_page() throws Exception {
+
+                // arrange
+
+                UCSBDiningCommons ucsbDiningCommons3 = UCSBDiningCommons.builder()
+                                .code("ortega")
+                                .name("Ortega")
+                                .hasSackMeal(false)
+                                .hasTakeOutMeal(false)
+                                .hasDiningCam(true)
+                                .latitude(34.43)
+                                .longitude(-119.83)
+                                .build();
+
+                ArrayList<UCSBDiningCommons> expectedItems = new ArrayList<>(Arrays.asList(ucsbDiningCommons3));
+                when(ucsbDiningCommonsRepository.findByCodeGreaterThan(eq("de-la-guerra"), eq(PageRequest.of(0, 2, Sort.by("code")))))
+                                .thenReturn(expectedItems);
+
+                // act
+                MvcResult response = mockMvc.perform(get("/api/ucsbdiningcommons/all?after=ZGUtbGEtZ3VlcnJh&limit=2"))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+
+                verify(ucsbDiningCommonsRepository, times(1)).findByCodeGreaterThan(eq("de-la-guerra"), eq(PageRequest.of(0, 2, Sort.by("code"))));
+                String expectedJson = mapper.writeValueAsString(KeysetPage.builder()
+                                .items(new ArrayList<Object>(expectedItems))
+                                .nextCursor(null)
+                                .build());
+                String responseString = response.getResponse().getContentAsString();
+                assertEquals(expectedJson, responseString);
+        }
+
+
+        // Tests for GET /api/ucsbdiningcommons/export
+
+        @Test
+        public void logged_out_users_cannot_export() throws Exception {
+                mockMvc.perform(get("/api/ucsbdiningcommons/export"))
+                                .andExpect(status().is(403));
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_user_can_export() throws Exception {
+                // arrange
+                when(streamingExportService.export(eq("ndjson"), any())).thenReturn(ResponseEntity.ok().build());
+
+                // act
+                mockMvc.perform(get("/api/ucsbdiningcommons/export?format=ndjson"))
+                                .andExpect(status().isOk());
+
+                // assert
+                verify(streamingExportService, times(1)).export(eq("ndjson"), any());
+        }
+
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void posting_an_existing_code_is_a_conflict() throws Exception {
+                // arrange
+                when(ucsbDiningCommonsRepository.save(any())).thenThrow(new DataIntegrityViolationException("could not execute statement",
+                                new IllegalStateException("duplicate key value violates unique constraint")));
+
+                // act
+                MvcResult response = mockMvc.perform(
+                                post("/api/ucsbdiningcommons/post?code=ortega&name=Ortega&hasSackMeal=false&hasTakeOutMeal=false&hasDiningCam=true&latitude=34.41&longitude=-119.84")
+                                                .with(csrf()))
+                                .andExpect(status().is(409)).andReturn();
+
+                // assert
+                Map<String, Object> json = responseToJson(response);
+                assertEquals("DataIntegrityViolationException", json.get("type"));
+                assertEquals("conflicts with an existing record", json.get("message"));
+        }
+
+        // Tests for POST /api/ucsbdiningcommons/sync
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void regular_users_cannot_sync() throws Exception {
+                mockMvc.perform(post("/api/ucsbdiningcommons/sync")
+                                .contentType(MediaType.APPLICATION_JSON)
+                                .content("[]")
+                                .with(csrf()))
+                                .andExpect(status().is(403));
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void an_admin_user_can_sync_the_full_list() throws Exception {
+                // arrange
+                UCSBDiningCommons ucsbDiningCommons1 = UCSBDiningCommons.builder()
+                                .code("carrillo")
+                                .name("Carrillo")
+                                .hasSackMeal(false)
+                                .hasTakeOutMeal(false)
+                                .hasDiningCam(true)
+                                .latitude(34.41)
+                                .longitude(-119.81)
+                                .build();
+
+                UCSBDiningCommons ucsbDiningCommons2 = UCSBDiningCommons.builder()
+                                .code("de-la-guerra")
+                                .name("De-La-Guerra")
+                                .hasSackMeal(false)
+                                .hasTakeOutMeal(false)
+                                .hasDiningCam(true)
+                                .latitude(34.42)
+                                .longitude(-119.82)
+                                .build();
+
+                List<UCSBDiningCommons> incoming = List.of(ucsbDiningCommons1, ucsbDiningCommons2);
+                when(upsertService.upsertDiningCommons(eq(incoming))).thenReturn(2);
+
+                // act
+                MvcResult response = mockMvc.perform(post("/api/ucsbdiningcommons/sync")
+                                .contentType(MediaType.APPLICATION_JSON)
+                                .content(mapper.writeValueAsString(incoming))
+                                .with(csrf()))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+                verify(upsertService, times(1)).upsertDiningCommons(eq(incoming));
+                Map<String, Object> json = responseToJson(response);
+                assertEquals("Synced 2 dining commons", json.get("message"));
+        }
+
+        // Tests for PATCH /api/ucsbdiningcommons?code=...
+
+        @Test
+        public void logged_out_users_cannot_patch() throws Exception {
+                mockMvc.perform(patch("/api/ucsbdiningcommons?code=carrillo")
+                                .contentType(MediaType.APPLICATION_JSON)
+                                .content("{}")
+                                .with(csrf()))
+                                .andExpect(status().is(403));
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void regular_users_cannot_patch() throws Exception {
+                mockMvc.perform(patch("/api/ucsbdiningcommons?code=carrillo")
+                                .contentType(MediaType.APPLICATION_JSON)
+                                .content("{}")
+                                .with(csrf()))
+                                .andExpect(status().is(403));
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void an_admin_user_can_patch_one_field() throws Exception {
+                // act
+                MvcResult response = mockMvc.perform(patch("/api/ucsbdiningcommons?code=carrillo")
+                                .contentType(MediaType.APPLICATION_JSON)
+                                .content("{\"hasDiningCam\": false}")
+                                .with(csrf()))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+                verify(partialUpdateService, times(1)).patch(eq(UCSBDiningCommons.class), eq("code"), eq("carrillo"),
+                                eq(Map.of("hasDiningCam", false)), eq(UCSBDiningCommonsController.PATCHABLE_FIELDS));
+                Map<String, Object> json = responseToJson(response);
+                assertEquals("UCSBDiningCommons with id carrillo updated", json.get("message"));
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void patching_a_missing_row_is_a_404() throws Exception {
+                // arrange
+                doThrow(new EntityNotFoundException(UCSBDiningCommons.class, "carrillo")).when(partialUpdateService)
+                                .patch(eq(UCSBDiningCommons.class), eq("code"), eq("carrillo"), any(), any());
+
+                // act
+                MvcResult response = mockMvc.perform(patch("/api/ucsbdiningcommons?code=carrillo")
+                                .contentType(MediaType.APPLICATION_JSON)
+                                .content("{\"hasDiningCam\": false}")
+                                .with(csrf()))
+                                .andExpect(status().isNotFound()).andReturn();
+
+                // assert
+                Map<String, Object> json = responseToJson(response);
+                assertEquals("UCSBDiningCommons with id carrillo not found", json.get("message"));
+        }
+
+        // Tests for GET /api/ucsbdiningcommons/batch
+
+        @Test
+        public void logged_out_users_cannot_batch_get() throws Exception {
+                mockMvc.perform(get("/api/ucsbdiningcommons/batch?ids=carrillo"))
+                                .andExpect(status().is(403));
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void batch_get_returns_rows_in_request_order_and_lists_missing_ids() throws Exception {
+                // arrange
+                UCSBDiningCommons ucsbDiningCommons1 = UCSBDiningCommons.builder()
+                                .code("carrillo")
+                                .name("Carrillo")
+                                .hasSackMeal(false)
+                                .hasTakeOutMeal(false)
+                                .hasDiningCam(true)
+                                .latitude(34.41)
+                                .longitude(-119.81)
+                                .build();
+
+                UCSBDiningCommons ucsbDiningCommons2 = UCSBDiningCommons.builder()
+                                .code("de-la-guerra")
+                                .name("De-La-Guerra")
+                                .hasSackMeal(false)
+                                .hasTakeOutMeal(false)
+                                .hasDiningCam(true)
+                                .latitude(34.42)
+                                .longitude(-119.82)
+                                .build();
+
+                when(ucsbDiningCommonsRepository.findAllById(eq(List.of("de-la-guerra", "carrillo", "XX")))).thenReturn(List.of(ucsbDiningCommons1, ucsbDiningCommons2));
+
+                // act
+                MvcResult response = mockMvc.perform(get("/api/ucsbdiningcommons/batch?ids=de-la-guerra,carrillo,XX,de-la-guerra"))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+                verify(ucsbDiningCommonsRepository, times(1)).findAllById(eq(List.of("de-la-guerra", "carrillo", "XX")));
+                BatchResult<UCSBDiningCommons, String> expected = new BatchResult<>(List.of(ucsbDiningCommons2, ucsbDiningCommons1), List.of("XX"));
+                assertEquals(mapper.writeValueAsString(expected), response.getResponse().getContentAsString());
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void batch_get_rejects_too_many_ids() throws Exception {
+                // arrange
+                String ids = IntStream.rangeClosed(1, 1001).mapToObj(i -> "c" + i).collect(Collectors.joining(","));
+
+                // act
+                MvcResult response = mockMvc.perform(get("/api/ucsbdiningcommons/batch").param("ids", ids))
+                                .andExpect(status().isBadRequest()).andReturn();
+
+                // assert
+                Map<String, Object> json = responseToJson(response);
+                assertEquals("ids must name between 1 and 1000 records", json.get("message"));
+        }
 }
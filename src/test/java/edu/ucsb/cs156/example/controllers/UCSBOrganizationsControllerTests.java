@@ -3,6 +3,10 @@ package edu.ucsb.cs156.example.controllers;
 import edu.ucsb.cs156.example.repositories.UserRepository;
 import edu.ucsb.cs156.example.testconfig.TestConfig;
 import edu.ucsb.cs156.example.ControllerTestCase;
+import edu.ucsb.cs156.example.services.PartialUpdateService;
+import edu.ucsb.cs156.example.services.UpsertService;
+import edu.ucsb.cs156.example.services.BulkInsertService;
+import edu.ucsb.cs156.example.services.StreamingExportService;
 import edu.ucsb.cs156.example.entities.UCSBOrganizations;
 import edu.ucsb.cs156.example.repositories.UCSBOrganizationsRepository;
 
@@ -10,6 +14,16 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Map;
 import org.junit.jupiter.api.Test;
+import java.util.stream.IntStream;
+import java.util.stream.Collectors;
+import edu.ucsb.cs156.example.models.BatchResult;
+import edu.ucsb.cs156.example.errors.EntityNotFoundException;
+import org.springframework.dao.DataIntegrityViolationException;
+import java.util.List;
+import org.springframework.http.ResponseEntity;
+import edu.ucsb.cs156.example.models.KeysetPage;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.context.annotation.Import;
@@ -26,6 +40,7 @@ import java.util.Optional;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
@@ -40,6 +55,18 @@ public class UCSBOrganizationsControllerTests extends ControllerTestCase {
         @MockBean
         UserRepository userRepository;
 
+        @MockBean
+        PartialUpdateService partialUpdateService;
+
+        @MockBean
+        UpsertService upsertService;
+
+        @MockBean
+        BulkInsertService bulkInsertService;
+
+        @MockBean
+        StreamingExportService streamingExportService;
+
         // Tests for GET /api/ucsborganizations/all
 
         @Test
@@ -314,4 +341,294 @@ public class UCSBOrganizationsControllerTests extends ControllerTestCase {
 
             }
 
+
+        // Tests for GET /api/ucsborganizations/all?after=...&limit=...
+
+        @Test
+        public void logged_out_users_cannot_get_a_page() throws Exception {
+                mockMvc.perform(get("/api/ucsborganizations/all?limit=2"))
+                                .andExpect(status().is(403));
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_user_can_get_first_page() throws Exception {
+
+                // arrange
+
+                UCSBOrganizations ucsbOrganizations1 = UCSBOrganizations.builder()
+                                .orgCode("CC")
+                                .orgTranslationShort("CC CLUB")
+                                .orgTranslation("CC CLUB AT UCSB")
+                                .inactive(false)
+                                .build();
+
+                UCSBOrganizations ucsbOrganizations2 = UCSBOrganizations.builder()
+                                .orgCode("RC")
+                                .orgTranslationShort("RC CLUB")
+                                .orgTranslation("RC CLUB AT UCSB")
+                                .inactive(false)
+                                .build();
+
+                ArrayList<UCSBOrganizations> expectedItems = new ArrayList<>(Arrays.asList(ucsbOrganizations1, ucsbOrganizations2));
+                when(ucsbOrganizationsRepository.findByOrgCodeGreaterThan(eq(""), eq(PageRequest.of(0, 2, Sort.by("orgCode")))))
+                                .thenReturn(expectedItems);
+
+                // act
+                MvcResult response = mockMvc.perform(get("/api/ucsborganizations/all?limit=2"))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+
+                verify(ucsbOrganizationsRepository, times(1)).findByOrgCodeGreaterThan(eq(""), eq(PageRequest.of(0, 2, Sort.by("orgCode"))));
+                String expectedJson = mapper.writeValueAsString(KeysetPage.builder()
+                                .items(new ArrayList<Object>(expectedItems))
+                                .nextCursor("UkM")
+                                .build());
+                String responseString = response.getResponse().getContentAsString();
+                assertEquals(expectedJson, responseString);
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_user_can_get_last_page() throws Exception {
+
+                // arrange
+
+                UCSBOrganizations ucsbOrganizations3 = UCSBOrganizations.builder()
+                                .orgCode("SC")
+                                .orgTranslationShort("SC CLUB")
+                                .orgTranslation("SC CLUB AT UCSB")
+                                .inactive(false)
+                                .build();
+
+                ArrayList<UCSBOrganizations> expectedItems = new ArrayList<>(Arrays.asList(ucsbOrganizations3));
+                when(ucsbOrganizationsRepository.findByOrgCodeGreaterThan(eq("RC"), eq(PageRequest.of(0, 2, Sort.by("orgCode")))))
+                                .thenReturn(expectedItems);
+
+                // act
+                MvcResult response = mockMvc.perform(get("/api/ucsborganizations/all?after=UkM&limit=2"))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+
+                verify(ucsbOrganizationsRepository, times(1)).findByOrgCodeGreaterThan(eq("RC"), eq(PageRequest.of(0, 2, Sort.by("orgCode"))));
+                String expectedJson = mapper.writeValueAsString(KeysetPage.builder()
+                                .items(new ArrayList<Object>(expectedItems))
+                                .nextCursor(null)
+                                .build());
+                String responseString = response.getResponse().getContentAsString();
+                assertEquals(expectedJson, responseString);
+        }
+
+
+        // Tests for GET /api/ucsborganizations/export
+
+        @Test
+        public void logged_out_users_cannot_export() throws Exception {
+                mockMvc.perform(get("/api/ucsborganizations/export"))
+                                .andExpect(status().is(403));
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_user_can_export() throws Exception {
+                // arrange
+                when(streamingExportService.export(eq("ndjson"), any())).thenReturn(ResponseEntity.ok().build());
+
+                // act
+                mockMvc.perform(get("/api/ucsborganizations/export?format=ndjson"))
+                                .andExpect(status().isOk());
+
+                // assert
+                verify(streamingExportService, times(1)).export(eq("ndjson"), any());
+        }
+
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void posting_an_existing_orgcode_is_a_conflict() throws Exception {
+                // arrange
+                when(ucsbOrganizationsRepository.save(any())).thenThrow(new DataIntegrityViolationException("could not execute statement",
+                                new IllegalStateException("duplicate key value violates unique constraint")));
+
+                // act
+                MvcResult response = mockMvc.perform(
+                                post("/api/ucsborganizations/post?orgCode=SC&orgTranslationShort=SOCCER&orgTranslation=SOCCER CLUB AT UCSB&inactive=false")
+                                                .with(csrf()))
+                                .andExpect(status().is(409)).andReturn();
+
+                // assert
+                Map<String, Object> json = responseToJson(response);
+                assertEquals("DataIntegrityViolationException", json.get("type"));
+                assertEquals("conflicts with an existing record", json.get("message"));
+        }
+
+        // Tests for POST /api/ucsborganizations/sync
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void regular_users_cannot_sync() throws Exception {
+                mockMvc.perform(post("/api/ucsborganizations/sync")
+                                .contentType(MediaType.APPLICATION_JSON)
+                                .content("[]")
+                                .with(csrf()))
+                                .andExpect(status().is(403));
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void an_admin_user_can_sync_the_full_list() throws Exception {
+                // arrange
+                UCSBOrganizations ucsbOrganizations1 = UCSBOrganizations.builder()
+                                .orgCode("CC")
+                                .orgTranslationShort("CC CLUB")
+                                .orgTranslation("CC CLUB AT UCSB")
+                                .inactive(false)
+                                .build();
+
+                UCSBOrganizations ucsbOrganizations2 = UCSBOrganizations.builder()
+                                .orgCode("RC")
+                                .orgTranslationShort("RC CLUB")
+                                .orgTranslation("RC CLUB AT UCSB")
+                                .inactive(false)
+                                .build();
+
+                List<UCSBOrganizations> incoming = List.of(ucsbOrganizations1, ucsbOrganizations2);
+                when(upsertService.upsertOrganizations(eq(incoming))).thenReturn(2);
+
+                // act
+                MvcResult response = mockMvc.perform(post("/api/ucsborganizations/sync")
+                                .contentType(MediaType.APPLICATION_JSON)
+                                .content(mapper.writeValueAsString(incoming))
+                                .with(csrf()))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+                verify(upsertService, times(1)).upsertOrganizations(eq(incoming));
+                Map<String, Object> json = responseToJson(response);
+                assertEquals("Synced 2 organizations", json.get("message"));
+        }
+
+        // Tests for PATCH /api/ucsborganizations?orgCode=...
+
+        @Test
+        public void logged_out_users_cannot_patch() throws Exception {
+                mockMvc.perform(patch("/api/ucsborganizations?orgCode=CC")
+                                .contentType(MediaType.APPLICATION_JSON)
+                                .content("{}")
+                                .with(csrf()))
+                                .andExpect(status().is(403));
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void regular_users_cannot_patch() throws Exception {
+                mockMvc.perform(patch("/api/ucsborganizations?orgCode=CC")
+                                .contentType(MediaType.APPLICATION_JSON)
+                                .content("{}")
+                                .with(csrf()))
+                                .andExpect(status().is(403));
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void an_admin_user_can_patch_one_field() throws Exception {
+                // act
+                MvcResult response = mockMvc.perform(patch("/api/ucsborganizations?orgCode=CC")
+                                .contentType(MediaType.APPLICATION_JSON)
+                                .content("{\"inactive\": true}")
+                                .with(csrf()))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+                verify(partialUpdateService, times(1)).patch(eq(UCSBOrganizations.class), eq("orgCode"), eq("CC"),
+                                eq(Map.of("inactive", true)), eq(UCSBOrganizationsController.PATCHABLE_FIELDS));
+                Map<String, Object> json = responseToJson(response);
+                assertEquals("UCSBOrganizations with id CC updated", json.get("message"));
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void patching_a_missing_row_is_a_404() throws Exception {
+                // arrange
+                doThrow(new EntityNotFoundException(UCSBOrganizations.class, "CC")).when(partialUpdateService)
+                                .patch(eq(UCSBOrganizations.class), eq("orgCode"), eq("CC"), any(), any());
+
+                // act
+                MvcResult response = mockMvc.perform(patch("/api/ucsborganizations?orgCode=CC")
+                                .contentType(MediaType.APPLICATION_JSON)
+                                .content("{\"inactive\": true}")
+                                .with(csrf()))
+                                .andExpect(status().isNotFound()).andReturn();
+
+                // assert
+                Map<String, Object> json = responseToJson(response);
+                assertEquals("UCSBOrganizations with id CC not found", json.get("message"));
+        }
+
+        // Tests for GET /api/ucsborganizations/batch
+
+        @Test
+        public void logged_out_users_cannot_batch_get() throws Exception {
+                mockMvc.perform(get("/api/ucsborganizations/batch?ids=CC"))
+                                .andExpect(status().is(403));
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void batch_get_returns_rows_in_request_order_and_lists_missing_ids() throws Exception {
+                // arrange
+                UCSBOrganizations ucsbOrganizations1 = UCSBOrganizations.builder()
+                                .orgCode("CC")
+                                .orgTranslationShort("CC CLUB")
+                                .orgTranslation("CC CLUB AT UCSB")
+                                .inactive(false)
+                                .build();
+
+                UCSBOrganizations ucsbOrganizations2 = UCSBOrganizations.builder()
+                                .orgCode("RC")
+                                .orgTranslationShort("RC CLUB")
+                                .orgTranslation("RC CLUB AT UCSB")
+                                .inactive(false)
+                                .build();
+
+                when(ucsbOrganizationsRepository.findAllById(eq(List.of("RC", "CC", "XX")))).thenReturn(List.of(ucsbOrganizations1, ucsbOrganizations2));
+
+                // act
+                MvcResult response = mockMvc.perform(get("/api/ucsborganizations/batch?ids=RC,CC,XX,RC"))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+                verify(ucsbOrganizationsRepository, times(1)).findAllById(eq(List.of("RC", "CC", "XX")));
+                BatchResult<UCSBOrganizations, String> expected = new BatchResult<>(List.of(ucsbOrganizations2, ucsbOrganizations1), List.of("XX"));
+                assertEquals(mapper.writeValueAsString(expected), response.getResponse().getContentAsString());
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void batch_get_rejects_too_many_ids() throws Exception {
+                // arrange
+                String ids = IntStream.rangeClosed(1, 1001).mapToObj(i -> "c" + i).collect(Collectors.joining(","));
+
+                // act
+                MvcResult response = mockMvc.perform(get("/api/ucsborganizations/batch").param("ids", ids))
+                                .andExpect(status().isBadRequest()).andReturn();
+
+                // assert
+                Map<String, Object> json = responseToJson(response);
+                assertEquals("ids must name between 1 and 1000 records", json.get("message"));
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void batch_get_rejects_an_empty_list_of_ids() throws Exception {
+                // act
+                MvcResult response = mockMvc.perform(get("/api/ucsborganizations/batch?ids="))
+                                .andExpect(status().isBadRequest()).andReturn();
+
+                // assert
+                Map<String, Object> json = responseToJson(response);
+                assertEquals("ids must name between 1 and 1000 records", json.get("message"));
+        }
 }
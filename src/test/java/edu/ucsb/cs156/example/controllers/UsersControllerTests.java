@@ -2,17 +2,24 @@ package edu.ucsb.cs156.example.controllers;
 
 import edu.ucsb.cs156.example.ControllerTestCase;
 import edu.ucsb.cs156.example.entities.User;
+import edu.ucsb.cs156.example.models.KeysetPage;
 import edu.ucsb.cs156.example.repositories.UserRepository;
+import edu.ucsb.cs156.example.services.StreamingExportService;
 import edu.ucsb.cs156.example.testconfig.TestConfig;
 
 import org.junit.jupiter.api.Test;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.http.ResponseEntity;
 import org.springframework.security.test.context.support.WithMockUser;
 import org.springframework.test.web.servlet.MvcResult;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
@@ -21,6 +28,7 @@ import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Map;
 
 @WebMvcTest(controllers = UsersController.class)
 @Import(TestConfig.class)
@@ -29,6 +37,12 @@ public class UsersControllerTests extends ControllerTestCase {
   @MockBean
   UserRepository userRepository;
 
+  @MockBean
+  StreamingExportService streamingExportService;
+
+  User u1 = User.builder().id(1L).email("a@ucsb.edu").fullName("Ann Gaucho").build();
+  User u2 = User.builder().id(2L).email("b@ucsb.edu").fullName("Bob Gaucho").build();
+
   @Test
   public void users__logged_out() throws Exception {
     mockMvc.perform(get("/api/admin/users"))
@@ -45,29 +59,126 @@ public class UsersControllerTests extends ControllerTestCase {
   @WithMockUser(roles = { "ADMIN", "USER" })
   @Test
   public void users__admin_logged_in() throws Exception {
+    // arrange
+    when(streamingExportService.export(eq("json"), any())).thenReturn(ResponseEntity.ok().build());
+
+    // act
+    mockMvc.perform(get("/api/admin/users"))
+        .andExpect(status().isOk());
+
+    // assert
+    verify(streamingExportService, times(1)).export(eq("json"), any());
+  }
+
+  // Tests for GET /api/admin/users?q=...&sort=...&after=...&limit=...
+
+  @WithMockUser(roles = { "USER" })
+  @Test
+  public void page__user_logged_in() throws Exception {
+    mockMvc.perform(get("/api/admin/users?limit=2"))
+        .andExpect(status().is(403));
+  }
 
+  @WithMockUser(roles = { "ADMIN", "USER" })
+  @Test
+  public void page__first_page_by_id() throws Exception {
     // arrange
+    ArrayList<User> expectedUsers = new ArrayList<>(Arrays.asList(u1, u2));
+    when(userRepository.searchByIdGreaterThan(eq(0L), eq("%"), eq(PageRequest.of(0, 2, Sort.by("id")))))
+        .thenReturn(expectedUsers);
+
+    // act
+    MvcResult response = mockMvc.perform(get("/api/admin/users?limit=2"))
+        .andExpect(status().isOk()).andReturn();
 
-    User u1 = User.builder().id(1L).build();
-    User u2 = User.builder().id(2L).build();
-    User u = currentUserService.getCurrentUser().getUser();
+    // assert
+    verify(userRepository, times(1)).searchByIdGreaterThan(eq(0L), eq("%"), eq(PageRequest.of(0, 2, Sort.by("id"))));
+    String expectedJson = mapper.writeValueAsString(KeysetPage.builder()
+        .items(new ArrayList<Object>(expectedUsers))
+        .nextCursor("Mg")
+        .build());
+    assertEquals(expectedJson, response.getResponse().getContentAsString());
+  }
 
-    ArrayList<User> expectedUsers = new ArrayList<>();
-    expectedUsers.addAll(Arrays.asList(u1, u2, u));
+  @WithMockUser(roles = { "ADMIN", "USER" })
+  @Test
+  public void page__search_by_email_prefix() throws Exception {
+    // arrange
+    ArrayList<User> expectedUsers = new ArrayList<>(Arrays.asList(u1, u2));
+    when(userRepository.searchByEmailGreaterThan(eq(""), eq("gaucho%"), eq(PageRequest.of(0, 2, Sort.by("email")))))
+        .thenReturn(expectedUsers);
 
-    when(userRepository.findAll()).thenReturn(expectedUsers);
-    String expectedJson = mapper.writeValueAsString(expectedUsers);
-    
     // act
+    MvcResult response = mockMvc.perform(get("/api/admin/users?q=Gaucho&sort=email&limit=2"))
+        .andExpect(status().isOk()).andReturn();
+
+    // assert
+    String expectedJson = mapper.writeValueAsString(KeysetPage.builder()
+        .items(new ArrayList<Object>(expectedUsers))
+        .nextCursor("YkB1Y3NiLmVkdQ")
+        .build());
+    assertEquals(expectedJson, response.getResponse().getContentAsString());
+  }
 
-    MvcResult response = mockMvc.perform(get("/api/admin/users"))
+  @WithMockUser(roles = { "ADMIN", "USER" })
+  @Test
+  public void page__last_page_by_email() throws Exception {
+    // arrange
+    ArrayList<User> expectedUsers = new ArrayList<>(Arrays.asList(u2));
+    when(userRepository.searchByEmailGreaterThan(eq("a@ucsb.edu"), eq("%"), eq(PageRequest.of(0, 2, Sort.by("email")))))
+        .thenReturn(expectedUsers);
+
+    // act
+    MvcResult response = mockMvc.perform(get("/api/admin/users?sort=email&after=YUB1Y3NiLmVkdQ&limit=2"))
         .andExpect(status().isOk()).andReturn();
 
     // assert
+    verify(userRepository, times(1)).searchByEmailGreaterThan(eq("a@ucsb.edu"), eq("%"),
+        eq(PageRequest.of(0, 2, Sort.by("email"))));
+    String expectedJson = mapper.writeValueAsString(KeysetPage.builder()
+        .items(new ArrayList<Object>(expectedUsers))
+        .nextCursor(null)
+        .build());
+    assertEquals(expectedJson, response.getResponse().getContentAsString());
+  }
+
+  @WithMockUser(roles = { "ADMIN", "USER" })
+  @Test
+  public void page__unknown_sort_is_a_bad_request() throws Exception {
+    MvcResult response = mockMvc.perform(get("/api/admin/users?sort=locale&limit=2"))
+        .andExpect(status().isBadRequest()).andReturn();
+
+    Map<String, Object> json = responseToJson(response);
+    assertEquals("Unsupported sort locale", json.get("message"));
+  }
+
+  @Test
+  public void starts_with_takes_the_prefix_literally() {
+    assertEquals("%", UsersController.startsWith(""));
+    assertEquals("cgaucho%", UsersController.startsWith("CGaucho"));
+    assertEquals("100\\%\\_sure\\\\%", UsersController.startsWith("100%_sure\\"));
+  }
+
+  // Tests for GET /api/admin/users/export
+
+  @WithMockUser(roles = { "USER" })
+  @Test
+  public void export__user_logged_in() throws Exception {
+    mockMvc.perform(get("/api/admin/users/export"))
+        .andExpect(status().is(403));
+  }
 
-    verify(userRepository, times(1)).findAll();
-    String responseString = response.getResponse().getContentAsString();
-    assertEquals(expectedJson, responseString);
+  @WithMockUser(roles = { "ADMIN", "USER" })
+  @Test
+  public void export__defaults_to_csv() throws Exception {
+    // arrange
+    when(streamingExportService.exportWithCsv(eq("csv"), any())).thenReturn(ResponseEntity.ok().build());
 
+    // act
+    mockMvc.perform(get("/api/admin/users/export"))
+        .andExpect(status().isOk());
+
+    // assert
+    verify(streamingExportService, times(1)).exportWithCsv(eq("csv"), any());
   }
 }
@@ -0,0 +1,40 @@
+package edu.ucsb.cs156.example.entities;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+class UCSBDiningCommonsTests {
+
+  @Test
+  void test_new_instances_are_new_until_loaded_or_persisted() {
+    UCSBDiningCommons entity = UCSBDiningCommons.builder().code("ortega").name("Ortega").build();
+
+    assertTrue(entity.isNew());
+    assertEquals("ortega", entity.getId());
+
+    entity.markNotNew();
+    assertFalse(entity.isNew());
+    assertTrue(new UCSBDiningCommons().isNew());
+  }
+
+  @Test
+  void test_new_flag_is_not_part_of_json_or_equality() throws Exception {
+    UCSBDiningCommons loaded = UCSBDiningCommons.builder().code("ortega").name("Ortega").build();
+    loaded.markNotNew();
+    UCSBDiningCommons incoming = UCSBDiningCommons.builder().code("ortega").name("Ortega").build();
+
+    assertEquals(incoming, loaded);
+    Map<?, ?> json = new ObjectMapper().convertValue(loaded, Map.class);
+    assertFalse(json.containsKey("id"));
+    assertFalse(json.containsKey("new"));
+    assertFalse(json.containsKey("isNew"));
+    assertEquals("ortega", json.get("code"));
+  }
+}
@@ -0,0 +1,40 @@
+package edu.ucsb.cs156.example.entities;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+class UCSBOrganizationsTests {
+
+  @Test
+  void test_new_instances_are_new_until_loaded_or_persisted() {
+    UCSBOrganizations entity = UCSBOrganizations.builder().orgCode("SC").orgTranslationShort("SOCCER").build();
+
+    assertTrue(entity.isNew());
+    assertEquals("SC", entity.getId());
+
+    entity.markNotNew();
+    assertFalse(entity.isNew());
+    assertTrue(new UCSBOrganizations().isNew());
+  }
+
+  @Test
+  void test_new_flag_is_not_part_of_json_or_equality() throws Exception {
+    UCSBOrganizations loaded = UCSBOrganizations.builder().orgCode("SC").orgTranslationShort("SOCCER").build();
+    loaded.markNotNew();
+    UCSBOrganizations incoming = UCSBOrganizations.builder().orgCode("SC").orgTranslationShort("SOCCER").build();
+
+    assertEquals(incoming, loaded);
+    Map<?, ?> json = new ObjectMapper().convertValue(loaded, Map.class);
+    assertFalse(json.containsKey("id"));
+    assertFalse(json.containsKey("new"));
+    assertFalse(json.containsKey("isNew"));
+    assertEquals("SC", json.get("orgCode"));
+  }
+}
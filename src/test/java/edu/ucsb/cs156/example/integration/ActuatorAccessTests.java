@@ -0,0 +1,34 @@
+package edu.ucsb.cs156.example.integration;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.security.test.context.support.WithMockUser;
+
+/**
+ * Runs against the real security configuration: the actuator endpoints are
+ * for admins only.
+ */
+public class ActuatorAccessTests extends StatementBudgetTestCase {
+
+  @Test
+  public void logged_out_users_cannot_read_actuator_endpoints() throws Exception {
+    mockMvc.perform(get("/actuator/handlermetrics")).andExpect(status().is(403));
+    mockMvc.perform(get("/actuator/mappings")).andExpect(status().is(403));
+  }
+
+  @WithMockUser(roles = { "USER" })
+  @Test
+  public void regular_users_cannot_read_actuator_endpoints() throws Exception {
+    mockMvc.perform(get("/actuator/handlermetrics")).andExpect(status().is(403));
+    mockMvc.perform(get("/actuator/mappings")).andExpect(status().is(403));
+  }
+
+  @WithMockUser(roles = { "ADMIN", "USER" })
+  @Test
+  public void admins_can_read_actuator_endpoints() throws Exception {
+    mockMvc.perform(get("/actuator/handlermetrics")).andExpect(status().isOk());
+    mockMvc.perform(get("/actuator/mappings")).andExpect(status().isOk());
+  }
+}
@@ -0,0 +1,171 @@
+package edu.ucsb.cs156.example.integration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.csrf;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.patch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.time.LocalDateTime;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.test.context.support.WithMockUser;
+
+import edu.ucsb.cs156.example.entities.Articles;
+import edu.ucsb.cs156.example.repositories.ArticlesRepository;
+
+@WithMockUser(roles = { "ADMIN", "USER" })
+public class ArticlesStatementBudgetTests extends StatementBudgetTestCase {
+
+  @Autowired
+  ArticlesRepository articlesRepository;
+
+  @Autowired
+  JdbcTemplate jdbcTemplate;
+
+  Articles first;
+  Articles second;
+
+  Articles article(int n) {
+    return Articles.builder().title("title %d".formatted(n)).url("https://example.org/%d".formatted(n))
+        .explanation("explanation").email("cgaucho@ucsb.edu")
+        .dateAdded(LocalDateTime.parse("2022-01-03T00:00:00")).build();
+  }
+
+  @BeforeEach
+  void seed() {
+    first = articlesRepository.save(article(1));
+    second = articlesRepository.save(article(2));
+    articlesRepository.save(article(3));
+  }
+
+  @AfterEach
+  void clean() {
+    articlesRepository.deleteAll();
+  }
+
+  @Test
+  public void rows_inserted_outside_the_application_take_ids_from_the_sequence() {
+    jdbcTemplate.update("INSERT INTO ARTICLES (TITLE) VALUES ('inserted by hand')");
+    for (int i = 0; i < 100; i++) {
+      articlesRepository.save(article(i));
+    }
+
+    Set<Long> ids = new HashSet<>(jdbcTemplate.queryForList("SELECT ID FROM ARTICLES", Long.class));
+    assertEquals(104, ids.size());
+  }
+
+  @Test
+  public void pooled_tables_default_their_ids_to_the_sequence() {
+    for (String table : List.of("ARTICLES", "HELPREQUEST", "MENUITEMREVIEWS", "UCSBRECOMMENDATIONREQUEST", "UCSBDATES",
+        "UCSBDININGCOMMONSMENUITEM", "USERS")) {
+      String columnDefault = jdbcTemplate.queryForObject(
+          "SELECT COLUMN_DEFAULT FROM INFORMATION_SCHEMA.COLUMNS"
+              + " WHERE TABLE_SCHEMA = 'PUBLIC' AND TABLE_NAME = ? AND COLUMN_NAME = 'ID'",
+          String.class, table);
+      assertEquals("NEXT VALUE FOR \"PUBLIC\".\"%s_SEQ\"".formatted(table), columnDefault);
+    }
+  }
+
+  @Test
+  public void getById_is_one_select() throws Exception {
+    performWithin(StatementBudget.none().selects(1).rows(1),
+        get("/api/articles?id=%d".formatted(first.getId())))
+        .andExpect(status().isOk());
+  }
+
+  @Test
+  public void getById_of_a_missing_row_is_one_select() throws Exception {
+    performWithin(StatementBudget.none().selects(1),
+        get("/api/articles?id=%d".formatted(first.getId() + 1000)))
+        .andExpect(status().isNotFound());
+  }
+
+  @Test
+  public void all_is_one_select() throws Exception {
+    performWithin(StatementBudget.none().selects(1).rows(3), get("/api/articles/all"))
+        .andExpect(status().isOk());
+  }
+
+  @Test
+  public void page_reads_only_the_page() throws Exception {
+    performWithin(StatementBudget.none().selects(1).rows(2), get("/api/articles/all?limit=2"))
+        .andExpect(status().isOk());
+  }
+
+  @Test
+  public void batch_is_one_select() throws Exception {
+    performWithin(StatementBudget.none().selects(1).rows(2),
+        get("/api/articles/batch?ids=%d,%d".formatted(first.getId(), second.getId())))
+        .andExpect(status().isOk());
+  }
+
+  @Test
+  public void bulk_is_one_batched_insert() throws Exception {
+    // as for a single post, the ids may take a call to the sequence
+    performWithin(StatementBudget.none().selects(1).inserts(1).other(1).rows(1),
+        post("/api/articles/bulk")
+            .contentType(MediaType.APPLICATION_NDJSON)
+            .content(mapper.writeValueAsString(article(4)) + "\n" + mapper.writeValueAsString(article(5)) + "\n")
+            .with(csrf()))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$.created").value(2));
+  }
+
+  @Test
+  public void post_is_one_insert() throws Exception {
+    // ids are allocated 50 at a time, so the sequence is only called now and then;
+    // depending on the dialect that call is a "select next value" or a "call next value"
+    performWithin(StatementBudget.none().selects(1).inserts(1).other(1).rows(1),
+        post("/api/articles/post?title=t&url=u&explanation=e&email=cgaucho@ucsb.edu&dateAdded=2022-01-03T00:00:00")
+            .with(csrf()))
+        .andExpect(status().isOk());
+  }
+
+  @Test
+  public void patch_is_one_update() throws Exception {
+    performWithin(StatementBudget.none().updates(1),
+        patch("/api/articles?id=%d".formatted(first.getId()))
+            .contentType(MediaType.APPLICATION_JSON)
+            .content(mapper.writeValueAsString(Map.of("title", "new title")))
+            .with(csrf()))
+        .andExpect(status().isOk());
+  }
+
+  @Test
+  public void put_reads_then_updates() throws Exception {
+    // findById and save run in separate transactions, so save has to read the row again
+    performWithin(StatementBudget.none().selects(2).updates(1).rows(2),
+        put("/api/articles?id=%d".formatted(first.getId()))
+            .contentType(MediaType.APPLICATION_JSON)
+            .content(mapper.writeValueAsString(article(9)))
+            .with(csrf()))
+        .andExpect(status().isOk());
+  }
+
+  @Test
+  public void delete_reads_then_deletes() throws Exception {
+    performWithin(StatementBudget.none().selects(2).deletes(1).rows(2),
+        delete("/api/articles?id=%d".formatted(first.getId())).with(csrf()))
+        .andExpect(status().isOk());
+  }
+
+  @Test
+  public void going_over_budget_fails() {
+    assertThrows(AssertionError.class, () -> performWithin(StatementBudget.none(), get("/api/articles/all")));
+  }
+}
@@ -0,0 +1,145 @@
+package edu.ucsb.cs156.example.integration;
+
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.csrf;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.patch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.time.LocalDateTime;
+import java.util.Map;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
+import org.springframework.security.test.context.support.WithMockUser;
+
+import edu.ucsb.cs156.example.entities.HelpRequest;
+import edu.ucsb.cs156.example.repositories.HelpRequestRepository;
+
+@WithMockUser(roles = { "ADMIN", "USER" })
+public class HelpRequestStatementBudgetTests extends StatementBudgetTestCase {
+
+  @Autowired
+  HelpRequestRepository helpRequestRepository;
+
+  HelpRequest first;
+  HelpRequest second;
+
+  HelpRequest helpRequest(int n) {
+    return HelpRequest.builder().requesterEmail("cgaucho@ucsb.edu").teamId("s22-5pm-%d".formatted(n))
+        .tableOrBreakoutRoom("%d".formatted(n)).requestTime(LocalDateTime.parse("2022-04-03T00:00:00"))
+        .explanation("explanation").solved(false).build();
+  }
+
+  @BeforeEach
+  void seed() {
+    first = helpRequestRepository.save(helpRequest(1));
+    second = helpRequestRepository.save(helpRequest(2));
+    helpRequestRepository.save(helpRequest(3));
+  }
+
+  @AfterEach
+  void clean() {
+    helpRequestRepository.deleteAll();
+  }
+
+  @Test
+  public void getById_is_one_select() throws Exception {
+    performWithin(StatementBudget.none().selects(1).rows(1),
+        get("/api/helprequest?id=%d".formatted(first.getId())))
+        .andExpect(status().isOk());
+  }
+
+  @Test
+  public void the_queue_is_served_from_memory() throws Exception {
+    performWithin(StatementBudget.none(), get("/api/helprequest/queue"))
+        .andExpect(status().isOk());
+  }
+
+  @Test
+  public void all_is_one_select() throws Exception {
+    performWithin(StatementBudget.none().selects(1).rows(3), get("/api/helprequest/all"))
+        .andExpect(status().isOk());
+  }
+
+  @Test
+  public void page_reads_only_the_page() throws Exception {
+    performWithin(StatementBudget.none().selects(1).rows(2), get("/api/helprequest/all?limit=2"))
+        .andExpect(status().isOk());
+  }
+
+  @Test
+  public void batch_is_one_select() throws Exception {
+    performWithin(StatementBudget.none().selects(1).rows(2),
+        get("/api/helprequest/batch?ids=%d,%d".formatted(first.getId(), second.getId())))
+        .andExpect(status().isOk());
+  }
+
+  @Test
+  public void bulk_is_one_batched_insert() throws Exception {
+    // as for a single post, the ids may take a call to the sequence
+    performWithin(StatementBudget.none().selects(1).inserts(1).other(1).rows(1),
+        post("/api/helprequest/bulk")
+            .contentType(MediaType.APPLICATION_NDJSON)
+            .content(helpRequestJson(4) + "\n" + helpRequestJson(5) + "\n" + helpRequestJson(6) + "\n")
+            .with(csrf()))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$.created").value(3));
+  }
+
+  @Test
+  public void post_is_one_insert() throws Exception {
+    performWithin(StatementBudget.none().selects(1).inserts(1).other(1).rows(1),
+        post("/api/helprequest/post?requesterEmail=cgaucho@ucsb.edu&teamId=s22-5pm-4&tableOrBreakoutRoom=4"
+            + "&requestTime=2022-04-03T00:00:00&explanation=e&solved=false")
+            .with(csrf()))
+        .andExpect(status().isOk());
+  }
+
+  @Test
+  public void patch_is_one_update() throws Exception {
+    performWithin(StatementBudget.none().updates(1),
+        patch("/api/helprequest?id=%d".formatted(first.getId()))
+            .contentType(MediaType.APPLICATION_JSON)
+            .content(mapper.writeValueAsString(Map.of("explanation", "new explanation")))
+            .with(csrf()))
+        .andExpect(status().isOk());
+  }
+
+  @Test
+  public void reopening_patch_reads_the_row_back_for_the_queue() throws Exception {
+    performWithin(StatementBudget.none().selects(1).updates(1).rows(1),
+        patch("/api/helprequest?id=%d".formatted(first.getId()))
+            .contentType(MediaType.APPLICATION_JSON)
+            .content(mapper.writeValueAsString(Map.of("solved", false)))
+            .with(csrf()))
+        .andExpect(status().isOk());
+  }
+
+  @Test
+  public void put_reads_then_updates() throws Exception {
+    performWithin(StatementBudget.none().selects(2).updates(1).rows(2),
+        put("/api/helprequest?id=%d".formatted(first.getId()))
+            .contentType(MediaType.APPLICATION_JSON)
+            .content(helpRequestJson(9))
+            .with(csrf()))
+        .andExpect(status().isOk());
+  }
+
+  @Test
+  public void delete_reads_then_deletes() throws Exception {
+    performWithin(StatementBudget.none().selects(2).deletes(1).rows(2),
+        delete("/api/helprequest?id=%d".formatted(first.getId())).with(csrf()))
+        .andExpect(status().isOk());
+  }
+
+  String helpRequestJson(int n) throws Exception {
+    return mapper.writeValueAsString(helpRequest(n));
+  }
+}
@@ -0,0 +1,181 @@
+package edu.ucsb.cs156.example.integration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.csrf;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.patch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.test.context.support.WithMockUser;
+
+import com.fasterxml.jackson.databind.JsonNode;
+
+import edu.ucsb.cs156.example.entities.MenuItemReview;
+import edu.ucsb.cs156.example.repositories.MenuItemReviewRepository;
+
+@WithMockUser(roles = { "ADMIN", "USER" })
+public class MenuItemReviewStatementBudgetTests extends StatementBudgetTestCase {
+
+  @Autowired
+  MenuItemReviewRepository menuItemReviewRepository;
+
+  @Autowired
+  JdbcTemplate jdbcTemplate;
+
+  MenuItemReview review;
+
+  @BeforeEach
+  void seed() {
+    for (int i = 0; i < 5; i++) {
+      review = menuItemReviewRepository.save(MenuItemReview.builder().itemId(7).reviewerEmail("cgaucho@ucsb.edu")
+          .stars(1 + i).comments("comment %d".formatted(i))
+          .dateReviewed(LocalDateTime.parse("2022-01-03T00:00:00")).build());
+    }
+  }
+
+  @AfterEach
+  void clean() {
+    menuItemReviewRepository.deleteAll();
+  }
+
+  @Test
+  public void getById_is_one_select() throws Exception {
+    performWithin(StatementBudget.none().selects(1).rows(1),
+        get("/api/menuitemreviews?id=%d".formatted(review.getId())))
+        .andExpect(status().isOk());
+  }
+
+  @Test
+  public void all_is_one_select() throws Exception {
+    performWithin(StatementBudget.none().selects(1).rows(5), get("/api/menuitemreviews/all"))
+        .andExpect(status().isOk());
+  }
+
+  @Test
+  public void batch_is_one_select() throws Exception {
+    performWithin(StatementBudget.none().selects(1).rows(1),
+        get("/api/menuitemreviews/batch?ids=%d".formatted(review.getId())))
+        .andExpect(status().isOk());
+  }
+
+  @Test
+  public void bulk_is_one_batched_insert_and_one_stats_row_write() throws Exception {
+    // ids may take a call to the sequence; both reviews are of item 7, whose stats row the seed did not
+    // create, so it is an UPDATE that misses, a MERGE and the UPDATE again
+    performWithin(StatementBudget.none().selects(1).inserts(1).updates(2).other(2).rows(1),
+        post("/api/menuitemreviews/bulk")
+            .contentType(MediaType.APPLICATION_NDJSON)
+            .content("""
+                {"itemId":7,"reviewerEmail":"a@ucsb.edu","stars":4,"comments":"c","dateReviewed":"2022-01-04T00:00:00"}
+                {"itemId":7,"reviewerEmail":"b@ucsb.edu","stars":5,"comments":"c","dateReviewed":"2022-01-05T00:00:00"}
+                """)
+            .with(csrf()))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$.created").value(2));
+  }
+
+  @Test
+  public void patch_is_one_update() throws Exception {
+    performWithin(StatementBudget.none().updates(1),
+        patch("/api/menuitemreviews?id=%d".formatted(review.getId()))
+            .contentType(MediaType.APPLICATION_JSON)
+            .content(mapper.writeValueAsString(Map.of("comments", "edited")))
+            .with(csrf()))
+        .andExpect(status().isOk());
+  }
+
+  @Test
+  public void stats_is_one_select() throws Exception {
+    performWithin(StatementBudget.none().selects(1).rows(1), get("/api/menuitemreviews/stats?itemId=7"))
+        .andExpect(status().isOk());
+  }
+
+  @Test
+  public void delete_is_one_delete_and_one_stats_update() throws Exception {
+    performWithin(StatementBudget.none().selects(1).rows(1).deletes(1).updates(1),
+        delete("/api/menuitemreviews?id=%d".formatted(review.getId())).with(csrf()))
+        .andExpect(status().isOk());
+  }
+
+  @Test
+  public void leaderboard_reads_are_served_from_memory() throws Exception {
+    mockMvc.perform(get("/api/UCSBDiningCommonsMenuItem/leaderboard")).andExpect(status().isOk());
+
+    performWithin(StatementBudget.none(), get("/api/UCSBDiningCommonsMenuItem/leaderboard?limit=5"))
+        .andExpect(status().isOk());
+  }
+
+  @Test
+  public void an_items_page_is_one_select() throws Exception {
+    performWithin(StatementBudget.none().selects(1).rows(2), get("/api/menuitemreviews?itemId=7&limit=2"))
+        .andExpect(status().isOk());
+  }
+
+  @Test
+  public void a_reviewers_page_is_one_select() throws Exception {
+    performWithin(StatementBudget.none().selects(1).rows(2),
+        get("/api/menuitemreviews?reviewerEmail=cgaucho@ucsb.edu&limit=2"))
+        .andExpect(status().isOk());
+  }
+
+  @Test
+  public void an_items_pages_walk_its_reviews_newest_first() throws Exception {
+    List<Long> seeded = new ArrayList<>();
+    menuItemReviewRepository.findAll().forEach(r -> seeded.add(r.getId()));
+    seeded.sort(Comparator.reverseOrder());
+    long newest = save(7, "2022-02-01T00:00:00");
+    long older = save(7, "2021-12-01T00:00:00");
+    long undated = save(7, null);
+    long undatedLater = save(7, null);
+    save(8, "2022-03-01T00:00:00");
+
+    List<Long> walked = new ArrayList<>();
+    String after = null;
+    do {
+      String url = "/api/menuitemreviews?itemId=7&limit=3" + (after == null ? "" : "&after=" + after);
+      String body = performWithin(StatementBudget.none().selects(2).rows(3), get(url))
+          .andExpect(status().isOk()).andReturn().getResponse().getContentAsString();
+      JsonNode page = mapper.readTree(body);
+      page.get("items").forEach(item -> walked.add(item.get("id").asLong()));
+      after = page.get("nextCursor").isNull() ? null : page.get("nextCursor").asText();
+    } while (after != null);
+
+    List<Long> expected = new ArrayList<>();
+    expected.add(newest);
+    expected.addAll(seeded);
+    expected.addAll(List.of(older, undatedLater, undated));
+    assertEquals(expected, walked);
+  }
+
+  @Test
+  public void an_items_page_scans_the_item_date_index() {
+    String plan = jdbcTemplate.queryForObject("""
+        EXPLAIN SELECT * FROM MENUITEMREVIEWS
+        WHERE ITEM_ID = 7 AND DATE_REVIEWED IS NOT NULL
+        ORDER BY DATE_REVIEWED DESC, ID DESC LIMIT 20""", String.class);
+
+    assertTrue(plan.contains("MENUITEMREVIEWS_ITEM_DATE_IDX"), plan);
+  }
+
+  long save(long itemId, String dateReviewed) {
+    return menuItemReviewRepository.save(MenuItemReview.builder().itemId(itemId).reviewerEmail("cgaucho@ucsb.edu")
+        .stars(3).comments("comment")
+        .dateReviewed(dateReviewed == null ? null : LocalDateTime.parse(dateReviewed)).build()).getId();
+  }
+}
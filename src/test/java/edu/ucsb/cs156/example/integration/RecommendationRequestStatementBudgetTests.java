@@ -0,0 +1,130 @@
+package edu.ucsb.cs156.example.integration;
+
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.csrf;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.patch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.time.LocalDateTime;
+import java.util.Map;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
+import org.springframework.security.test.context.support.WithMockUser;
+
+import edu.ucsb.cs156.example.entities.RecommendationRequest;
+import edu.ucsb.cs156.example.repositories.RecommendationRequestRepository;
+
+@WithMockUser(roles = { "ADMIN", "USER" })
+public class RecommendationRequestStatementBudgetTests extends StatementBudgetTestCase {
+
+  @Autowired
+  RecommendationRequestRepository recommendationRequestRepository;
+
+  RecommendationRequest first;
+  RecommendationRequest second;
+
+  RecommendationRequest recommendationRequest(int n) {
+    return RecommendationRequest.builder().requesterEmail("cgaucho@ucsb.edu")
+        .professorEmail("phtcon@ucsb.edu").explanation("request %d".formatted(n))
+        .dateRequested(LocalDateTime.parse("2022-04-03T00:00:00"))
+        .dateNeeded(LocalDateTime.parse("2022-05-03T00:00:00")).done(false).build();
+  }
+
+  @BeforeEach
+  void seed() {
+    first = recommendationRequestRepository.save(recommendationRequest(1));
+    second = recommendationRequestRepository.save(recommendationRequest(2));
+    recommendationRequestRepository.save(recommendationRequest(3));
+  }
+
+  @AfterEach
+  void clean() {
+    recommendationRequestRepository.deleteAll();
+  }
+
+  @Test
+  public void getById_is_one_select() throws Exception {
+    performWithin(StatementBudget.none().selects(1).rows(1),
+        get("/api/RecommendationRequest?id=%d".formatted(first.getId())))
+        .andExpect(status().isOk());
+  }
+
+  @Test
+  public void all_is_one_select() throws Exception {
+    performWithin(StatementBudget.none().selects(1).rows(3), get("/api/RecommendationRequest/all"))
+        .andExpect(status().isOk());
+  }
+
+  @Test
+  public void page_reads_only_the_page() throws Exception {
+    performWithin(StatementBudget.none().selects(1).rows(2), get("/api/RecommendationRequest/all?limit=2"))
+        .andExpect(status().isOk());
+  }
+
+  @Test
+  public void batch_is_one_select() throws Exception {
+    performWithin(StatementBudget.none().selects(1).rows(2),
+        get("/api/RecommendationRequest/batch?ids=%d,%d".formatted(first.getId(), second.getId())))
+        .andExpect(status().isOk());
+  }
+
+  @Test
+  public void bulk_is_one_batched_insert() throws Exception {
+    // as for a single post, the ids may take a call to the sequence
+    performWithin(StatementBudget.none().selects(1).inserts(1).other(1).rows(1),
+        post("/api/RecommendationRequest/bulk")
+            .contentType(MediaType.APPLICATION_NDJSON)
+            .content(recommendationRequestJson(4) + "\n" + recommendationRequestJson(5) + "\n" + recommendationRequestJson(6) + "\n")
+            .with(csrf()))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$.created").value(3));
+  }
+
+  @Test
+  public void post_is_one_insert() throws Exception {
+    performWithin(StatementBudget.none().selects(1).inserts(1).other(1).rows(1),
+        post("/api/RecommendationRequest/post?requesterEmail=cgaucho@ucsb.edu&professorEmail=phtcon@ucsb.edu&explanation=e"
+            + "&dateRequested=2022-04-03T00:00:00&dateNeeded=2022-05-03T00:00:00&done=false")
+            .with(csrf()))
+        .andExpect(status().isOk());
+  }
+
+  @Test
+  public void patch_is_one_update() throws Exception {
+    performWithin(StatementBudget.none().updates(1),
+        patch("/api/RecommendationRequest?id=%d".formatted(first.getId()))
+            .contentType(MediaType.APPLICATION_JSON)
+            .content(mapper.writeValueAsString(Map.of("done", true)))
+            .with(csrf()))
+        .andExpect(status().isOk());
+  }
+
+  @Test
+  public void put_reads_then_updates() throws Exception {
+    performWithin(StatementBudget.none().selects(2).updates(1).rows(2),
+        put("/api/RecommendationRequest?id=%d".formatted(first.getId()))
+            .contentType(MediaType.APPLICATION_JSON)
+            .content(recommendationRequestJson(9))
+            .with(csrf()))
+        .andExpect(status().isOk());
+  }
+
+  @Test
+  public void delete_reads_then_deletes() throws Exception {
+    performWithin(StatementBudget.none().selects(2).deletes(1).rows(2),
+        delete("/api/RecommendationRequest?id=%d".formatted(first.getId())).with(csrf()))
+        .andExpect(status().isOk());
+  }
+
+  String recommendationRequestJson(int n) throws Exception {
+    return mapper.writeValueAsString(recommendationRequest(n));
+  }
+}
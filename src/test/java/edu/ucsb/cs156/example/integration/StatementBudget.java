@@ -0,0 +1,50 @@
+package edu.ucsb.cs156.example.integration;
+
+/**
+ * The most statements of each kind, and the most rows, that a request may
+ * use.  Start from {@link #none()} and raise only what the route needs:
+ *
+ * <pre>
+ * StatementBudget.none().selects(1).rows(1)
+ * </pre>
+ */
+public record StatementBudget(int maxSelects, int maxInserts, int maxUpdates, int maxDeletes, int maxOther,
+    long maxRows) {
+
+  public static StatementBudget none() {
+    return new StatementBudget(0, 0, 0, 0, 0, 0);
+  }
+
+  public StatementBudget selects(int n) {
+    return new StatementBudget(n, maxInserts, maxUpdates, maxDeletes, maxOther, maxRows);
+  }
+
+  public StatementBudget inserts(int n) {
+    return new StatementBudget(maxSelects, n, maxUpdates, maxDeletes, maxOther, maxRows);
+  }
+
+  public StatementBudget updates(int n) {
+    return new StatementBudget(maxSelects, maxInserts, n, maxDeletes, maxOther, maxRows);
+  }
+
+  public StatementBudget deletes(int n) {
+    return new StatementBudget(maxSelects, maxInserts, maxUpdates, n, maxOther, maxRows);
+  }
+
+  public StatementBudget other(int n) {
+    return new StatementBudget(maxSelects, maxInserts, maxUpdates, maxDeletes, n, maxRows);
+  }
+
+  public StatementBudget rows(long n) {
+    return new StatementBudget(maxSelects, maxInserts, maxUpdates, maxDeletes, maxOther, n);
+  }
+
+  public boolean allows(StatementCounts actual) {
+    return actual.selects() <= maxSelects
+        && actual.inserts() <= maxInserts
+        && actual.updates() <= maxUpdates
+        && actual.deletes() <= maxDeletes
+        && actual.other() <= maxOther
+        && actual.rows() <= maxRows;
+  }
+}
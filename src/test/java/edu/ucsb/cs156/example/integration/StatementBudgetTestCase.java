@@ -0,0 +1,62 @@
+package edu.ucsb.cs156.example.integration;
+
+import static org.junit.jupiter.api.Assertions.fail;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.RequestBuilder;
+import org.springframework.test.web.servlet.ResultActions;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Base class for tests that run controllers against an in-memory H2 database
+ * built by the Liquibase changelog, and fail when a request sends more
+ * statements (or reads more rows) than its declared {@link StatementBudget}.
+ *
+ * Unlike the {@code *ControllerTests}, nothing is mocked, so N+1 selects and
+ * extra round trips show up here.
+ */
+@SpringBootTest(properties = {
+    "spring.datasource.url=jdbc:h2:mem:statementbudget;DB_CLOSE_DELAY=-1",
+    "spring.datasource.username=sa",
+    "spring.datasource.password=",
+    "spring.liquibase.url=jdbc:h2:mem:statementbudget;DB_CLOSE_DELAY=-1",
+    "spring.liquibase.user=sa",
+    "spring.liquibase.password=",
+    "spring.liquibase.enabled=true"
+})
+@AutoConfigureMockMvc
+@Import(StatementCounter.class)
+public abstract class StatementBudgetTestCase {
+
+  @Autowired
+  public MockMvc mockMvc;
+
+  @Autowired
+  public ObjectMapper mapper;
+
+  @Autowired
+  public StatementCounter statementCounter;
+
+  /**
+   * Performs the request and fails unless it stayed within {@code budget}.
+   */
+  public ResultActions performWithin(StatementBudget budget, RequestBuilder request) throws Exception {
+    statementCounter.start();
+    ResultActions result;
+    StatementCounts actual;
+    try {
+      result = mockMvc.perform(request);
+    } finally {
+      actual = statementCounter.stop();
+    }
+    if (!budget.allows(actual)) {
+      fail("over statement budget: allowed %s but the request used %s".formatted(budget, actual));
+    }
+    return result;
+  }
+}
@@ -0,0 +1,78 @@
+package edu.ucsb.cs156.example.integration;
+
+import java.sql.ResultSet;
+import java.util.List;
+
+import net.ttddyy.dsproxy.ExecutionInfo;
+import net.ttddyy.dsproxy.QueryInfo;
+import net.ttddyy.dsproxy.listener.MethodExecutionContext;
+import net.ttddyy.dsproxy.listener.MethodExecutionListener;
+import net.ttddyy.dsproxy.listener.QueryExecutionListener;
+import net.ttddyy.dsproxy.listener.QueryUtils;
+
+/**
+ * A datasource-proxy listener that counts the statements and result set rows
+ * of the thread between {@link #start()} and {@link #stop()}.  Work done on
+ * other threads (background writers, schedulers) is not counted.
+ *
+ * Registering it as a bean is enough for {@code DataSourceProxyConfig} to
+ * attach it to the application DataSource.
+ */
+public class StatementCounter implements QueryExecutionListener, MethodExecutionListener {
+  private volatile Thread owner;
+  private int selects;
+  private int inserts;
+  private int updates;
+  private int deletes;
+  private int other;
+  private long rows;
+
+  public void start() {
+    selects = inserts = updates = deletes = other = 0;
+    rows = 0;
+    owner = Thread.currentThread();
+  }
+
+  public StatementCounts stop() {
+    owner = null;
+    return new StatementCounts(selects, inserts, updates, deletes, other, rows);
+  }
+
+  private boolean counting() {
+    return owner == Thread.currentThread();
+  }
+
+  @Override
+  public void beforeQuery(ExecutionInfo execInfo, List<QueryInfo> queryInfoList) {
+  }
+
+  @Override
+  public void afterQuery(ExecutionInfo execInfo, List<QueryInfo> queryInfoList) {
+    if (!counting()) {
+      return;
+    }
+    for (QueryInfo query : queryInfoList) {
+      switch (QueryUtils.getQueryType(query.getQuery())) {
+        case SELECT -> selects++;
+        case INSERT -> inserts++;
+        case UPDATE -> updates++;
+        case DELETE -> deletes++;
+        default -> other++;
+      }
+    }
+  }
+
+  @Override
+  public void beforeMethod(MethodExecutionContext executionContext) {
+  }
+
+  @Override
+  public void afterMethod(MethodExecutionContext executionContext) {
+    if (counting()
+        && executionContext.getTarget() instanceof ResultSet
+        && executionContext.getMethod().getName().equals("next")
+        && Boolean.TRUE.equals(executionContext.getResult())) {
+      rows++;
+    }
+  }
+}
@@ -0,0 +1,13 @@
+package edu.ucsb.cs156.example.integration;
+
+/**
+ * What one request sent to the database: statements by kind (each batched
+ * statement counts once, since it is one round trip) and rows read from
+ * result sets.
+ */
+public record StatementCounts(int selects, int inserts, int updates, int deletes, int other, long rows) {
+
+  public int statements() {
+    return selects + inserts + updates + deletes + other;
+  }
+}
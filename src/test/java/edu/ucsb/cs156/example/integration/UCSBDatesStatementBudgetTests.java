@@ -0,0 +1,142 @@
+package edu.ucsb.cs156.example.integration;
+
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.csrf;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.patch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.time.LocalDateTime;
+import java.util.Map;
+
+import javax.persistence.EntityManagerFactory;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
+import org.springframework.security.test.context.support.WithMockUser;
+
+import edu.ucsb.cs156.example.entities.UCSBDate;
+import edu.ucsb.cs156.example.repositories.UCSBDateRepository;
+
+@WithMockUser(roles = { "ADMIN", "USER" })
+public class UCSBDatesStatementBudgetTests extends StatementBudgetTestCase {
+
+  @Autowired
+  UCSBDateRepository ucsbDateRepository;
+
+  @Autowired
+  EntityManagerFactory entityManagerFactory;
+
+  UCSBDate first;
+  UCSBDate second;
+
+  UCSBDate date(int n) {
+    return UCSBDate.builder().quarterYYYYQ("20222").name("day %d".formatted(n))
+        .localDateTime(LocalDateTime.parse("2022-04-03T00:00:00").plusDays(n)).build();
+  }
+
+  @BeforeEach
+  void seed() {
+    first = ucsbDateRepository.save(date(1));
+    second = ucsbDateRepository.save(date(2));
+    ucsbDateRepository.save(date(3));
+    entityManagerFactory.getCache().evictAll();
+  }
+
+  @AfterEach
+  void clean() {
+    ucsbDateRepository.deleteAll();
+  }
+
+  @Test
+  public void getById_is_one_select() throws Exception {
+    performWithin(StatementBudget.none().selects(1).rows(1),
+        get("/api/ucsbdates?id=%d".formatted(first.getId())))
+        .andExpect(status().isOk());
+  }
+
+  @Test
+  public void a_second_getById_is_served_from_the_cache() throws Exception {
+    mockMvc.perform(get("/api/ucsbdates?id=%d".formatted(first.getId()))).andExpect(status().isOk());
+
+    performWithin(StatementBudget.none(), get("/api/ucsbdates?id=%d".formatted(first.getId())))
+        .andExpect(status().isOk());
+  }
+
+  @Test
+  public void all_is_one_select() throws Exception {
+    performWithin(StatementBudget.none().selects(1).rows(3), get("/api/ucsbdates/all"))
+        .andExpect(status().isOk());
+  }
+
+  @Test
+  public void page_reads_only_the_page() throws Exception {
+    performWithin(StatementBudget.none().selects(1).rows(2), get("/api/ucsbdates/all?limit=2"))
+        .andExpect(status().isOk());
+  }
+
+  @Test
+  public void batch_is_one_select() throws Exception {
+    performWithin(StatementBudget.none().selects(1).rows(2),
+        get("/api/ucsbdates/batch?ids=%d,%d".formatted(first.getId(), second.getId())))
+        .andExpect(status().isOk());
+  }
+
+  @Test
+  public void bulk_is_one_batched_insert() throws Exception {
+    // as for a single post, the ids may take a call to the sequence
+    performWithin(StatementBudget.none().selects(1).inserts(1).other(1).rows(1),
+        post("/api/ucsbdates/bulk")
+            .contentType(MediaType.APPLICATION_NDJSON)
+            .content(dateJson(4) + "\n" + dateJson(5) + "\n" + dateJson(6) + "\n")
+            .with(csrf()))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$.created").value(3));
+  }
+
+  @Test
+  public void post_is_one_insert() throws Exception {
+    performWithin(StatementBudget.none().selects(1).inserts(1).other(1).rows(1),
+        post("/api/ucsbdates/post?quarterYYYYQ=20222&name=noon&localDateTime=2022-04-03T12:00:00")
+            .with(csrf()))
+        .andExpect(status().isOk());
+  }
+
+  @Test
+  public void patch_is_one_update() throws Exception {
+    performWithin(StatementBudget.none().updates(1),
+        patch("/api/ucsbdates?id=%d".formatted(first.getId()))
+            .contentType(MediaType.APPLICATION_JSON)
+            .content(mapper.writeValueAsString(Map.of("name", "new name")))
+            .with(csrf()))
+        .andExpect(status().isOk());
+  }
+
+  @Test
+  public void put_reads_once_then_updates() throws Exception {
+    // save's own read of the row is served from the second-level cache
+    performWithin(StatementBudget.none().selects(1).updates(1).rows(1),
+        put("/api/ucsbdates?id=%d".formatted(first.getId()))
+            .contentType(MediaType.APPLICATION_JSON)
+            .content(dateJson(9))
+            .with(csrf()))
+        .andExpect(status().isOk());
+  }
+
+  @Test
+  public void delete_reads_once_then_deletes() throws Exception {
+    performWithin(StatementBudget.none().selects(1).deletes(1).rows(1),
+        delete("/api/ucsbdates?id=%d".formatted(first.getId())).with(csrf()))
+        .andExpect(status().isOk());
+  }
+
+  String dateJson(int n) throws Exception {
+    return mapper.writeValueAsString(date(n));
+  }
+}
@@ -0,0 +1,163 @@
+package edu.ucsb.cs156.example.integration;
+
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.csrf;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.patch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.util.List;
+import java.util.Map;
+
+import javax.persistence.EntityManagerFactory;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
+import org.springframework.security.test.context.support.WithMockUser;
+
+import edu.ucsb.cs156.example.entities.UCSBDiningCommons;
+import edu.ucsb.cs156.example.repositories.UCSBDiningCommonsRepository;
+
+@WithMockUser(roles = { "ADMIN", "USER" })
+public class UCSBDiningCommonsStatementBudgetTests extends StatementBudgetTestCase {
+
+  @Autowired
+  UCSBDiningCommonsRepository ucsbDiningCommonsRepository;
+
+  @Autowired
+  EntityManagerFactory entityManagerFactory;
+
+  UCSBDiningCommons commons(String code) {
+    return UCSBDiningCommons.builder().code(code).name(code).hasSackMeal(false).hasTakeOutMeal(false)
+        .hasDiningCam(true).latitude(34.4).longitude(-119.8).build();
+  }
+
+  @BeforeEach
+  void seed() {
+    ucsbDiningCommonsRepository.saveAll(List.of(commons("carrillo"), commons("de-la-guerra"), commons("ortega")));
+    entityManagerFactory.getCache().evictAll();
+  }
+
+  @AfterEach
+  void clean() {
+    ucsbDiningCommonsRepository.deleteAll();
+  }
+
+  @Test
+  public void getById_is_one_select() throws Exception {
+    performWithin(StatementBudget.none().selects(1).rows(1), get("/api/ucsbdiningcommons?code=carrillo"))
+        .andExpect(status().isOk());
+  }
+
+  @Test
+  public void a_second_getById_is_served_from_the_cache() throws Exception {
+    mockMvc.perform(get("/api/ucsbdiningcommons?code=carrillo")).andExpect(status().isOk());
+
+    performWithin(StatementBudget.none(), get("/api/ucsbdiningcommons?code=carrillo"))
+        .andExpect(status().isOk());
+  }
+
+  @Test
+  public void all_is_one_select() throws Exception {
+    performWithin(StatementBudget.none().selects(1).rows(3), get("/api/ucsbdiningcommons/all"))
+        .andExpect(status().isOk());
+  }
+
+  @Test
+  public void page_reads_only_the_page() throws Exception {
+    performWithin(StatementBudget.none().selects(1).rows(2), get("/api/ucsbdiningcommons/all?limit=2"))
+        .andExpect(status().isOk());
+  }
+
+  @Test
+  public void batch_is_one_select() throws Exception {
+    performWithin(StatementBudget.none().selects(1).rows(2), get("/api/ucsbdiningcommons/batch?ids=carrillo,ortega"))
+        .andExpect(status().isOk());
+  }
+
+  @Test
+  public void bulk_is_one_batched_insert() throws Exception {
+    performWithin(StatementBudget.none().inserts(1),
+        post("/api/ucsbdiningcommons/bulk")
+            .contentType(MediaType.APPLICATION_NDJSON)
+            .content("""
+                {"code":"portola","name":"Portola"}
+                {"code":"hollister","name":"Hollister"}
+                {"code":"santa-catalina","name":"Santa Catalina"}
+                """)
+            .with(csrf()))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$.created").value(3));
+  }
+
+  @Test
+  public void bulk_with_an_existing_code_retries_the_chunk_row_by_row() throws Exception {
+    // the batch fails, then each row is inserted on its own
+    performWithin(StatementBudget.none().inserts(4),
+        post("/api/ucsbdiningcommons/bulk")
+            .contentType(MediaType.APPLICATION_NDJSON)
+            .content("""
+                {"code":"portola","name":"Portola"}
+                {"code":"ortega","name":"Overwritten"}
+                {"code":"hollister","name":"Hollister"}
+                """)
+            .with(csrf()))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$.created").value(2));
+  }
+
+  @Test
+  public void sync_is_one_batched_merge() throws Exception {
+    performWithin(StatementBudget.none().other(1),
+        post("/api/ucsbdiningcommons/sync")
+            .contentType(MediaType.APPLICATION_JSON)
+            .content(mapper.writeValueAsString(List.of(commons("carrillo"), commons("portola"))))
+            .with(csrf()))
+        .andExpect(status().isOk());
+  }
+
+  @Test
+  public void post_is_one_insert() throws Exception {
+    performWithin(StatementBudget.none().inserts(1),
+        post("/api/ucsbdiningcommons/post?code=portola&name=Portola&hasSackMeal=true&hasTakeOutMeal=true"
+            + "&hasDiningCam=true&latitude=34.4&longitude=-119.8")
+            .with(csrf()))
+        .andExpect(status().isOk());
+  }
+
+  @Test
+  public void patch_is_one_update() throws Exception {
+    performWithin(StatementBudget.none().updates(1),
+        patch("/api/ucsbdiningcommons?code=carrillo")
+            .contentType(MediaType.APPLICATION_JSON)
+            .content(mapper.writeValueAsString(Map.of("name", "Carrillo")))
+            .with(csrf()))
+        .andExpect(status().isOk());
+  }
+
+  @Test
+  public void put_reads_once_then_updates() throws Exception {
+    UCSBDiningCommons carrillo = commons("carrillo");
+    carrillo.setName("Carrillo");
+    // save's own read of the row is served from the second-level cache
+    performWithin(StatementBudget.none().selects(1).updates(1).rows(1),
+        put("/api/ucsbdiningcommons?code=carrillo")
+            .contentType(MediaType.APPLICATION_JSON)
+            .content(mapper.writeValueAsString(carrillo))
+            .with(csrf()))
+        .andExpect(status().isOk());
+  }
+
+  @Test
+  public void delete_reads_once_then_deletes() throws Exception {
+    performWithin(StatementBudget.none().selects(1).deletes(1).rows(1),
+        delete("/api/ucsbdiningcommons?code=carrillo").with(csrf()))
+        .andExpect(status().isOk());
+  }
+}
@@ -0,0 +1,162 @@
+package edu.ucsb.cs156.example.integration;
+
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.csrf;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.patch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.util.List;
+import java.util.Map;
+
+import javax.persistence.EntityManagerFactory;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
+import org.springframework.security.test.context.support.WithMockUser;
+
+import edu.ucsb.cs156.example.entities.UCSBOrganizations;
+import edu.ucsb.cs156.example.repositories.UCSBOrganizationsRepository;
+
+@WithMockUser(roles = { "ADMIN", "USER" })
+public class UCSBOrganizationsStatementBudgetTests extends StatementBudgetTestCase {
+
+  @Autowired
+  UCSBOrganizationsRepository ucsbOrganizationsRepository;
+
+  @Autowired
+  EntityManagerFactory entityManagerFactory;
+
+  UCSBOrganizations organization(String orgCode) {
+    return UCSBOrganizations.builder().orgCode(orgCode).orgTranslationShort(orgCode + " CLUB")
+        .orgTranslation(orgCode + " CLUB AT UCSB").inactive(false).build();
+  }
+
+  @BeforeEach
+  void seed() {
+    ucsbOrganizationsRepository.saveAll(List.of(organization("CC"), organization("KRC"), organization("OSLI")));
+    entityManagerFactory.getCache().evictAll();
+  }
+
+  @AfterEach
+  void clean() {
+    ucsbOrganizationsRepository.deleteAll();
+  }
+
+  @Test
+  public void getById_is_one_select() throws Exception {
+    performWithin(StatementBudget.none().selects(1).rows(1), get("/api/ucsborganizations?orgCode=CC"))
+        .andExpect(status().isOk());
+  }
+
+  @Test
+  public void a_second_getById_is_served_from_the_cache() throws Exception {
+    mockMvc.perform(get("/api/ucsborganizations?orgCode=CC")).andExpect(status().isOk());
+
+    performWithin(StatementBudget.none(), get("/api/ucsborganizations?orgCode=CC"))
+        .andExpect(status().isOk());
+  }
+
+  @Test
+  public void all_is_one_select() throws Exception {
+    performWithin(StatementBudget.none().selects(1).rows(3), get("/api/ucsborganizations/all"))
+        .andExpect(status().isOk());
+  }
+
+  @Test
+  public void page_reads_only_the_page() throws Exception {
+    performWithin(StatementBudget.none().selects(1).rows(2), get("/api/ucsborganizations/all?limit=2"))
+        .andExpect(status().isOk());
+  }
+
+  @Test
+  public void batch_is_one_select() throws Exception {
+    performWithin(StatementBudget.none().selects(1).rows(2), get("/api/ucsborganizations/batch?ids=CC,OSLI"))
+        .andExpect(status().isOk());
+  }
+
+  @Test
+  public void bulk_is_one_batched_insert() throws Exception {
+    performWithin(StatementBudget.none().inserts(1),
+        post("/api/ucsborganizations/bulk")
+            .contentType(MediaType.APPLICATION_NDJSON)
+            .content("""
+                {"orgCode":"ZPR","orgTranslationShort":"ZETA PHI RHO"}
+                {"orgCode":"SKY","orgTranslationShort":"SKYDIVING CLUB"}
+                {"orgCode":"RC","orgTranslationShort":"ROWING CLUB"}
+                """)
+            .with(csrf()))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$.created").value(3));
+  }
+
+  @Test
+  public void bulk_with_an_existing_org_code_retries_the_chunk_row_by_row() throws Exception {
+    // the batch fails, then each row is inserted on its own
+    performWithin(StatementBudget.none().inserts(4),
+        post("/api/ucsborganizations/bulk")
+            .contentType(MediaType.APPLICATION_NDJSON)
+            .content("""
+                {"orgCode":"ZPR","orgTranslationShort":"ZETA PHI RHO"}
+                {"orgCode":"OSLI","orgTranslationShort":"OVERWRITTEN"}
+                {"orgCode":"RC","orgTranslationShort":"ROWING CLUB"}
+                """)
+            .with(csrf()))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$.created").value(2));
+  }
+
+  @Test
+  public void sync_is_one_batched_merge() throws Exception {
+    performWithin(StatementBudget.none().other(1),
+        post("/api/ucsborganizations/sync")
+            .contentType(MediaType.APPLICATION_JSON)
+            .content(mapper.writeValueAsString(List.of(organization("CC"), organization("ZPR"))))
+            .with(csrf()))
+        .andExpect(status().isOk());
+  }
+
+  @Test
+  public void post_is_one_insert() throws Exception {
+    performWithin(StatementBudget.none().inserts(1),
+        post("/api/ucsborganizations/post?orgCode=ZPR&orgTranslationShort=ZPR&orgTranslation=ZPR&inactive=false")
+            .with(csrf()))
+        .andExpect(status().isOk());
+  }
+
+  @Test
+  public void patch_is_one_update() throws Exception {
+    performWithin(StatementBudget.none().updates(1),
+        patch("/api/ucsborganizations?orgCode=CC")
+            .contentType(MediaType.APPLICATION_JSON)
+            .content(mapper.writeValueAsString(Map.of("inactive", true)))
+            .with(csrf()))
+        .andExpect(status().isOk());
+  }
+
+  @Test
+  public void put_reads_once_then_updates() throws Exception {
+    UCSBOrganizations chessClub = organization("CC");
+    chessClub.setInactive(true);
+    // save's own read of the row is served from the second-level cache
+    performWithin(StatementBudget.none().selects(1).updates(1).rows(1),
+        put("/api/ucsborganizations?code=CC")
+            .contentType(MediaType.APPLICATION_JSON)
+            .content(mapper.writeValueAsString(chessClub))
+            .with(csrf()))
+        .andExpect(status().isOk());
+  }
+
+  @Test
+  public void delete_reads_once_then_deletes() throws Exception {
+    performWithin(StatementBudget.none().selects(1).deletes(1).rows(1),
+        delete("/api/ucsborganizations?orgCode=CC").with(csrf()))
+        .andExpect(status().isOk());
+  }
+}
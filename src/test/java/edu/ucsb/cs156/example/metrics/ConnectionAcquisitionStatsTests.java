@@ -0,0 +1,56 @@
+package edu.ucsb.cs156.example.metrics;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+
+import javax.sql.DataSource;
+
+import org.junit.jupiter.api.Test;
+
+class ConnectionAcquisitionStatsTests {
+
+  ConnectionAcquisitionStats stats = new ConnectionAcquisitionStats();
+
+  @Test
+  void test_empty_stats() {
+    assertEquals(0, stats.getCount());
+    assertEquals(0, stats.getAverageMicros());
+    assertEquals(0, stats.getMaxMicros());
+  }
+
+  @Test
+  void test_average_and_max() {
+    stats.record(1_000_000);
+    stats.record(3_000_000);
+
+    assertEquals(2, stats.getCount());
+    assertEquals(2_000, stats.getAverageMicros());
+    assertEquals(3_000, stats.getMaxMicros());
+  }
+
+  @Test
+  void test_wrapped_data_source_times_every_checkout() throws Exception {
+    // arrange
+    DataSource target = mock(DataSource.class);
+    Connection connection = mock(Connection.class);
+    when(target.getConnection()).thenReturn(connection);
+    when(target.getConnection("u", "p")).thenReturn(connection).thenThrow(new SQLException("pool exhausted"));
+    DataSource timed = stats.timing(target);
+
+    // act
+    assertSame(connection, timed.getConnection());
+    assertSame(connection, timed.getConnection("u", "p"));
+    assertThrows(SQLException.class, () -> timed.getConnection("u", "p"));
+
+    // assert
+    assertEquals(3, stats.getCount());
+    assertTrue(stats.getMaxMicros() >= 0);
+  }
+}
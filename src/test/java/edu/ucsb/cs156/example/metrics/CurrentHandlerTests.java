@@ -0,0 +1,22 @@
+package edu.ucsb.cs156.example.metrics;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import org.junit.jupiter.api.Test;
+
+class CurrentHandlerTests {
+
+  @Test
+  void test_nested_handlers_are_restored() {
+    String outer = CurrentHandler.set("ArticlesController.allArticles");
+    String inner = CurrentHandler.set("ArticlesController.getById");
+    assertEquals("ArticlesController.getById", CurrentHandler.get());
+
+    CurrentHandler.restore(inner);
+    assertEquals("ArticlesController.allArticles", CurrentHandler.get());
+
+    CurrentHandler.restore(outer);
+    assertNull(CurrentHandler.get());
+  }
+}
@@ -0,0 +1,41 @@
+package edu.ucsb.cs156.example.metrics;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+class EndpointMetricsRegistryTests {
+
+  EndpointMetricsRegistry registry = new EndpointMetricsRegistry();
+
+  @Test
+  void test_one_metrics_object_per_handler_sorted_by_name() {
+    EndpointMetrics reviews = registry.forHandler("MenuItemReviewController.getById");
+    EndpointMetrics articles = registry.forHandler("ArticlesController.allArticles");
+
+    assertSame(reviews, registry.forHandler("MenuItemReviewController.getById"));
+    assertEquals(List.of(articles, reviews), registry.all());
+  }
+
+  @Test
+  void test_finished_calls_are_classified_by_status() {
+    EndpointMetrics metrics = registry.forHandler("ArticlesController.getById");
+    for (int i = 0; i < 4; i++) {
+      metrics.started();
+    }
+    metrics.finished(200, 1_000);
+    metrics.finished(404, 2_000);
+    metrics.finished(400, 3_000);
+    assertEquals(1, metrics.getInFlight());
+    metrics.finished(500, 4_000);
+
+    assertEquals(2, metrics.getClientErrors());
+    assertEquals(1, metrics.getServerErrors());
+    assertEquals(0, metrics.getInFlight());
+    assertEquals(4, metrics.latency().count());
+    assertEquals(10_000, metrics.latency().sumNanos());
+  }
+}
@@ -0,0 +1,53 @@
+package edu.ucsb.cs156.example.metrics;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import org.junit.jupiter.api.Test;
+
+class HandlerMetricsEndpointTests {
+
+  @Test
+  void test_scrape_writes_prometheus_text() {
+    // arrange
+    HandlerMetricsEndpoint endpoint = new HandlerMetricsEndpoint();
+    endpoint.registry = new EndpointMetricsRegistry();
+    EndpointMetrics metrics = endpoint.registry.forHandler("MenuItemReviewController.getById");
+    metrics.started();
+    metrics.finished(404, 1_500_000);
+    metrics.started();
+
+    // act
+    String text = endpoint.scrape();
+
+    // assert
+    String expected = """
+        # HELP handler_latency_seconds Controller method latency since startup
+        # TYPE handler_latency_seconds summary
+        handler_latency_seconds{handler="MenuItemReviewController.getById",quantile="0.5"} 0.0015
+        handler_latency_seconds{handler="MenuItemReviewController.getById",quantile="0.9"} 0.0015
+        handler_latency_seconds{handler="MenuItemReviewController.getById",quantile="0.99"} 0.0015
+        handler_latency_seconds{handler="MenuItemReviewController.getById",quantile="0.999"} 0.0015
+        handler_latency_seconds_sum{handler="MenuItemReviewController.getById"} 0.0015
+        handler_latency_seconds_count{handler="MenuItemReviewController.getById"} 1
+        # HELP handler_latency_seconds_max Slowest call of the controller method since startup
+        # TYPE handler_latency_seconds_max gauge
+        handler_latency_seconds_max{handler="MenuItemReviewController.getById"} 0.0015
+        # HELP handler_errors_total Calls answered with a 4xx or 5xx status
+        # TYPE handler_errors_total counter
+        handler_errors_total{handler="MenuItemReviewController.getById",class="4xx"} 1
+        handler_errors_total{handler="MenuItemReviewController.getById",class="5xx"} 0
+        # HELP handler_in_flight Calls currently executing
+        # TYPE handler_in_flight gauge
+        handler_in_flight{handler="MenuItemReviewController.getById"} 1
+        """;
+    assertEquals(expected, text);
+  }
+
+  @Test
+  void test_scrape_with_no_calls_has_only_headers() {
+    HandlerMetricsEndpoint endpoint = new HandlerMetricsEndpoint();
+    endpoint.registry = new EndpointMetricsRegistry();
+
+    assertEquals(8, endpoint.scrape().lines().count());
+  }
+}
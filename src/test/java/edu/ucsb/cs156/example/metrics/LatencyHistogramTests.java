@@ -0,0 +1,65 @@
+package edu.ucsb.cs156.example.metrics;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+class LatencyHistogramTests {
+
+  @Test
+  void test_buckets_are_contiguous_and_increasing() {
+    assertEquals(0, LatencyHistogram.bucketOf(0));
+    assertEquals(7, LatencyHistogram.bucketOf(7));
+    assertEquals(8, LatencyHistogram.bucketOf(8));
+    assertEquals(15, LatencyHistogram.bucketOf(15));
+    assertEquals(16, LatencyHistogram.bucketOf(16));
+    assertEquals(16, LatencyHistogram.bucketOf(17));
+    assertEquals(LatencyHistogram.BUCKETS - 1, LatencyHistogram.bucketOf(1L << 45));
+
+    for (int b = 0; b < LatencyHistogram.BUCKETS - 1; b++) {
+      assertEquals(b, LatencyHistogram.bucketOf(LatencyHistogram.lowerBound(b)));
+      assertEquals(b, LatencyHistogram.bucketOf(LatencyHistogram.upperBound(b) - 1));
+      assertTrue(LatencyHistogram.upperBound(b) > LatencyHistogram.lowerBound(b));
+    }
+    assertEquals(Long.MAX_VALUE, LatencyHistogram.upperBound(LatencyHistogram.BUCKETS - 1));
+  }
+
+  @Test
+  void test_quantiles_are_within_a_bucket() {
+    LatencyHistogram histogram = new LatencyHistogram();
+    for (int ms = 1; ms <= 100; ms++) {
+      histogram.record(ms * 1_000_000L);
+    }
+
+    LatencyHistogram.Snapshot snapshot = histogram.snapshot();
+
+    assertEquals(100, snapshot.count());
+    assertEquals(5050 * 1_000_000L, snapshot.sumNanos());
+    assertEquals(100_000_000L, snapshot.maxNanos());
+    long p50 = snapshot.valueAtQuantile(0.5);
+    assertTrue(p50 >= 50_000_000L && p50 < 50_000_000L * 1.125, "p50 was " + p50);
+    long p99 = snapshot.valueAtQuantile(0.99);
+    assertTrue(p99 >= 99_000_000L && p99 <= 100_000_000L, "p99 was " + p99);
+    assertEquals(100_000_000L, snapshot.valueAtQuantile(1.0));
+  }
+
+  @Test
+  void test_empty_histogram_reports_zero() {
+    assertEquals(0, new LatencyHistogram().snapshot().valueAtQuantile(0.99));
+  }
+
+  @Test
+  void test_negative_and_huge_values_are_clamped() {
+    LatencyHistogram histogram = new LatencyHistogram();
+    histogram.record(-5);
+    histogram.record(1L << 60);
+
+    LatencyHistogram.Snapshot snapshot = histogram.snapshot();
+
+    assertEquals(999, snapshot.valueAtQuantile(0.5));
+    assertEquals(1L << 60, snapshot.valueAtQuantile(1.0));
+    assertEquals(1, snapshot.counts()[0]);
+    assertEquals(1, snapshot.counts()[LatencyHistogram.BUCKETS - 1]);
+  }
+}
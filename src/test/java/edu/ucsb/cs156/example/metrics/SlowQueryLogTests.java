@@ -0,0 +1,80 @@
+package edu.ucsb.cs156.example.metrics;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import edu.ucsb.cs156.example.models.SlowQuery;
+import net.ttddyy.dsproxy.ExecutionInfo;
+import net.ttddyy.dsproxy.QueryInfo;
+import net.ttddyy.dsproxy.proxy.ParameterSetOperation;
+
+class SlowQueryLogTests {
+
+  static final Instant NOW = Instant.parse("2022-04-20T17:35:00Z");
+
+  SlowQueryLog slowQueryLog = new SlowQueryLog(50, 2, Clock.fixed(NOW, ZoneOffset.UTC));
+
+  @AfterEach
+  void clearHandler() {
+    CurrentHandler.restore(null);
+  }
+
+  ExecutionInfo took(long millis) {
+    ExecutionInfo info = new ExecutionInfo();
+    info.setElapsedTime(millis);
+    return info;
+  }
+
+  QueryInfo query(String sql, int binds) {
+    QueryInfo info = new QueryInfo(sql);
+    List<ParameterSetOperation> parameters = new ArrayList<>();
+    for (int i = 0; i < binds; i++) {
+      parameters.add(new ParameterSetOperation());
+    }
+    info.getParametersList().add(parameters);
+    return info;
+  }
+
+  @Test
+  void test_fast_queries_are_ignored() {
+    slowQueryLog.beforeQuery(took(0), List.of(query("select 1", 0)));
+    slowQueryLog.afterQuery(took(49), List.of(query("select 1", 0)));
+
+    assertEquals(List.of(), slowQueryLog.recent());
+    assertEquals(50, slowQueryLog.getThresholdMillis());
+  }
+
+  @Test
+  void test_slow_query_is_recorded_with_its_handler() {
+    CurrentHandler.set("MenuItemReviewController.getById");
+
+    slowQueryLog.afterQuery(took(75), List.of(query("select * from menuitemreview where id=?", 1),
+        query("select 2", 2)));
+
+    assertEquals(List.of(SlowQuery.builder().sql("select * from menuitemreview where id=?; select 2")
+        .bindCount(3).durationMillis(75).handler("MenuItemReviewController.getById").executedAt(NOW).build()),
+        slowQueryLog.recent());
+  }
+
+  @Test
+  void test_log_keeps_only_the_newest_entries() {
+    for (int i = 1; i <= 3; i++) {
+      slowQueryLog.afterQuery(took(100 * i), List.of(query("q" + i, 0)));
+    }
+
+    assertEquals(List.of("q3", "q2"), slowQueryLog.recent().stream().map(SlowQuery::getSql).toList());
+  }
+
+  @Test
+  void test_default_clock() {
+    assertEquals(100, new SlowQueryLog(100, 10).getThresholdMillis());
+  }
+}
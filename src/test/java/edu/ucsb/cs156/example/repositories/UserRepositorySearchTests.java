@@ -0,0 +1,63 @@
+package edu.ucsb.cs156.example.repositories;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.List;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+
+import edu.ucsb.cs156.example.entities.User;
+
+/**
+ * Runs the user search queries against the USERS table created by the
+ * Liquibase changelog in an in-memory H2 database.
+ */
+@SpringBootTest(properties = {
+    "spring.datasource.url=jdbc:h2:mem:usersearch;DB_CLOSE_DELAY=-1",
+    "spring.datasource.username=sa",
+    "spring.datasource.password=",
+    "spring.liquibase.url=jdbc:h2:mem:usersearch;DB_CLOSE_DELAY=-1",
+    "spring.liquibase.user=sa",
+    "spring.liquibase.password=",
+    "spring.liquibase.enabled=true"
+})
+class UserRepositorySearchTests {
+
+  @Autowired
+  UserRepository userRepository;
+
+  @BeforeEach
+  void seed() {
+    userRepository.save(User.builder().email("CGaucho@ucsb.edu").fullName("Chris Gaucho").build());
+    userRepository.save(User.builder().email("ldelplaya@ucsb.edu").fullName("Laurie Del Playa").build());
+  }
+
+  @AfterEach
+  void clean() {
+    userRepository.deleteAll();
+  }
+
+  static List<String> emails(List<User> users) {
+    return users.stream().map(User::getEmail).toList();
+  }
+
+  @Test
+  void test_search_matches_the_email_whatever_its_case() {
+    assertEquals(List.of("CGaucho@ucsb.edu"), emails(userRepository.searchByIdGreaterThan(0, "cgau%",
+        PageRequest.of(0, 10, Sort.by("id")))));
+    assertEquals(List.of("CGaucho@ucsb.edu"), emails(userRepository.searchByEmailGreaterThan("", "cgau%",
+        PageRequest.of(0, 10, Sort.by("email")))));
+  }
+
+  @Test
+  void test_search_matches_the_full_name_whatever_its_case() {
+    assertEquals(List.of("ldelplaya@ucsb.edu"), emails(userRepository.searchByIdGreaterThan(0, "laurie%",
+        PageRequest.of(0, 10, Sort.by("id")))));
+  }
+}
@@ -0,0 +1,84 @@
+package edu.ucsb.cs156.example.security;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Instant;
+import java.util.Set;
+
+import javax.servlet.http.Cookie;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.oauth2.core.endpoint.OAuth2AuthorizationRequest;
+import org.springframework.util.SerializationUtils;
+
+class CookieOAuth2AuthorizationRequestRepositoryTests {
+
+  SessionTokenService tokens = SessionTokenServiceTests.service("secret", Instant.now());
+  CookieOAuth2AuthorizationRequestRepository repository = new CookieOAuth2AuthorizationRequestRepository(tokens);
+
+  static OAuth2AuthorizationRequest authorizationRequest() {
+    return OAuth2AuthorizationRequest.authorizationCode()
+        .authorizationUri("https://accounts.google.com/o/oauth2/v2/auth")
+        .clientId("client-id")
+        .redirectUri("http://localhost:8080/login/oauth2/code/google")
+        .scopes(Set.of("email", "profile"))
+        .state("the-state")
+        .build();
+  }
+
+  static String cookieValue(MockHttpServletResponse response) {
+    String header = response.getHeader(HttpHeaders.SET_COOKIE);
+    return header.substring(header.indexOf('=') + 1, header.indexOf(';'));
+  }
+
+  static MockHttpServletRequest callback(String value) {
+    MockHttpServletRequest request = new MockHttpServletRequest("GET", "/login/oauth2/code/google");
+    request.setCookies(new Cookie(CookieOAuth2AuthorizationRequestRepository.COOKIE_NAME, value));
+    return request;
+  }
+
+  @Test
+  void test_saved_request_survives_the_round_trip() {
+    MockHttpServletResponse response = new MockHttpServletResponse();
+    repository.saveAuthorizationRequest(authorizationRequest(), new MockHttpServletRequest(), response);
+
+    assertTrue(response.getHeader(HttpHeaders.SET_COOKIE).contains("Max-Age=180"));
+    OAuth2AuthorizationRequest loaded = repository.loadAuthorizationRequest(callback(cookieValue(response)));
+    assertEquals("the-state", loaded.getState());
+    assertEquals("client-id", loaded.getClientId());
+  }
+
+  @Test
+  void test_remove_returns_the_request_and_clears_the_cookie() {
+    MockHttpServletResponse saved = new MockHttpServletResponse();
+    repository.saveAuthorizationRequest(authorizationRequest(), new MockHttpServletRequest(), saved);
+    MockHttpServletRequest request = callback(cookieValue(saved));
+    MockHttpServletResponse response = new MockHttpServletResponse();
+
+    assertEquals("the-state", repository.removeAuthorizationRequest(request, response).getState());
+    assertTrue(response.getHeader(HttpHeaders.SET_COOKIE).contains("Max-Age=0"));
+    assertEquals("the-state", repository.removeAuthorizationRequest(request).getState());
+  }
+
+  @Test
+  void test_saving_null_clears_the_cookie() {
+    MockHttpServletResponse response = new MockHttpServletResponse();
+    repository.saveAuthorizationRequest(null, new MockHttpServletRequest(), response);
+
+    assertEquals("", cookieValue(response));
+    assertTrue(response.getHeader(HttpHeaders.SET_COOKIE).contains("Max-Age=0"));
+  }
+
+  @Test
+  void test_missing_forged_or_foreign_cookies_are_ignored() {
+    assertNull(repository.loadAuthorizationRequest(new MockHttpServletRequest()));
+    assertNull(repository.loadAuthorizationRequest(callback("forged.value")));
+    assertNull(repository.loadAuthorizationRequest(callback(
+        tokens.seal(CookieOAuth2AuthorizationRequestRepository.PURPOSE, SerializationUtils.serialize("a string")))));
+  }
+}
@@ -0,0 +1,70 @@
+package edu.ucsb.cs156.example.security;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import java.time.Instant;
+
+import javax.servlet.http.Cookie;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.authentication.TestingAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.oauth2.core.user.OAuth2User;
+
+class SessionTokenAuthenticationFilterTests {
+
+  SessionTokenService tokens = SessionTokenServiceTests.service("secret", Instant.now());
+  SessionTokenAuthenticationFilter filter = new SessionTokenAuthenticationFilter(tokens);
+
+  @AfterEach
+  void clear() {
+    SecurityContextHolder.clearContext();
+  }
+
+  MockFilterChain run(Cookie... cookies) throws Exception {
+    MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/currentUser");
+    if (cookies.length > 0) {
+      request.setCookies(cookies);
+    }
+    MockFilterChain chain = new MockFilterChain();
+    filter.doFilter(request, new MockHttpServletResponse(), chain);
+    return chain;
+  }
+
+  @Test
+  void test_valid_cookie_authenticates_the_request() throws Exception {
+    MockFilterChain chain = run(new Cookie(SessionTokenService.COOKIE_NAME,
+        tokens.issue(SessionTokenServiceTests.login())));
+
+    Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+    assertNotNull(chain.getRequest());
+    assertEquals("cgaucho@ucsb.edu", ((OAuth2User) authentication.getPrincipal()).getAttribute("email"));
+  }
+
+  @Test
+  void test_missing_or_invalid_cookie_leaves_the_request_anonymous() throws Exception {
+    assertNotNull(run().getRequest());
+    assertNull(SecurityContextHolder.getContext().getAuthentication());
+
+    assertNotNull(run(new Cookie(SessionTokenService.COOKIE_NAME, "forged.token")).getRequest());
+    assertNull(SecurityContextHolder.getContext().getAuthentication());
+  }
+
+  @Test
+  void test_existing_authentication_is_kept() throws Exception {
+    Authentication existing = new TestingAuthenticationToken("user", "password", "ROLE_USER");
+    SecurityContextHolder.getContext().setAuthentication(existing);
+
+    run(new Cookie(SessionTokenService.COOKIE_NAME, tokens.issue(SessionTokenServiceTests.login())));
+
+    assertSame(existing, SecurityContextHolder.getContext().getAuthentication());
+  }
+}
@@ -0,0 +1,139 @@
+package edu.ucsb.cs156.example.security;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.http.ResponseCookie;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.AuthorityUtils;
+import org.springframework.security.oauth2.client.authentication.OAuth2AuthenticationToken;
+import org.springframework.security.oauth2.core.user.DefaultOAuth2User;
+import org.springframework.security.oauth2.core.user.OAuth2User;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+class SessionTokenServiceTests {
+
+  static final Instant NOW = Instant.parse("2022-04-01T12:00:00Z");
+
+  static SessionTokenService service(String secret, Instant now) {
+    SessionTokenService service = new SessionTokenService(secret, 3600, Clock.fixed(now, ZoneOffset.UTC),
+        SessionTokenService.ALGORITHM);
+    service.mapper = new ObjectMapper();
+    return service;
+  }
+
+  static OAuth2AuthenticationToken login() {
+    List<GrantedAuthority> authorities = AuthorityUtils.createAuthorityList("ROLE_USER", "SCOPE_email",
+        "ROLE_ADMIN");
+    Map<String, Object> attributes = Map.of(
+        "sub", "115856948234298493496",
+        "email", "cgaucho@ucsb.edu",
+        "name", "Chris Gaucho",
+        "email_verified", true,
+        "at_hash", "not carried over");
+    return new OAuth2AuthenticationToken(new DefaultOAuth2User(authorities, attributes, "sub"), authorities,
+        "google");
+  }
+
+  SessionTokenService tokens = service("a-secret-shared-by-every-instance", NOW);
+
+  @Test
+  void test_round_trip_keeps_identity_and_roles() throws Exception {
+    OAuth2AuthenticationToken parsed = tokens.parse(tokens.issue(login())).get();
+
+    OAuth2User user = parsed.getPrincipal();
+    assertEquals("115856948234298493496", user.getName());
+    assertEquals("cgaucho@ucsb.edu", user.getAttribute("email"));
+    assertEquals(Boolean.TRUE, user.getAttribute("email_verified"));
+    assertNull(user.getAttribute("at_hash"));
+    assertEquals(Set.of("ROLE_ADMIN", "ROLE_USER"), AuthorityUtils.authorityListToSet(parsed.getAuthorities()));
+    assertEquals("google", parsed.getAuthorizedClientRegistrationId());
+    assertTrue(parsed.isAuthenticated());
+  }
+
+  @Test
+  void test_other_instances_with_the_same_secret_accept_the_token() throws Exception {
+    String token = tokens.issue(login());
+
+    assertTrue(service("a-secret-shared-by-every-instance", NOW).parse(token).isPresent());
+    assertFalse(service("some-other-secret", NOW).parse(token).isPresent());
+  }
+
+  @Test
+  void test_expired_token_is_rejected() throws Exception {
+    String token = tokens.issue(login());
+
+    assertTrue(service("a-secret-shared-by-every-instance", NOW.plusSeconds(3599)).parse(token).isPresent());
+    assertFalse(service("a-secret-shared-by-every-instance", NOW.plusSeconds(3600)).parse(token).isPresent());
+  }
+
+  @Test
+  void test_tampered_and_malformed_tokens_are_rejected() throws Exception {
+    String token = tokens.issue(login());
+    String payload = token.substring(0, token.indexOf('.'));
+    String signature = token.substring(token.indexOf('.') + 1);
+
+    assertFalse(tokens.parse(payload + "x." + signature).isPresent());
+    assertFalse(tokens.parse(payload).isPresent());
+    assertFalse(tokens.parse(payload + ".not*base64").isPresent());
+    assertFalse(tokens.parse(tokens.seal(SessionTokenService.SESSION_PURPOSE,
+        "not json".getBytes(StandardCharsets.UTF_8))).isPresent());
+  }
+
+  @Test
+  void test_purpose_is_part_of_the_signature() {
+    byte[] payload = "payload".getBytes(StandardCharsets.UTF_8);
+    String sealed = tokens.seal("one", payload);
+
+    assertArrayEquals(payload, tokens.unseal("one", sealed).get());
+    assertFalse(tokens.unseal("two", sealed).isPresent());
+    assertFalse(tokens.parse(tokens.seal("one", payload)).isPresent());
+  }
+
+  @Test
+  void test_blank_secret_uses_a_random_key() {
+    SessionTokenService first = new SessionTokenService(" ", 60);
+    SessionTokenService second = new SessionTokenService("", 60);
+    byte[] payload = "payload".getBytes(StandardCharsets.UTF_8);
+
+    assertFalse(first.hasConfiguredSecret());
+    assertTrue(tokens.hasConfiguredSecret());
+    assertTrue(first.unseal("p", first.seal("p", payload)).isPresent());
+    assertFalse(second.unseal("p", first.seal("p", payload)).isPresent());
+    assertEquals(Duration.ofSeconds(60), first.getTtl());
+  }
+
+  @Test
+  void test_unknown_algorithm() {
+    SessionTokenService broken = new SessionTokenService("secret", 60, Clock.systemUTC(), "HmacNope");
+
+    assertThrows(IllegalStateException.class, () -> broken.seal("p", new byte[0]));
+  }
+
+  @Test
+  void test_cookie_attributes() {
+    ResponseCookie cookie = SessionTokenService.cookie("NAME", "value", Duration.ofMinutes(1), true);
+
+    assertEquals("value", cookie.getValue());
+    assertEquals("/", cookie.getPath());
+    assertEquals(Duration.ofMinutes(1), cookie.getMaxAge());
+    assertTrue(cookie.isHttpOnly());
+    assertTrue(cookie.isSecure());
+    assertEquals("Lax", cookie.getSameSite());
+  }
+}
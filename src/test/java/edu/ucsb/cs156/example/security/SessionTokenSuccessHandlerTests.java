@@ -0,0 +1,48 @@
+package edu.ucsb.cs156.example.security;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Instant;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.authentication.TestingAuthenticationToken;
+
+class SessionTokenSuccessHandlerTests {
+
+  SessionTokenService tokens = SessionTokenServiceTests.service("secret", Instant.now());
+  SessionTokenSuccessHandler handler = new SessionTokenSuccessHandler(tokens);
+
+  @Test
+  void test_oauth2_login_sets_the_session_cookie() throws Exception {
+    MockHttpServletRequest request = new MockHttpServletRequest("GET", "/login/oauth2/code/google");
+    request.setSecure(true);
+    MockHttpServletResponse response = new MockHttpServletResponse();
+
+    handler.onAuthenticationSuccess(request, response, SessionTokenServiceTests.login());
+
+    String header = response.getHeader(HttpHeaders.SET_COOKIE);
+    assertTrue(header.startsWith(SessionTokenService.COOKIE_NAME + "="));
+    assertTrue(header.contains("Max-Age=3600"));
+    assertTrue(header.contains("Secure"));
+    assertTrue(header.contains("HttpOnly"));
+    String value = header.substring(header.indexOf('=') + 1, header.indexOf(';'));
+    assertTrue(tokens.parse(value).isPresent());
+    assertEquals("/", response.getRedirectedUrl());
+  }
+
+  @Test
+  void test_other_authentications_get_no_cookie() throws Exception {
+    MockHttpServletResponse response = new MockHttpServletResponse();
+
+    handler.onAuthenticationSuccess(new MockHttpServletRequest(), response,
+        new TestingAuthenticationToken("user", "password"));
+
+    assertNull(response.getHeader(HttpHeaders.SET_COOKIE));
+    assertEquals("/", response.getRedirectedUrl());
+  }
+}
@@ -0,0 +1,74 @@
+package edu.ucsb.cs156.example.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import edu.ucsb.cs156.example.entities.User;
+import edu.ucsb.cs156.example.repositories.UserRepository;
+
+class AdminAuthorityResolverTests {
+
+  UserRepository userRepository = mock(UserRepository.class);
+
+  AdminAuthorityResolver resolver = new AdminAuthorityResolver(List.of("PHTCON@ucsb.edu", " "),
+      List.of("ucsb.edu"), 60, 100);
+
+  @BeforeEach
+  void setup() {
+    resolver.userRepository = userRepository;
+    when(userRepository.findByEmail(anyString())).thenReturn(Optional.empty());
+  }
+
+  @Test
+  void test_configured_admin_needs_no_lookup() {
+    assertEquals(Set.of(AdminAuthorityResolver.ADMIN, AdminAuthorityResolver.MEMBER),
+        resolver.authoritiesFor("phtcon@ucsb.edu"));
+    verify(userRepository, never()).findByEmail(anyString());
+  }
+
+  @Test
+  void test_database_admin_outside_the_domain() {
+    when(userRepository.findByEmail("boss@example.org"))
+        .thenReturn(Optional.of(User.builder().email("boss@example.org").admin(true).build()));
+
+    assertEquals(Set.of(AdminAuthorityResolver.ADMIN), resolver.authoritiesFor("boss@example.org"));
+  }
+
+  @Test
+  void test_member_and_nobody() {
+    assertEquals(Set.of(AdminAuthorityResolver.MEMBER), resolver.authoritiesFor("cgaucho@UCSB.edu"));
+    assertEquals(Set.of(), resolver.authoritiesFor("someone@example.org"));
+    assertEquals(Set.of(), resolver.authoritiesFor(null));
+    assertFalse(resolver.isMember("no-at-sign"));
+  }
+
+  @Test
+  void test_admin_flag_is_cached_until_invalidated() {
+    User user = User.builder().email("cgaucho@ucsb.edu").admin(false).build();
+    when(userRepository.findByEmail("cgaucho@ucsb.edu")).thenReturn(Optional.of(user));
+
+    assertFalse(resolver.isAdmin("cgaucho@ucsb.edu"));
+    user.setAdmin(true);
+    assertFalse(resolver.isAdmin("cgaucho@ucsb.edu"));
+    verify(userRepository, times(1)).findByEmail("cgaucho@ucsb.edu");
+
+    resolver.invalidate("cgaucho@ucsb.edu");
+
+    assertTrue(resolver.isAdmin("cgaucho@ucsb.edu"));
+    verify(userRepository, times(2)).findByEmail("cgaucho@ucsb.edu");
+  }
+}
@@ -0,0 +1,135 @@
+package edu.ucsb.cs156.example.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import javax.persistence.EntityManagerFactory;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import edu.ucsb.cs156.example.entities.Articles;
+import edu.ucsb.cs156.example.entities.UCSBDiningCommons;
+import edu.ucsb.cs156.example.entities.UCSBOrganizations;
+import edu.ucsb.cs156.example.models.BulkInsertResult;
+import edu.ucsb.cs156.example.models.BulkRowResult;
+import edu.ucsb.cs156.example.repositories.ArticlesRepository;
+import edu.ucsb.cs156.example.repositories.UCSBDiningCommonsRepository;
+import edu.ucsb.cs156.example.repositories.UCSBOrganizationsRepository;
+
+/**
+ * Runs bulk inserts against the tables created by the Liquibase changelog in
+ * an in-memory H2 database, so that a chunk really fails inside a JDBC batch
+ * and is retried row by row.
+ */
+@SpringBootTest(properties = {
+    "spring.datasource.url=jdbc:h2:mem:bulkinsert;DB_CLOSE_DELAY=-1",
+    "spring.datasource.username=sa",
+    "spring.datasource.password=",
+    "spring.liquibase.url=jdbc:h2:mem:bulkinsert;DB_CLOSE_DELAY=-1",
+    "spring.liquibase.user=sa",
+    "spring.liquibase.password=",
+    "spring.liquibase.enabled=true"
+})
+class BulkInsertServiceDatabaseTests {
+
+  @Autowired
+  BulkInsertService bulkInsertService;
+
+  @Autowired
+  UCSBDiningCommonsRepository ucsbDiningCommonsRepository;
+
+  @Autowired
+  UCSBOrganizationsRepository ucsbOrganizationsRepository;
+
+  @Autowired
+  ArticlesRepository articlesRepository;
+
+  @Autowired
+  EntityManagerFactory entityManagerFactory;
+
+  @AfterEach
+  void clean() {
+    ucsbDiningCommonsRepository.deleteAll();
+    ucsbOrganizationsRepository.deleteAll();
+    articlesRepository.deleteAll();
+  }
+
+  InputStream body(String s) {
+    return new ByteArrayInputStream(s.getBytes(StandardCharsets.UTF_8));
+  }
+
+  @Test
+  void test_existing_dining_commons_is_reported_and_not_overwritten() throws Exception {
+    // arrange
+    ucsbDiningCommonsRepository.save(UCSBDiningCommons.builder().code("carrillo").name("Carrillo").build());
+    // as on an instance that has not cached the row
+    entityManagerFactory.getCache().evictAll();
+    String ndjson = """
+        {"code":"ortega","name":"Ortega","hasSackMeal":true}
+        {"code":"carrillo","name":"Overwritten","hasSackMeal":true}
+        """;
+
+    // act
+    BulkInsertResult result = bulkInsertService.insert(body(ndjson), UCSBDiningCommons.class,
+        ucsbDiningCommonsRepository, UCSBDiningCommons::getCode);
+
+    // assert
+    assertEquals(new BulkInsertResult(1, 1, List.of(BulkRowResult.created(0, "ortega"),
+        BulkRowResult.error(1, BulkInsertService.CONFLICT_MESSAGE))), result);
+    UCSBDiningCommons carrillo = ucsbDiningCommonsRepository.findById("carrillo").get();
+    assertEquals("Carrillo", carrillo.getName());
+    assertFalse(carrillo.getHasSackMeal());
+    assertEquals("Ortega", ucsbDiningCommonsRepository.findById("ortega").get().getName());
+  }
+
+  @Test
+  void test_existing_organization_is_reported_and_not_overwritten() throws Exception {
+    // arrange
+    ucsbOrganizationsRepository.save(UCSBOrganizations.builder().orgCode("CC").orgTranslationShort("CHESS CLUB")
+        .build());
+    String ndjson = """
+        {"orgCode":"CC","orgTranslationShort":"OVERWRITTEN"}
+        {"orgCode":"RC","orgTranslationShort":"ROWING CLUB"}
+        """;
+
+    // act
+    BulkInsertResult result = bulkInsertService.insert(body(ndjson), UCSBOrganizations.class,
+        ucsbOrganizationsRepository, UCSBOrganizations::getOrgCode);
+
+    // assert
+    assertEquals(new BulkInsertResult(1, 1, List.of(BulkRowResult.error(0, BulkInsertService.CONFLICT_MESSAGE),
+        BulkRowResult.created(1, "RC"))), result);
+    assertEquals("CHESS CLUB", ucsbOrganizationsRepository.findById("CC").get().getOrgTranslationShort());
+    assertEquals(2, ucsbOrganizationsRepository.count());
+  }
+
+  @Test
+  void test_rows_of_a_failed_chunk_are_inserted_as_new_rows() throws Exception {
+    // arrange
+    String ndjson = """
+        {"title":"first","url":"u","explanation":"e","email":"a@ucsb.edu"}
+        {"title":"%s","url":"u","explanation":"e","email":"a@ucsb.edu"}
+        {"title":"third","url":"u","explanation":"e","email":"a@ucsb.edu"}
+        """.formatted("x".repeat(300));
+
+    // act
+    BulkInsertResult result = bulkInsertService.insert(body(ndjson), Articles.class, articlesRepository,
+        Articles::getId);
+
+    // assert
+    assertEquals(2, result.getCreated());
+    assertEquals(List.of(BulkRowResult.CREATED, BulkRowResult.ERROR, BulkRowResult.CREATED),
+        result.getRows().stream().map(BulkRowResult::getStatus).toList());
+    assertEquals("first", articlesRepository.findById((Long) result.getRows().get(0).getId()).get().getTitle());
+    assertEquals("third", articlesRepository.findById((Long) result.getRows().get(2).getId()).get().getTitle());
+    assertEquals(2, articlesRepository.count());
+  }
+}
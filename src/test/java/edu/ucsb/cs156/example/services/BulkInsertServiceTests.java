@@ -0,0 +1,290 @@
+package edu.ucsb.cs156.example.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import javax.persistence.EntityManager;
+import javax.validation.constraints.Min;
+import javax.validation.constraints.NotBlank;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.jackson.JacksonAutoConfiguration;
+import org.springframework.boot.autoconfigure.validation.ValidationAutoConfiguration;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.repository.CrudRepository;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import edu.ucsb.cs156.example.entities.Articles;
+import edu.ucsb.cs156.example.models.BulkInsertResult;
+import edu.ucsb.cs156.example.models.BulkRowResult;
+import edu.ucsb.cs156.example.repositories.ArticlesRepository;
+import lombok.Data;
+
+@ExtendWith(SpringExtension.class)
+@Import({ BulkInsertService.class, JacksonAutoConfiguration.class, ValidationAutoConfiguration.class })
+@ContextConfiguration
+class BulkInsertServiceTests {
+
+  @MockBean
+  PlatformTransactionManager transactionManager;
+
+  @MockBean
+  ArticlesRepository articlesRepository;
+
+  @MockBean
+  EntityManager entityManager;
+
+  @Autowired
+  BulkInsertService bulkInsertService;
+
+  static final String ROW = "{\"title\":\"t%d\",\"url\":\"u\",\"explanation\":\"e\",\"email\":\"a@ucsb.edu\",\"dateAdded\":\"2022-01-03T00:00:00\"}";
+
+  Articles article(int n, long id) {
+    return Articles.builder().id(id).title("t%d".formatted(n)).url("u").explanation("e").email("a@ucsb.edu")
+        .dateAdded(LocalDateTime.parse("2022-01-03T00:00:00")).build();
+  }
+
+  InputStream body(String s) {
+    return new ByteArrayInputStream(s.getBytes(StandardCharsets.UTF_8));
+  }
+
+  BulkInsertResult insert(String s) throws Exception {
+    return bulkInsertService.insert(body(s), Articles.class, articlesRepository, Articles::getId);
+  }
+
+  void assignIdsOnSave() {
+    when(articlesRepository.saveAll(anyList())).thenAnswer(invocation -> {
+      List<Articles> rows = invocation.getArgument(0);
+      rows.forEach(a -> a.setId(100 + Integer.parseInt(a.getTitle().substring(1))));
+      return rows;
+    });
+  }
+
+  @Test
+  void test_json_array_is_inserted_and_client_ids_are_ignored() throws Exception {
+    // arrange
+    assignIdsOnSave();
+    String json = "[" + ROW.formatted(0).replace("{", "{\"id\":7,") + "," + ROW.formatted(1) + "]";
+
+    // act
+    BulkInsertResult result = insert(json);
+
+    // assert
+    verify(articlesRepository, times(1)).saveAll(List.of(article(0, 100), article(1, 101)));
+    assertEquals(new BulkInsertResult(2, 0, List.of(BulkRowResult.created(0, 100L), BulkRowResult.created(1, 101L))),
+        result);
+  }
+
+  @Test
+  void test_ndjson_reports_bad_rows_and_malformed_tail() throws Exception {
+    // arrange
+    assignIdsOnSave();
+    String ndjson = ROW.formatted(0) + "\n{\"dateAdded\":\"yesterday\"}\n" + ROW.formatted(2) + "\n{\"title\":";
+
+    // act
+    BulkInsertResult result = insert(ndjson);
+
+    // assert
+    assertEquals(2, result.getCreated());
+    assertEquals(2, result.getFailed());
+    assertEquals(List.of(0, 1, 2, 3), result.getRows().stream().map(BulkRowResult::getRow).toList());
+    assertEquals(List.of(BulkRowResult.CREATED, BulkRowResult.ERROR, BulkRowResult.CREATED, BulkRowResult.ERROR),
+        result.getRows().stream().map(BulkRowResult::getStatus).toList());
+    assertEquals(102L, result.getRows().get(2).getId());
+  }
+
+  @Test
+  void test_rows_that_are_not_objects_are_errors() throws Exception {
+    BulkInsertResult result = insert("[1]");
+
+    assertEquals(0, result.getCreated());
+    assertEquals(BulkRowResult.ERROR, result.getRows().get(0).getStatus());
+  }
+
+  @Test
+  void test_empty_body_inserts_nothing() throws Exception {
+    assertEquals(new BulkInsertResult(0, 0, List.of()), insert(""));
+  }
+
+  @Test
+  void test_rows_are_saved_in_chunks() throws Exception {
+    // arrange
+    assignIdsOnSave();
+    String ndjson = IntStream.range(0, BulkInsertService.CHUNK_SIZE * 2 + 1)
+        .mapToObj(ROW::formatted)
+        .collect(Collectors.joining("\n"));
+
+    // act
+    BulkInsertResult result = insert(ndjson);
+
+    // assert
+    verify(articlesRepository, times(3)).saveAll(anyList());
+    assertEquals(BulkInsertService.CHUNK_SIZE * 2 + 1, result.getCreated());
+  }
+
+  @Test
+  void test_exactly_one_chunk_is_saved_once() throws Exception {
+    // arrange
+    assignIdsOnSave();
+    String ndjson = IntStream.range(0, BulkInsertService.CHUNK_SIZE)
+        .mapToObj(ROW::formatted)
+        .collect(Collectors.joining("\n"));
+
+    // act
+    insert(ndjson);
+
+    // assert
+    verify(articlesRepository, times(1)).saveAll(anyList());
+  }
+
+  @Test
+  void test_failed_chunk_is_retried_row_by_row() throws Exception {
+    // arrange
+    when(articlesRepository.saveAll(anyList())).thenThrow(new DataIntegrityViolationException("chunk failed"));
+    when(articlesRepository.save(any())).thenAnswer(invocation -> {
+      Articles a = invocation.getArgument(0);
+      if (a.getTitle().equals("t1")) {
+        throw new DataIntegrityViolationException("could not execute statement",
+            new IllegalStateException("duplicate key value"));
+      }
+      return article(0, 42);
+    });
+
+    // act
+    BulkInsertResult result = insert("[" + ROW.formatted(0) + "," + ROW.formatted(1) + "]");
+
+    // assert
+    verify(articlesRepository, times(2)).save(any());
+    assertEquals(new BulkInsertResult(1, 1, List.of(BulkRowResult.created(0, 42L),
+        BulkRowResult.error(1, "conflicts with an existing record"))), result);
+  }
+
+  @Test
+  void test_rows_are_retried_as_new_entities() throws Exception {
+    // arrange
+    when(articlesRepository.saveAll(anyList())).thenAnswer(invocation -> {
+      List<Articles> rows = invocation.getArgument(0);
+      rows.forEach(a -> a.setId(100));
+      throw new DataIntegrityViolationException("chunk failed");
+    });
+    List<Long> retriedIds = new ArrayList<>();
+    when(articlesRepository.save(any())).thenAnswer(invocation -> {
+      Articles a = invocation.getArgument(0);
+      retriedIds.add(a.getId());
+      a.setId(42);
+      return a;
+    });
+
+    // act
+    BulkInsertResult result = insert("[" + ROW.formatted(0) + "]");
+
+    // assert
+    assertEquals(Collections.singletonList(0L), retriedIds);
+    assertEquals(new BulkInsertResult(1, 0, List.of(BulkRowResult.created(0, 42L))), result);
+  }
+
+  @Test
+  void test_after_save_sees_each_saved_chunk() throws Exception {
+    // arrange
+    assignIdsOnSave();
+    List<List<Articles>> saved = new ArrayList<>();
+
+    // act
+    bulkInsertService.insert(body("[" + ROW.formatted(0) + "," + ROW.formatted(1) + "]"), Articles.class,
+        articlesRepository, Articles::getId, saved::add);
+
+    // assert
+    assertEquals(List.of(List.of(article(0, 100), article(1, 101))), saved);
+  }
+
+  @Test
+  void test_after_save_sees_rows_saved_one_by_one() throws Exception {
+    // arrange
+    when(articlesRepository.saveAll(anyList())).thenThrow(new DataIntegrityViolationException("chunk failed"));
+    when(articlesRepository.save(any())).thenReturn(article(0, 42));
+    List<List<Articles>> saved = new ArrayList<>();
+
+    // act
+    bulkInsertService.insert(body("[" + ROW.formatted(0) + "]"), Articles.class, articlesRepository,
+        Articles::getId, saved::add);
+
+    // assert
+    assertEquals(List.of(List.of(article(0, 42))), saved);
+  }
+
+  @Test
+  void test_unexpected_failures_are_reported_as_failed_rows() throws Exception {
+    // arrange
+    assignIdsOnSave();
+    when(articlesRepository.save(any())).thenAnswer(invocation -> {
+      Articles a = invocation.getArgument(0);
+      a.setId(100 + Integer.parseInt(a.getTitle().substring(1)));
+      return a;
+    });
+
+    // act
+    BulkInsertResult result = bulkInsertService.insert(body("[" + ROW.formatted(0) + "," + ROW.formatted(1) + "]"),
+        Articles.class, articlesRepository, Articles::getId, rows -> {
+          if (rows.stream().anyMatch(a -> a.getTitle().equals("t1"))) {
+            throw new IllegalStateException("queue is closed");
+          }
+        });
+
+    // assert
+    verify(articlesRepository, times(2)).save(any());
+    assertEquals(new BulkInsertResult(1, 1, List.of(BulkRowResult.created(0, 100L),
+        BulkRowResult.error(1, "queue is closed"))), result);
+  }
+
+  /** A row type with constraints; none of the entities declare any yet. */
+  @Data
+  static class Rated {
+    @NotBlank
+    private String name;
+
+    @Min(1)
+    private int stars;
+  }
+
+  @Test
+  @SuppressWarnings("unchecked")
+  void test_rows_that_break_constraints_are_reported_and_not_saved() throws Exception {
+    // arrange
+    CrudRepository<Rated, Long> repository = mock(CrudRepository.class);
+    String ndjson = "{\"name\":\"good\",\"stars\":5}\n{\"name\":\"\",\"stars\":0}\n{\"name\":\" \",\"stars\":3}";
+
+    // act
+    BulkInsertResult result = bulkInsertService.insert(body(ndjson), Rated.class, repository, Rated::getName);
+
+    // assert
+    Rated good = new Rated();
+    good.setName("good");
+    good.setStars(5);
+    verify(repository, times(1)).saveAll(List.of(good));
+    assertEquals(new BulkInsertResult(1, 2, List.of(
+        BulkRowResult.created(0, "good"),
+        BulkRowResult.error(1, "name must not be blank; stars must be greater than or equal to 1"),
+        BulkRowResult.error(2, "name must not be blank"))), result);
+  }
+}
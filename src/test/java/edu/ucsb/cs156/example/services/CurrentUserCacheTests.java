@@ -0,0 +1,58 @@
+package edu.ucsb.cs156.example.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import org.junit.jupiter.api.Test;
+
+import edu.ucsb.cs156.example.entities.User;
+
+class CurrentUserCacheTests {
+
+  User first = User.builder().id(1L).email("cgaucho@ucsb.edu").build();
+  User second = User.builder().id(1L).email("cgaucho@ucsb.edu").admin(true).build();
+
+  @Test
+  void test_get_returns_cached_user() {
+    CurrentUserCache cache = new CurrentUserCache(300, 10);
+    assertEquals(first, cache.get("cgaucho@ucsb.edu", email -> first));
+    assertEquals(first, cache.get("cgaucho@ucsb.edu", email -> second));
+  }
+
+  @Test
+  void test_callers_get_their_own_copy() {
+    CurrentUserCache cache = new CurrentUserCache(300, 10);
+    User loaded = cache.get("cgaucho@ucsb.edu", email -> first);
+    assertNotSame(first, loaded);
+
+    first.setAdmin(true);
+    loaded.setFullName("Chris Gaucho");
+    User cached = cache.get("cgaucho@ucsb.edu", email -> second);
+
+    assertNotSame(loaded, cached);
+    assertFalse(cached.getAdmin());
+    assertNull(cached.getFullName());
+  }
+
+  @Test
+  void test_invalidate_forces_reload() {
+    CurrentUserCache cache = new CurrentUserCache(300, 10);
+    cache.get("cgaucho@ucsb.edu", email -> first);
+
+    cache.invalidate("cgaucho@ucsb.edu");
+
+    assertEquals(second, cache.get("cgaucho@ucsb.edu", email -> second));
+  }
+
+  @Test
+  void test_invalidateAll_forces_reload() {
+    CurrentUserCache cache = new CurrentUserCache(300, 10);
+    cache.get("cgaucho@ucsb.edu", email -> first);
+
+    cache.invalidateAll();
+
+    assertEquals(second, cache.get("cgaucho@ucsb.edu", email -> second));
+  }
+}
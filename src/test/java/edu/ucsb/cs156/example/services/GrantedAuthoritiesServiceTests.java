@@ -7,6 +7,7 @@ import java.util.Collection;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.jackson.JacksonAutoConfiguration;
 import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.context.annotation.Import;
@@ -20,7 +21,7 @@ import edu.ucsb.cs156.example.testconfig.TestConfig;
 
 @ExtendWith(SpringExtension.class)
 @EnableConfigurationProperties(value = SystemInfoServiceImpl.class)
-@Import(TestConfig.class)
+@Import({ TestConfig.class, JacksonAutoConfiguration.class })
 @ContextConfiguration
 class GrantedAuthoritiesServiceTests {
 
@@ -0,0 +1,396 @@
+package edu.ucsb.cs156.example.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.atLeastOnce;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.function.Consumer;
+
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter.DataWithMediaType;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter.SseEventBuilder;
+
+import edu.ucsb.cs156.example.entities.HelpRequest;
+import edu.ucsb.cs156.example.models.QueuePosition;
+import edu.ucsb.cs156.example.repositories.HelpRequestRepository;
+
+class HelpRequestQueueTests {
+
+  HelpRequestRepository helpRequestRepository = mock(HelpRequestRepository.class);
+  ObjectMapper mapper = new ObjectMapper().findAndRegisterModules();
+
+  /** Events are only written when the test runs the queued tasks. */
+  List<Runnable> tasks = new ArrayList<>();
+  HelpRequestQueue queue = new HelpRequestQueue(helpRequestRepository, mapper, 60000, 16, tasks::add);
+
+  void runTasks() {
+    while (!tasks.isEmpty()) {
+      tasks.remove(0).run();
+    }
+  }
+
+  static HelpRequest request(long id, String requestTime, boolean solved) {
+    return HelpRequest.builder().id(id).requesterEmail("cgaucho@ucsb.edu").teamId("5pm-2")
+        .tableOrBreakoutRoom("3").explanation("help %d".formatted(id))
+        .requestTime(requestTime == null ? null : LocalDateTime.parse(requestTime)).solved(solved).build();
+  }
+
+  static List<Long> ids(List<HelpRequest> requests) {
+    return requests.stream().map(HelpRequest::getId).toList();
+  }
+
+  /** The name and data of each event sent to a mock emitter. */
+  record Event(String name, Object data) {
+  }
+
+  List<Event> sent(SseEmitter emitter) throws IOException {
+    runTasks();
+    ArgumentCaptor<SseEventBuilder> builders = ArgumentCaptor.forClass(SseEventBuilder.class);
+    verify(emitter, atLeastOnce()).send(builders.capture());
+    List<Event> events = new ArrayList<>();
+    for (SseEventBuilder builder : builders.getAllValues()) {
+      List<DataWithMediaType> parts = new ArrayList<>(builder.build());
+      String header = parts.get(0).getData().toString();
+      String name = header.substring("event:".length(), header.indexOf('\n'));
+      events.add(new Event(name, parts.get(1).getData()));
+    }
+    return events;
+  }
+
+  @Test
+  void test_reload_orders_by_request_time_then_id() {
+    when(helpRequestRepository.findBySolvedFalse()).thenReturn(List.of(
+        request(4, null, false),
+        request(3, "2022-01-03T10:00:00", false),
+        request(2, "2022-01-03T09:00:00", false),
+        request(1, "2022-01-03T10:00:00", false)));
+
+    queue.reload();
+
+    assertEquals(List.of(2L, 1L, 3L, 4L), ids(queue.unsolved()));
+  }
+
+  @Test
+  void test_reload_replaces_the_queue() {
+    queue.saved(request(9, "2022-01-03T10:00:00", false));
+    when(helpRequestRepository.findBySolvedFalse()).thenReturn(List.of(request(1, "2022-01-03T10:00:00", false)));
+
+    queue.reload();
+    queue.deleted(9);
+
+    assertEquals(List.of(1L), ids(queue.unsolved()));
+  }
+
+  @Test
+  void test_saved_requests_join_leave_and_move_in_the_queue() {
+    queue.saved(request(1, "2022-01-03T10:00:00", false));
+    queue.saved(request(2, "2022-01-03T11:00:00", false));
+    queue.saved(request(3, "2022-01-03T12:00:00", true));
+    assertEquals(List.of(1L, 2L), ids(queue.unsolved()));
+
+    queue.saved(request(2, "2022-01-03T09:00:00", false));
+    assertEquals(List.of(2L, 1L), ids(queue.unsolved()));
+
+    queue.saved(request(2, "2022-01-03T09:00:00", true));
+    queue.saved(request(2, "2022-01-03T09:00:00", true));
+    assertEquals(List.of(1L), ids(queue.unsolved()));
+
+    queue.deleted(1);
+    queue.deleted(1);
+    assertEquals(List.of(), queue.unsolved());
+  }
+
+  @Test
+  void test_position_counts_the_requests_ahead() {
+    queue.saved(request(1, "2022-01-03T10:00:00", false));
+    queue.saved(request(2, "2022-01-03T09:00:00", false));
+    queue.saved(request(3, null, false));
+
+    assertEquals(Optional.of(new QueuePosition(2, 0, 3)), queue.position(2));
+    assertEquals(Optional.of(new QueuePosition(1, 1, 3)), queue.position(1));
+    assertEquals(Optional.of(new QueuePosition(3, 2, 3)), queue.position(3));
+    assertEquals(Optional.empty(), queue.position(4));
+  }
+
+  @Test
+  void test_position_follows_updates() {
+    queue.saved(request(1, "2022-01-03T10:00:00", false));
+    queue.saved(request(2, "2022-01-03T11:00:00", false));
+    queue.saved(request(3, "2022-01-03T12:00:00", false));
+
+    queue.saved(request(3, "2022-01-03T09:00:00", false));
+    assertEquals(Optional.of(new QueuePosition(2, 2, 3)), queue.position(2));
+
+    queue.saved(request(1, "2022-01-03T10:00:00", true));
+    queue.deleted(3);
+    assertEquals(Optional.of(new QueuePosition(2, 0, 1)), queue.position(2));
+    assertEquals(Optional.empty(), queue.position(1));
+    assertEquals(Optional.empty(), queue.position(3));
+  }
+
+  @Test
+  void test_subscribers_get_a_snapshot_then_each_change() throws Exception {
+    HelpRequest first = request(1, "2022-01-03T10:00:00", false);
+    queue.saved(first);
+    SseEmitter emitter = mock(SseEmitter.class);
+
+    assertEquals(emitter, queue.subscribe(emitter));
+    HelpRequest second = request(2, "2022-01-03T11:00:00", false);
+    HelpRequest moved = request(2, "2022-01-03T09:00:00", false);
+    queue.saved(second);
+    queue.saved(moved);
+    queue.saved(request(2, "2022-01-03T09:00:00", true));
+    queue.deleted(1);
+    queue.saved(request(3, "2022-01-03T12:00:00", true));
+    queue.deleted(42);
+
+    assertEquals(List.of(
+        new Event("snapshot", List.of(first)),
+        new Event("new", second),
+        new Event("updated", moved),
+        new Event("solved", Map.of("id", 2L)),
+        new Event("deleted", Map.of("id", 1L))), sent(emitter));
+  }
+
+  @Test
+  void test_reload_sends_a_new_snapshot() throws Exception {
+    SseEmitter emitter = mock(SseEmitter.class);
+    queue.subscribe(emitter);
+    HelpRequest request = request(1, "2022-01-03T10:00:00", false);
+    when(helpRequestRepository.findBySolvedFalse()).thenReturn(List.of(request));
+
+    queue.reload();
+
+    assertEquals(List.of(
+        new Event("snapshot", List.of()),
+        new Event("snapshot", List.of(request))), sent(emitter));
+  }
+
+  @Test
+  void test_subscribers_that_fail_are_dropped() throws Exception {
+    SseEmitter gone = mock(SseEmitter.class);
+    SseEmitter staying = mock(SseEmitter.class);
+    queue.subscribe(gone);
+    queue.subscribe(staying);
+    doThrow(new IOException("broken pipe")).when(gone).send(any(SseEventBuilder.class));
+
+    queue.saved(request(1, "2022-01-03T10:00:00", false));
+    runTasks();
+
+    assertEquals(1, queue.subscriberCount());
+    assertEquals(2, sent(staying).size());
+  }
+
+  @Test
+  void test_subscribers_that_fail_the_snapshot_are_not_kept() throws Exception {
+    SseEmitter completed = mock(SseEmitter.class);
+    doThrow(new IllegalStateException("ResponseBodyEmitter has already completed")).when(completed)
+        .send(any(SseEventBuilder.class));
+
+    queue.subscribe(completed);
+    runTasks();
+
+    assertEquals(0, queue.subscriberCount());
+  }
+
+  @Test
+  void test_writers_do_not_wait_for_subscribers() throws Exception {
+    SseEmitter emitter = mock(SseEmitter.class);
+    queue.subscribe(emitter);
+    HelpRequest request = request(1, "2022-01-03T10:00:00", false);
+
+    queue.saved(request);
+
+    assertEquals(List.of(1L), ids(queue.unsolved()));
+    verify(emitter, never()).send(any(SseEventBuilder.class));
+    assertEquals(1, tasks.size());
+    assertEquals(List.of(new Event("snapshot", List.of()), new Event("new", request)), sent(emitter));
+  }
+
+  @Test
+  void test_subscribers_that_fall_behind_are_closed() throws Exception {
+    HelpRequestQueue small = new HelpRequestQueue(helpRequestRepository, mapper, 60000, 2, tasks::add);
+    SseEmitter behind = mock(SseEmitter.class);
+    small.subscribe(behind);
+
+    small.saved(request(1, "2022-01-03T10:00:00", false));
+    assertEquals(1, small.subscriberCount());
+    small.saved(request(2, "2022-01-03T11:00:00", false));
+    assertEquals(0, small.subscriberCount());
+    runTasks();
+
+    verify(behind, times(1)).complete();
+    verify(behind, never()).send(any(SseEventBuilder.class));
+  }
+
+  @Test
+  void test_a_slow_subscriber_does_not_hold_up_the_others() throws Exception {
+    HelpRequestQueue threaded = new HelpRequestQueue(helpRequestRepository, mapper, 60000, 16);
+    CountDownLatch stuck = new CountDownLatch(1);
+    SseEmitter slow = mock(SseEmitter.class);
+    doAnswer(invocation -> {
+      stuck.await();
+      return null;
+    }).when(slow).send(any(SseEventBuilder.class));
+    SseEmitter fast = mock(SseEmitter.class);
+    try {
+      threaded.subscribe(slow);
+      threaded.subscribe(fast);
+
+      threaded.saved(request(1, "2022-01-03T10:00:00", false));
+
+      verify(fast, timeout(5000).times(2)).send(any(SseEventBuilder.class));
+    } finally {
+      stuck.countDown();
+    }
+    verify(slow, timeout(5000).times(2)).send(any(SseEventBuilder.class));
+  }
+
+  @Test
+  void test_saving_an_unchanged_request_sends_nothing() throws Exception {
+    HelpRequest request = request(1, "2022-01-03T10:00:00", false);
+    queue.saved(request);
+    SseEmitter emitter = mock(SseEmitter.class);
+    queue.subscribe(emitter);
+
+    queue.saved(request(1, "2022-01-03T10:00:00", false));
+
+    assertEquals(List.of(new Event("snapshot", List.of(request))), sent(emitter));
+  }
+
+  @Test
+  void test_patch_that_solves_a_request_does_not_read_it() throws Exception {
+    queue.saved(request(1, "2022-01-03T10:00:00", false));
+    SseEmitter emitter = mock(SseEmitter.class);
+    queue.subscribe(emitter);
+
+    queue.patched(1, Map.of("solved", true, "explanation", "fixed"));
+
+    assertEquals(List.of(), queue.unsolved());
+    verify(helpRequestRepository, never()).findById(anyLong());
+    assertEquals(new Event("solved", Map.of("id", 1L)), sent(emitter).get(1));
+  }
+
+  @Test
+  void test_patch_of_a_queued_request_updates_it_without_reading_it() throws Exception {
+    queue.saved(request(1, "2022-01-03T10:00:00", false));
+    queue.saved(request(2, "2022-01-03T11:00:00", false));
+    SseEmitter emitter = mock(SseEmitter.class);
+    queue.subscribe(emitter);
+    List<HelpRequest> before = queue.unsolved();
+
+    queue.patched(2, Map.of("requestTime", "2022-01-03T09:00:00", "explanation", "moved up"));
+
+    HelpRequest moved = request(2, "2022-01-03T09:00:00", false);
+    moved.setExplanation("moved up");
+    assertEquals(List.of(2L, 1L), ids(queue.unsolved()));
+    assertEquals(moved, queue.unsolved().get(0));
+    assertEquals(new Event("updated", moved), sent(emitter).get(1));
+    assertEquals("help 2", before.get(1).getExplanation());
+    verify(helpRequestRepository, never()).findById(anyLong());
+  }
+
+  @Test
+  void test_patch_that_changes_nothing_sends_nothing() throws Exception {
+    queue.saved(request(1, "2022-01-03T10:00:00", false));
+    SseEmitter emitter = mock(SseEmitter.class);
+    queue.subscribe(emitter);
+
+    queue.patched(1, Map.of("solved", false));
+
+    assertEquals(1, sent(emitter).size());
+    verify(helpRequestRepository, never()).findById(anyLong());
+  }
+
+  @Test
+  void test_reopened_requests_are_read_back() {
+    HelpRequest reopened = request(3, "2022-01-03T12:00:00", false);
+    when(helpRequestRepository.findById(3L)).thenReturn(Optional.of(reopened));
+
+    queue.patched(3, Map.of("solved", false));
+
+    assertEquals(List.of(reopened), queue.unsolved());
+  }
+
+  @Test
+  void test_patch_of_a_request_not_in_the_queue_is_ignored() {
+    queue.patched(3, Map.of("explanation", "still solved"));
+
+    assertEquals(List.of(), queue.unsolved());
+    verify(helpRequestRepository, never()).findById(anyLong());
+  }
+
+  @Test
+  @SuppressWarnings("unchecked")
+  void test_subscribers_are_dropped_when_their_stream_ends() {
+    List<Runnable> endings = new ArrayList<>();
+    for (int i = 0; i < 3; i++) {
+      SseEmitter emitter = mock(SseEmitter.class);
+      queue.subscribe(emitter);
+      ArgumentCaptor<Runnable> completion = ArgumentCaptor.forClass(Runnable.class);
+      ArgumentCaptor<Runnable> timeout = ArgumentCaptor.forClass(Runnable.class);
+      ArgumentCaptor<Consumer<Throwable>> error = ArgumentCaptor.forClass(Consumer.class);
+      verify(emitter).onCompletion(completion.capture());
+      verify(emitter).onTimeout(timeout.capture());
+      verify(emitter).onError(error.capture());
+      Runnable onError = () -> error.getValue().accept(new IOException("reset"));
+      endings.add(List.of(completion.getValue(), timeout.getValue(), onError).get(i));
+    }
+    assertEquals(3, queue.subscriberCount());
+
+    endings.forEach(Runnable::run);
+
+    assertEquals(0, queue.subscriberCount());
+  }
+
+  @Test
+  void test_subscribe_uses_the_configured_timeout() {
+    SseEmitter emitter = queue.subscribe();
+
+    assertEquals(60000L, emitter.getTimeout());
+    assertEquals(1, queue.subscriberCount());
+  }
+
+  @Test
+  void test_saved_on_commit_waits_for_the_commit() {
+    TransactionSynchronizationManager.initSynchronization();
+    try {
+      queue.savedOnCommit(List.of(request(1, "2022-01-03T10:00:00", false)));
+      assertEquals(List.of(), queue.unsolved());
+
+      TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+      assertEquals(List.of(1L), ids(queue.unsolved()));
+    } finally {
+      TransactionSynchronizationManager.clearSynchronization();
+    }
+  }
+
+  @Test
+  void test_saved_on_commit_needs_a_transaction() {
+    assertThrows(IllegalStateException.class,
+        () -> queue.savedOnCommit(List.of(request(1, "2022-01-03T10:00:00", false))));
+  }
+}
@@ -0,0 +1,328 @@
+package edu.ucsb.cs156.example.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.jdbc.core.JdbcOperations;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+
+import edu.ucsb.cs156.example.errors.InvalidRequestException;
+import edu.ucsb.cs156.example.models.LeaderboardEntry;
+
+/**
+ * Builds leaderboards from MENUITEMRATINGSTATS and UCSBDININGCOMMONSMENUITEM
+ * rows in an in-memory H2 database created by the Liquibase changelog.
+ */
+@SpringBootTest(properties = {
+    "spring.datasource.url=jdbc:h2:mem:leaderboard;DB_CLOSE_DELAY=-1",
+    "spring.datasource.username=sa",
+    "spring.datasource.password=",
+    "spring.liquibase.url=jdbc:h2:mem:leaderboard;DB_CLOSE_DELAY=-1",
+    "spring.liquibase.user=sa",
+    "spring.liquibase.password=",
+    "spring.liquibase.enabled=true"
+})
+class MenuItemLeaderboardTests {
+
+  static final double PRIOR = 2;
+  static final long MAX_AGE_MILLIS = 60000;
+
+  @Autowired
+  JdbcTemplate jdbcTemplate;
+
+  long now = 0;
+  MenuItemLeaderboard leaderboard;
+
+  @BeforeEach
+  void setUp() {
+    leaderboard = leaderboard(100);
+  }
+
+  @AfterEach
+  void clean() {
+    leaderboard.stop();
+    jdbcTemplate.update("DELETE FROM MENUITEMRATINGSTATS");
+    jdbcTemplate.update("DELETE FROM UCSBDININGCOMMONSMENUITEM");
+  }
+
+  MenuItemLeaderboard leaderboard(int size) {
+    return new MenuItemLeaderboard(jdbcTemplate, size, PRIOR, 10, MAX_AGE_MILLIS, () -> now);
+  }
+
+  void item(long id, String diningCommonsCode, String station) {
+    jdbcTemplate.update("INSERT INTO UCSBDININGCOMMONSMENUITEM (ID, DINING_COMMONS_CODE, NAME, STATION) VALUES (?, ?, ?, ?)",
+        id, diningCommonsCode, "item " + id, station);
+  }
+
+  void rated(long itemId, long reviewCount, long starSum) {
+    jdbcTemplate.update("INSERT INTO MENUITEMRATINGSTATS (ITEM_ID, REVIEW_COUNT, STAR_SUM) VALUES (?, ?, ?)",
+        itemId, reviewCount, starSum);
+  }
+
+  /** Item 1 has many good reviews, item 2 one perfect one, item 3 several middling ones. */
+  void menu() {
+    item(1, "ortega", "Entrees");
+    item(2, "ortega", "Greens");
+    item(3, "portola", "Entrees");
+    item(4, "portola", "Greens");
+    rated(1, 10, 45);
+    rated(2, 1, 5);
+    rated(3, 4, 12);
+    rated(4, 0, 0);
+    rated(99, 5, 5);
+  }
+
+  static List<Long> ids(List<LeaderboardEntry> entries) {
+    return entries.stream().map(LeaderboardEntry::getItemId).toList();
+  }
+
+  @Test
+  void test_items_are_ranked_by_bayesian_average() {
+    menu();
+
+    List<LeaderboardEntry> top = leaderboard.top(null, null, 10);
+
+    assertEquals(List.of(1L, 2L, 3L), ids(top));
+    double mean = 62.0 / 15;
+    LeaderboardEntry first = top.get(0);
+    assertEquals("ortega", first.getDiningCommonsCode());
+    assertEquals("item 1", first.getName());
+    assertEquals("Entrees", first.getStation());
+    assertEquals(10, first.getReviewCount());
+    assertEquals(4.5, first.getAverageStars(), 1e-9);
+    assertEquals((PRIOR * mean + 45) / (PRIOR + 10), first.getScore(), 1e-9);
+    assertEquals((PRIOR * mean + 5) / (PRIOR + 1), top.get(1).getScore(), 1e-9);
+  }
+
+  @Test
+  void test_boards_per_commons_and_station() {
+    menu();
+
+    assertEquals(List.of(1L, 2L), ids(leaderboard.top("ortega", null, 10)));
+    assertEquals(List.of(1L, 3L), ids(leaderboard.top(null, "Entrees", 10)));
+    assertEquals(List.of(3L), ids(leaderboard.top("portola", "Entrees", 10)));
+    assertEquals(List.of(), leaderboard.top("portola", "Greens", 10));
+    assertEquals(List.of(), leaderboard.top("carrillo", null, 10));
+  }
+
+  @Test
+  void test_limit_cuts_the_board_short() {
+    menu();
+
+    assertEquals(List.of(1L), ids(leaderboard.top(null, null, 1)));
+  }
+
+  @Test
+  void test_each_board_keeps_only_its_best_items() {
+    menu();
+    MenuItemLeaderboard small = leaderboard(2);
+
+    assertEquals(List.of(1L, 2L), ids(small.top(null, null, 2)));
+    assertEquals(List.of(3L), ids(small.top("portola", null, 2)));
+  }
+
+  @Test
+  void test_limit_must_be_within_the_board_size() {
+    InvalidRequestException tooSmall = assertThrows(InvalidRequestException.class,
+        () -> leaderboard.top(null, null, 0));
+    assertEquals("limit must be between 1 and 100", tooSmall.getMessage());
+    assertThrows(InvalidRequestException.class, () -> leaderboard.top(null, null, 101));
+  }
+
+  @Test
+  void test_ties_go_to_more_reviews_then_the_older_item() {
+    item(20, "ortega", "Entrees");
+    item(21, "ortega", "Entrees");
+    item(22, "ortega", "Entrees");
+    rated(20, 1, 4);
+    rated(21, 3, 12);
+    rated(22, 3, 12);
+
+    assertEquals(List.of(21L, 22L, 20L), ids(leaderboard.top(null, null, 10)));
+  }
+
+  @Test
+  void test_items_without_a_commons_or_station_are_on_the_overall_board() {
+    item(5, null, null);
+    rated(5, 2, 8);
+
+    assertEquals(List.of(5L), ids(leaderboard.top(null, null, 10)));
+  }
+
+  @Test
+  void test_new_reviews_show_up_once_marked_stale() {
+    menu();
+    assertEquals(List.of(1L, 2L, 3L), ids(leaderboard.top(null, null, 10)));
+    jdbcTemplate.update("UPDATE MENUITEMRATINGSTATS SET REVIEW_COUNT = 100, STAR_SUM = 500 WHERE ITEM_ID = 3");
+
+    leaderboard.refreshIfDue();
+    assertEquals(List.of(1L, 2L, 3L), ids(leaderboard.top(null, null, 10)));
+
+    leaderboard.markStale();
+    assertTrue(leaderboard.isStale());
+    leaderboard.refreshIfDue();
+    assertFalse(leaderboard.isStale());
+    assertEquals(List.of(3L, 2L, 1L), ids(leaderboard.top(null, null, 10)));
+  }
+
+  @Test
+  void test_boards_are_rebuilt_when_too_old() {
+    menu();
+    assertEquals(List.of(1L, 2L, 3L), ids(leaderboard.top(null, null, 10)));
+    jdbcTemplate.update("UPDATE MENUITEMRATINGSTATS SET REVIEW_COUNT = 100, STAR_SUM = 500 WHERE ITEM_ID = 3");
+
+    now += TimeUnit.MILLISECONDS.toNanos(MAX_AGE_MILLIS);
+    leaderboard.refreshIfDue();
+
+    assertEquals(List.of(3L, 2L, 1L), ids(leaderboard.top(null, null, 10)));
+  }
+
+  @Test
+  @SuppressWarnings("unchecked")
+  void test_failed_rebuilds_are_retried() {
+    JdbcOperations failing = mock(JdbcOperations.class);
+    when(failing.query(eq(MenuItemLeaderboard.RATED_ITEMS), any(RowMapper.class)))
+        .thenThrow(new QueryTimeoutException("timed out"));
+    MenuItemLeaderboard broken = new MenuItemLeaderboard(failing, 100, PRIOR, 10, MAX_AGE_MILLIS, () -> now);
+
+    assertThrows(QueryTimeoutException.class, () -> broken.top(null, null, 10));
+    broken.refreshIfDue();
+
+    assertTrue(broken.isStale());
+    verify(failing, times(2)).query(eq(MenuItemLeaderboard.RATED_ITEMS), any(RowMapper.class));
+  }
+
+  @Test
+  @SuppressWarnings("unchecked")
+  void test_unexpected_failures_do_not_end_the_thread() throws Exception {
+    JdbcOperations flaky = mock(JdbcOperations.class);
+    AtomicInteger queries = new AtomicInteger();
+    when(flaky.query(eq(MenuItemLeaderboard.RATED_ITEMS), any(RowMapper.class))).thenAnswer(invocation -> {
+      if (queries.incrementAndGet() == 1) {
+        throw new IllegalStateException("unexpected row");
+      }
+      return List.of();
+    });
+    MenuItemLeaderboard recovering = new MenuItemLeaderboard(flaky, 100, PRIOR, 10, MAX_AGE_MILLIS, () -> now);
+
+    recovering.start();
+    try {
+      for (int i = 0; i < 100 && queries.get() < 2; i++) {
+        Thread.sleep(10);
+      }
+      assertTrue(queries.get() >= 2);
+      assertTrue(recovering.isRunning());
+    } finally {
+      recovering.stop();
+    }
+  }
+
+  @Test
+  void test_start_builds_the_boards_and_stop_ends_the_thread() throws Exception {
+    menu();
+    leaderboard.start();
+    leaderboard.start();
+    assertTrue(leaderboard.isRunning());
+
+    for (int i = 0; i < 100 && leaderboard.isStale(); i++) {
+      Thread.sleep(10);
+    }
+    assertFalse(leaderboard.isStale());
+
+    leaderboard.stop();
+    leaderboard.stop();
+    assertFalse(leaderboard.isRunning());
+  }
+
+  @Test
+  void test_stop_lets_a_rebuild_that_has_begun_finish() throws Exception {
+    CountDownLatch checking = new CountDownLatch(1);
+    CountDownLatch stopped = new CountDownLatch(1);
+    // the background thread's first age check waits until stop() is joining it, then finds the boards too old
+    MenuItemLeaderboard blocking = new MenuItemLeaderboard(jdbcTemplate, 100, PRIOR, 10, MAX_AGE_MILLIS, () -> {
+      if (!Thread.currentThread().getName().equals("menu-item-leaderboard")) {
+        return 0;
+      }
+      checking.countDown();
+      try {
+        stopped.await();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+      return MAX_AGE_MILLIS * 1_000_000;
+    });
+    blocking.top(null, null, 10);
+
+    blocking.start();
+    assertTrue(checking.await(5, TimeUnit.SECONDS));
+    Thread stopper = new Thread(blocking::stop);
+    stopper.start();
+    for (int i = 0; i < 500 && stopper.getState() != Thread.State.WAITING; i++) {
+      Thread.sleep(10);
+    }
+    stopped.countDown();
+
+    stopper.join(5000);
+    assertFalse(stopper.isAlive());
+    assertFalse(blocking.isRunning());
+  }
+
+  @Test
+  void test_stop_keeps_the_interrupt_flag() throws Exception {
+    CountDownLatch checking = new CountDownLatch(1);
+    CountDownLatch release = new CountDownLatch(1);
+    // the background thread is still checking the boards' age when stop() joins it
+    MenuItemLeaderboard busy = new MenuItemLeaderboard(jdbcTemplate, 100, PRIOR, 10, MAX_AGE_MILLIS, () -> {
+      if (Thread.currentThread().getName().equals("menu-item-leaderboard")) {
+        checking.countDown();
+        try {
+          release.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+        }
+      }
+      return 0;
+    });
+    busy.top(null, null, 10);
+    busy.start();
+    assertTrue(checking.await(5, TimeUnit.SECONDS));
+
+    try {
+      Thread.currentThread().interrupt();
+      busy.stop();
+
+      assertTrue(Thread.interrupted());
+      assertFalse(busy.isRunning());
+    } finally {
+      release.countDown();
+    }
+  }
+
+  @Test
+  void test_default_clock() {
+    menu();
+    MenuItemLeaderboard defaultClock = new MenuItemLeaderboard(jdbcTemplate, 100, PRIOR, 10, MAX_AGE_MILLIS);
+
+    assertEquals(List.of(1L, 2L, 3L), ids(defaultClock.top(null, null, 10)));
+  }
+}
@@ -0,0 +1,291 @@
+package edu.ucsb.cs156.example.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.IllegalTransactionStateException;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import edu.ucsb.cs156.example.entities.MenuItemRatingStats;
+import edu.ucsb.cs156.example.entities.MenuItemReview;
+import edu.ucsb.cs156.example.repositories.MenuItemRatingStatsRepository;
+import edu.ucsb.cs156.example.repositories.MenuItemReviewRepository;
+import edu.ucsb.cs156.example.services.MenuItemRatingStatsService.Rating;
+
+/**
+ * Writes reviews through {@link MenuItemReviewService} against the tables
+ * created by the Liquibase changelog in an in-memory H2 database, and checks
+ * the stats rows that result.
+ */
+@SpringBootTest(properties = {
+    "spring.datasource.url=jdbc:h2:mem:ratingstats;DB_CLOSE_DELAY=-1;LOCK_TIMEOUT=10000",
+    "spring.datasource.username=sa",
+    "spring.datasource.password=",
+    "spring.liquibase.url=jdbc:h2:mem:ratingstats;DB_CLOSE_DELAY=-1;LOCK_TIMEOUT=10000",
+    "spring.liquibase.user=sa",
+    "spring.liquibase.password=",
+    "spring.liquibase.enabled=true"
+})
+class MenuItemRatingStatsServiceTests {
+
+  static final LocalDateTime JAN = LocalDateTime.parse("2022-01-03T00:00:00");
+  static final LocalDateTime FEB = LocalDateTime.parse("2022-02-03T00:00:00");
+  static final LocalDateTime MAR = LocalDateTime.parse("2022-03-03T00:00:00");
+
+  @Autowired
+  MenuItemReviewService menuItemReviewService;
+
+  @Autowired
+  MenuItemRatingStatsService menuItemRatingStatsService;
+
+  @Autowired
+  MenuItemReviewRepository menuItemReviewRepository;
+
+  @Autowired
+  MenuItemRatingStatsRepository menuItemRatingStatsRepository;
+
+  @Autowired
+  JdbcTemplate jdbcTemplate;
+
+  @Autowired
+  PlatformTransactionManager transactionManager;
+
+  @MockBean
+  MenuItemLeaderboard leaderboard;
+
+  @AfterEach
+  void clean() {
+    jdbcTemplate.update("DELETE FROM MENUITEMREVIEWS");
+    jdbcTemplate.update("DELETE FROM MENUITEMRATINGSTATS");
+  }
+
+  static MenuItemReview review(long itemId, int stars, LocalDateTime dateReviewed) {
+    return MenuItemReview.builder().itemId(itemId).reviewerEmail("cgaucho@ucsb.edu").stars(stars)
+        .comments("comment").dateReviewed(dateReviewed).build();
+  }
+
+  MenuItemRatingStats stats(long itemId) {
+    return menuItemRatingStatsRepository.findById(itemId).get();
+  }
+
+  static MenuItemRatingStats expected(long itemId, long[] histogram, LocalDateTime lastReviewed) {
+    long count = 0;
+    long sum = 0;
+    for (int i = 0; i < 5; i++) {
+      count += histogram[i];
+      sum += (i + 1) * histogram[i];
+    }
+    return new MenuItemRatingStats(itemId, count, sum, histogram[0], histogram[1], histogram[2], histogram[3],
+        histogram[4], lastReviewed);
+  }
+
+  @Test
+  void test_created_reviews_are_counted() {
+    menuItemReviewService.create(review(7, 4, JAN));
+    menuItemReviewService.create(review(7, 5, MAR));
+    menuItemReviewService.create(review(7, 4, FEB));
+
+    assertEquals(expected(7, new long[] { 0, 0, 0, 2, 1 }, MAR), stats(7));
+    assertEquals(13.0 / 3, stats(7).getAverageStars());
+  }
+
+  @Test
+  void test_update_moves_the_rating_between_items() {
+    MenuItemReview first = menuItemReviewService.create(review(7, 4, JAN));
+    menuItemReviewService.create(review(7, 2, FEB));
+
+    menuItemReviewService.update(first.getId(), review(8, 5, MAR));
+
+    assertEquals(expected(7, new long[] { 0, 1, 0, 0, 0 }, FEB), stats(7));
+    assertEquals(expected(8, new long[] { 0, 0, 0, 0, 1 }, MAR), stats(8));
+  }
+
+  @Test
+  void test_update_that_keeps_the_rating_leaves_the_stats_alone() {
+    MenuItemReview review = menuItemReviewService.create(review(7, 4, JAN));
+    jdbcTemplate.update("UPDATE MENUITEMRATINGSTATS SET STAR_SUM = 99 WHERE ITEM_ID = 7");
+
+    MenuItemReview edited = review(7, 4, JAN);
+    edited.setComments("edited");
+    menuItemReviewService.update(review.getId(), edited);
+
+    assertEquals(99, stats(7).getStarSum());
+  }
+
+  @Test
+  void test_deleting_the_latest_review_recomputes_the_latest_time() {
+    menuItemReviewService.create(review(7, 4, JAN));
+    MenuItemReview latest = menuItemReviewService.create(review(7, 2, MAR));
+
+    menuItemReviewService.delete(latest.getId());
+    assertEquals(expected(7, new long[] { 0, 0, 0, 1, 0 }, JAN), stats(7));
+  }
+
+  @Test
+  void test_deleting_an_older_review_keeps_the_latest_time() {
+    MenuItemReview older = menuItemReviewService.create(review(7, 4, JAN));
+    menuItemReviewService.create(review(7, 2, MAR));
+
+    menuItemReviewService.delete(older.getId());
+    assertEquals(expected(7, new long[] { 0, 1, 0, 0, 0 }, MAR), stats(7));
+  }
+
+  @Test
+  void test_moving_the_latest_review_back_in_time() {
+    menuItemReviewService.create(review(7, 4, JAN));
+    MenuItemReview latest = menuItemReviewService.create(review(7, 2, MAR));
+
+    menuItemReviewService.patch(latest.getId(), Map.of("dateReviewed", "2022-02-03T00:00:00", "stars", 3),
+        MenuItemReviewService.RATED_FIELDS);
+
+    assertEquals(expected(7, new long[] { 0, 0, 1, 1, 0 }, FEB), stats(7));
+  }
+
+  /** What the stats row should hold, counted from the item's reviews. */
+  MenuItemRatingStats recount(long itemId) {
+    long[] histogram = new long[5];
+    for (int i = 0; i < 5; i++) {
+      histogram[i] = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM MENUITEMREVIEWS WHERE ITEM_ID = ? AND STARS = ?",
+          Long.class, itemId, i + 1);
+    }
+    LocalDateTime lastReviewed = jdbcTemplate.queryForObject(
+        "SELECT MAX(DATE_REVIEWED) FROM MENUITEMREVIEWS WHERE ITEM_ID = ?", LocalDateTime.class, itemId);
+    return expected(itemId, histogram, lastReviewed);
+  }
+
+  @Test
+  void test_concurrent_updates_and_patches_keep_the_stats_equal_to_a_recount() throws Exception {
+    long first = menuItemReviewService.create(review(7, 1, JAN)).getId();
+    long second = menuItemReviewService.create(review(8, 2, FEB)).getId();
+
+    ExecutorService executor = Executors.newFixedThreadPool(8);
+    List<Callable<Void>> writes = new ArrayList<>();
+    for (int i = 0; i < 200; i++) {
+      long id = i % 2 == 0 ? first : second;
+      long itemId = 7 + i % 3 % 2;
+      int stars = 1 + i % 5;
+      boolean patch = i % 4 < 2;
+      writes.add(() -> {
+        if (patch) {
+          menuItemReviewService.patch(id, Map.of("itemId", itemId, "stars", stars), MenuItemReviewService.RATED_FIELDS);
+        } else {
+          menuItemReviewService.update(id, review(itemId, stars, id == first ? JAN : FEB));
+        }
+        return null;
+      });
+    }
+    try {
+      for (Future<Void> write : executor.invokeAll(writes)) {
+        write.get();
+      }
+    } finally {
+      executor.shutdown();
+    }
+
+    assertEquals(recount(7), stats(7));
+    assertEquals(recount(8), stats(8));
+  }
+
+  @Test
+  void test_patch_of_other_fields_leaves_the_stats_alone() {
+    MenuItemReview review = menuItemReviewService.create(review(7, 4, JAN));
+
+    menuItemReviewService.patch(review.getId(), Map.of("comments", "edited"), Set.of("comments"));
+
+    assertEquals(expected(7, new long[] { 0, 0, 0, 1, 0 }, JAN), stats(7));
+    assertEquals("edited", menuItemReviewRepository.findById(review.getId()).get().getComments());
+  }
+
+  @Test
+  void test_bulk_created_reviews_are_counted() throws Exception {
+    String body = """
+        {"itemId": 7, "reviewerEmail": "a@ucsb.edu", "stars": 1, "comments": "c", "dateReviewed": "2022-02-03T00:00:00"}
+        {"itemId": 7, "reviewerEmail": "b@ucsb.edu", "stars": 5, "comments": "c", "dateReviewed": "2022-01-03T00:00:00"}
+        {"itemId": 7, "reviewerEmail": "d@ucsb.edu", "stars": 2, "comments": "c", "dateReviewed": "2022-03-03T00:00:00"}
+        {"itemId": 9, "reviewerEmail": "c@ucsb.edu", "stars": 3, "comments": "c", "dateReviewed": null}
+        """;
+
+    menuItemReviewService.createAll(new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8)));
+
+    assertEquals(expected(7, new long[] { 1, 1, 0, 0, 1 }, MAR), stats(7));
+    assertEquals(expected(9, new long[] { 0, 0, 1, 0, 0 }, null), stats(9));
+  }
+
+  @Test
+  void test_stars_outside_the_scale_are_not_in_the_histogram() {
+    menuItemReviewService.create(review(7, 0, JAN));
+    menuItemReviewService.create(review(7, 6, JAN));
+
+    assertEquals(new MenuItemRatingStats(7, 2, 6, 0, 0, 0, 0, 0, JAN), stats(7));
+  }
+
+  @Test
+  void test_removing_a_review_that_was_never_counted_creates_no_row() {
+    MenuItemReview uncounted = menuItemReviewRepository.save(review(7, 4, JAN));
+
+    menuItemReviewService.delete(uncounted.getId());
+
+    assertFalse(menuItemRatingStatsRepository.existsById(7L));
+  }
+
+  @Test
+  void test_stats_are_only_updated_inside_a_transaction() {
+    assertThrows(IllegalTransactionStateException.class,
+        () -> menuItemRatingStatsService.added(List.of(review(7, 4, JAN))));
+    assertThrows(IllegalTransactionStateException.class,
+        () -> menuItemRatingStatsService.removed(review(7, 4, JAN)));
+    assertThrows(IllegalTransactionStateException.class,
+        () -> menuItemRatingStatsService.changed(new Rating(7, 4, JAN), new Rating(7, 4, JAN)));
+  }
+
+  @Test
+  void test_create_sql_per_database() {
+    assertEquals("INSERT INTO MENUITEMRATINGSTATS (ITEM_ID) VALUES (?) ON CONFLICT (ITEM_ID) DO NOTHING",
+        MenuItemRatingStatsService.createSql("jdbc:postgresql://localhost/team02"));
+    assertEquals("MERGE INTO MENUITEMRATINGSTATS (ITEM_ID) KEY (ITEM_ID) VALUES (?)",
+        MenuItemRatingStatsService.createSql("jdbc:h2:mem:team02"));
+    IllegalStateException e = assertThrows(IllegalStateException.class,
+        () -> MenuItemRatingStatsService.createSql("jdbc:mysql://localhost/team02"));
+    assertEquals("Rating stats are not supported for jdbc:mysql://localhost/team02", e.getMessage());
+  }
+
+  @Test
+  void test_leaderboard_is_marked_stale_once_the_write_commits() {
+    menuItemReviewService.create(review(7, 4, JAN));
+
+    verify(leaderboard).markStale();
+  }
+
+  @Test
+  void test_rolled_back_writes_leave_the_leaderboard_alone() {
+    new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+      menuItemReviewService.create(review(7, 4, JAN));
+      status.setRollbackOnly();
+    });
+
+    verify(leaderboard, never()).markStale();
+    assertFalse(menuItemRatingStatsRepository.existsById(7L));
+  }
+}
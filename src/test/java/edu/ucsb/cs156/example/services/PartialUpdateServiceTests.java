@@ -0,0 +1,144 @@
+package edu.ucsb.cs156.example.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+import javax.persistence.EntityManager;
+import javax.persistence.Query;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.jackson.JacksonAutoConfiguration;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+
+import edu.ucsb.cs156.example.entities.HelpRequest;
+import edu.ucsb.cs156.example.errors.EntityNotFoundException;
+import edu.ucsb.cs156.example.errors.InvalidRequestException;
+
+@ExtendWith(SpringExtension.class)
+@Import({ PartialUpdateService.class, JacksonAutoConfiguration.class })
+@ContextConfiguration
+class PartialUpdateServiceTests {
+
+  static final Set<String> UPDATABLE = Set.of("explanation", "requestTime", "solved");
+
+  @MockBean
+  EntityManager entityManager;
+
+  @Autowired
+  PartialUpdateService partialUpdateService;
+
+  Query query = mock(Query.class);
+
+  @BeforeEach
+  void setup() {
+    when(entityManager.createQuery(anyString())).thenReturn(query);
+    when(query.setParameter(anyString(), any())).thenReturn(query);
+  }
+
+  @Test
+  void test_statement_sets_only_the_patched_fields() {
+    assertEquals("UPDATE helprequest e SET e.explanation = :explanation, e.solved = :solved WHERE e.id = :key",
+        PartialUpdateService.updateJpql(HelpRequest.class, "id", new TreeSet<>(Set.of("solved", "explanation"))));
+  }
+
+  @Test
+  void test_patch_binds_converted_values_and_key() {
+    // arrange
+    when(query.executeUpdate()).thenReturn(1);
+
+    // act
+    partialUpdateService.patch(HelpRequest.class, "id", 7L,
+        Map.of("solved", true, "requestTime", "2022-04-20T17:35:00"), UPDATABLE);
+
+    // assert
+    verify(entityManager, times(1))
+        .createQuery("UPDATE helprequest e SET e.requestTime = :requestTime, e.solved = :solved WHERE e.id = :key");
+    verify(query, times(1)).setParameter("requestTime", LocalDateTime.parse("2022-04-20T17:35:00"));
+    verify(query, times(1)).setParameter("solved", true);
+    verify(query, times(1)).setParameter("key", 7L);
+  }
+
+  @Test
+  void test_no_affected_rows_is_not_found() {
+    // arrange
+    when(query.executeUpdate()).thenReturn(0);
+
+    // act
+    EntityNotFoundException e = assertThrows(EntityNotFoundException.class,
+        () -> partialUpdateService.patch(HelpRequest.class, "id", 7L, Map.of("solved", true), UPDATABLE));
+
+    // assert
+    assertEquals("HelpRequest with id 7 not found", e.getMessage());
+  }
+
+  @Test
+  void test_fields_outside_the_whitelist_are_rejected() {
+    InvalidRequestException e = assertThrows(InvalidRequestException.class,
+        () -> partialUpdateService.patch(HelpRequest.class, "id", 7L, Map.of("id", 8), UPDATABLE));
+
+    assertEquals("Field id cannot be updated", e.getMessage());
+    verify(entityManager, never()).createQuery(anyString());
+  }
+
+  @Test
+  void test_empty_patch_is_rejected() {
+    InvalidRequestException e = assertThrows(InvalidRequestException.class,
+        () -> partialUpdateService.patch(HelpRequest.class, "id", 7L, Map.of(), UPDATABLE));
+
+    assertEquals("Patch must name at least one field", e.getMessage());
+  }
+
+  @Test
+  void test_null_is_rejected_for_primitive_fields() {
+    Map<String, Object> patch = new HashMap<>();
+    patch.put("solved", null);
+
+    InvalidRequestException e = assertThrows(InvalidRequestException.class,
+        () -> partialUpdateService.patch(HelpRequest.class, "id", 7L, patch, UPDATABLE));
+
+    assertEquals("Field solved cannot be null", e.getMessage());
+    verify(entityManager, never()).createQuery(anyString());
+  }
+
+  @Test
+  void test_values_of_the_wrong_type_are_rejected() {
+    InvalidRequestException e = assertThrows(InvalidRequestException.class,
+        () -> partialUpdateService.patch(HelpRequest.class, "id", 7L, Map.of("solved", "maybe"), UPDATABLE));
+
+    assertEquals("Patch values do not match the fields of HelpRequest", e.getMessage());
+    verify(entityManager, never()).createQuery(anyString());
+  }
+
+  @Test
+  void test_null_clears_other_fields() {
+    // arrange
+    when(query.executeUpdate()).thenReturn(1);
+    Map<String, Object> patch = new HashMap<>();
+    patch.put("explanation", null);
+
+    // act
+    partialUpdateService.patch(HelpRequest.class, "id", 7L, patch, UPDATABLE);
+
+    // assert
+    verify(query, times(1)).setParameter("explanation", null);
+  }
+}
@@ -0,0 +1,100 @@
+package edu.ucsb.cs156.example.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.mock;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Optional;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import edu.ucsb.cs156.example.entities.User;
+import edu.ucsb.cs156.example.repositories.UserRepository;
+
+/**
+ * Runs the batched UPDATE against the USERS table created by the Liquibase
+ * changelog in an in-memory H2 database.
+ */
+@SpringBootTest(properties = {
+    "spring.datasource.url=jdbc:h2:mem:profilesync;DB_CLOSE_DELAY=-1",
+    "spring.datasource.username=sa",
+    "spring.datasource.password=",
+    "spring.liquibase.url=jdbc:h2:mem:profilesync;DB_CLOSE_DELAY=-1",
+    "spring.liquibase.user=sa",
+    "spring.liquibase.password=",
+    "spring.liquibase.enabled=true"
+})
+class ProfileSyncWriterDatabaseTests {
+
+  @Autowired
+  JdbcTemplate jdbcTemplate;
+
+  @Autowired
+  UserRepository userRepository;
+
+  ProfileSyncWriter writer() {
+    return new ProfileSyncWriter(jdbcTemplate, 10,
+        Clock.fixed(Instant.parse("2022-04-20T19:00:00Z"), ZoneOffset.UTC));
+  }
+
+  @Test
+  void test_update_leaves_unset_columns_alone() {
+    User user = userRepository.save(User.builder().email("cgaucho@ucsb.edu").fullName("Chris Gaucho")
+        .pictureUrl("old.png").emailVerified(true).locale("en").admin(false).build());
+    ProfileSyncWriter writer = writer();
+
+    writer.enqueue(new UserProfileUpdate(user.getId(), null, null, "115856948234298493496", "new.png", null, null, null, null,
+        null, null, true, null));
+    writer.seen(user.getId());
+    assertEquals(1, writer.flush());
+
+    User stored = userRepository.findById(user.getId()).get();
+    assertEquals("115856948234298493496", stored.getGoogleSub());
+    assertEquals("new.png", stored.getPictureUrl());
+    assertEquals("Chris Gaucho", stored.getFullName());
+    assertEquals(true, stored.getEmailVerified());
+    assertEquals("en", stored.getLocale());
+    assertEquals(true, stored.getAdmin());
+    assertEquals(LocalDateTime.parse("2022-04-20T19:00:00"), stored.getLastSeen());
+  }
+
+  @Test
+  void test_subject_is_never_replaced_and_admin_never_demoted() {
+    User user = userRepository.save(User.builder().email("ldelplaya@ucsb.edu").googleSub("original")
+        .emailVerified(true).admin(true).build());
+    ProfileSyncWriter writer = writer();
+
+    writer.enqueue(new UserProfileUpdate(user.getId(), null, null, "other", null, null, null, null, false, null, null, false,
+        null));
+    writer.flush();
+
+    User stored = userRepository.findById(user.getId()).get();
+    assertEquals("original", stored.getGoogleSub());
+    assertEquals(true, stored.getAdmin());
+    assertEquals(false, stored.getEmailVerified());
+    assertEquals(null, stored.getLastSeen());
+  }
+
+  @Test
+  void test_changed_email_is_written() {
+    User user = userRepository.save(User.builder().email("ccampus@ucsb.edu").googleSub("108318052268079221395")
+        .admin(true).build());
+    ProfileSyncWriter writer = writer();
+    writer.currentUserCache = mock(CurrentUserCache.class);
+    writer.adminAuthorityResolver = mock(AdminAuthorityResolver.class);
+
+    writer.enqueue(new UserProfileUpdate(user.getId(), "ccampus@ucsb.edu", "chris.campus@ucsb.edu", null, null, null,
+        null, null, null, null, null, false, null));
+    writer.flush();
+
+    assertEquals(user.getId(), userRepository.findByEmail("chris.campus@ucsb.edu").get().getId());
+    assertEquals(true, userRepository.findByEmail("chris.campus@ucsb.edu").get().getAdmin());
+    assertEquals(Optional.empty(), userRepository.findByEmail("ccampus@ucsb.edu"));
+  }
+}
@@ -0,0 +1,219 @@
+package edu.ucsb.cs156.example.services;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.jdbc.core.JdbcOperations;
+
+class ProfileSyncWriterTests {
+
+  static final Instant NOW = Instant.parse("2022-04-20T19:00:00Z");
+
+  JdbcOperations jdbc = mock(JdbcOperations.class);
+  CurrentUserCache currentUserCache = mock(CurrentUserCache.class);
+  AdminAuthorityResolver adminAuthorityResolver = mock(AdminAuthorityResolver.class);
+  ProfileSyncWriter writer = writer();
+
+  ProfileSyncWriter writer() {
+    ProfileSyncWriter writer = new ProfileSyncWriter(jdbc, 10, Clock.fixed(NOW, ZoneOffset.UTC));
+    writer.currentUserCache = currentUserCache;
+    writer.adminAuthorityResolver = adminAuthorityResolver;
+    return writer;
+  }
+
+  @SuppressWarnings("unchecked")
+  List<Object[]> written() {
+    ArgumentCaptor<List<Object[]>> rows = ArgumentCaptor.forClass(List.class);
+    verify(jdbc).batchUpdate(eq(ProfileSyncWriter.UPDATE), rows.capture(), any(int[].class));
+    return rows.getValue();
+  }
+
+  @Test
+  void test_updates_for_one_user_become_one_row() {
+    for (int i = 0; i < 100; i++) {
+      writer.seen(7);
+    }
+    writer.enqueue(new UserProfileUpdate(7, null, null, null, "https://example.org/new.png", null, null, null, null, null, null,
+        true, null));
+    writer.seen(8);
+
+    assertEquals(2, writer.pendingCount());
+    assertEquals(2, writer.flush());
+
+    List<Object[]> rows = written();
+    assertEquals(2, rows.size());
+    Object[] seven = rows.stream().filter(row -> row[11].equals(7L)).findFirst().get();
+    assertArrayEquals(new Object[] { null, "https://example.org/new.png", null, null, null, null, null, null, true,
+        LocalDateTime.parse("2022-04-20T19:00:00"), null, 7L }, seven);
+    assertEquals(0, writer.pendingCount());
+  }
+
+  @Test
+  void test_written_profile_changes_drop_the_cached_user() {
+    writer.enqueue(new UserProfileUpdate(7, "cgaucho@ucsb.edu", null, null, null, null, null, null, null, null, null, true,
+        null));
+    writer.seen(8);
+
+    writer.flush();
+
+    verify(currentUserCache).invalidate("cgaucho@ucsb.edu");
+    verify(currentUserCache, times(1)).invalidate(anyString());
+    verify(adminAuthorityResolver, never()).invalidate(anyString());
+  }
+
+  @Test
+  void test_written_email_change_drops_both_cached_users_and_the_new_admin_flag() {
+    writer.enqueue(new UserProfileUpdate(7, "cgaucho@ucsb.edu", "chris.gaucho@ucsb.edu", null, null, null, null, null,
+        null, null, null, false, null));
+
+    writer.flush();
+
+    assertEquals("chris.gaucho@ucsb.edu", written().get(0)[10]);
+    verify(currentUserCache).invalidate("cgaucho@ucsb.edu");
+    verify(currentUserCache).invalidate("chris.gaucho@ucsb.edu");
+    verify(adminAuthorityResolver).invalidate("chris.gaucho@ucsb.edu");
+  }
+
+  @Test
+  void test_cached_user_is_kept_until_the_change_is_written() {
+    when(jdbc.batchUpdate(anyString(), anyList(), any(int[].class))).thenThrow(new QueryTimeoutException("timeout"));
+    writer.enqueue(new UserProfileUpdate(7, "cgaucho@ucsb.edu", null, null, null, null, null, null, null, null, null, true,
+        null));
+
+    writer.flush();
+
+    verify(currentUserCache, never()).invalidate(anyString());
+  }
+
+  @Test
+  void test_nothing_pending_writes_nothing() {
+    assertEquals(0, writer.flush());
+    verify(jdbc, never()).batchUpdate(anyString(), anyList(), any(int[].class));
+  }
+
+  @Test
+  void test_failed_batch_is_retried_with_newer_updates_merged_in() {
+    when(jdbc.batchUpdate(anyString(), anyList(), any(int[].class)))
+        .thenThrow(new QueryTimeoutException("timeout"))
+        .thenReturn(new int[] { 1 });
+    writer.enqueue(new UserProfileUpdate(7, null, null, null, "old.png", "Old Name", null, null, null, null, null, false, null));
+
+    assertEquals(0, writer.flush());
+    assertEquals(1, writer.pendingCount());
+
+    writer.enqueue(new UserProfileUpdate(7, null, null, null, "new.png", null, null, null, null, null, null, false, null));
+    assertEquals(1, writer.flush());
+
+    @SuppressWarnings("unchecked")
+    ArgumentCaptor<List<Object[]>> rows = ArgumentCaptor.forClass(List.class);
+    verify(jdbc, times(2)).batchUpdate(eq(ProfileSyncWriter.UPDATE), rows.capture(), any(int[].class));
+    Object[] retried = rows.getAllValues().get(1).get(0);
+    assertEquals("new.png", retried[1]);
+    assertEquals("Old Name", retried[2]);
+  }
+
+  @Test
+  void test_update_queued_during_a_failed_write_wins_over_the_retry() {
+    when(jdbc.batchUpdate(anyString(), anyList(), any(int[].class)))
+        .thenAnswer(invocation -> {
+          writer.enqueue(new UserProfileUpdate(7, null, null, null, "new.png", null, null, null, null, null, null, false,
+              null));
+          throw new QueryTimeoutException("timeout");
+        })
+        .thenReturn(new int[] { 1 });
+    writer.enqueue(new UserProfileUpdate(7, null, null, null, "old.png", "Old Name", null, null, null, null, null, false, null));
+
+    assertEquals(0, writer.flush());
+    assertEquals(1, writer.pendingCount());
+    assertEquals(1, writer.flush());
+
+    @SuppressWarnings("unchecked")
+    ArgumentCaptor<List<Object[]>> rows = ArgumentCaptor.forClass(List.class);
+    verify(jdbc, times(2)).batchUpdate(eq(ProfileSyncWriter.UPDATE), rows.capture(), any(int[].class));
+    Object[] retried = rows.getAllValues().get(1).get(0);
+    assertEquals("new.png", retried[1]);
+    assertEquals("Old Name", retried[2]);
+  }
+
+  @Test
+  void test_run_flushes_what_is_left_when_not_running() {
+    writer.seen(7);
+
+    writer.run();
+
+    assertEquals(0, writer.pendingCount());
+  }
+
+  @Test
+  void test_background_thread_flushes_until_stopped() throws Exception {
+    writer.start();
+    writer.start();
+    assertTrue(writer.isRunning());
+
+    writer.seen(7);
+    for (int i = 0; i < 100 && writer.pendingCount() > 0; i++) {
+      Thread.sleep(10);
+    }
+    writer.seen(8);
+
+    writer.stop();
+    writer.stop();
+    assertFalse(writer.isRunning());
+    assertEquals(0, writer.pendingCount());
+  }
+
+  @Test
+  void test_stop_keeps_the_interrupt_flag() throws Exception {
+    CountDownLatch writing = new CountDownLatch(1);
+    CountDownLatch release = new CountDownLatch(1);
+    // the background thread is still writing when stop() joins it
+    when(jdbc.batchUpdate(eq(ProfileSyncWriter.UPDATE), anyList(), any(int[].class))).thenAnswer(invocation -> {
+      writing.countDown();
+      release.await(5, TimeUnit.SECONDS);
+      return new int[] { 1 };
+    });
+    writer.seen(7);
+    writer.start();
+    assertTrue(writing.await(5, TimeUnit.SECONDS));
+
+    try {
+      Thread.currentThread().interrupt();
+      writer.stop();
+
+      assertTrue(Thread.interrupted());
+      assertFalse(writer.isRunning());
+    } finally {
+      release.countDown();
+    }
+  }
+
+  @Test
+  void test_default_clock() {
+    ProfileSyncWriter defaultClock = new ProfileSyncWriter(jdbc, 10);
+    defaultClock.seen(7);
+
+    assertEquals(1, defaultClock.pendingCount());
+  }
+}
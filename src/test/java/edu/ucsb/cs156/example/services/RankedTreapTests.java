@@ -0,0 +1,94 @@
+package edu.ucsb.cs156.example.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeMap;
+
+import org.junit.jupiter.api.Test;
+
+class RankedTreapTests {
+
+  RankedTreap<Integer, String> empty = RankedTreap.empty(Comparator.naturalOrder());
+
+  @Test
+  void test_empty_treap() {
+    assertEquals(0, empty.size());
+    assertNull(empty.get(1));
+    assertEquals(-1, empty.rank(1));
+    assertEquals(List.of(), empty.values());
+  }
+
+  @Test
+  void test_rank_counts_the_keys_before() {
+    RankedTreap<Integer, String> treap = empty.with(30, "c").with(10, "a").with(20, "b");
+
+    assertEquals(3, treap.size());
+    assertEquals(List.of("a", "b", "c"), treap.values());
+    assertEquals(0, treap.rank(10));
+    assertEquals(1, treap.rank(20));
+    assertEquals(2, treap.rank(30));
+    assertEquals(-1, treap.rank(15));
+    assertEquals("b", treap.get(20));
+    assertNull(treap.get(25));
+  }
+
+  @Test
+  void test_with_replaces_an_existing_value() {
+    RankedTreap<Integer, String> treap = empty.with(1, "a").with(2, "b").with(1, "z");
+
+    assertEquals(2, treap.size());
+    assertEquals(List.of("z", "b"), treap.values());
+  }
+
+  @Test
+  void test_updates_leave_older_versions_alone() {
+    RankedTreap<Integer, String> before = empty.with(1, "a").with(2, "b");
+
+    RankedTreap<Integer, String> after = before.without(1).with(3, "c");
+
+    assertEquals(List.of("a", "b"), before.values());
+    assertEquals(1, before.rank(2));
+    assertEquals(List.of("b", "c"), after.values());
+    assertEquals(0, after.rank(2));
+  }
+
+  @Test
+  void test_removing_a_missing_key_returns_the_same_treap() {
+    RankedTreap<Integer, String> treap = empty.with(1, "a").with(5, "e").with(9, "i");
+
+    assertSame(treap, treap.without(0));
+    assertSame(treap, treap.without(7));
+    assertSame(treap, treap.without(10));
+    assertSame(empty, empty.without(1));
+  }
+
+  @Test
+  void test_agrees_with_a_sorted_map_under_random_updates() {
+    Random random = new Random(156);
+    TreeMap<Integer, String> expected = new TreeMap<>();
+    RankedTreap<Integer, String> treap = empty;
+
+    for (int i = 0; i < 5000; i++) {
+      int key = random.nextInt(500);
+      if (random.nextInt(3) == 0) {
+        expected.remove(key);
+        treap = treap.without(key);
+      } else {
+        expected.put(key, "v" + i);
+        treap = treap.with(key, "v" + i);
+      }
+      int probe = random.nextInt(500);
+      assertEquals(expected.containsKey(probe) ? expected.headMap(probe).size() : -1, treap.rank(probe));
+      assertEquals(expected.get(probe), treap.get(probe));
+      assertEquals(expected.size(), treap.size());
+    }
+
+    assertEquals(new ArrayList<>(expected.values()), treap.values());
+  }
+}
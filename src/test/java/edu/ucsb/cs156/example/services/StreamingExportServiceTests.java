@@ -0,0 +1,182 @@
+package edu.ucsb.cs156.example.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+import javax.persistence.EntityManager;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.jackson.JacksonAutoConfiguration;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import edu.ucsb.cs156.example.entities.UCSBDate;
+import edu.ucsb.cs156.example.errors.InvalidRequestException;
+
+@ExtendWith(SpringExtension.class)
+@Import({ StreamingExportService.class, JacksonAutoConfiguration.class })
+@ContextConfiguration
+class StreamingExportServiceTests {
+
+  @MockBean
+  PlatformTransactionManager transactionManager;
+
+  @MockBean
+  EntityManager entityManager;
+
+  @Autowired
+  ObjectMapper mapper;
+
+  @Autowired
+  StreamingExportService streamingExportService;
+
+  UCSBDate date1 = UCSBDate.builder().id(1L).quarterYYYYQ("20222").name("firstDayOfClasses")
+      .localDateTime(LocalDateTime.parse("2022-01-03T00:00:00")).build();
+  UCSBDate date2 = UCSBDate.builder().id(2L).quarterYYYYQ("20222").name("lastDayOfClasses")
+      .localDateTime(LocalDateTime.parse("2022-03-11T00:00:00")).build();
+
+  static class Unserializable {
+    public String getValue() {
+      throw new IllegalStateException("boom");
+    }
+  }
+
+  @Test
+  void test_export_json_writes_one_array() throws Exception {
+    // act
+    ResponseEntity<StreamingResponseBody> response = streamingExportService.export("json", () -> Stream.of(date1, date2));
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    response.getBody().writeTo(out);
+
+    // assert
+    assertEquals(MediaType.APPLICATION_JSON, response.getHeaders().getContentType());
+    assertEquals(mapper.writeValueAsString(List.of(date1, date2)), out.toString());
+    verify(entityManager, times(1)).detach(date1);
+    verify(entityManager, times(1)).detach(date2);
+  }
+
+  @Test
+  void test_export_ndjson_writes_one_line_per_row() throws Exception {
+    // act
+    ResponseEntity<StreamingResponseBody> response = streamingExportService.export("ndjson", () -> Stream.of(date1, date2));
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    response.getBody().writeTo(out);
+
+    // assert
+    assertEquals(StreamingExportService.APPLICATION_NDJSON, response.getHeaders().getContentType());
+    String expected = mapper.writeValueAsString(date1) + "\n" + mapper.writeValueAsString(date2) + "\n";
+    assertEquals(expected, out.toString());
+  }
+
+  @Test
+  void test_export_rejects_unknown_format() {
+    InvalidRequestException e = assertThrows(InvalidRequestException.class,
+        () -> streamingExportService.export("xml", () -> Stream.of(date1)));
+    assertEquals("Unsupported export format xml", e.getMessage());
+  }
+
+  @Test
+  void test_csv_is_only_offered_where_asked_for() throws Exception {
+    InvalidRequestException e = assertThrows(InvalidRequestException.class,
+        () -> streamingExportService.export("csv", () -> Stream.of(date1)));
+    assertEquals("Unsupported export format csv", e.getMessage());
+
+    ResponseEntity<StreamingResponseBody> response = streamingExportService.exportWithCsv("ndjson", () -> Stream.of(date1));
+    assertEquals(StreamingExportService.APPLICATION_NDJSON, response.getHeaders().getContentType());
+  }
+
+  @Test
+  void test_export_reports_serialization_failures() {
+    StreamingResponseBody body = streamingExportService
+        .export("json", () -> Stream.of(new Unserializable())).getBody();
+    assertThrows(UncheckedIOException.class, () -> body.writeTo(new ByteArrayOutputStream()));
+  }
+
+  @Test
+  void test_export_reports_output_failures() {
+    OutputStream broken = new OutputStream() {
+      @Override
+      public void write(int b) throws IOException {
+        throw new IOException("connection reset");
+      }
+    };
+    StreamingResponseBody body = streamingExportService.export("ndjson", () -> Stream.of(date1)).getBody();
+    assertThrows(UncheckedIOException.class, () -> body.writeTo(broken));
+  }
+
+  static Map<String, Object> row(Object... keysAndValues) {
+    Map<String, Object> row = new LinkedHashMap<>();
+    for (int i = 0; i < keysAndValues.length; i += 2) {
+      row.put((String) keysAndValues[i], keysAndValues[i + 1]);
+    }
+    return row;
+  }
+
+  @Test
+  void test_export_csv_writes_a_header_and_one_line_per_row() throws Exception {
+    // arrange
+    Map<String, Object> row1 = row("id", 1, "name", "plain", "note", "a,b", "nested", Map.of("x", 1), "gone", null);
+    Map<String, Object> row2 = row("id", 2, "name", "say \"hi\"", "note", "line\nbreak");
+    Map<String, Object> row3 = row("id", 3, "name", "cr\r");
+
+    // act
+    ResponseEntity<StreamingResponseBody> response = streamingExportService.exportWithCsv("csv", () -> Stream.of(row1, row2, row3));
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    response.getBody().writeTo(out);
+
+    // assert
+    assertEquals(StreamingExportService.TEXT_CSV, response.getHeaders().getContentType());
+    String expected = "id,name,note,nested,gone\r\n"
+        + "1,plain,\"a,b\",\"{\"\"x\"\":1}\",\r\n"
+        + "2,\"say \"\"hi\"\"\",\"line\nbreak\",,\r\n"
+        + "3,\"cr\r\",,,\r\n";
+    assertEquals(expected, out.toString());
+    verify(entityManager, times(1)).detach(row3);
+  }
+
+  @Test
+  void test_export_csv_of_nothing_is_empty() throws Exception {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    streamingExportService.exportWithCsv("csv", Stream::empty).getBody().writeTo(out);
+
+    assertEquals("", out.toString());
+  }
+
+  @Test
+  void test_export_csv_reports_output_failures() {
+    OutputStream broken = new OutputStream() {
+      @Override
+      public void write(int b) throws IOException {
+        throw new IOException("connection reset");
+      }
+    };
+    StreamingResponseBody small = streamingExportService.exportWithCsv("csv", () -> Stream.of(row("id", 1))).getBody();
+    assertThrows(UncheckedIOException.class, () -> small.writeTo(broken));
+
+    StreamingResponseBody large = streamingExportService
+        .exportWithCsv("csv", () -> Stream.of(row("id", "x".repeat(100_000)))).getBody();
+    assertThrows(UncheckedIOException.class, () -> large.writeTo(broken));
+  }
+}
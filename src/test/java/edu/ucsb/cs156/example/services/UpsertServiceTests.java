@@ -0,0 +1,123 @@
+package edu.ucsb.cs156.example.services;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.List;
+
+import javax.persistence.EntityManagerFactory;
+
+import org.hibernate.Cache;
+import org.hibernate.SessionFactory;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+
+import edu.ucsb.cs156.example.entities.UCSBDiningCommons;
+import edu.ucsb.cs156.example.entities.UCSBOrganizations;
+
+@ExtendWith(SpringExtension.class)
+@Import(UpsertService.class)
+@ContextConfiguration
+@TestPropertySource(properties = "spring.datasource.url=jdbc:h2:mem:upsert")
+class UpsertServiceTests {
+
+  @MockBean
+  JdbcTemplate jdbcTemplate;
+
+  @MockBean
+  EntityManagerFactory entityManagerFactory;
+
+  @Autowired
+  UpsertService upsertService;
+
+  Cache cache = mock(Cache.class);
+
+  @BeforeEach
+  void setup() {
+    SessionFactory sessionFactory = mock(SessionFactory.class);
+    when(sessionFactory.getCache()).thenReturn(cache);
+    when(entityManagerFactory.unwrap(SessionFactory.class)).thenReturn(sessionFactory);
+  }
+
+  @SuppressWarnings("unchecked")
+  List<Object[]> capturedRows(String sql) {
+    ArgumentCaptor<List<Object[]>> rows = ArgumentCaptor.forClass(List.class);
+    verify(jdbcTemplate, times(1)).batchUpdate(eq(sql), rows.capture());
+    return rows.getValue();
+  }
+
+  @Test
+  void test_postgres_statement_updates_every_non_key_column() {
+    assertEquals(
+        "INSERT INTO t (k, a, b) VALUES (?, ?, ?) ON CONFLICT (k) DO UPDATE SET a = EXCLUDED.a, b = EXCLUDED.b",
+        UpsertService.upsertSql("jdbc:postgresql://localhost/db", "t", List.of("k", "a", "b")));
+  }
+
+  @Test
+  void test_h2_statement_is_a_merge_on_the_key() {
+    assertEquals("MERGE INTO t (k, a) KEY (k) VALUES (?, ?)",
+        UpsertService.upsertSql("jdbc:h2:mem:db", "t", List.of("k", "a")));
+  }
+
+  @Test
+  void test_other_databases_are_rejected() {
+    IllegalStateException e = assertThrows(IllegalStateException.class,
+        () -> UpsertService.upsertSql("jdbc:mysql://localhost/db", "t", List.of("k")));
+    assertEquals("Upsert is not supported for jdbc:mysql://localhost/db", e.getMessage());
+  }
+
+  @Test
+  void test_upsert_dining_commons_batches_rows_and_evicts_caches() {
+    // arrange
+    UCSBDiningCommons ortega = UCSBDiningCommons.builder().code("ortega").name("Ortega").hasSackMeal(true)
+        .hasTakeOutMeal(false).hasDiningCam(true).latitude(34.41).longitude(-119.84).build();
+
+    // act
+    int count = upsertService.upsertDiningCommons(List.of(ortega));
+
+    // assert
+    assertEquals(1, count);
+    String sql = UpsertService.upsertSql("jdbc:h2:mem:upsert", "ucsbdiningcommons", UpsertService.DINING_COMMONS_COLUMNS);
+    List<Object[]> rows = capturedRows(sql);
+    assertEquals(1, rows.size());
+    assertArrayEquals(new Object[] { "ortega", "Ortega", true, false, true, 34.41, -119.84 }, rows.get(0));
+    verify(cache, times(1)).evict(UCSBDiningCommons.class);
+    verify(cache, times(1)).evictDefaultQueryRegion();
+  }
+
+  @Test
+  void test_upsert_organizations_batches_rows_and_evicts_caches() {
+    // arrange
+    UCSBOrganizations soccer = UCSBOrganizations.builder().orgCode("SC").orgTranslationShort("SOCCER")
+        .orgTranslation("SOCCER CLUB AT UCSB").inactive(false).build();
+    UCSBOrganizations chess = UCSBOrganizations.builder().orgCode("CC").orgTranslationShort("CHESS")
+        .orgTranslation("CHESS CLUB AT UCSB").inactive(true).build();
+
+    // act
+    int count = upsertService.upsertOrganizations(List.of(soccer, chess));
+
+    // assert
+    assertEquals(2, count);
+    String sql = UpsertService.upsertSql("jdbc:h2:mem:upsert", "ucsborganizations", UpsertService.ORGANIZATIONS_COLUMNS);
+    List<Object[]> rows = capturedRows(sql);
+    assertArrayEquals(new Object[] { "SC", "SOCCER", "SOCCER CLUB AT UCSB", false }, rows.get(0));
+    assertArrayEquals(new Object[] { "CC", "CHESS", "CHESS CLUB AT UCSB", true }, rows.get(1));
+    verify(cache, times(1)).evict(UCSBOrganizations.class);
+    verify(cache, times(1)).evictDefaultQueryRegion();
+  }
+}
@@ -0,0 +1,161 @@
+package edu.ucsb.cs156.example.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+import org.junit.jupiter.api.Test;
+
+import edu.ucsb.cs156.example.entities.User;
+
+class UserProfileUpdateTests {
+
+  static final LocalDateTime NOON = LocalDateTime.parse("2022-04-20T12:00:00");
+
+  static User stored() {
+    return User.builder().id(7).email("cgaucho@ucsb.edu").googleSub("115856948234298493496")
+        .pictureUrl("https://example.org/old.png").fullName("Chris Gaucho").givenName("Chris")
+        .familyName("Gaucho").emailVerified(true).locale("en").hostedDomain("ucsb.edu").admin(false).build();
+  }
+
+  static User fresh() {
+    return stored();
+  }
+
+  @Test
+  void test_no_changes() {
+    assertEquals(Optional.empty(), UserProfileUpdate.diff(stored(), fresh(), false));
+  }
+
+  @Test
+  void test_changed_fields_only() {
+    User fresh = fresh();
+    fresh.setPictureUrl("https://example.org/new.png");
+    fresh.setFullName("Christine Gaucho");
+    fresh.setGivenName("Christine");
+    fresh.setFamilyName("Gaucho-Olé");
+    fresh.setEmailVerified(false);
+    fresh.setLocale("es");
+    fresh.setHostedDomain("cs.ucsb.edu");
+    fresh.setGoogleSub("someone-else");
+
+    UserProfileUpdate update = UserProfileUpdate.diff(stored(), fresh, false).get();
+
+    assertEquals(new UserProfileUpdate(7, "cgaucho@ucsb.edu", null, null, "https://example.org/new.png", "Christine Gaucho", "Christine",
+        "Gaucho-Olé", false, "es", "cs.ucsb.edu", false, null), update);
+  }
+
+  @Test
+  void test_changed_email() {
+    User fresh = fresh();
+    fresh.setEmail("chris.gaucho@ucsb.edu");
+
+    UserProfileUpdate update = UserProfileUpdate.diff(stored(), fresh, false).get();
+
+    assertEquals(new UserProfileUpdate(7, "cgaucho@ucsb.edu", "chris.gaucho@ucsb.edu", null, null, null, null, null,
+        null, null, null, false, null), update);
+    User user = stored();
+    update.applyTo(user);
+    assertEquals("chris.gaucho@ucsb.edu", user.getEmail());
+  }
+
+  @Test
+  void test_merge_keeps_the_email_still_stored() {
+    UserProfileUpdate first = new UserProfileUpdate(7, "a@ucsb.edu", "b@ucsb.edu", null, null, null, null, null, null,
+        null, null, false, null);
+    UserProfileUpdate second = new UserProfileUpdate(7, "b@ucsb.edu", "c@ucsb.edu", null, null, null, null, null, null,
+        null, null, false, null);
+
+    UserProfileUpdate merged = first.merge(second);
+
+    assertEquals("a@ucsb.edu", merged.email());
+    assertEquals("c@ucsb.edu", merged.newEmail());
+  }
+
+  @Test
+  void test_missing_values_from_google_do_not_clear_stored_ones() {
+    User fresh = User.builder().email("cgaucho@ucsb.edu").emailVerified(true).build();
+
+    assertEquals(Optional.empty(), UserProfileUpdate.diff(stored(), fresh, false));
+  }
+
+  @Test
+  void test_subject_is_only_filled_in() {
+    User stored = stored();
+    stored.setGoogleSub(null);
+
+    assertEquals("115856948234298493496", UserProfileUpdate.diff(stored, fresh(), false).get().googleSub());
+  }
+
+  @Test
+  void test_admin_is_only_promoted() {
+    assertTrue(UserProfileUpdate.diff(stored(), fresh(), true).get().admin());
+
+    User admin = stored();
+    admin.setAdmin(true);
+    assertEquals(Optional.empty(), UserProfileUpdate.diff(admin, fresh(), true));
+    assertEquals(Optional.empty(), UserProfileUpdate.diff(admin, fresh(), false));
+  }
+
+  @Test
+  void test_any_single_field_makes_an_update_non_empty() {
+    List<UserProfileUpdate> updates = List.of(
+        new UserProfileUpdate(1, null, "e", null, null, null, null, null, null, null, null, false, null),
+        new UserProfileUpdate(1, null, null, "s", null, null, null, null, null, null, null, false, null),
+        new UserProfileUpdate(1, null, null, null, "p", null, null, null, null, null, null, false, null),
+        new UserProfileUpdate(1, null, null, null, null, "f", null, null, null, null, null, false, null),
+        new UserProfileUpdate(1, null, null, null, null, null, "g", null, null, null, null, false, null),
+        new UserProfileUpdate(1, null, null, null, null, null, null, "f", null, null, null, false, null),
+        new UserProfileUpdate(1, null, null, null, null, null, null, null, true, null, null, false, null),
+        new UserProfileUpdate(1, null, null, null, null, null, null, null, null, "l", null, false, null),
+        new UserProfileUpdate(1, null, null, null, null, null, null, null, null, null, "h", false, null),
+        new UserProfileUpdate(1, null, null, null, null, null, null, null, null, null, null, true, null),
+        UserProfileUpdate.seen(1, NOON));
+
+    for (UserProfileUpdate update : updates) {
+      assertFalse(update.isEmpty(), update.toString());
+    }
+    assertTrue(new UserProfileUpdate(1, null, null, null, null, null, null, null, null, null, null, false, null).isEmpty());
+  }
+
+  @Test
+  void test_merge_keeps_the_newest_value_of_each_field() {
+    UserProfileUpdate first = new UserProfileUpdate(7, "cgaucho@ucsb.edu", null, "sub", "p1", "f1", null, null, true, null, null, true, NOON);
+    UserProfileUpdate second = new UserProfileUpdate(7, null, null, null, "p2", null, "g2", null, null, null, "h2", false,
+        NOON.plusMinutes(1));
+
+    assertEquals(new UserProfileUpdate(7, "cgaucho@ucsb.edu", null, "sub", "p2", "f1", "g2", null, true, null, "h2", true, NOON.plusMinutes(1)),
+        first.merge(second));
+  }
+
+  @Test
+  void test_merge_keeps_the_latest_last_seen() {
+    UserProfileUpdate none = new UserProfileUpdate(7, null, null, null, "p", null, null, null, null, null, null, false, null);
+    UserProfileUpdate early = UserProfileUpdate.seen(7, NOON);
+    UserProfileUpdate late = UserProfileUpdate.seen(7, NOON.plusSeconds(1));
+
+    assertEquals(NOON, none.merge(early).lastSeen());
+    assertEquals(NOON, early.merge(none).lastSeen());
+    assertEquals(NOON.plusSeconds(1), early.merge(late).lastSeen());
+    assertEquals(NOON.plusSeconds(1), late.merge(early).lastSeen());
+    assertEquals(null, none.merge(none).lastSeen());
+  }
+
+  @Test
+  void test_apply_to() {
+    User user = stored();
+    new UserProfileUpdate(7, null, null, "sub", "p", "f", "g", "fam", false, "l", "h", true, NOON).applyTo(user);
+
+    assertEquals(User.builder().id(7).email("cgaucho@ucsb.edu").googleSub("sub").pictureUrl("p").fullName("f")
+        .givenName("g").familyName("fam").emailVerified(false).locale("l").hostedDomain("h").admin(true).build(),
+        user);
+
+    User unchanged = stored();
+    UserProfileUpdate.seen(7, NOON).applyTo(unchanged);
+    assertEquals(stored(), unchanged);
+  }
+}
@@ -0,0 +1,341 @@
+package edu.ucsb.cs156.example.sessions;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Runs against the APP_SESSION tables created by the Liquibase changelog in
+ * an in-memory H2 database.  Two repositories on the same database stand in
+ * for two instances of the app.
+ */
+@SpringBootTest(properties = {
+    "spring.datasource.url=jdbc:h2:mem:sharedsessions;DB_CLOSE_DELAY=-1",
+    "spring.datasource.username=sa",
+    "spring.datasource.password=",
+    "spring.liquibase.url=jdbc:h2:mem:sharedsessions;DB_CLOSE_DELAY=-1",
+    "spring.liquibase.user=sa",
+    "spring.liquibase.password=",
+    "spring.liquibase.enabled=true"
+})
+class SharedSessionRepositoryTests {
+
+  static final Duration TIMEOUT = Duration.ofMinutes(30);
+  static final Duration REVALIDATE = Duration.ofSeconds(1);
+  static final Duration FLUSH = Duration.ofSeconds(60);
+
+  static class TestClock extends Clock {
+    Instant now = Instant.parse("2022-04-01T12:00:00Z");
+
+    @Override
+    public Instant instant() {
+      return now;
+    }
+
+    @Override
+    public ZoneId getZone() {
+      return ZoneOffset.UTC;
+    }
+
+    @Override
+    public Clock withZone(ZoneId zone) {
+      return this;
+    }
+  }
+
+  @Autowired
+  JdbcTemplate jdbcTemplate;
+
+  @Autowired
+  PlatformTransactionManager transactionManager;
+
+  TestClock clock = new TestClock();
+  AtomicLong nanos = new AtomicLong();
+
+  SharedSessionRepository instance(int nearCacheSize) {
+    return new SharedSessionRepository(jdbcTemplate, new TransactionTemplate(transactionManager), TIMEOUT,
+        REVALIDATE, FLUSH, nearCacheSize, clock, nanos::get);
+  }
+
+  SharedSessionRepository first;
+  SharedSessionRepository second;
+
+  @BeforeEach
+  void setUp() {
+    first = instance(100);
+    second = instance(100);
+  }
+
+  int version(SharedSession session) {
+    return jdbcTemplate.queryForObject("SELECT VERSION FROM APP_SESSION WHERE PRIMARY_ID = ?", Integer.class,
+        session.getPrimaryId());
+  }
+
+  long lastAccess(SharedSession session) {
+    return jdbcTemplate.queryForObject("SELECT LAST_ACCESS_TIME FROM APP_SESSION WHERE PRIMARY_ID = ?", Long.class,
+        session.getPrimaryId());
+  }
+
+  int attributeRows(SharedSession session) {
+    return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM APP_SESSION_ATTRIBUTE WHERE SESSION_PRIMARY_ID = ?",
+        Integer.class, session.getPrimaryId());
+  }
+
+  void advance(Duration duration) {
+    clock.now = clock.now.plus(duration);
+    nanos.addAndGet(duration.toNanos());
+  }
+
+  @Test
+  void test_other_instance_reads_what_was_saved() {
+    SharedSession session = first.createSession();
+    session.setAttribute("user", "cgaucho");
+    first.save(session);
+
+    SharedSession found = second.findById(session.getId());
+
+    assertEquals("cgaucho", found.getAttribute("user"));
+    assertEquals(session.getCreationTime(), found.getCreationTime());
+    assertEquals(TIMEOUT, found.getMaxInactiveInterval());
+    assertEquals(1, attributeRows(session));
+  }
+
+  @Test
+  void test_empty_session_round_trip() {
+    SharedSession session = first.createSession();
+    first.save(session);
+
+    assertTrue(second.findById(session.getId()).getAttributeNames().isEmpty());
+    assertEquals(0, attributeRows(session));
+  }
+
+  @Test
+  void test_unknown_id() {
+    assertNull(first.findById("no-such-session"));
+  }
+
+  @Test
+  void test_cached_session_is_served_without_the_database() {
+    SharedSession session = first.createSession();
+    session.setAttribute("user", "cgaucho");
+    first.save(session);
+    jdbcTemplate.update("DELETE FROM APP_SESSION WHERE PRIMARY_ID = ?", session.getPrimaryId());
+
+    assertEquals("cgaucho", first.findById(session.getId()).getAttribute("user"));
+
+    advance(REVALIDATE);
+    assertNull(first.findById(session.getId()));
+    assertNull(first.findById(session.getId()));
+  }
+
+  @Test
+  void test_each_caller_gets_its_own_copy() {
+    SharedSession session = first.createSession();
+    first.save(session);
+
+    first.findById(session.getId()).setAttribute("scratch", "value");
+
+    assertNull(first.findById(session.getId()).getAttribute("scratch"));
+  }
+
+  @Test
+  void test_changes_on_another_instance_are_seen_after_revalidation() {
+    SharedSession session = first.createSession();
+    session.setAttribute("user", "cgaucho");
+    first.save(session);
+    SharedSession onSecond = second.findById(session.getId());
+    assertEquals("cgaucho", first.findById(session.getId()).getAttribute("user"));
+
+    onSecond.setAttribute("user", "ldelplaya");
+    second.save(onSecond);
+    assertEquals(1, version(session));
+    assertEquals("cgaucho", first.findById(session.getId()).getAttribute("user"));
+
+    advance(REVALIDATE);
+    assertEquals("ldelplaya", first.findById(session.getId()).getAttribute("user"));
+  }
+
+  @Test
+  void test_unchanged_session_is_revalidated_with_the_version_only() {
+    SharedSession session = first.createSession();
+    session.setAttribute("user", "cgaucho");
+    first.save(session);
+    SharedSession onSecond = second.findById(session.getId());
+    advance(FLUSH);
+    onSecond.setLastAccessedTime(clock.instant());
+    second.save(onSecond);
+    // a bogus attribute value: it would be seen if the attributes were re-read
+    jdbcTemplate.update("UPDATE APP_SESSION_ATTRIBUTE SET ATTRIBUTE_BYTES = ? WHERE SESSION_PRIMARY_ID = ?",
+        new byte[] { 1, 2, 3 }, session.getPrimaryId());
+
+    SharedSession found = first.findById(session.getId());
+
+    assertEquals("cgaucho", found.getAttribute("user"));
+    assertEquals(clock.instant(), found.getLastAccessedTime());
+  }
+
+  @Test
+  void test_only_changed_attributes_are_written() {
+    SharedSession session = first.createSession();
+    session.setAttribute("keep", "k");
+    session.setAttribute("drop", "d");
+    session.setAttribute("change", "c1");
+    first.save(session);
+
+    SharedSession found = first.findById(session.getId());
+    found.removeAttribute("drop");
+    found.setAttribute("change", "c2");
+    found.setAttribute("add", "a");
+    jdbcTemplate.update("UPDATE APP_SESSION_ATTRIBUTE SET ATTRIBUTE_BYTES = ? "
+        + "WHERE SESSION_PRIMARY_ID = ? AND ATTRIBUTE_NAME = 'keep'", new byte[] { 1, 2, 3 }, session.getPrimaryId());
+    first.save(found);
+
+    assertEquals(1, version(session));
+    assertEquals(Set.of("keep", "change", "add"), Set.copyOf(jdbcTemplate.queryForList(
+        "SELECT ATTRIBUTE_NAME FROM APP_SESSION_ATTRIBUTE WHERE SESSION_PRIMARY_ID = ?", String.class,
+        session.getPrimaryId())));
+    assertArrayEquals(new byte[] { 1, 2, 3 }, jdbcTemplate.queryForObject("SELECT ATTRIBUTE_BYTES FROM "
+        + "APP_SESSION_ATTRIBUTE WHERE SESSION_PRIMARY_ID = ? AND ATTRIBUTE_NAME = 'keep'", byte[].class,
+        session.getPrimaryId()));
+
+    jdbcTemplate.update("DELETE FROM APP_SESSION_ATTRIBUTE WHERE SESSION_PRIMARY_ID = ? AND ATTRIBUTE_NAME = 'keep'",
+        session.getPrimaryId());
+    SharedSession reread = second.findById(found.getId());
+    assertEquals("c2", reread.getAttribute("change"));
+    assertEquals("a", reread.getAttribute("add"));
+  }
+
+  @Test
+  void test_access_time_writes_are_coalesced() {
+    SharedSession session = first.createSession();
+    first.save(session);
+    long created = lastAccess(session);
+
+    for (int i = 0; i < 5; i++) {
+      advance(Duration.ofSeconds(10));
+      SharedSession found = first.findById(session.getId());
+      found.setLastAccessedTime(clock.instant());
+      first.save(found);
+    }
+    assertEquals(created, lastAccess(session));
+    assertEquals(clock.instant(), first.findById(session.getId()).getLastAccessedTime());
+
+    advance(Duration.ofSeconds(10));
+    SharedSession found = first.findById(session.getId());
+    found.setLastAccessedTime(clock.instant());
+    first.save(found);
+    assertEquals(clock.instant().toEpochMilli(), lastAccess(session));
+    assertEquals(0, version(session));
+  }
+
+  @Test
+  void test_coalesced_save_does_not_extend_the_revalidation_window() {
+    SharedSessionRepository small = instance(1);
+    SharedSession session = small.createSession();
+    small.save(session);
+    SharedSession found = small.findById(session.getId());
+    small.save(small.createSession());
+    jdbcTemplate.update("DELETE FROM APP_SESSION WHERE PRIMARY_ID = ?", session.getPrimaryId());
+
+    small.save(found);
+
+    assertNull(small.findById(session.getId()));
+  }
+
+  @Test
+  void test_timeout_change_is_written() {
+    SharedSession session = first.createSession();
+    first.save(session);
+    SharedSession found = first.findById(session.getId());
+    found.setMaxInactiveInterval(Duration.ofMinutes(5));
+    first.save(found);
+
+    assertEquals(Duration.ofMinutes(5), second.findById(session.getId()).getMaxInactiveInterval());
+  }
+
+  @Test
+  void test_changed_session_id() {
+    SharedSession session = first.createSession();
+    first.save(session);
+    String oldId = session.getId();
+    SharedSession found = first.findById(oldId);
+    String newId = found.changeSessionId();
+    first.save(found);
+
+    assertEquals(1, first.nearCacheSize());
+    assertNull(first.findById(oldId));
+    assertNotNull(first.findById(newId));
+    assertNotNull(second.findById(newId));
+    assertEquals(1, version(session));
+  }
+
+  @Test
+  void test_expired_sessions() {
+    SharedSession session = first.createSession();
+    first.save(session);
+    SharedSession forever = first.createSession();
+    forever.setMaxInactiveInterval(Duration.ofSeconds(-1));
+    first.save(forever);
+
+    advance(TIMEOUT);
+    assertNull(first.findById(session.getId()));
+    assertNull(second.findById(session.getId()));
+    assertNotNull(second.findById(forever.getId()));
+  }
+
+  @Test
+  void test_clean_up_allows_for_unflushed_access() {
+    SharedSession session = first.createSession();
+    first.save(session);
+
+    advance(TIMEOUT.plus(FLUSH));
+    first.cleanUpExpiredSessions();
+    assertEquals(1, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM APP_SESSION WHERE PRIMARY_ID = ?",
+        Integer.class, session.getPrimaryId()));
+
+    advance(Duration.ofSeconds(1));
+    assertTrue(first.cleanUpExpiredSessions() >= 1);
+    assertEquals(0, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM APP_SESSION WHERE PRIMARY_ID = ?",
+        Integer.class, session.getPrimaryId()));
+  }
+
+  @Test
+  void test_delete() {
+    SharedSession session = first.createSession();
+    session.setAttribute("user", "cgaucho");
+    first.save(session);
+
+    first.deleteById(session.getId());
+
+    assertNull(first.findById(session.getId()));
+    assertEquals(0, attributeRows(session));
+  }
+
+  @Test
+  void test_default_clocks() {
+    SharedSessionRepository repository = new SharedSessionRepository(jdbcTemplate,
+        new TransactionTemplate(transactionManager), TIMEOUT, REVALIDATE, FLUSH, 10);
+    SharedSession session = repository.createSession();
+    repository.save(session);
+
+    assertNotNull(repository.findById(session.getId()));
+  }
+}
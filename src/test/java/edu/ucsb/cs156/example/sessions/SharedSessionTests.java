@@ -0,0 +1,111 @@
+package edu.ucsb.cs156.example.sessions;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.Set;
+
+import org.junit.jupiter.api.Test;
+
+class SharedSessionTests {
+
+  static final Instant NOW = Instant.parse("2022-04-01T12:00:00Z");
+
+  SharedSession session = new SharedSession("primary", "id", NOW, NOW, Duration.ofMinutes(30), new HashMap<>(), 3);
+
+  @Test
+  void test_new_session() {
+    SharedSession created = new SharedSession(NOW, Duration.ofMinutes(30));
+
+    assertTrue(created.isNew());
+    assertNotEquals(created.getPrimaryId(), created.getId());
+    assertEquals(NOW, created.getCreationTime());
+    assertEquals(NOW, created.getLastAccessedTime());
+    assertEquals(0, created.getVersion());
+    assertFalse(session.isNew());
+  }
+
+  @Test
+  void test_only_real_changes_are_tracked() {
+    session.setAttribute("a", "1");
+    session.setAttribute("a", "2");
+    session.removeAttribute("missing");
+    session.setMaxInactiveInterval(Duration.ofMinutes(30));
+
+    assertEquals(Set.of("a"), session.getChangedAttributes());
+    assertEquals("2", session.getAttribute("a"));
+    assertEquals(Set.of("a"), session.getAttributeNames());
+    assertFalse(session.isMaxInactiveIntervalChanged());
+
+    session.setAttribute("a", null);
+    assertNull(session.getAttribute("a"));
+    assertEquals(Set.of("a"), session.getChangedAttributes());
+
+    session.setMaxInactiveInterval(Duration.ofMinutes(5));
+    assertTrue(session.isMaxInactiveIntervalChanged());
+    assertEquals(Duration.ofMinutes(5), session.getMaxInactiveInterval());
+  }
+
+  @Test
+  void test_copy_is_independent() {
+    session.setAttribute("a", "1");
+    session.changeSessionId();
+    SharedSession copy = session.copy();
+    copy.setAttribute("b", "2");
+
+    assertEquals(Set.of("a"), session.getAttributeNames());
+    assertEquals(Set.of("a", "b"), copy.getAttributeNames());
+    assertEquals(Set.of("a"), session.getChangedAttributes());
+    assertEquals(session.getId(), copy.getId());
+    assertEquals("id", copy.getPersistedId());
+    assertEquals(session.getPrimaryId(), copy.getPrimaryId());
+  }
+
+  @Test
+  void test_persisted_clears_pending_changes() {
+    String newId = session.changeSessionId();
+    session.setAttribute("a", "1");
+    session.setMaxInactiveInterval(Duration.ofMinutes(5));
+    session.setLastAccessedTime(NOW.plusSeconds(90));
+
+    session.persisted(4);
+
+    assertEquals(newId, session.getPersistedId());
+    assertEquals(NOW.plusSeconds(90), session.getPersistedAccessTime());
+    assertTrue(session.getChangedAttributes().isEmpty());
+    assertFalse(session.isMaxInactiveIntervalChanged());
+    assertEquals(4, session.getVersion());
+  }
+
+  @Test
+  void test_accessed_elsewhere_only_moves_forward() {
+    session.setLastAccessedTime(NOW.plusSeconds(10));
+
+    session.accessedElsewhere(NOW.plusSeconds(5));
+    assertEquals(NOW.plusSeconds(10), session.getLastAccessedTime());
+    assertEquals(NOW.plusSeconds(5), session.getPersistedAccessTime());
+
+    session.accessedElsewhere(NOW.minusSeconds(5));
+    assertEquals(NOW.plusSeconds(5), session.getPersistedAccessTime());
+
+    session.accessedElsewhere(NOW.plusSeconds(20));
+    assertEquals(NOW.plusSeconds(20), session.getLastAccessedTime());
+  }
+
+  @Test
+  void test_expiry() {
+    assertEquals(NOW.plus(Duration.ofMinutes(30)), session.getExpiryTime());
+    assertFalse(session.isExpired(NOW.plus(Duration.ofMinutes(30)).minusMillis(1)));
+    assertTrue(session.isExpired(NOW.plus(Duration.ofMinutes(30))));
+    assertTrue(session.isExpired());
+
+    session.setMaxInactiveInterval(Duration.ofSeconds(-1));
+    assertFalse(session.isExpired());
+  }
+}
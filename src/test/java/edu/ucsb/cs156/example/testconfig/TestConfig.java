@@ -2,10 +2,19 @@ package edu.ucsb.cs156.example.testconfig;
 
 import org.springframework.boot.test.context.TestConfiguration;
 import org.springframework.context.annotation.Bean;
+import org.springframework.jdbc.core.JdbcOperations;
 
 
+import java.util.List;
+
+import org.mockito.Mockito;
+
+import edu.ucsb.cs156.example.security.SessionTokenService;
+import edu.ucsb.cs156.example.services.AdminAuthorityResolver;
+import edu.ucsb.cs156.example.services.CurrentUserCache;
 import edu.ucsb.cs156.example.services.CurrentUserService;
 import edu.ucsb.cs156.example.services.GrantedAuthoritiesService;
+import edu.ucsb.cs156.example.services.ProfileSyncWriter;
 
 @TestConfiguration
 public class TestConfig {
@@ -20,4 +29,24 @@ public class TestConfig {
         return new GrantedAuthoritiesService();
     }
 
+    @Bean
+    public CurrentUserCache currentUserCache() {
+        return new CurrentUserCache(300, 10000);
+    }
+
+    @Bean
+    public AdminAuthorityResolver adminAuthorityResolver() {
+        return new AdminAuthorityResolver(List.of("admin@example.org"), List.of("ucsb.edu"), 60, 10000);
+    }
+
+    @Bean
+    public SessionTokenService sessionTokenService() {
+        return new SessionTokenService("", 28800);
+    }
+
+    @Bean
+    public ProfileSyncWriter profileSyncWriter() {
+        return new ProfileSyncWriter(Mockito.mock(JdbcOperations.class), 5000);
+    }
+
 }